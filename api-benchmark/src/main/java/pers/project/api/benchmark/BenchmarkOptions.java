@@ -0,0 +1,44 @@
+package pers.project.api.benchmark;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+
+/**
+ * 基准测试选项
+ * <p>
+ * 通过系统属性设置，例如 {@code -Dbenchmark.concurrency=128 -Dbenchmark.duration=60s}。
+ *
+ * @param concurrency  并发连接数（闭环压测，每个连接收到响应后立即发送下一个请求）
+ * @param warmup       预热时长，预热期间的结果不计入报告
+ * @param duration     测量时长
+ * @param responseSize Provider 桩响应体的大小（单位：字节）
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+record BenchmarkOptions(int concurrency, Duration warmup, Duration duration, int responseSize) {
+
+    private static final String PROPERTY_PREFIX = "benchmark.";
+
+    /**
+     * 从系统属性读取选项
+     *
+     * @return 基准测试选项
+     */
+    static BenchmarkOptions fromSystemProperties() {
+        int concurrency = Integer.getInteger(PROPERTY_PREFIX + "concurrency", 64);
+        Duration warmup = getDuration("warmup", "10s");
+        Duration duration = getDuration("duration", "30s");
+        int responseSize = Integer.getInteger(PROPERTY_PREFIX + "response-size", 256);
+        if (concurrency <= 0 || responseSize < 0 || duration.isZero() || duration.isNegative()) {
+            throw new IllegalArgumentException("Invalid benchmark options, concurrency: " + concurrency
+                                               + ", duration: " + duration + ", responseSize: " + responseSize);
+        }
+        return new BenchmarkOptions(concurrency, warmup, duration, responseSize);
+    }
+
+    private static Duration getDuration(String name, String defaultValue) {
+        return DurationStyle.detectAndParse(System.getProperty(PROPERTY_PREFIX + name, defaultValue));
+    }
+
+}
@@ -0,0 +1,50 @@
+package pers.project.api.benchmark;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.time.Duration;
+
+/**
+ * 基准测试结果
+ *
+ * @param requests  完成的请求数
+ * @param errors    失败的请求数（非 200 响应或发送异常）
+ * @param elapsed   实际测量时长
+ * @param latencies 请求延迟的直方图（单位：微秒）
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+record BenchmarkResult(long requests, long errors, Duration elapsed, Histogram latencies) {
+
+    /**
+     * 每秒完成的请求数
+     */
+    double getThroughput() {
+        return requests * 1_000_000_000.0 / elapsed.toNanos();
+    }
+
+    /**
+     * 输出报告
+     *
+     * @param out   输出流
+     * @param title 报告标题
+     */
+    void print(PrintStream out, String title) {
+        out.printf("""
+                        ===== %s =====
+                        requests:   %d (errors: %d)
+                        elapsed:    %.1f s
+                        throughput: %.1f req/s
+                        latency:    p50 %.3f ms, p99 %.3f ms, p999 %.3f ms, max %.3f ms
+                        """,
+                title, requests, errors, elapsed.toNanos() / 1_000_000_000.0, getThroughput(),
+                getPercentileMillis(50.0), getPercentileMillis(99.0), getPercentileMillis(99.9),
+                latencies.getMaxValue() / 1000.0);
+    }
+
+    private double getPercentileMillis(double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+}
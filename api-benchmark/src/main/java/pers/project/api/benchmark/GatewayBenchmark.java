@@ -0,0 +1,163 @@
+package pers.project.api.benchmark;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import pers.project.api.client.InsightApiClient;
+import pers.project.api.gateway.GatewayApplication;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static pers.project.api.common.constant.redis.RedissonNamePrefixConst.USER_QUANTITY_USAGE_STOCK_SEMAPHORE_NAME_PREFIX;
+
+/**
+ * Gateway 吞吐量基准测试
+ * <p>
+ * 在同一个 JVM 中启动内嵌的 Redis、代替 Security、Facade 和 Provider 的桩服务器以及使用 temp 配置的 Gateway，
+ * 然后通过 {@link InsightApiClient} 向 provider_route 发送签名请求，报告吞吐量和 p50、p99、p999 延迟。
+ * <p>
+ * 运行方式：
+ * <pre>
+ * mvn -pl api-benchmark -am package
+ * java -Dbenchmark.concurrency=64 -Dbenchmark.duration=30s -jar api-benchmark/target/api-benchmark-1.0.0.jar
+ * </pre>
+ * 命令行参数会传递给 Gateway，可以覆盖 Gateway 的配置，例如 {@code --insight-api.gateway.stock-lease.enabled=false}。
+ * <p>
+ * 注意：
+ * <p>
+ * 1. Gateway 按 https 计算签名（生产环境由 Nginx 终止 TLS），所以 Gateway 使用 keytool 临时生成的自签名证书启用 TLS，
+ * 测量结果包含 TLS 的开销。
+ * <p>
+ * 2. Gateway 通过负载均衡访问自身转发的 Security 和 Facade 请求以及直接访问 Security 的内部请求都发送到桩服务器，
+ * 缓存命中后不再发生。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+public class GatewayBenchmark {
+
+    private static final String KEY_STORE_PASSWORD = "benchmark";
+
+    private static final String REDIS_PASSWORD = "benchmark";
+
+    /**
+     * 基准测试用户接口用法的调用次数存量，足够任何时长的压测使用
+     */
+    private static final String USAGE_STOCK = "1000000000000";
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkOptions options = BenchmarkOptions.fromSystemProperties();
+        Path keyStore = generateKeyStore();
+        // 客户端信任 Gateway 的自签名证书
+        System.setProperty("javax.net.ssl.trustStore", keyStore.toString());
+        System.setProperty("javax.net.ssl.trustStorePassword", KEY_STORE_PASSWORD);
+        System.setProperty("javax.net.ssl.trustStoreType", "PKCS12");
+        int redisPort = getFreePort();
+        RedisServer redisServer = RedisServer.newRedisServer()
+                .port(redisPort)
+                .setting("bind 127.0.0.1")
+                .setting("requirepass " + REDIS_PASSWORD)
+                .build();
+        redisServer.start();
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try (StubServer stubServer = new StubServer(options.responseSize());
+             ConfigurableApplicationContext gateway = startGateway(args, keyStore, redisPort, stubServer.getPort())) {
+            gateway.getBean(ReactiveStringRedisTemplate.class).opsForValue()
+                    .set(USER_QUANTITY_USAGE_STOCK_SEMAPHORE_NAME_PREFIX + StubServer.USAGE_ID, USAGE_STOCK)
+                    .block(Duration.ofSeconds(10L));
+            String gatewayPort = gateway.getEnvironment().getRequiredProperty("local.server.port");
+            InsightApiClient client = InsightApiClient.newBuilder()
+                    .secretId(StubServer.SECRET_ID)
+                    .secretKey(StubServer.SECRET_KEY)
+                    .executor(clientExecutor)
+                    .connectTimeout(Duration.ofSeconds(5L))
+                    .build();
+            String url = "https://localhost:" + gatewayPort + "/gateway/provider/benchmark";
+            LoadDriver loadDriver = new LoadDriver(client, url, options.concurrency());
+            System.out.println("Benchmark options: " + options);
+            if (!options.warmup().isZero()) {
+                loadDriver.run(options.warmup()).print(System.out, "warmup");
+            }
+            loadDriver.run(options.duration()).print(System.out, "provider_route");
+        } finally {
+            clientExecutor.shutdownNow();
+            redisServer.stop();
+            Files.deleteIfExists(keyStore);
+        }
+    }
+
+    /**
+     * 启动 Gateway
+     *
+     * @param args      传递给 Gateway 的命令行参数，优先级高于基准测试的默认参数
+     * @param keyStore  TLS 证书的密钥库
+     * @param redisPort Redis 端口
+     * @param stubPort  桩服务器端口
+     * @return Gateway 的应用上下文
+     */
+    private static ConfigurableApplicationContext startGateway(String[] args, Path keyStore,
+                                                               int redisPort, int stubPort) {
+        String stubUri = "http://127.0.0.1:" + stubPort;
+        List<String> gatewayArgs = new ArrayList<>(List.of(
+                "--spring.profiles.active=temp",
+                "--server.port=0",
+                // 基准测试不使用 Actuator 端点，也不占用固定的管理端口
+                "--management.server.port=-1",
+                "--server.ssl.key-store=" + keyStore.toUri(),
+                "--server.ssl.key-store-password=" + KEY_STORE_PASSWORD,
+                "--server.ssl.key-store-type=PKCS12",
+                "--spring.data.redis.host=127.0.0.1",
+                "--spring.data.redis.port=" + redisPort,
+                "--spring.data.redis.password=" + REDIS_PASSWORD,
+                // 不注册到 Nacos，服务实例由简单服务发现提供
+                "--spring.cloud.nacos.discovery.enabled=false",
+                "--spring.cloud.service-registry.auto-registration.enabled=false",
+                "--spring.cloud.discovery.client.simple.instances.gateway[0].uri=" + stubUri,
+                "--spring.cloud.discovery.client.simple.instances.provider[0].uri=" + stubUri,
+                "--spring.cloud.discovery.client.simple.instances.security[0].uri=" + stubUri,
+                "--insight-api.gateway.pre-validation.secret-id-sync-token=benchmark",
+                "--logging.level.pers.project.api.gateway=warn"
+        ));
+        gatewayArgs.addAll(Arrays.asList(args));
+        return new SpringApplicationBuilder(GatewayApplication.class).run(gatewayArgs.toArray(String[]::new));
+    }
+
+    /**
+     * 使用 keytool 生成 localhost 的自签名证书
+     *
+     * @return PKCS12 密钥库的路径
+     */
+    private static Path generateKeyStore() throws IOException, InterruptedException {
+        Path keyStore = Files.createTempFile("gateway-benchmark-", ".p12");
+        Files.delete(keyStore);
+        Path keytool = Path.of(System.getProperty("java.home"), "bin", "keytool");
+        Process process = new ProcessBuilder(keytool.toString(), "-genkeypair",
+                "-alias", "gateway", "-keyalg", "EC", "-groupname", "secp256r1", "-validity", "1",
+                "-dname", "CN=localhost", "-ext", "SAN=dns:localhost,ip:127.0.0.1",
+                "-storetype", "PKCS12", "-keystore", keyStore.toString(),
+                "-storepass", KEY_STORE_PASSWORD, "-keypass", KEY_STORE_PASSWORD)
+                .inheritIO()
+                .start();
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Failed to generate key store with keytool");
+        }
+        return keyStore;
+    }
+
+    private static int getFreePort() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            return serverSocket.getLocalPort();
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+package pers.project.api.benchmark;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import pers.project.api.client.InsightApiClient;
+import pers.project.api.client.InsightApiRequest;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 负载驱动器
+ * <p>
+ * 闭环压测：每个并发连接收到响应后立即发送下一个请求，每次发送都由 {@link InsightApiClient} 重新生成时间戳、随机数和签名。
+ * <p>
+ * 闭环压测在 Gateway 变慢时会降低发送速率（协调遗漏），延迟百分位适合比较不同版本，不代表固定到达率下的延迟。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+final class LoadDriver {
+
+    /**
+     * 可记录的最大延迟（单位：微秒）
+     */
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1L);
+
+    private final InsightApiClient client;
+
+    private final InsightApiRequest request;
+
+    private final int concurrency;
+
+    LoadDriver(InsightApiClient client, String url, int concurrency) {
+        this.client = client;
+        this.request = InsightApiRequest.newBuilder()
+                .method("GET")
+                .url(url)
+                .timeout(Duration.ofSeconds(30L))
+                .build();
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * 发送请求直到时长结束
+     *
+     * @param duration 压测时长
+     * @return 基准测试结果
+     * @throws InterruptedException 如果等待时被中断
+     */
+    BenchmarkResult run(Duration duration) throws InterruptedException {
+        Run run = new Run(System.nanoTime() + duration.toNanos());
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < concurrency; i++) {
+            sendNext(run);
+        }
+        run.finished.await();
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - startNanos);
+        return new BenchmarkResult(run.requests.sum(), run.errors.sum(), elapsed, run.latencies);
+    }
+
+    private void sendNext(Run run) {
+        long startNanos = System.nanoTime();
+        if (startNanos - run.deadlineNanos >= 0) {
+            run.finished.countDown();
+            return;
+        }
+        client.sendAsync(request, byte[].class).whenComplete((response, e) -> {
+            long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+            run.latencies.recordValue(Math.min(latencyMicros, HIGHEST_TRACKABLE_MICROS));
+            run.requests.increment();
+            if (e != null || response.statusCode() != 200) {
+                run.errors.increment();
+            }
+            sendNext(run);
+        });
+    }
+
+    /**
+     * 一次压测的状态
+     */
+    private final class Run {
+
+        private final long deadlineNanos;
+
+        private final Histogram latencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+
+        private final LongAdder requests = new LongAdder();
+
+        private final LongAdder errors = new LongAdder();
+
+        private final CountDownLatch finished = new CountDownLatch(concurrency);
+
+        private Run(long deadlineNanos) {
+            this.deadlineNanos = deadlineNanos;
+        }
+
+    }
+
+}
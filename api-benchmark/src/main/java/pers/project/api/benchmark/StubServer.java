@@ -0,0 +1,144 @@
+package pers.project.api.benchmark;
+
+import com.alibaba.fastjson2.JSON;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import pers.project.api.common.model.dto.ClientUserInfoDTO;
+import pers.project.api.common.model.dto.QuantityUsageApiInfoDTO;
+import pers.project.api.common.model.dto.SecretIdPageDTO;
+import pers.project.api.common.util.ResultUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 桩服务器
+ * <p>
+ * 代替 Security、Facade 和 Provider 服务：用户信息、密钥 ID 和接口信息查询返回固定的基准测试用户和接口，
+ * 其他请求作为 Provider 请求返回固定大小的 JSON 响应体。
+ * <p>
+ * 用户信息和接口信息查询只在 Gateway 本地缓存未命中时发生，Provider 的处理耗时可以忽略，
+ * 测量结果主要反映 Gateway 自身的开销。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+final class StubServer implements AutoCloseable {
+
+    /**
+     * 与 Security 生成的密钥 ID 格式相同（16 字节的无填充 Base64 编码），否则会被 Gateway 的预校验拒绝
+     */
+    static final String SECRET_ID = "YmVuY2htYXJrLXNlY3JldA";
+
+    static final String SECRET_KEY = "benchmark-secret-key";
+
+    static final String ACCOUNT_ID = "1";
+
+    static final String DIGEST_ID = "1";
+
+    static final String USAGE_ID = "1";
+
+    private static final String USER_INFO_PATH = "/request/user/info/result";
+
+    private static final String SECRET_ID_PAGE_PATH = "/request/secret/id/page";
+
+    private static final String API_INFO_PATH = "/quantity/usage/api/info/result";
+
+    private static final String JSON_CONTENT_TYPE = "application/json";
+
+    private final HttpServer httpServer;
+
+    private final ExecutorService executor;
+
+    private final byte[] userInfoResultBytes;
+
+    private final byte[] secretIdPageResultBytes;
+
+    private final byte[] apiInfoResultBytes;
+
+    private final byte[] providerResponseBytes;
+
+    StubServer(int responseSize) throws IOException {
+        ClientUserInfoDTO userInfoDTO = new ClientUserInfoDTO();
+        userInfoDTO.setAccountId(ACCOUNT_ID);
+        userInfoDTO.setSecretKey(SECRET_KEY);
+        userInfoResultBytes = JSON.toJSONBytes(ResultUtils.success(userInfoDTO));
+        SecretIdPageDTO secretIdPageDTO = new SecretIdPageDTO();
+        secretIdPageDTO.setSecretIds(List.of(SECRET_ID));
+        secretIdPageResultBytes = JSON.toJSONBytes(ResultUtils.success(secretIdPageDTO));
+        // 不限流、不缓存、不合并，每个请求都完整地经过授权和转发
+        QuantityUsageApiInfoDTO apiInfoDTO = new QuantityUsageApiInfoDTO();
+        apiInfoDTO.setDigestId(DIGEST_ID);
+        apiInfoDTO.setUsageId(USAGE_ID);
+        apiInfoDTO.setApiRateLimit(0);
+        apiInfoDTO.setUsageRateLimit(0);
+        apiInfoDTO.setCacheTtl(0);
+        apiInfoDTO.setCoalescingEnabled(0);
+        apiInfoResultBytes = JSON.toJSONBytes(ResultUtils.success(apiInfoDTO));
+        providerResponseBytes = getProviderResponseBytes(responseSize);
+        httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        httpServer.createContext("/", this::handle);
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        httpServer.setExecutor(executor);
+        httpServer.start();
+    }
+
+    /**
+     * 获取监听的端口
+     */
+    int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            // 读完请求体，保证连接可以复用
+            try (InputStream requestBody = exchange.getRequestBody()) {
+                requestBody.transferTo(OutputStream.nullOutputStream());
+            }
+            String path = exchange.getRequestURI().getPath();
+            byte[] responseBytes;
+            if (path.endsWith(USER_INFO_PATH)) {
+                responseBytes = userInfoResultBytes;
+            } else if (path.endsWith(SECRET_ID_PAGE_PATH)) {
+                responseBytes = secretIdPageResultBytes;
+            } else if (path.endsWith(API_INFO_PATH)) {
+                responseBytes = apiInfoResultBytes;
+            } else {
+                responseBytes = providerResponseBytes;
+            }
+            exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, responseBytes.length);
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(responseBytes);
+            }
+        }
+    }
+
+    /**
+     * 生成指定大小的 JSON 响应体
+     */
+    private static byte[] getProviderResponseBytes(int responseSize) {
+        String prefix = "{\"data\":\"";
+        String suffix = "\"}";
+        int paddingSize = Math.max(responseSize - prefix.length() - suffix.length(), 0);
+        char[] padding = new char[paddingSize];
+        Arrays.fill(padding, 'x');
+        return (prefix + new String(padding) + suffix).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        httpServer.stop(0);
+        executor.shutdownNow();
+    }
+
+}
@@ -0,0 +1,347 @@
+package pers.project.api.benchmark.route;
+
+import org.HdrHistogram.Histogram;
+import pers.project.api.common.enumeration.ApiMethodEnum;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * 接口路由查询基准测试
+ * <p>
+ * 在指定的 MySQL 中创建临时库，按旧表结构（没有二级索引，{@code method LIKE}）和新表结构
+ * （{@code method_mask} 生成列、{@code idx_url_method_mask} 索引和 {@code uk_account_id_digest_id} 唯一索引）
+ * 分别写入相同的接口摘要和用户接口计数用法，然后用相同的随机查询序列测量 Facade 查询计数用法接口信息的两条 SQL 的延迟，
+ * 并输出两种表结构的执行计划。结束后删除临时库。
+ * <p>
+ * 运行方式：
+ * <pre>
+ * mvn -pl api-benchmark -am install -DskipTests
+ * mvn -pl api-benchmark exec:exec -Dexec.executable=java \
+ *     -Dexec.args="-Dbenchmark.jdbc-url=jdbc:mysql://127.0.0.1:3306 -Dbenchmark.jdbc-user=root \
+ *     -Dbenchmark.jdbc-password=root -cp %classpath pers.project.api.benchmark.route.RouteLookupBenchmark"
+ * </pre>
+ * 可以通过 {@code benchmark.apis}（默认 10 万）和 {@code benchmark.lookups}（默认 2000）调整数据量和查询次数。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+public class RouteLookupBenchmark {
+
+    private static final String PROPERTY_PREFIX = "benchmark.";
+
+    private static final String SCHEMA = "insight_api_route_benchmark";
+
+    private static final String URL_PREFIX = "https://insightapi.cn/gateway/provider/benchmark/api-";
+
+    /**
+     * 每个接口的请求方法从中随机选择 1 到 3 个
+     */
+    private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE", "PATCH"};
+
+    private static final int ACCOUNTS = 1000;
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String LEGACY_DIGEST_SQL = """
+            SELECT id, rate_limit, cache_ttl, cache_key_params, cache_hit_charged, coalescing_enabled
+            FROM legacy_api_digest
+            WHERE url = ? AND method LIKE ? AND is_deleted = 0""";
+
+    private static final String LEGACY_USAGE_SQL = """
+            SELECT id, rate_limit
+            FROM legacy_user_quantity_usage
+            WHERE digest_id = ? AND account_id = ? AND is_deleted = 0""";
+
+    private static final String ROUTE_DIGEST_SQL = """
+            SELECT id, rate_limit, cache_ttl, cache_key_params, cache_hit_charged, coalescing_enabled
+            FROM api_digest
+            WHERE url = ? AND method_mask & ? != 0 AND is_deleted = 0
+            LIMIT 1""";
+
+    private static final String ROUTE_USAGE_SQL = """
+            SELECT id, rate_limit
+            FROM user_quantity_usage
+            WHERE digest_id = ? AND account_id = ? AND is_deleted = 0""";
+
+    public static void main(String[] args) throws SQLException {
+        String jdbcUrl = System.getProperty(PROPERTY_PREFIX + "jdbc-url", "jdbc:mysql://127.0.0.1:3306");
+        int apis = Integer.getInteger(PROPERTY_PREFIX + "apis", 100_000);
+        int lookups = Integer.getInteger(PROPERTY_PREFIX + "lookups", 2000);
+        Properties properties = new Properties();
+        properties.setProperty("user", System.getProperty(PROPERTY_PREFIX + "jdbc-user", "root"));
+        properties.setProperty("password", System.getProperty(PROPERTY_PREFIX + "jdbc-password", ""));
+        properties.setProperty("rewriteBatchedStatements", "true");
+        try (Connection connection = DriverManager.getConnection(jdbcUrl, properties)) {
+            try {
+                createSchema(connection);
+                String[] apiMethods = insertApis(connection, apis);
+                List<Lookup> lookupList = createLookups(apiMethods, lookups);
+                System.out.printf("Benchmark options: apis=%d, lookups=%d%n", apis, lookups);
+                explain(connection, "legacy", LEGACY_DIGEST_SQL, LEGACY_USAGE_SQL, lookupList.get(0), true);
+                explain(connection, "route index", ROUTE_DIGEST_SQL, ROUTE_USAGE_SQL, lookupList.get(0), false);
+                // 先各自预热一轮，再测量
+                run(connection, LEGACY_DIGEST_SQL, LEGACY_USAGE_SQL, lookupList.subList(0, lookups / 10), true);
+                run(connection, LEGACY_DIGEST_SQL, LEGACY_USAGE_SQL, lookupList, true).print("legacy");
+                run(connection, ROUTE_DIGEST_SQL, ROUTE_USAGE_SQL, lookupList.subList(0, lookups / 10), false);
+                run(connection, ROUTE_DIGEST_SQL, ROUTE_USAGE_SQL, lookupList, false).print("route index");
+            } finally {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("DROP DATABASE IF EXISTS " + SCHEMA);
+                }
+            }
+        }
+    }
+
+    /**
+     * 创建临时库和两种表结构，与 sql/insight-api.sql 中的定义保持一致
+     */
+    private static void createSchema(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP DATABASE IF EXISTS " + SCHEMA);
+            statement.execute("CREATE DATABASE " + SCHEMA);
+            statement.execute("USE " + SCHEMA);
+            String digestColumns = """
+                    id                 BIGINT UNSIGNED            NOT NULL PRIMARY KEY,
+                    account_id         BIGINT UNSIGNED            NOT NULL,
+                    api_name           VARCHAR(256)               NOT NULL,
+                    description        VARCHAR(1024)              NULL,
+                    method             VARCHAR(256)               NOT NULL,
+                    url                VARCHAR(512)               NOT NULL,
+                    rate_limit         INT UNSIGNED DEFAULT 0     NOT NULL,
+                    cache_ttl          INT UNSIGNED DEFAULT 0     NOT NULL,
+                    cache_key_params   VARCHAR(512)               NULL,
+                    cache_hit_charged  TINYINT      DEFAULT 1     NOT NULL,
+                    coalescing_enabled TINYINT      DEFAULT 0     NOT NULL,
+                    is_deleted         TINYINT      DEFAULT 0     NOT NULL""";
+            String usageColumns = """
+                    id           BIGINT UNSIGNED         NOT NULL PRIMARY KEY,
+                    account_id   BIGINT UNSIGNED         NOT NULL,
+                    digest_id    BIGINT UNSIGNED         NOT NULL,
+                    stock        BIGINT UNSIGNED DEFAULT 0 NOT NULL,
+                    rate_limit   INT UNSIGNED DEFAULT 0  NOT NULL,
+                    is_deleted   TINYINT DEFAULT 0       NOT NULL""";
+            statement.execute("CREATE TABLE legacy_api_digest (" + digestColumns + ")");
+            statement.execute("CREATE TABLE legacy_user_quantity_usage (" + usageColumns + ")");
+            statement.execute("CREATE TABLE api_digest (" + digestColumns + """
+                    ,
+                    method_mask SMALLINT UNSIGNED AS (
+                            (FIND_IN_SET('GET', method) > 0)
+                            | ((FIND_IN_SET('HEAD', method) > 0) << 1)
+                            | ((FIND_IN_SET('POST', method) > 0) << 2)
+                            | ((FIND_IN_SET('PUT', method) > 0) << 3)
+                            | ((FIND_IN_SET('DELETE', method) > 0) << 4)
+                            | ((FIND_IN_SET('OPTIONS', method) > 0) << 5)
+                            | ((FIND_IN_SET('TRACE', method) > 0) << 6)
+                            | ((FIND_IN_SET('PATCH', method) > 0) << 7)
+                        ) STORED NOT NULL,
+                    INDEX idx_url_method_mask (url, method_mask, is_deleted))""");
+            statement.execute("CREATE TABLE user_quantity_usage (" + usageColumns + """
+                    ,
+                    UNIQUE INDEX uk_account_id_digest_id (account_id, digest_id))""");
+        }
+    }
+
+    /**
+     * 写入接口摘要和用户接口计数用法，两种表结构的数据相同
+     *
+     * @return 每个接口的请求方法
+     */
+    private static String[] insertApis(Connection connection, int apis) throws SQLException {
+        Random random = new Random(42L);
+        String[] apiMethods = new String[apis];
+        for (int i = 0; i < apis; i++) {
+            int methodCount = 1 + random.nextInt(3);
+            int start = random.nextInt(METHODS.length);
+            StringBuilder methodBuilder = new StringBuilder();
+            for (int j = 0; j < methodCount; j++) {
+                if (j > 0) {
+                    methodBuilder.append(',');
+                }
+                methodBuilder.append(METHODS[(start + j) % METHODS.length]);
+            }
+            apiMethods[i] = methodBuilder.toString();
+        }
+        connection.setAutoCommit(false);
+        for (String table : new String[]{"legacy_api_digest", "api_digest"}) {
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + table
+                    + " (id, account_id, api_name, description, method, url) VALUES (?, ?, ?, ?, ?, ?)")) {
+                for (int i = 0; i < apis; i++) {
+                    statement.setLong(1, i + 1L);
+                    statement.setLong(2, 1L);
+                    statement.setString(3, "Benchmark API " + i);
+                    statement.setString(4, "Route lookup benchmark API");
+                    statement.setString(5, apiMethods[i]);
+                    statement.setString(6, URL_PREFIX + i);
+                    addBatch(connection, statement, i);
+                }
+                statement.executeBatch();
+            }
+        }
+        for (String table : new String[]{"legacy_user_quantity_usage", "user_quantity_usage"}) {
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + table
+                    + " (id, account_id, digest_id, stock) VALUES (?, ?, ?, ?)")) {
+                for (int i = 0; i < apis; i++) {
+                    statement.setLong(1, i + 1L);
+                    statement.setLong(2, accountIdOf(i));
+                    statement.setLong(3, i + 1L);
+                    statement.setLong(4, 1000L);
+                    addBatch(connection, statement, i);
+                }
+                statement.executeBatch();
+            }
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE TABLE legacy_api_digest, legacy_user_quantity_usage, "
+                              + "api_digest, user_quantity_usage");
+        }
+        return apiMethods;
+    }
+
+    private static void addBatch(Connection connection, PreparedStatement statement, int i) throws SQLException {
+        statement.addBatch();
+        if ((i + 1) % BATCH_SIZE == 0) {
+            statement.executeBatch();
+            connection.commit();
+        }
+    }
+
+    private static long accountIdOf(int apiIndex) {
+        return apiIndex % ACCOUNTS + 1L;
+    }
+
+    /**
+     * 生成随机查询序列，每次查询一个接口的一个请求方法
+     */
+    private static List<Lookup> createLookups(String[] apiMethods, int lookups) {
+        Random random = new Random(7L);
+        List<Lookup> lookupList = new ArrayList<>(lookups);
+        for (int i = 0; i < lookups; i++) {
+            int apiIndex = random.nextInt(apiMethods.length);
+            String[] methods = apiMethods[apiIndex].split(",");
+            String method = methods[random.nextInt(methods.length)];
+            lookupList.add(new Lookup(URL_PREFIX + apiIndex, method, accountIdOf(apiIndex)));
+        }
+        return lookupList;
+    }
+
+    /**
+     * 按查询序列依次执行接口摘要查询和用户接口计数用法查询
+     *
+     * @param legacy 是否使用旧的模糊查询条件
+     * @return 查询结果
+     */
+    private static LookupResult run(Connection connection, String digestSql, String usageSql,
+                                    List<Lookup> lookupList, boolean legacy) throws SQLException {
+        Histogram latencies = new Histogram(3);
+        int misses = 0;
+        long startNanos = System.nanoTime();
+        try (PreparedStatement digestStatement = connection.prepareStatement(digestSql);
+             PreparedStatement usageStatement = connection.prepareStatement(usageSql)) {
+            for (Lookup lookup : lookupList) {
+                long lookupStartNanos = System.nanoTime();
+                Long digestId = queryDigestId(digestStatement, lookup, legacy);
+                boolean found = (digestId != null) && queryUsageExists(usageStatement, digestId, lookup.accountId());
+                latencies.recordValue((System.nanoTime() - lookupStartNanos) / 1000L);
+                if (!found) {
+                    misses++;
+                }
+            }
+        }
+        return new LookupResult(lookupList.size(), misses, System.nanoTime() - startNanos, latencies);
+    }
+
+    private static Long queryDigestId(PreparedStatement statement, Lookup lookup, boolean legacy)
+            throws SQLException {
+        statement.setString(1, lookup.url());
+        if (legacy) {
+            // 与 MyBatis-Plus 的 like 条件相同
+            statement.setString(2, "%" + lookup.method() + "%");
+        } else {
+            statement.setInt(2, ApiMethodEnum.getMaskByStoredValue(lookup.method()));
+        }
+        try (ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : null;
+        }
+    }
+
+    private static boolean queryUsageExists(PreparedStatement statement, long digestId, long accountId)
+            throws SQLException {
+        statement.setLong(1, digestId);
+        statement.setLong(2, accountId);
+        try (ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next();
+        }
+    }
+
+    /**
+     * 输出两条查询的执行计划（访问类型、使用的索引和估计扫描行数）
+     */
+    private static void explain(Connection connection, String title, String digestSql, String usageSql,
+                                Lookup lookup, boolean legacy) throws SQLException {
+        System.out.printf("===== EXPLAIN %s =====%n", title);
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + digestSql)) {
+            statement.setString(1, lookup.url());
+            if (legacy) {
+                statement.setString(2, "%" + lookup.method() + "%");
+            } else {
+                statement.setInt(2, ApiMethodEnum.getMaskByStoredValue(lookup.method()));
+            }
+            printExplain(statement);
+        }
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + usageSql)) {
+            statement.setLong(1, 1L);
+            statement.setLong(2, lookup.accountId());
+            printExplain(statement);
+        }
+    }
+
+    private static void printExplain(PreparedStatement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                System.out.printf("table: %s, type: %s, key: %s, rows: %s%n", resultSet.getString("table"),
+                        resultSet.getString("type"), resultSet.getString("key"), resultSet.getString("rows"));
+            }
+        }
+    }
+
+    /**
+     * 一次接口信息查询
+     *
+     * @param url       接口地址
+     * @param method    请求方法
+     * @param accountId 用户帐户主键
+     */
+    private record Lookup(String url, String method, long accountId) {
+    }
+
+    /**
+     * 查询结果
+     *
+     * @param lookups      查询次数
+     * @param misses       没有找到接口或用法的次数（应当为 0）
+     * @param elapsedNanos 总耗时
+     * @param latencies    每次查询的延迟（单位：微秒）
+     */
+    private record LookupResult(int lookups, int misses, long elapsedNanos, Histogram latencies) {
+
+        private void print(String title) {
+            System.out.printf("""
+                            ===== %s =====
+                            lookups:    %d (misses: %d)
+                            throughput: %.1f lookups/s
+                            latency:    p50 %.3f ms, p99 %.3f ms, max %.3f ms
+                            """,
+                    title, lookups, misses, lookups * 1_000_000_000.0 / elapsedNanos,
+                    latencies.getValueAtPercentile(50.0) / 1000.0, latencies.getValueAtPercentile(99.0) / 1000.0,
+                    latencies.getMaxValue() / 1000.0);
+        }
+
+    }
+
+}
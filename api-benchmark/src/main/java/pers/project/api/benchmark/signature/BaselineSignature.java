@@ -0,0 +1,134 @@
+package pers.project.api.benchmark.signature;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.util.Assert;
+import org.springframework.web.server.ServerWebExchange;
+import pers.project.api.gateway.util.GatewayHttpUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.List;
+
+import static pers.project.api.gateway.enumaration.SignatureRequestHeaderEnum.ORIGINAL_URL;
+import static pers.project.api.gateway.enumaration.SignatureRequestHeaderEnum.USAGE_TYPE;
+
+/**
+ * 基线签名实现
+ * <p>
+ * 规范请求构建器之前的 Gateway 验签实现的副本，只用于 {@link SignatureBenchmark} 对比：
+ * 拼接完整的 URL 字符串，通过 {@code List} 和 {@code Assert} 读取请求头，各部分分别更新 {@link Mac}。
+ * 调试日志关闭时的行为与原实现一致。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+final class BaselineSignature {
+
+    private static final String HTTPS_SCHEMA = "https:";
+
+    private static final byte[] USAGE_TYPE_HEADER_NAME_BYTES
+            = USAGE_TYPE.getHeaderName().getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] ORIGINAL_URL_HEADER_NAME_BYTES
+            = ORIGINAL_URL.getHeaderName().getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private static final ThreadLocal<MacHolder> MAC_HOLDER = ThreadLocal.withInitial(MacHolder::new);
+
+    private BaselineSignature() {
+    }
+
+    static String getSign(String secretKey, ServerWebExchange exchange) {
+        ServerHttpRequest request = exchange.getRequest();
+        String urlWithVariablesAndParams = HTTPS_SCHEMA + request.getURI().getSchemeSpecificPart();
+        HttpHeaders headers = request.getHeaders();
+        String usageType = getSingleHeaderValue(headers, USAGE_TYPE.getHeaderName());
+        String originalUrl = getSingleHeaderValue(headers, ORIGINAL_URL.getHeaderName());
+        byte[] requestBodyDigest = GatewayHttpUtils.getRequestBodyDigest(exchange);
+        MacHolder holder = MAC_HOLDER.get();
+        holder.init(secretKey);
+        holder.update(request.getMethod().name());
+        holder.update(urlWithVariablesAndParams);
+        holder.mac.update(USAGE_TYPE_HEADER_NAME_BYTES);
+        holder.update(usageType);
+        holder.mac.update(ORIGINAL_URL_HEADER_NAME_BYTES);
+        holder.update(originalUrl);
+        if (requestBodyDigest != null) {
+            holder.updateHex(requestBodyDigest);
+        }
+        return Base64.getEncoder().encodeToString(holder.mac.doFinal());
+    }
+
+    private static String getSingleHeaderValue(HttpHeaders headers, String headerName) {
+        List<String> headerValueList = headers.get(headerName);
+        Assert.isTrue(headerValueList != null && headerValueList.size() == 1,
+                "The headerValueList must be not null and have one element");
+        return headerValueList.get(0);
+    }
+
+    private static final class MacHolder {
+
+        private final Mac mac;
+
+        private String secretKey;
+
+        private byte[] buffer = new byte[256];
+
+        private MacHolder() {
+            try {
+                mac = Mac.getInstance("HmacSHA256");
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void init(String secretKey) {
+            if (secretKey.equals(this.secretKey)) {
+                return;
+            }
+            try {
+                mac.init(new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+            this.secretKey = secretKey;
+        }
+
+        private void update(String string) {
+            int length = string.length();
+            byte[] bytes = ensureCapacity(length);
+            for (int i = 0; i < length; i++) {
+                char c = string.charAt(i);
+                if (c >= 0x80) {
+                    mac.update(string.getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                bytes[i] = (byte) c;
+            }
+            mac.update(bytes, 0, length);
+        }
+
+        private void updateHex(byte[] data) {
+            byte[] bytes = ensureCapacity(data.length << 1);
+            for (int i = 0; i < data.length; i++) {
+                bytes[i << 1] = HEX_DIGITS[(data[i] >>> 4) & 0x0f];
+                bytes[(i << 1) + 1] = HEX_DIGITS[data[i] & 0x0f];
+            }
+            mac.update(bytes, 0, data.length << 1);
+        }
+
+        private byte[] ensureCapacity(int capacity) {
+            if (buffer.length < capacity) {
+                buffer = new byte[Math.max(capacity, buffer.length << 1)];
+            }
+            return buffer;
+        }
+
+    }
+
+}
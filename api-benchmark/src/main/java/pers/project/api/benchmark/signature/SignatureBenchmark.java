@@ -0,0 +1,100 @@
+package pers.project.api.benchmark.signature;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import pers.project.api.gateway.util.SignatureHeaderUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+import static pers.project.api.gateway.constant.ExchangeAttributeNameConst.REQUEST_BODY_DIGEST;
+import static pers.project.api.gateway.enumaration.SignatureRequestHeaderEnum.*;
+
+/**
+ * 验签的 JMH 基准测试
+ * <p>
+ * 对比基线实现（{@link BaselineSignature}）和规范请求构建器实现（{@link SignatureHeaderUtils#getSign}）
+ * 每次验签的耗时和内存分配（gc.alloc.rate.norm）。
+ * <p>
+ * 运行方式（forked JVM 需要完整的类路径，所以通过 exec:exec 启动）：
+ * <pre>
+ * mvn -pl api-benchmark -am install -DskipTests
+ * mvn -pl api-benchmark exec:exec -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath pers.project.api.benchmark.signature.SignatureBenchmark"
+ * </pre>
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class SignatureBenchmark {
+
+    private static final String SECRET_KEY = "benchmark-secret-key";
+
+    private static final String ORIGINAL_URL_VALUE = "https://insightapi.cn/gateway/provider/ip/searcher";
+
+    /**
+     * 是否有请求体（请求体摘要在过滤器中只计算一次，这里预先放入属性）
+     */
+    @Param({"false", "true"})
+    public boolean withBody;
+
+    private ServerWebExchange exchange;
+
+    @Setup
+    public void setup() throws NoSuchAlgorithmException {
+        HttpMethod method = withBody ? HttpMethod.POST : HttpMethod.GET;
+        MockServerHttpRequest request = MockServerHttpRequest
+                .method(method, ORIGINAL_URL_VALUE + "?ip=112.10.77.158&lang=zh-CN")
+                .header(USAGE_TYPE.getHeaderName(), "QUANTITY")
+                .header(ORIGINAL_URL.getHeaderName(), ORIGINAL_URL_VALUE)
+                .header(SECRET_ID.getHeaderName(), "benchmark-secret-id")
+                .header(TIMESTAMP.getHeaderName(), "1690300800000")
+                .header(NONCE.getHeaderName(), "1234567890")
+                .header(SIGN.getHeaderName(), "sign")
+                .build();
+        exchange = MockServerWebExchange.from(request);
+        if (withBody) {
+            byte[] body = "{\"ip\":\"112.10.77.158\",\"lang\":\"zh-CN\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getAttributes().put(REQUEST_BODY_DIGEST, MessageDigest.getInstance("SHA-256").digest(body));
+        }
+        // 两种实现的签名必须一致
+        if (!baseline().equals(canonicalRequest())) {
+            throw new IllegalStateException("The baseline and canonical request signatures are different");
+        }
+    }
+
+    @Benchmark
+    public String baseline() {
+        return BaselineSignature.getSign(SECRET_KEY, exchange);
+    }
+
+    @Benchmark
+    public String canonicalRequest() {
+        return SignatureHeaderUtils.getSign(SECRET_KEY, exchange);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SignatureBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+}
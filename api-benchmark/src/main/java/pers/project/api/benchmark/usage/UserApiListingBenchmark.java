@@ -0,0 +1,437 @@
+package pers.project.api.benchmark.usage;
+
+import org.HdrHistogram.Histogram;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * 用户接口列表查询基准测试
+ * <p>
+ * 在指定的 MySQL 中创建临时库，写入接口摘要和用户接口计数用法，其中一个大用户使用大量接口，
+ * 然后用相同的随机页码序列测量 Facade 分页查询用户使用的接口的两种方式的延迟，并输出执行计划。结束后删除临时库。
+ * <p>
+ * 1. in list：先查询用户使用的全部接口摘要主键，再用 {@code id IN (...)} 统计总数和分页查询（旧的实现）。
+ * <p>
+ * 2. semi join：{@code ApiDigestMapper.selectUserApiDigestPage} 的单条 SQL，用户使用的接口由子查询限定。
+ * <p>
+ * 3. keyset：与 2 相同的 SQL，按 (create_time, id) 降序的键集分页依次查询全部页面，不统计总数。
+ * <p>
+ * 运行方式：
+ * <pre>
+ * mvn -pl api-benchmark -am install -DskipTests
+ * mvn -pl api-benchmark exec:exec -Dexec.executable=java \
+ *     -Dexec.args="-Dbenchmark.jdbc-url=jdbc:mysql://127.0.0.1:3306 -Dbenchmark.jdbc-user=root \
+ *     -Dbenchmark.jdbc-password=root -cp %classpath pers.project.api.benchmark.usage.UserApiListingBenchmark"
+ * </pre>
+ * 可以通过 {@code benchmark.apis}（默认 10 万）、{@code benchmark.subscriptions}（大用户使用的接口数，默认 1 万）、
+ * {@code benchmark.page-size}（默认 20）和 {@code benchmark.queries}（默认 500）调整数据量和查询次数。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+public class UserApiListingBenchmark {
+
+    private static final String PROPERTY_PREFIX = "benchmark.";
+
+    private static final String SCHEMA = "insight_api_listing_benchmark";
+
+    /**
+     * 大用户的账户主键
+     */
+    private static final long POWER_ACCOUNT_ID = 1L;
+
+    /**
+     * 其他用户的数量，每个用户使用 {@link #SUBSCRIPTIONS_PER_ACCOUNT} 个接口
+     */
+    private static final int ACCOUNTS = 1000;
+
+    private static final int SUBSCRIPTIONS_PER_ACCOUNT = 50;
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String DIGEST_COLUMNS = """
+            id, account_id, api_name, description, method, url, usage_type, api_status, \
+            rate_limit, cache_ttl, cache_key_params, cache_hit_charged, coalescing_enabled, \
+            is_deleted, create_time, update_time""";
+
+    private static final String LEGACY_DIGEST_ID_SQL = """
+            SELECT digest_id
+            FROM user_quantity_usage
+            WHERE account_id = ? AND is_deleted = 0""";
+
+    private static final String JOINED_WHERE = """
+            FROM api_digest
+            WHERE is_deleted = 0
+              AND id IN (SELECT digest_id
+                         FROM user_quantity_usage
+                         WHERE account_id = ?
+                           AND is_deleted = 0)""";
+
+    private static final String JOINED_COUNT_SQL = "SELECT COUNT(*) " + JOINED_WHERE;
+
+    private static final String JOINED_PAGE_SQL = "SELECT " + DIGEST_COLUMNS + " " + JOINED_WHERE + """
+
+            LIMIT ?, ?""";
+
+    private static final String KEYSET_FIRST_PAGE_SQL = "SELECT " + DIGEST_COLUMNS + " " + JOINED_WHERE + """
+
+            ORDER BY create_time DESC, id DESC
+            LIMIT ?""";
+
+    private static final String KEYSET_NEXT_PAGE_SQL = "SELECT " + DIGEST_COLUMNS + " " + JOINED_WHERE + """
+
+              AND create_time <= ?
+              AND (create_time < ? OR id < ?)
+            ORDER BY create_time DESC, id DESC
+            LIMIT ?""";
+
+    public static void main(String[] args) throws SQLException {
+        String jdbcUrl = System.getProperty(PROPERTY_PREFIX + "jdbc-url", "jdbc:mysql://127.0.0.1:3306");
+        int apis = Integer.getInteger(PROPERTY_PREFIX + "apis", 100_000);
+        // in list 方式每个主键一个占位符，受 MySQL 预处理语句 65535 个占位符的限制
+        int subscriptions = Math.max(1, Math.min(Integer.getInteger(PROPERTY_PREFIX + "subscriptions", 10_000),
+                Math.min(apis, 65_000)));
+        int pageSize = Integer.getInteger(PROPERTY_PREFIX + "page-size", 20);
+        int queries = Integer.getInteger(PROPERTY_PREFIX + "queries", 500);
+        Properties properties = new Properties();
+        properties.setProperty("user", System.getProperty(PROPERTY_PREFIX + "jdbc-user", "root"));
+        properties.setProperty("password", System.getProperty(PROPERTY_PREFIX + "jdbc-password", ""));
+        properties.setProperty("rewriteBatchedStatements", "true");
+        try (Connection connection = DriverManager.getConnection(jdbcUrl, properties)) {
+            try {
+                createSchema(connection);
+                insertData(connection, apis, subscriptions);
+                int pages = (subscriptions + pageSize - 1) / pageSize;
+                List<Long> pageList = createPages(pages, queries);
+                System.out.printf("Benchmark options: apis=%d, subscriptions=%d, page-size=%d, queries=%d%n",
+                        apis, subscriptions, pageSize, queries);
+                explain(connection, pageSize);
+                // 先各自预热一轮，再测量
+                runInList(connection, pageList.subList(0, queries / 10), pageSize);
+                runInList(connection, pageList, pageSize).print("in list");
+                runSemiJoin(connection, pageList.subList(0, queries / 10), pageSize);
+                runSemiJoin(connection, pageList, pageSize).print("semi join");
+                runKeyset(connection, pages, pageSize);
+                runKeyset(connection, pages, pageSize).print("keyset");
+            } finally {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("DROP DATABASE IF EXISTS " + SCHEMA);
+                }
+            }
+        }
+    }
+
+    /**
+     * 创建临时库，表结构与 sql/insight-api.sql 中的定义保持一致
+     */
+    private static void createSchema(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP DATABASE IF EXISTS " + SCHEMA);
+            statement.execute("CREATE DATABASE " + SCHEMA);
+            statement.execute("USE " + SCHEMA);
+            statement.execute("""
+                    CREATE TABLE api_digest (
+                        id                 BIGINT UNSIGNED            NOT NULL PRIMARY KEY,
+                        account_id         BIGINT UNSIGNED            NOT NULL,
+                        api_name           VARCHAR(256)               NOT NULL,
+                        description        VARCHAR(1024)              NULL,
+                        method             VARCHAR(256)               NOT NULL,
+                        url                VARCHAR(512)               NOT NULL,
+                        usage_type         VARCHAR(256)               NOT NULL,
+                        api_status         TINYINT      DEFAULT 0     NOT NULL,
+                        rate_limit         INT UNSIGNED DEFAULT 0     NOT NULL,
+                        cache_ttl          INT UNSIGNED DEFAULT 0     NOT NULL,
+                        cache_key_params   VARCHAR(512)               NULL,
+                        cache_hit_charged  TINYINT      DEFAULT 1     NOT NULL,
+                        coalescing_enabled TINYINT      DEFAULT 0     NOT NULL,
+                        is_deleted         TINYINT      DEFAULT 0     NOT NULL,
+                        create_time        DATETIME                   NOT NULL,
+                        update_time        DATETIME                   NOT NULL,
+                        INDEX idx_create_time (create_time))""");
+            statement.execute("""
+                    CREATE TABLE user_quantity_usage (
+                        id           BIGINT UNSIGNED           NOT NULL PRIMARY KEY,
+                        account_id   BIGINT UNSIGNED           NOT NULL,
+                        digest_id    BIGINT UNSIGNED           NOT NULL,
+                        stock        BIGINT UNSIGNED DEFAULT 0 NOT NULL,
+                        rate_limit   INT UNSIGNED DEFAULT 0    NOT NULL,
+                        is_deleted   TINYINT DEFAULT 0         NOT NULL,
+                        UNIQUE INDEX uk_account_id_digest_id (account_id, digest_id),
+                        INDEX idx_account_id_is_deleted_digest_id (account_id, is_deleted, digest_id))""");
+        }
+    }
+
+    /**
+     * 写入接口摘要和用户接口计数用法，大用户随机使用 {@code subscriptions} 个接口
+     */
+    private static void insertData(Connection connection, int apis, int subscriptions) throws SQLException {
+        Random random = new Random(42L);
+        connection.setAutoCommit(false);
+        LocalDateTime baseTime = LocalDateTime.of(2023, 1, 1, 0, 0);
+        try (PreparedStatement statement = connection.prepareStatement("""
+                INSERT INTO api_digest (id, account_id, api_name, description, method, url, usage_type,
+                                        create_time, update_time)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)""")) {
+            for (int i = 0; i < apis; i++) {
+                // 每分钟创建若干个接口，存在创建时间相同的接口
+                Timestamp createTime = Timestamp.valueOf(baseTime.plusMinutes(i / 4));
+                statement.setLong(1, i + 1L);
+                statement.setLong(2, 1L + random.nextInt(ACCOUNTS));
+                statement.setString(3, "Benchmark API " + i);
+                statement.setString(4, "User API listing benchmark API");
+                statement.setString(5, "GET,POST");
+                statement.setString(6, "https://insightapi.cn/gateway/provider/benchmark/api-" + i);
+                statement.setString(7, "QUANTITY");
+                statement.setTimestamp(8, createTime);
+                statement.setTimestamp(9, createTime);
+                addBatch(connection, statement, i);
+            }
+            statement.executeBatch();
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO user_quantity_usage (id, account_id, digest_id, stock) VALUES (?, ?, ?, ?)")) {
+            long usageId = 0L;
+            // 大用户使用的接口：对接口主键做部分洗牌后取前 subscriptions 个
+            int[] digestIndexes = new int[apis];
+            for (int i = 0; i < apis; i++) {
+                digestIndexes[i] = i;
+            }
+            for (int i = 0; i < subscriptions; i++) {
+                int j = i + random.nextInt(apis - i);
+                int digestIndex = digestIndexes[j];
+                digestIndexes[j] = digestIndexes[i];
+                statement.setLong(1, ++usageId);
+                statement.setLong(2, POWER_ACCOUNT_ID);
+                statement.setLong(3, digestIndex + 1L);
+                statement.setLong(4, 1000L);
+                addBatch(connection, statement, (int) usageId);
+            }
+            // 其他用户各自使用少量的接口
+            for (long accountId = POWER_ACCOUNT_ID + 1L; accountId <= POWER_ACCOUNT_ID + ACCOUNTS; accountId++) {
+                int start = random.nextInt(apis);
+                for (int i = 0; i < SUBSCRIPTIONS_PER_ACCOUNT; i++) {
+                    statement.setLong(1, ++usageId);
+                    statement.setLong(2, accountId);
+                    statement.setLong(3, (start + i) % apis + 1L);
+                    statement.setLong(4, 1000L);
+                    addBatch(connection, statement, (int) usageId);
+                }
+            }
+            statement.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE TABLE api_digest, user_quantity_usage");
+        }
+    }
+
+    private static void addBatch(Connection connection, PreparedStatement statement, int i) throws SQLException {
+        statement.addBatch();
+        if ((i + 1) % BATCH_SIZE == 0) {
+            statement.executeBatch();
+            connection.commit();
+        }
+    }
+
+    /**
+     * 生成随机页码序列
+     */
+    private static List<Long> createPages(int pages, int queries) {
+        Random random = new Random(7L);
+        List<Long> pageList = new ArrayList<>(queries);
+        for (int i = 0; i < queries; i++) {
+            pageList.add(1L + random.nextInt(pages));
+        }
+        return pageList;
+    }
+
+    /**
+     * 旧的实现：查询全部接口摘要主键，再用 IN 列表统计总数和分页查询
+     */
+    private static ListingResult runInList(Connection connection, List<Long> pageList, int pageSize)
+            throws SQLException {
+        Histogram latencies = new Histogram(3);
+        long rows = 0L;
+        long startNanos = System.nanoTime();
+        try (PreparedStatement digestIdStatement = connection.prepareStatement(LEGACY_DIGEST_ID_SQL)) {
+            for (long current : pageList) {
+                long queryStartNanos = System.nanoTime();
+                digestIdStatement.setLong(1, POWER_ACCOUNT_ID);
+                List<Long> digestIds = new ArrayList<>();
+                try (ResultSet resultSet = digestIdStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        digestIds.add(resultSet.getLong(1));
+                    }
+                }
+                // 与 MyBatis-Plus 的 in 条件相同，每个主键一个参数
+                String inList = "?" + ",?".repeat(digestIds.size() - 1);
+                String where = " FROM api_digest WHERE id IN (" + inList + ") AND is_deleted = 0";
+                try (PreparedStatement countStatement = connection.prepareStatement("SELECT COUNT(*)" + where);
+                     PreparedStatement pageStatement = connection.prepareStatement
+                             ("SELECT " + DIGEST_COLUMNS + where + " LIMIT ?, ?")) {
+                    for (int i = 0; i < digestIds.size(); i++) {
+                        countStatement.setLong(i + 1, digestIds.get(i));
+                        pageStatement.setLong(i + 1, digestIds.get(i));
+                    }
+                    count(countStatement);
+                    pageStatement.setLong(digestIds.size() + 1, (current - 1L) * pageSize);
+                    pageStatement.setLong(digestIds.size() + 2, pageSize);
+                    rows += drain(pageStatement);
+                }
+                latencies.recordValue((System.nanoTime() - queryStartNanos) / 1000L);
+            }
+        }
+        return new ListingResult(pageList.size(), rows, System.nanoTime() - startNanos, latencies);
+    }
+
+    /**
+     * 新的实现：单条 SQL 统计总数和分页查询
+     */
+    private static ListingResult runSemiJoin(Connection connection, List<Long> pageList, int pageSize)
+            throws SQLException {
+        Histogram latencies = new Histogram(3);
+        long rows = 0L;
+        long startNanos = System.nanoTime();
+        try (PreparedStatement countStatement = connection.prepareStatement(JOINED_COUNT_SQL);
+             PreparedStatement pageStatement = connection.prepareStatement(JOINED_PAGE_SQL)) {
+            for (long current : pageList) {
+                long queryStartNanos = System.nanoTime();
+                countStatement.setLong(1, POWER_ACCOUNT_ID);
+                count(countStatement);
+                pageStatement.setLong(1, POWER_ACCOUNT_ID);
+                pageStatement.setLong(2, (current - 1L) * pageSize);
+                pageStatement.setLong(3, pageSize);
+                rows += drain(pageStatement);
+                latencies.recordValue((System.nanoTime() - queryStartNanos) / 1000L);
+            }
+        }
+        return new ListingResult(pageList.size(), rows, System.nanoTime() - startNanos, latencies);
+    }
+
+    /**
+     * 键集分页依次查询全部页面，每页多查询一条记录判断是否有下一页
+     */
+    private static ListingResult runKeyset(Connection connection, int pages, int pageSize) throws SQLException {
+        Histogram latencies = new Histogram(3);
+        long rows = 0L;
+        int queries = 0;
+        long startNanos = System.nanoTime();
+        try (PreparedStatement firstStatement = connection.prepareStatement(KEYSET_FIRST_PAGE_SQL);
+             PreparedStatement nextStatement = connection.prepareStatement(KEYSET_NEXT_PAGE_SQL)) {
+            Timestamp lastCreateTime = null;
+            long lastId = 0L;
+            for (int page = 0; page < pages; page++) {
+                long queryStartNanos = System.nanoTime();
+                PreparedStatement statement;
+                if (lastCreateTime == null) {
+                    statement = firstStatement;
+                    statement.setLong(1, POWER_ACCOUNT_ID);
+                    statement.setInt(2, pageSize + 1);
+                } else {
+                    statement = nextStatement;
+                    statement.setLong(1, POWER_ACCOUNT_ID);
+                    statement.setTimestamp(2, lastCreateTime);
+                    statement.setTimestamp(3, lastCreateTime);
+                    statement.setLong(4, lastId);
+                    statement.setInt(5, pageSize + 1);
+                }
+                int pageRows = 0;
+                boolean hasNext = false;
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        if (pageRows == pageSize) {
+                            hasNext = true;
+                            break;
+                        }
+                        pageRows++;
+                        lastId = resultSet.getLong("id");
+                        lastCreateTime = resultSet.getTimestamp("create_time");
+                    }
+                }
+                latencies.recordValue((System.nanoTime() - queryStartNanos) / 1000L);
+                queries++;
+                rows += pageRows;
+                if (!hasNext) {
+                    break;
+                }
+            }
+        }
+        return new ListingResult(queries, rows, System.nanoTime() - startNanos, latencies);
+    }
+
+    private static void count(PreparedStatement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+        }
+    }
+
+    private static int drain(PreparedStatement statement) throws SQLException {
+        int rows = 0;
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * 输出单条 SQL 分页查询和键集分页查询的执行计划（访问类型、使用的索引、估计扫描行数和额外信息）
+     */
+    private static void explain(Connection connection, int pageSize) throws SQLException {
+        System.out.println("===== EXPLAIN semi join =====");
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + JOINED_PAGE_SQL)) {
+            statement.setLong(1, POWER_ACCOUNT_ID);
+            statement.setLong(2, 0L);
+            statement.setLong(3, pageSize);
+            printExplain(statement);
+        }
+        System.out.println("===== EXPLAIN keyset =====");
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + KEYSET_FIRST_PAGE_SQL)) {
+            statement.setLong(1, POWER_ACCOUNT_ID);
+            statement.setInt(2, pageSize + 1);
+            printExplain(statement);
+        }
+    }
+
+    private static void printExplain(PreparedStatement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                System.out.printf("table: %s, type: %s, key: %s, rows: %s, extra: %s%n",
+                        resultSet.getString("table"), resultSet.getString("type"), resultSet.getString("key"),
+                        resultSet.getString("rows"), resultSet.getString("Extra"));
+            }
+        }
+    }
+
+    /**
+     * 查询结果
+     *
+     * @param queries      列表查询次数
+     * @param rows         返回的接口摘要总数
+     * @param elapsedNanos 总耗时
+     * @param latencies    每次列表查询的延迟（单位：微秒）
+     */
+    private record ListingResult(int queries, long rows, long elapsedNanos, Histogram latencies) {
+
+        private void print(String title) {
+            System.out.printf("""
+                            ===== %s =====
+                            queries:    %d (rows: %d)
+                            throughput: %.1f queries/s
+                            latency:    p50 %.3f ms, p99 %.3f ms, max %.3f ms
+                            """,
+                    title, queries, rows, queries * 1_000_000_000.0 / elapsedNanos,
+                    latencies.getValueAtPercentile(50.0) / 1000.0, latencies.getValueAtPercentile(99.0) / 1000.0,
+                    latencies.getMaxValue() / 1000.0);
+        }
+
+    }
+
+}
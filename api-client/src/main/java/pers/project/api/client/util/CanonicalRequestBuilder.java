@@ -0,0 +1,117 @@
+package pers.project.api.client.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 规范请求构建器
+ * <p>
+ * 把规范请求的各部分以 UTF-8 编码写入可复用的字节缓冲区，由 {@link SignatureEngine} 的每个线程持有一个实例，
+ * 签名时只调用一次 {@code Mac.update}，ASCII 字符串不会分配新的字节数组。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+final class CanonicalRequestBuilder {
+
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * 超过该大小的缓冲区在重置时释放，避免个别超长的 URL 长期占用内存
+     */
+    private static final int MAX_RETAINED_CAPACITY = 16 * 1024;
+
+    private static final int INITIAL_CAPACITY = 512;
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+
+    private int length;
+
+    /**
+     * 清空已写入的内容
+     *
+     * @return 构建器实例
+     */
+    CanonicalRequestBuilder reset() {
+        if (buffer.length > MAX_RETAINED_CAPACITY) {
+            buffer = new byte[INITIAL_CAPACITY];
+        }
+        length = 0;
+        return this;
+    }
+
+    /**
+     * 以 UTF-8 编码写入字符串
+     *
+     * @param string 字符串
+     * @return 构建器实例
+     */
+    CanonicalRequestBuilder append(String string) {
+        int stringLength = string.length();
+        ensureCapacity(length + stringLength);
+        for (int i = 0; i < stringLength; i++) {
+            char c = string.charAt(i);
+            if (c >= 0x80) {
+                // 非 ASCII 字符串回退为一次性编码剩余部分
+                return append(string.substring(i).getBytes(StandardCharsets.UTF_8));
+            }
+            buffer[length++] = (byte) c;
+        }
+        return this;
+    }
+
+    /**
+     * 写入字节数组
+     *
+     * @param bytes 字节数组
+     * @return 构建器实例
+     */
+    CanonicalRequestBuilder append(byte[] bytes) {
+        ensureCapacity(length + bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+        return this;
+    }
+
+    /**
+     * 以十六进制小写字符串的形式写入字节数组
+     *
+     * @param data 字节数组
+     * @return 构建器实例
+     */
+    CanonicalRequestBuilder appendHex(byte[] data) {
+        ensureCapacity(length + (data.length << 1));
+        for (byte b : data) {
+            buffer[length++] = HEX_DIGITS[(b >>> 4) & 0x0f];
+            buffer[length++] = HEX_DIGITS[b & 0x0f];
+        }
+        return this;
+    }
+
+    /**
+     * 获取缓冲区，有效内容为 {@code [0, length())}
+     */
+    byte[] buffer() {
+        return buffer;
+    }
+
+    /**
+     * 获取已写入的字节数
+     */
+    int length() {
+        return length;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (buffer.length < capacity) {
+            byte[] newBuffer = new byte[Math.max(capacity, buffer.length << 1)];
+            System.arraycopy(buffer, 0, newBuffer, 0, length);
+            buffer = newBuffer;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,173 @@
+package pers.project.api.client.util;
+
+import pers.project.api.client.exeception.InsightApiClientException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static pers.project.api.client.enumaration.SignatureRequestHeaderEnum.ORIGINAL_URL;
+import static pers.project.api.client.enumaration.SignatureRequestHeaderEnum.USAGE_TYPE;
+
+/**
+ * Insight API 签名引擎
+ * <p>
+ * 客户端和 Gateway 共用的规范请求拼接和 HMAC-SHA256 签名，两端的拼接规则不会再出现差异。
+ * <p>
+ * 规范请求依次由以下部分组成：
+ * <pre>
+ * 请求方法 + 带路径变量和请求参数的 URL
+ * + Insight-Usage-Type + 用法类型 + Insight-Original-Url + 原始 URL
+ * + 请求体 SHA-256 摘要的十六进制小写字符串（没有请求体时省略）
+ * </pre>
+ * 每个线程持有自己的 {@link Mac} 和 {@link CanonicalRequestBuilder}，密钥相同时不会重新初始化 {@code Mac}；
+ * 各部分写入可复用的字节缓冲区后一次性更新 {@code Mac}，不会拼接完整的规范请求字符串。
+ *
+ * @author Luo Fei
+ * @date 2023/07/22
+ */
+public abstract class SignatureEngine {
+
+    private static final String HMAC_SHA_256 = "HmacSHA256";
+
+    /**
+     * 缓存的 {@link SecretKeySpec} 数量上限，超过后清空
+     */
+    private static final int MAX_CACHED_KEY_SPECS = 4096;
+
+    private static final byte[] USAGE_TYPE_HEADER_NAME_BYTES
+            = USAGE_TYPE.getHeaderName().getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] ORIGINAL_URL_HEADER_NAME_BYTES
+            = ORIGINAL_URL.getHeaderName().getBytes(StandardCharsets.UTF_8);
+
+    private static final Map<String, SecretKeySpec> KEY_SPEC_CACHE = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<MacHolder> MAC_HOLDER = ThreadLocal.withInitial(MacHolder::new);
+
+    /**
+     * 获取签名
+     *
+     * @param secretKey                 密钥
+     * @param method                    请求方法
+     * @param urlWithVariablesAndParams 带路径变量和请求参数的 URL
+     * @param usageType                 用法类型
+     * @param originalUrl               原始 URL
+     * @param bodyDigest                请求体的 SHA-256 摘要，没有请求体时为 null
+     * @return Base64 编码的签名字符串
+     */
+    public static String sign(String secretKey, String method, String urlWithVariablesAndParams,
+                              String usageType, String originalUrl, byte[] bodyDigest) {
+        return sign(secretKey, method, "", urlWithVariablesAndParams, usageType, originalUrl, bodyDigest);
+    }
+
+    /**
+     * 获取签名
+     * <p>
+     * URL 分为两部分传入，调用方不需要为拼接完整的 URL 分配新的字符串（例如 Gateway 的 scheme 和 scheme-specific part）。
+     *
+     * @param secretKey   密钥
+     * @param method      请求方法
+     * @param urlPrefix   带路径变量和请求参数的 URL 的前缀
+     * @param url         带路径变量和请求参数的 URL 的剩余部分
+     * @param usageType   用法类型
+     * @param originalUrl 原始 URL
+     * @param bodyDigest  请求体的 SHA-256 摘要，没有请求体时为 null
+     * @return Base64 编码的签名字符串
+     */
+    public static String sign(String secretKey, String method, String urlPrefix, String url,
+                              String usageType, String originalUrl, byte[] bodyDigest) {
+        MacHolder holder = MAC_HOLDER.get();
+        holder.init(secretKey);
+        CanonicalRequestBuilder canonicalRequest = holder.canonicalRequest.reset();
+        appendCanonicalRequest(canonicalRequest, method, urlPrefix, url, usageType, originalUrl, bodyDigest);
+        holder.mac.update(canonicalRequest.buffer(), 0, canonicalRequest.length());
+        // doFinal 后 Mac 恢复为使用相同密钥初始化后的状态
+        return Base64.getEncoder().encodeToString(holder.mac.doFinal());
+    }
+
+    /**
+     * 获取规范请求字符串
+     * <p>
+     * 只用于排查签名不一致的问题，签名时不会调用。
+     *
+     * @return 规范请求字符串
+     * @see #sign(String, String, String, String, String, String, byte[])
+     */
+    public static String getCanonicalRequest(String method, String urlPrefix, String url,
+                                             String usageType, String originalUrl, byte[] bodyDigest) {
+        CanonicalRequestBuilder canonicalRequest = new CanonicalRequestBuilder();
+        appendCanonicalRequest(canonicalRequest, method, urlPrefix, url, usageType, originalUrl, bodyDigest);
+        return canonicalRequest.toString();
+    }
+
+    private static void appendCanonicalRequest(CanonicalRequestBuilder canonicalRequest,
+                                               String method, String urlPrefix, String url,
+                                               String usageType, String originalUrl, byte[] bodyDigest) {
+        canonicalRequest.append(method)
+                .append(urlPrefix)
+                .append(url)
+                .append(USAGE_TYPE_HEADER_NAME_BYTES)
+                .append(usageType)
+                .append(ORIGINAL_URL_HEADER_NAME_BYTES)
+                .append(originalUrl);
+        if (bodyDigest != null) {
+            canonicalRequest.appendHex(bodyDigest);
+        }
+    }
+
+    private static SecretKeySpec getSecretKeySpec(String secretKey) {
+        SecretKeySpec secretKeySpec = KEY_SPEC_CACHE.get(secretKey);
+        if (secretKeySpec != null) {
+            return secretKeySpec;
+        }
+        if (KEY_SPEC_CACHE.size() >= MAX_CACHED_KEY_SPECS) {
+            KEY_SPEC_CACHE.clear();
+        }
+        return KEY_SPEC_CACHE.computeIfAbsent(secretKey, key ->
+                new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), HMAC_SHA_256));
+    }
+
+    /**
+     * 线程持有的 {@link Mac} 和规范请求构建器
+     */
+    private static final class MacHolder {
+
+        private final Mac mac;
+
+        private final CanonicalRequestBuilder canonicalRequest = new CanonicalRequestBuilder();
+
+        /**
+         * 当前 {@link Mac} 使用的密钥
+         */
+        private String secretKey;
+
+        private MacHolder() {
+            try {
+                mac = Mac.getInstance(HMAC_SHA_256);
+            } catch (NoSuchAlgorithmException e) {
+                throw new InsightApiClientException(e);
+            }
+        }
+
+        private void init(String secretKey) {
+            if (secretKey.equals(this.secretKey)) {
+                return;
+            }
+            try {
+                mac.init(getSecretKeySpec(secretKey));
+            } catch (InvalidKeyException e) {
+                this.secretKey = null;
+                throw new InsightApiClientException(e);
+            }
+            this.secretKey = secretKey;
+        }
+
+    }
+
+}
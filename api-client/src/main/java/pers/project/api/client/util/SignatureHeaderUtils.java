@@ -1,47 +1,22 @@
 package pers.project.api.client.util;
 
 import org.apache.commons.codec.digest.DigestUtils;
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
 import pers.project.api.client.InsightApiRequest;
 import pers.project.api.client.exeception.InsightApiClientException;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
-import java.util.Base64;
 import java.util.concurrent.ThreadLocalRandom;
 
-import static pers.project.api.client.enumaration.SignatureRequestHeaderEnum.ORIGINAL_URL;
-import static pers.project.api.client.enumaration.SignatureRequestHeaderEnum.USAGE_TYPE;
-
 /**
  * Insight API 签名请求头工具类
  * <p>
- * 与 {@code pers.project.api.gateway.util.SignatureHeaderUtils} 保持相对一致。
+ * 签名的拼接规则由 {@link SignatureEngine} 提供，与 Gateway 共用。
  *
  * @author Luo Fei
  * @date 2023/07/13
  */
 public abstract class SignatureHeaderUtils {
-    // TODO: 2023/7/18 不打印日志
-    private static final Log log = LogFactory.getLog(SignatureHeaderUtils.class);
-
-    private static final String HMAC_SHA_256 = "HmacSHA256";
-
-    private static final Mac MAC;
-
-    static {
-        try {
-            MAC = Mac.getInstance(HMAC_SHA_256);
-        } catch (NoSuchAlgorithmException e) {
-            throw new InsightApiClientException(e);
-        }
-    }
 
     /**
      * 获取时间戳
@@ -74,46 +49,24 @@ public abstract class SignatureHeaderUtils {
      * @param urlWithVariablesAndParams 带路径变量和请求参数的 URL
      * @param insightApiRequest         Insight API 请求对象
      * @return 签名字符串
+     * @see SignatureEngine
      */
     public static String getSign(String secretKey, String urlWithVariablesAndParams, InsightApiRequest insightApiRequest) {
-        // 拼接 method 和 url（带路径变量请求参数）
-        StringBuilder inputStringBuilder = new StringBuilder();
-        inputStringBuilder.append(insightApiRequest.method())
-                .append(urlWithVariablesAndParams);
-        // 拼接 requestHeader
-        inputStringBuilder.append(USAGE_TYPE.getHeaderName())
-                .append(insightApiRequest.usageType())
-                .append(ORIGINAL_URL.getHeaderName())
-                .append(insightApiRequest.url());
-        // 拼接 requestBody 的 sha256Hex 摘要
-        insightApiRequest.requestBody().ifPresent(body -> {
-            String requestBodyDigest;
-            if (InputStream.class.isAssignableFrom(body.getClass())) {
+        // 计算 requestBody 的 sha256 摘要
+        byte[] requestBodyDigest = insightApiRequest.requestBody().map(body -> {
+            if (body instanceof InputStream inputStream) {
                 try {
-                    requestBodyDigest = DigestUtils.sha256Hex((InputStream) body);
+                    return DigestUtils.sha256(inputStream);
                 } catch (IOException e) {
                     throw new InsightApiClientException(e);
                 }
             } else if (body instanceof byte[] bytes) {
-                requestBodyDigest = DigestUtils.sha256Hex(bytes);
-            } else {
-                requestBodyDigest = DigestUtils.sha256Hex((String) body);
+                return DigestUtils.sha256(bytes);
             }
-            inputStringBuilder.append(requestBodyDigest);
-        });
-        // 获取 SIGN 值
-        SecretKeySpec secretKeySpec = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), HMAC_SHA_256);
-        try {
-            MAC.init(secretKeySpec);
-        } catch (InvalidKeyException e) {
-            throw new InsightApiClientException(e);
-        }
-        String inputString = inputStringBuilder.toString();
-        if (log.isInfoEnabled()) {
-            log.info("Calculate client sign, inputString:" + inputString);
-        }
-        byte[] hmacBytes = MAC.doFinal(inputString.getBytes(StandardCharsets.UTF_8));
-        return Base64.getEncoder().encodeToString(hmacBytes);
+            return DigestUtils.sha256((String) body);
+        }).orElse(null);
+        return SignatureEngine.sign(secretKey, insightApiRequest.method(), urlWithVariablesAndParams,
+                insightApiRequest.usageType(), insightApiRequest.url(), requestBodyDigest);
     }
 
 }
@@ -0,0 +1,20 @@
+package pers.project.api.common.constant.http;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * 服务之间内部请求的请求头名称常量
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class InternalHeaderNameConst {
+
+    /**
+     * 内部请求令牌，只在服务之间传递，公开的网关路由不转发携带该令牌才能访问的接口
+     */
+    public static final String INTERNAL_TOKEN = "X-Insight-Internal-Token";
+
+}
@@ -112,13 +112,74 @@ public final class RedisKeyPrefixConst {
     /**
      * 网关签名请求头的随机数
      * <p>
-     * 此名称前缀后还有一层目录结构：时间戳。
+     * 此名称前缀后还有两层目录结构：密钥 ID 和随机数。
      * <p>
      * 具体格式为：
      * <pre>
-     * gateway:signature_header:nonce:{timestamp}
+     * gateway:signature_header:nonce:{secretId}:{nonce}
      * </pre>
      */
     public static final String SIGNATURE_HEADER_NONCE_KEY_PREFIX = "gateway:signature_header:nonce:";
 
+    /**
+     * 网关租借出的用户接口计数用法存量许可证
+     * <p>
+     * 此名称前缀后还有一层目录结构：用户接口计数用法主键。
+     * <p>
+     * 哈希的字段为持有租约的 Gateway 实例 ID，值为该实例尚未使用的许可证数量。
+     * 具体格式为：
+     * <pre>
+     * gateway:stock_lease:leased_permits:{usageId}
+     * </pre>
+     */
+    public static final String STOCK_LEASE_LEASED_PERMITS_KEY_PREFIX = "gateway:stock_lease:leased_permits:";
+
+    /**
+     * 网关租约持有者租借过存量的用户接口计数用法集合
+     * <p>
+     * 此名称前缀后还有一层目录结构：Gateway 实例 ID。
+     * <p>
+     * 具体格式为：
+     * <pre>
+     * gateway:stock_lease:holder_usages:{holderId}
+     * </pre>
+     */
+    public static final String STOCK_LEASE_HOLDER_USAGES_KEY_PREFIX = "gateway:stock_lease:holder_usages:";
+
+    /**
+     * 网关租约持有者的心跳有序集合
+     * <p>
+     * 此键没有下一层目录结构，成员为 Gateway 实例 ID，分数为最后一次心跳的 Redis 时间（单位：毫秒）。
+     * <p>
+     * 具体格式为：
+     * <pre>
+     * gateway:stock_lease:holders
+     * </pre>
+     */
+    public static final String STOCK_LEASE_HOLDERS_KEY = "gateway:stock_lease:holders";
+
+    /**
+     * 网关限流窗口的预算
+     * <p>
+     * 此名称前缀后还有两层目录结构：限流键和窗口（纪元秒）。
+     * <p>
+     * 具体格式为：
+     * <pre>
+     * gateway:rate_limit:budget:{rateLimitKey}:{windowSecond}
+     * </pre>
+     */
+    public static final String RATE_LIMIT_BUDGET_KEY_PREFIX = "gateway:rate_limit:budget:";
+
+    /**
+     * 网关缓存的 Provider 响应
+     * <p>
+     * 此名称前缀后是响应缓存键：接口摘要主键、请求方法、请求路径和缓存键包含的请求参数。
+     * <p>
+     * 具体格式为：
+     * <pre>
+     * gateway:response_cache:{digestId}:{method}:{path}?{params}
+     * </pre>
+     */
+    public static final String RESPONSE_CACHE_KEY_PREFIX = "gateway:response_cache:";
+
 }
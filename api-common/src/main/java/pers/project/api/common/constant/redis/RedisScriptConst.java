@@ -43,4 +43,243 @@ public final class RedisScriptConst {
             end
               """;
 
+    /**
+     * 随机数检查和存量获取 LUA 脚本
+     * <p>
+     * 在一次往返中原子地完成重放检查和调用次数存量扣减：
+     * <ol>
+     * <li>随机数键已存在时返回 0，不扣减存量；</li>
+     * <li>否则写入随机数键（带过期时间），存量不足 1 时返回 -1（随机数仍视为已使用）；</li>
+     * <li>否则存量减 1 并返回 1。</li>
+     * </ol>
+     * 存量键与 Redisson 的 {@code RSemaphore} 兼容（值为许可证数量的字符串），
+     * 因此可以和 {@code RSemaphore#addPermits} 等操作混用。
+     * <p>
+     * 该脚本将以下参数传递给 Redis 服务器：
+     * <ul>
+     * <li>KEYS[1] - 随机数键</li>
+     * <li>KEYS[2] - 存量信号量的名称</li>
+     * <li>ARGV[1] - 随机数</li>
+     * <li>ARGV[2] - 随机数键的过期时间（单位：毫秒）</li>
+     * </ul>
+     * 注意：Redis 集群模式下两个键必须位于同一个哈希槽。
+     */
+    public static final String NONCE_CHECK_AND_STOCK_ACQUIRE_LUA_SCRIPT = """
+            if not redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2], 'NX') then
+              return 0
+            end
+            local stock = tonumber(redis.call('GET', KEYS[2]))
+            if stock == nil or stock < 1 then
+              return -1
+            end
+            redis.call('DECR', KEYS[2])
+            return 1
+            """;
+
+    /**
+     * 存量租约获取 LUA 脚本
+     * <p>
+     * 从存量中原子地取出最多 ARGV[1] 个许可证，返回实际取出的数量（存量不足时取出全部剩余存量，没有存量时返回 0）。
+     * <p>
+     * 取出的许可证同时记入租借许可证哈希中持有者的字段，并登记持有者和用法，
+     * 持有者异常退出后其他 Gateway 可以把许可证归还给存量，Facade 统计存量时也会把它们计算在内。
+     * <p>
+     * 该脚本将以下参数传递给 Redis 服务器：
+     * <ul>
+     * <li>KEYS[1] - 存量信号量的名称</li>
+     * <li>KEYS[2] - 租借许可证哈希</li>
+     * <li>KEYS[3] - 持有者的用法集合</li>
+     * <li>KEYS[4] - 持有者心跳有序集合</li>
+     * <li>ARGV[1] - 希望取出的许可证数量</li>
+     * <li>ARGV[2] - 持有者 ID</li>
+     * <li>ARGV[3] - 用户接口计数用法主键</li>
+     * </ul>
+     */
+    public static final String STOCK_LEASE_ACQUIRE_LUA_SCRIPT = """
+            local stock = tonumber(redis.call('GET', KEYS[1]))
+            if stock == nil or stock < 1 then
+              return 0
+            end
+            local leased = math.min(stock, tonumber(ARGV[1]))
+            redis.call('DECRBY', KEYS[1], leased)
+            redis.call('HINCRBY', KEYS[2], ARGV[2], leased)
+            redis.call('SADD', KEYS[3], ARGV[3])
+            local time = redis.call('TIME')
+            redis.call('ZADD', KEYS[4], time[1] * 1000 + math.floor(time[2] / 1000), ARGV[2])
+            return leased
+            """;
+
+    /**
+     * 随机数检查和租借存量使用 LUA 脚本
+     * <p>
+     * 使用本地租约时，在一次往返中原子地完成重放检查和租借许可证的扣减：
+     * <ol>
+     * <li>持有者没有剩余的租借许可证（租约已被归还或回收）时返回 -2，不写入随机数键；</li>
+     * <li>随机数键已存在时返回 0，不扣减租借许可证；</li>
+     * <li>否则写入随机数键（带过期时间），租借许可证减 1 并返回 1。</li>
+     * </ol>
+     * Redis 中的租借许可证数量是权威值，本地许可证数量只用于判断是否需要访问 Redis。
+     * <p>
+     * 该脚本将以下参数传递给 Redis 服务器：
+     * <ul>
+     * <li>KEYS[1] - 随机数键</li>
+     * <li>KEYS[2] - 租借许可证哈希</li>
+     * <li>ARGV[1] - 随机数</li>
+     * <li>ARGV[2] - 随机数键的过期时间（单位：毫秒）</li>
+     * <li>ARGV[3] - 持有者 ID</li>
+     * </ul>
+     */
+    public static final String NONCE_CHECK_AND_LEASED_STOCK_CONSUME_LUA_SCRIPT = """
+            local leased = tonumber(redis.call('HGET', KEYS[2], ARGV[3]))
+            if leased == nil or leased < 1 then
+              return -2
+            end
+            if not redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2], 'NX') then
+              return 0
+            end
+            redis.call('HINCRBY', KEYS[2], ARGV[3], -1)
+            return 1
+            """;
+
+    /**
+     * 存量租约归还 LUA 脚本
+     * <p>
+     * 把持有者最多 ARGV[2] 个租借许可证归还给存量（ARGV[2] 为负数时归还全部），
+     * 归还数量不超过 Redis 中记录的租借许可证数量，返回实际归还的数量。
+     * 持有者的租借许可证全部归还后删除其字段和用法登记。
+     * <p>
+     * 该脚本将以下参数传递给 Redis 服务器：
+     * <ul>
+     * <li>KEYS[1] - 租借许可证哈希</li>
+     * <li>KEYS[2] - 存量信号量的名称</li>
+     * <li>KEYS[3] - 持有者的用法集合</li>
+     * <li>ARGV[1] - 持有者 ID</li>
+     * <li>ARGV[2] - 归还的许可证数量</li>
+     * <li>ARGV[3] - 用户接口计数用法主键</li>
+     * </ul>
+     */
+    public static final String STOCK_LEASE_RETURN_LUA_SCRIPT = """
+            local leased = tonumber(redis.call('HGET', KEYS[1], ARGV[1])) or 0
+            local returned = tonumber(ARGV[2])
+            if returned < 0 or returned > leased then
+              returned = leased
+            end
+            if returned < leased then
+              redis.call('HINCRBY', KEYS[1], ARGV[1], -returned)
+            else
+              redis.call('HDEL', KEYS[1], ARGV[1])
+              redis.call('SREM', KEYS[3], ARGV[3])
+            end
+            if returned > 0 then
+              redis.call('INCRBY', KEYS[2], returned)
+            end
+            return math.max(returned, 0)
+            """;
+
+    /**
+     * 存量租约持有者心跳 LUA 脚本
+     * <p>
+     * 使用 Redis 服务器的时间记录持有者的心跳，避免各个 Gateway 的时钟偏差影响超时判断。
+     * <p>
+     * 该脚本将以下参数传递给 Redis 服务器：
+     * <ul>
+     * <li>KEYS[1] - 持有者心跳有序集合</li>
+     * <li>ARGV[1] - 持有者 ID</li>
+     * </ul>
+     */
+    public static final String STOCK_LEASE_HOLDER_HEARTBEAT_LUA_SCRIPT = """
+            local time = redis.call('TIME')
+            redis.call('ZADD', KEYS[1], time[1] * 1000 + math.floor(time[2] / 1000), ARGV[1])
+            return 1
+            """;
+
+    /**
+     * 存量租约回收 LUA 脚本
+     * <p>
+     * 持有者心跳超时后，把它在一个用法上的全部租借许可证归还给存量，返回归还的数量；
+     * 持有者仍然存活时不做任何操作并返回 -1。
+     * <p>
+     * 该脚本将以下参数传递给 Redis 服务器：
+     * <ul>
+     * <li>KEYS[1] - 持有者心跳有序集合</li>
+     * <li>KEYS[2] - 持有者的用法集合</li>
+     * <li>KEYS[3] - 租借许可证哈希</li>
+     * <li>KEYS[4] - 存量信号量的名称</li>
+     * <li>ARGV[1] - 持有者 ID</li>
+     * <li>ARGV[2] - 用户接口计数用法主键</li>
+     * <li>ARGV[3] - 心跳超时时长（单位：毫秒）</li>
+     * </ul>
+     */
+    public static final String STOCK_LEASE_RECLAIM_LUA_SCRIPT = """
+            local time = redis.call('TIME')
+            local now = time[1] * 1000 + math.floor(time[2] / 1000)
+            local heartbeat = tonumber(redis.call('ZSCORE', KEYS[1], ARGV[1]))
+            if heartbeat ~= nil and heartbeat > now - tonumber(ARGV[3]) then
+              return -1
+            end
+            local leased = tonumber(redis.call('HGET', KEYS[3], ARGV[1])) or 0
+            redis.call('HDEL', KEYS[3], ARGV[1])
+            redis.call('SREM', KEYS[2], ARGV[2])
+            if leased > 0 then
+              redis.call('INCRBY', KEYS[4], leased)
+            end
+            return math.max(leased, 0)
+            """;
+
+    /**
+     * 存量租约持有者移除 LUA 脚本
+     * <p>
+     * 持有者心跳超时并且没有租借中的用法时，把它从心跳有序集合中移除并返回 1；否则返回 0。
+     * <p>
+     * 该脚本将以下参数传递给 Redis 服务器：
+     * <ul>
+     * <li>KEYS[1] - 持有者心跳有序集合</li>
+     * <li>KEYS[2] - 持有者的用法集合</li>
+     * <li>ARGV[1] - 持有者 ID</li>
+     * <li>ARGV[2] - 心跳超时时长（单位：毫秒）</li>
+     * </ul>
+     */
+    public static final String STOCK_LEASE_HOLDER_REMOVE_LUA_SCRIPT = """
+            local time = redis.call('TIME')
+            local now = time[1] * 1000 + math.floor(time[2] / 1000)
+            local heartbeat = tonumber(redis.call('ZSCORE', KEYS[1], ARGV[1]))
+            if heartbeat ~= nil and heartbeat > now - tonumber(ARGV[2]) then
+              return 0
+            end
+            if redis.call('SCARD', KEYS[2]) > 0 then
+              return 0
+            end
+            redis.call('ZREM', KEYS[1], ARGV[1])
+            return 1
+            """;
+
+    /**
+     * 限流预算获取 LUA 脚本
+     * <p>
+     * 从当前限流窗口的预算中原子地取出最多 ARGV[2] 个令牌，窗口内已发放的令牌总数不会超过限制。
+     * 窗口的第一次发放会为预算键设置过期时间，窗口结束后预算键自动删除。
+     * <p>
+     * 返回两个整数：实际取出的令牌数量（预算用完时为 0）和窗口内已发放的令牌总数。
+     * <p>
+     * 该脚本将以下参数传递给 Redis 服务器：
+     * <ul>
+     * <li>KEYS[1] - 限流窗口的预算键</li>
+     * <li>ARGV[1] - 窗口内的令牌数量限制</li>
+     * <li>ARGV[2] - 希望取出的令牌数量</li>
+     * <li>ARGV[3] - 预算键的过期时间（单位：毫秒）</li>
+     * </ul>
+     */
+    public static final String RATE_LIMIT_BUDGET_ACQUIRE_LUA_SCRIPT = """
+            local used = tonumber(redis.call('GET', KEYS[1])) or 0
+            local granted = math.min(tonumber(ARGV[2]), tonumber(ARGV[1]) - used)
+            if granted < 1 then
+              return {0, used}
+            end
+            used = redis.call('INCRBY', KEYS[1], granted)
+            if used == granted then
+              redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            end
+            return {granted, used}
+            """;
+
 }
@@ -0,0 +1,53 @@
+package pers.project.api.common.constant.redis;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+
+/**
+ * {@link RedissonClient} 的 {@link RTopic} 名称常量
+ * <p>
+ * 名称命名规则参考：
+ * <pre>
+ * 业务域所属的项目:业务域:数据内容_topic
+ * </pre>
+ * 发布和订阅均使用 {@code StringCodec}，消息内容在各个常量中说明。
+ *
+ * @author Luo Fei
+ * @date 2023/07/21
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class RedissonTopicNameConst {
+
+    /**
+     * 客户端用户信息失效的 {@link RTopic} 名称
+     * <p>
+     * 用户的 API 密钥发生变化时发布，Gateway 订阅后使本地缓存的用户信息失效。
+     * <p>
+     * 消息内容为失效的密钥 ID（secretId）。
+     */
+    public static final String CLIENT_USER_INFO_INVALIDATION_TOPIC_NAME
+            = "security:user_account:client_user_info_invalidation_topic";
+
+    /**
+     * 密钥 ID 创建的 {@link RTopic} 名称
+     * <p>
+     * 用户生成新的 API 密钥时发布，Gateway 订阅后把新的密钥 ID 加入本地的已知密钥 ID 过滤器。
+     * <p>
+     * 消息内容为新的密钥 ID（secretId）。
+     */
+    public static final String SECRET_ID_CREATION_TOPIC_NAME
+            = "security:user_account:secret_id_creation_topic";
+
+    /**
+     * 计数用法接口信息失效的 {@link RTopic} 名称
+     * <p>
+     * 用户接口计数用法新建或接口状态变化时发布，Gateway 订阅后使本地缓存的接口信息失效。
+     * <p>
+     * 消息内容为 {@code QuantityUsageApiInfoInvalidationDTO} 的 JSON 字符串。
+     */
+    public static final String QUANTITY_USAGE_API_INFO_INVALIDATION_TOPIC_NAME
+            = "facade:quantity_usage:api_info_invalidation_topic";
+
+}
@@ -0,0 +1,75 @@
+package pers.project.api.common.enumeration;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+
+/**
+ * 接口请求方法枚举
+ * <p>
+ * 掩码位与 {@code api_digest.method_mask} 生成列的定义保持一致，修改时需要同时修改表结构。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+@Getter
+@AllArgsConstructor
+@Accessors(fluent = true)
+public enum ApiMethodEnum {
+
+    GET("GET", 1),
+
+    HEAD("HEAD", 1 << 1),
+
+    POST("POST", 1 << 2),
+
+    PUT("PUT", 1 << 3),
+
+    DELETE("DELETE", 1 << 4),
+
+    OPTIONS("OPTIONS", 1 << 5),
+
+    TRACE("TRACE", 1 << 6),
+
+    PATCH("PATCH", 1 << 7);
+
+    /**
+     * 数据库中存储的值（{@code api_digest.method} 中 , 分隔的一项）
+     */
+    private final String storedValue;
+
+    /**
+     * 掩码位
+     */
+    private final int mask;
+
+    /**
+     * 根据存储的值获取掩码位。
+     *
+     * @param storedValue 存储的值
+     * @return 对应的掩码位，不支持的请求方法返回 0（不匹配任何接口）
+     */
+    public static int getMaskByStoredValue(String storedValue) {
+        for (ApiMethodEnum value : values()) {
+            if (value.storedValue.equals(storedValue)) {
+                return value.mask;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 根据 , 分隔的存储值获取掩码。
+     *
+     * @param storedValues , 分隔的存储值（{@code api_digest.method}）
+     * @return 各请求方法掩码位的并集，与 {@code api_digest.method_mask} 的值相同
+     */
+    public static int getMaskByStoredValues(String storedValues) {
+        int mask = 0;
+        for (String storedValue : storedValues.split(",")) {
+            mask |= getMaskByStoredValue(storedValue);
+        }
+        return mask;
+    }
+
+}
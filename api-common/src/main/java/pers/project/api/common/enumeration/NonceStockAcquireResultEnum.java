@@ -0,0 +1,58 @@
+package pers.project.api.common.enumeration;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+
+/**
+ * 随机数检查和存量获取的结果枚举
+ *
+ * @author Luo Fei
+ * @date 2023/07/22
+ * @see pers.project.api.common.constant.redis.RedisScriptConst#NONCE_CHECK_AND_STOCK_ACQUIRE_LUA_SCRIPT
+ * @see pers.project.api.common.constant.redis.RedisScriptConst#NONCE_CHECK_AND_LEASED_STOCK_CONSUME_LUA_SCRIPT
+ */
+@Getter
+@AllArgsConstructor
+@Accessors(fluent = true)
+public enum NonceStockAcquireResultEnum {
+
+    /**
+     * 只由租借存量使用脚本返回，调用方需要改用精确扣减的方式
+     */
+    LEASE_LOST(-2L, "租约已失效"),
+
+    STOCK_SHORTAGE(-1L, "存量不足"),
+
+    DUPLICATE_NONCE(0L, "随机数重复"),
+
+    ACQUIRED(1L, "获取成功");
+
+    /**
+     * 脚本返回的值
+     */
+    private final Long scriptValue;
+
+    /**
+     * 结果描述
+     */
+    private final String description;
+
+    /**
+     * 根据脚本返回的值获取对应的结果枚举。
+     *
+     * @param scriptValue 脚本返回的值
+     * @return 对应的结果枚举
+     * @throws IllegalArgumentException 如果脚本返回的值无效或不存在对应的枚举值
+     */
+    public static NonceStockAcquireResultEnum getByScriptValue(Long scriptValue) {
+        NonceStockAcquireResultEnum[] values = values();
+        for (NonceStockAcquireResultEnum value : values) {
+            if (value.scriptValue().equals(scriptValue)) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Invalid or unsupported script value.");
+    }
+
+}
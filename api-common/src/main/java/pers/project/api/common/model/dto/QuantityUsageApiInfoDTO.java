@@ -5,7 +5,7 @@ import lombok.Data;
 /**
  * Insight API 计数用法接口的信息 DTO
  * <p>
- * 目前用于 Gateway 的请求次数的统计。
+ * 目前用于 Gateway 的请求次数的统计、请求频率的限制和响应缓存。
  * <p>
  * 如果查询状态信息还可以通过状态信息判断接口是否可用，这部分暂时先不写。
  *
@@ -25,4 +25,34 @@ public class QuantityUsageApiInfoDTO {
      */
     private String usageId;
 
+    /**
+     * 接口每秒请求数限制（0 表示不限制）
+     */
+    private Integer apiRateLimit;
+
+    /**
+     * 用户接口每秒请求数限制（0 表示不限制）
+     */
+    private Integer usageRateLimit;
+
+    /**
+     * 响应缓存时长（单位：秒，0 表示不缓存）
+     */
+    private Integer cacheTtl;
+
+    /**
+     * 响应缓存键包含的请求参数（, 分隔，为空表示全部参数）
+     */
+    private String cacheKeyParams;
+
+    /**
+     * 命中响应缓存是否扣减调用次数（1 表示扣减，0 表示不扣减）
+     */
+    private Integer cacheHitCharged;
+
+    /**
+     * 是否合并相同的并发请求（1 表示合并，0 表示不合并）
+     */
+    private Integer coalescingEnabled;
+
 }
@@ -0,0 +1,34 @@
+package pers.project.api.common.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Insight API 计数用法接口的信息失效 DTO
+ * <p>
+ * 用于通知 Gateway 使本地缓存的 {@link QuantityUsageApiInfoDTO} 失效，两个字段至少有一个不为 null。
+ *
+ * @author Luo Fei
+ * @date 2023/07/21
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuantityUsageApiInfoInvalidationDTO {
+
+    /**
+     * 用户账户主键
+     * <p>
+     * 不为 null 时，该账户的所有缓存条目失效（包括未找到接口的条目）。
+     */
+    private String accountId;
+
+    /**
+     * 接口摘要主键
+     * <p>
+     * 不为 null 时，该接口的所有缓存条目和所有未找到接口的条目失效。
+     */
+    private String digestId;
+
+}
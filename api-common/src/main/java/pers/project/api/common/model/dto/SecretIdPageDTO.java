@@ -0,0 +1,26 @@
+package pers.project.api.common.model.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 密钥 ID 分页 DTO
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+@Data
+public class SecretIdPageDTO {
+
+    /**
+     * 本页的密钥 ID
+     */
+    private List<String> secretIds;
+
+    /**
+     * 本页最后一个用户帐户主键，作为下一页的查询条件；没有下一页时为 null
+     */
+    private String lastAccountId;
+
+}
@@ -0,0 +1,34 @@
+package pers.project.api.common.model.query;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import pers.project.api.common.validation.constraint.SnowflakeId;
+
+/**
+ * 密钥 ID 分页 Query
+ * <p>
+ * 按用户帐户主键升序的键集分页，Gateway 用于全量同步已知的密钥 ID。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+@Data
+public class SecretIdPageQuery {
+
+    /**
+     * 上一页最后一个用户帐户主键，查询第一页时为 null
+     */
+    @SnowflakeId(nullable = true)
+    private String lastAccountId;
+
+    /**
+     * 每页条数
+     */
+    @NotNull
+    @Positive
+    @Max(10_000)
+    private Integer size;
+
+}
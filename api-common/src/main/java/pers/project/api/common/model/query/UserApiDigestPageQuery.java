@@ -37,10 +37,22 @@ public class UserApiDigestPageQuery {
 
     /**
      * 当前页
+     * <p>
+     * 为 null 时使用键集分页，按创建时间和主键降序排列，通过 {@code cursor} 翻页。
      */
-    @NotNull
     @Positive
     private Long current;
+
+    /**
+     * 键集分页的游标，即上一页返回的 {@code nextCursor}，查询第一页时为 null
+     */
+    @NullOrNotBlank
+    private String cursor;
+
+    /**
+     * 键集分页查询第一页时是否统计总数
+     */
+    private Boolean countTotal;
     // endregion
 
     // region From ApiDigestPO
@@ -0,0 +1,151 @@
+package pers.project.api.common.util;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import pers.project.api.common.exception.BusinessException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static pers.project.api.common.enumeration.ErrorEnum.PARAM_ERROR;
+
+/**
+ * 键集分页工具类
+ * <p>
+ * 按 (create_time, id) 降序分页，游标为上一页最后一条记录的创建时间和主键，下一页从游标之后开始查询，
+ * 查询耗时与页码无关，也不需要 {@code COUNT(*)}。
+ * <p>
+ * 游标对客户端不透明，格式为 {@code createTime_id} 的无填充 Base64URL 编码。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+public abstract class KeysetPageUtils {
+
+    private static final char CURSOR_SEPARATOR = '_';
+
+    /**
+     * 键集分页查询
+     *
+     * @param mapper           Mapper
+     * @param queryWrapper     查询条件，不能包含排序条件
+     * @param createTimeColumn 创建时间列
+     * @param idColumn         主键列
+     * @param cursor           上一页返回的游标，查询第一页时为 null
+     * @param size             每页条数
+     * @param countTotal       查询第一页时是否统计总数
+     * @return 键集分页结果
+     * @throws BusinessException 如果游标无效
+     * @see #selectPage(BiFunction, LambdaQueryWrapper, SFunction, SFunction, String, long, boolean)
+     */
+    public static <T> KeysetPage<T> selectPage(BaseMapper<T> mapper, LambdaQueryWrapper<T> queryWrapper,
+                                               SFunction<T, LocalDateTime> createTimeColumn,
+                                               SFunction<T, String> idColumn,
+                                               String cursor, long size, boolean countTotal) {
+        return selectPage(mapper::selectPage, queryWrapper, createTimeColumn, idColumn, cursor, size, countTotal);
+    }
+
+    /**
+     * 使用自定义分页查询方法的键集分页查询
+     * <p>
+     * 多查询一条记录判断是否有下一页；只有查询第一页并且 {@code countTotal} 为 true 时由分页插件统计总数，
+     * 客户端在之后的页面沿用第一页的总数。
+     *
+     * @param pageSelector     分页查询方法，需要把查询条件（包括排序条件）拼接到 SQL 中
+     * @param queryWrapper     查询条件，不能包含排序条件
+     * @param createTimeColumn 创建时间列
+     * @param idColumn         主键列
+     * @param cursor           上一页返回的游标，查询第一页时为 null
+     * @param size             每页条数
+     * @param countTotal       查询第一页时是否统计总数
+     * @return 键集分页结果
+     * @throws BusinessException 如果游标无效
+     */
+    public static <T> KeysetPage<T> selectPage(BiFunction<Page<T>, LambdaQueryWrapper<T>, Page<T>> pageSelector,
+                                               LambdaQueryWrapper<T> queryWrapper,
+                                               SFunction<T, LocalDateTime> createTimeColumn,
+                                               SFunction<T, String> idColumn,
+                                               String cursor, long size, boolean countTotal) {
+        boolean searchCount = countTotal && cursor == null;
+        if (cursor != null) {
+            KeysetCursor keysetCursor = decodeCursor(cursor);
+            LocalDateTime createTime = keysetCursor.createTime();
+            long id = keysetCursor.id();
+            // 先用 create_time <= ? 限定索引范围，再排除与游标创建时间相同且主键不小于游标的记录
+            // 主键按数值比较，与字符串比较时 MySQL 会转换为浮点数而丢失精度
+            queryWrapper.le(createTimeColumn, createTime)
+                    .and(wrapper -> wrapper.lt(createTimeColumn, createTime).or().lt(idColumn, id));
+        }
+        queryWrapper.orderByDesc(createTimeColumn).orderByDesc(idColumn);
+        Page<T> page = pageSelector.apply(new Page<>(1L, size + 1L, searchCount), queryWrapper);
+        List<T> records = page.getRecords();
+        String nextCursor = null;
+        if (records.size() > size) {
+            records = records.subList(0, (int) size);
+            T last = records.get(records.size() - 1);
+            nextCursor = encodeCursor(createTimeColumn.apply(last), idColumn.apply(last));
+        }
+        return new KeysetPage<>(records, nextCursor, searchCount ? page.getTotal() : null);
+    }
+
+    /**
+     * 生成游标
+     *
+     * @param createTime 记录的创建时间
+     * @param id         记录的主键
+     * @return 游标
+     */
+    public static String encodeCursor(LocalDateTime createTime, String id) {
+        String plainCursor = createTime.toString() + CURSOR_SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(plainCursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标
+     *
+     * @param cursor 游标
+     * @return 游标中的创建时间和主键
+     * @throws BusinessException 如果游标无效
+     */
+    public static KeysetCursor decodeCursor(String cursor) {
+        try {
+            String plainCursor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separatorIndex = plainCursor.lastIndexOf(CURSOR_SEPARATOR);
+            if (separatorIndex < 0) {
+                throw new BusinessException(PARAM_ERROR, "无效的分页游标");
+            }
+            LocalDateTime createTime = LocalDateTime.parse(plainCursor.substring(0, separatorIndex));
+            long id = Long.parseLong(plainCursor.substring(separatorIndex + 1));
+            return new KeysetCursor(createTime, id);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BusinessException(PARAM_ERROR, "无效的分页游标");
+        }
+    }
+
+    /**
+     * 游标
+     *
+     * @param createTime 上一页最后一条记录的创建时间
+     * @param id         上一页最后一条记录的主键
+     */
+    public record KeysetCursor(LocalDateTime createTime, long id) {
+    }
+
+    /**
+     * 键集分页结果
+     *
+     * @param records    当前页的记录
+     * @param nextCursor 下一页的游标，没有下一页时为 null
+     * @param total      记录总数，未统计时为 null
+     */
+    public record KeysetPage<T>(List<T> records, String nextCursor, Long total) {
+    }
+
+}
@@ -1,14 +1,31 @@
 package pers.project.api.common.util;
 
 import org.redisson.api.RedissonClient;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.data.redis.core.script.RedisScript;
 import pers.project.api.common.constant.redis.RedisScriptConst;
+import pers.project.api.common.enumeration.NonceStockAcquireResultEnum;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.Collections;
+import java.util.List;
 
+import static pers.project.api.common.constant.redis.RedisKeyPrefixConst.STOCK_LEASE_HOLDERS_KEY;
+import static pers.project.api.common.constant.redis.RedisKeyPrefixConst.STOCK_LEASE_HOLDER_USAGES_KEY_PREFIX;
+import static pers.project.api.common.constant.redis.RedisKeyPrefixConst.STOCK_LEASE_LEASED_PERMITS_KEY_PREFIX;
 import static pers.project.api.common.constant.redis.RedisScriptConst.IDEMPOTENCY_TOKEN_LUA_SCRIPT;
+import static pers.project.api.common.constant.redis.RedisScriptConst.NONCE_CHECK_AND_LEASED_STOCK_CONSUME_LUA_SCRIPT;
+import static pers.project.api.common.constant.redis.RedisScriptConst.NONCE_CHECK_AND_STOCK_ACQUIRE_LUA_SCRIPT;
+import static pers.project.api.common.constant.redis.RedisScriptConst.RATE_LIMIT_BUDGET_ACQUIRE_LUA_SCRIPT;
+import static pers.project.api.common.constant.redis.RedisScriptConst.STOCK_LEASE_ACQUIRE_LUA_SCRIPT;
+import static pers.project.api.common.constant.redis.RedisScriptConst.STOCK_LEASE_HOLDER_HEARTBEAT_LUA_SCRIPT;
+import static pers.project.api.common.constant.redis.RedisScriptConst.STOCK_LEASE_HOLDER_REMOVE_LUA_SCRIPT;
+import static pers.project.api.common.constant.redis.RedisScriptConst.STOCK_LEASE_RECLAIM_LUA_SCRIPT;
+import static pers.project.api.common.constant.redis.RedisScriptConst.STOCK_LEASE_RETURN_LUA_SCRIPT;
+import static pers.project.api.common.constant.redis.RedissonNamePrefixConst.USER_QUANTITY_USAGE_STOCK_SEMAPHORE_NAME_PREFIX;
 
 /**
  * Redis 工具类
@@ -28,6 +45,71 @@ public abstract class RedisUtils {
     private static final RedisScript<Long> IDEMPOTENCY_TOKEN_CHECK_REDIS_SCRIPT = RedisScript.of
             (IDEMPOTENCY_TOKEN_LUA_SCRIPT, Long.class);
 
+    /**
+     * 随机数检查和存量获取 Redis 脚本。
+     *
+     * @see RedisScriptConst#NONCE_CHECK_AND_STOCK_ACQUIRE_LUA_SCRIPT
+     */
+    private static final RedisScript<Long> NONCE_CHECK_AND_STOCK_ACQUIRE_REDIS_SCRIPT = RedisScript.of
+            (NONCE_CHECK_AND_STOCK_ACQUIRE_LUA_SCRIPT, Long.class);
+
+    /**
+     * 存量租约获取 Redis 脚本。
+     *
+     * @see RedisScriptConst#STOCK_LEASE_ACQUIRE_LUA_SCRIPT
+     */
+    private static final RedisScript<Long> STOCK_LEASE_ACQUIRE_REDIS_SCRIPT = RedisScript.of
+            (STOCK_LEASE_ACQUIRE_LUA_SCRIPT, Long.class);
+
+    /**
+     * 随机数检查和租借存量使用 Redis 脚本。
+     *
+     * @see RedisScriptConst#NONCE_CHECK_AND_LEASED_STOCK_CONSUME_LUA_SCRIPT
+     */
+    private static final RedisScript<Long> NONCE_CHECK_AND_LEASED_STOCK_CONSUME_REDIS_SCRIPT = RedisScript.of
+            (NONCE_CHECK_AND_LEASED_STOCK_CONSUME_LUA_SCRIPT, Long.class);
+
+    /**
+     * 存量租约归还 Redis 脚本。
+     *
+     * @see RedisScriptConst#STOCK_LEASE_RETURN_LUA_SCRIPT
+     */
+    private static final RedisScript<Long> STOCK_LEASE_RETURN_REDIS_SCRIPT = RedisScript.of
+            (STOCK_LEASE_RETURN_LUA_SCRIPT, Long.class);
+
+    /**
+     * 存量租约持有者心跳 Redis 脚本。
+     *
+     * @see RedisScriptConst#STOCK_LEASE_HOLDER_HEARTBEAT_LUA_SCRIPT
+     */
+    private static final RedisScript<Long> STOCK_LEASE_HOLDER_HEARTBEAT_REDIS_SCRIPT = RedisScript.of
+            (STOCK_LEASE_HOLDER_HEARTBEAT_LUA_SCRIPT, Long.class);
+
+    /**
+     * 存量租约回收 Redis 脚本。
+     *
+     * @see RedisScriptConst#STOCK_LEASE_RECLAIM_LUA_SCRIPT
+     */
+    private static final RedisScript<Long> STOCK_LEASE_RECLAIM_REDIS_SCRIPT = RedisScript.of
+            (STOCK_LEASE_RECLAIM_LUA_SCRIPT, Long.class);
+
+    /**
+     * 存量租约持有者移除 Redis 脚本。
+     *
+     * @see RedisScriptConst#STOCK_LEASE_HOLDER_REMOVE_LUA_SCRIPT
+     */
+    private static final RedisScript<Long> STOCK_LEASE_HOLDER_REMOVE_REDIS_SCRIPT = RedisScript.of
+            (STOCK_LEASE_HOLDER_REMOVE_LUA_SCRIPT, Long.class);
+
+    /**
+     * 限流预算获取 Redis 脚本。
+     *
+     * @see RedisScriptConst#RATE_LIMIT_BUDGET_ACQUIRE_LUA_SCRIPT
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> RATE_LIMIT_BUDGET_ACQUIRE_REDIS_SCRIPT = RedisScript.of
+            (RATE_LIMIT_BUDGET_ACQUIRE_LUA_SCRIPT, List.class);
+
     /**
      * 验证作用于幂等性的令牌。
      * <p>
@@ -45,4 +127,172 @@ public abstract class RedisUtils {
         return (executeResult != null) && executeResult.equals(1L);
     }
 
+    /**
+     * 检查随机数并获取一个存量许可证。
+     * <p>
+     * 重放检查和存量扣减在一次 Redis 往返中原子地完成，脚本由 {@code EVALSHA} 执行，
+     * 服务器没有缓存脚本时会自动回退到 {@code EVAL}。
+     *
+     * @param redisTemplate      {@code ReactiveStringRedisTemplate} 实例
+     * @param nonceKey           随机数键
+     * @param nonce              随机数
+     * @param nonceTimeout       随机数键的过期时间
+     * @param stockSemaphoreName 存量信号量的名称（与 Redisson 的 {@code RSemaphore} 兼容）
+     * @return 发出随机数检查和存量获取的结果
+     * @see RedisScriptConst#NONCE_CHECK_AND_STOCK_ACQUIRE_LUA_SCRIPT
+     */
+    public static Mono<NonceStockAcquireResultEnum> checkNonceAndAcquireStock
+    (ReactiveStringRedisTemplate redisTemplate, String nonceKey, String nonce,
+     Duration nonceTimeout, String stockSemaphoreName) {
+        // PX 要求过期时间为正数
+        String nonceTimeoutMillis = String.valueOf(Math.max(nonceTimeout.toMillis(), 1L));
+        return redisTemplate.execute(NONCE_CHECK_AND_STOCK_ACQUIRE_REDIS_SCRIPT,
+                        List.of(nonceKey, stockSemaphoreName), List.of(nonce, nonceTimeoutMillis))
+                .next()
+                .map(NonceStockAcquireResultEnum::getByScriptValue);
+    }
+
+    /**
+     * 从存量中租借一批许可证，并在 Redis 中记录持有者的租借许可证数量。
+     *
+     * @param redisTemplate {@code ReactiveStringRedisTemplate} 实例
+     * @param usageId       用户接口计数用法主键
+     * @param holderId      持有者 ID
+     * @param blockSize     希望租借的许可证数量
+     * @return 发出实际租借到的许可证数量，没有存量时为 0
+     * @see RedisScriptConst#STOCK_LEASE_ACQUIRE_LUA_SCRIPT
+     */
+    public static Mono<Long> leaseStock(ReactiveStringRedisTemplate redisTemplate,
+                                        String usageId, String holderId, long blockSize) {
+        return redisTemplate.execute(STOCK_LEASE_ACQUIRE_REDIS_SCRIPT,
+                        List.of(USER_QUANTITY_USAGE_STOCK_SEMAPHORE_NAME_PREFIX + usageId,
+                                STOCK_LEASE_LEASED_PERMITS_KEY_PREFIX + usageId,
+                                STOCK_LEASE_HOLDER_USAGES_KEY_PREFIX + holderId, STOCK_LEASE_HOLDERS_KEY),
+                        List.of(String.valueOf(blockSize), holderId, usageId))
+                .next()
+                .defaultIfEmpty(0L);
+    }
+
+    /**
+     * 检查随机数并使用一个租借许可证。
+     *
+     * @param redisTemplate {@code ReactiveStringRedisTemplate} 实例
+     * @param nonceKey      随机数键
+     * @param nonce         随机数
+     * @param nonceTimeout  随机数键的过期时间
+     * @param usageId       用户接口计数用法主键
+     * @param holderId      持有者 ID
+     * @return 发出随机数检查和租借许可证使用的结果，租约已失效时为 {@link NonceStockAcquireResultEnum#LEASE_LOST}
+     * @see RedisScriptConst#NONCE_CHECK_AND_LEASED_STOCK_CONSUME_LUA_SCRIPT
+     */
+    public static Mono<NonceStockAcquireResultEnum> checkNonceAndConsumeLeasedStock
+    (ReactiveStringRedisTemplate redisTemplate, String nonceKey, String nonce,
+     Duration nonceTimeout, String usageId, String holderId) {
+        // PX 要求过期时间为正数
+        String nonceTimeoutMillis = String.valueOf(Math.max(nonceTimeout.toMillis(), 1L));
+        return redisTemplate.execute(NONCE_CHECK_AND_LEASED_STOCK_CONSUME_REDIS_SCRIPT,
+                        List.of(nonceKey, STOCK_LEASE_LEASED_PERMITS_KEY_PREFIX + usageId),
+                        List.of(nonce, nonceTimeoutMillis, holderId))
+                .next()
+                .map(NonceStockAcquireResultEnum::getByScriptValue);
+    }
+
+    /**
+     * 把持有者的租借许可证归还给存量。
+     *
+     * @param redisTemplate {@code ReactiveStringRedisTemplate} 实例
+     * @param usageId       用户接口计数用法主键
+     * @param holderId      持有者 ID
+     * @param count         归还的许可证数量，为负数时归还全部
+     * @return 发出实际归还的许可证数量
+     * @see RedisScriptConst#STOCK_LEASE_RETURN_LUA_SCRIPT
+     */
+    public static Mono<Long> returnLeasedStock(ReactiveStringRedisTemplate redisTemplate,
+                                               String usageId, String holderId, long count) {
+        return redisTemplate.execute(STOCK_LEASE_RETURN_REDIS_SCRIPT,
+                        List.of(STOCK_LEASE_LEASED_PERMITS_KEY_PREFIX + usageId,
+                                USER_QUANTITY_USAGE_STOCK_SEMAPHORE_NAME_PREFIX + usageId,
+                                STOCK_LEASE_HOLDER_USAGES_KEY_PREFIX + holderId),
+                        List.of(holderId, String.valueOf(count), usageId))
+                .next()
+                .defaultIfEmpty(0L);
+    }
+
+    /**
+     * 记录存量租约持有者的心跳。
+     *
+     * @param redisTemplate {@code ReactiveStringRedisTemplate} 实例
+     * @param holderId      持有者 ID
+     * @return 心跳记录完成时结束
+     * @see RedisScriptConst#STOCK_LEASE_HOLDER_HEARTBEAT_LUA_SCRIPT
+     */
+    public static Mono<Void> heartbeatStockLeaseHolder(ReactiveStringRedisTemplate redisTemplate, String holderId) {
+        return redisTemplate.execute(STOCK_LEASE_HOLDER_HEARTBEAT_REDIS_SCRIPT,
+                        List.of(STOCK_LEASE_HOLDERS_KEY), List.of(holderId))
+                .then();
+    }
+
+    /**
+     * 回收心跳超时的持有者在一个用法上的全部租借许可证。
+     *
+     * @param redisTemplate {@code ReactiveStringRedisTemplate} 实例
+     * @param usageId       用户接口计数用法主键
+     * @param holderId      持有者 ID
+     * @param holderTimeout 心跳超时时长
+     * @return 发出归还给存量的许可证数量，持有者仍然存活时为 -1
+     * @see RedisScriptConst#STOCK_LEASE_RECLAIM_LUA_SCRIPT
+     */
+    public static Mono<Long> reclaimLeasedStock(ReactiveStringRedisTemplate redisTemplate,
+                                                String usageId, String holderId, Duration holderTimeout) {
+        return redisTemplate.execute(STOCK_LEASE_RECLAIM_REDIS_SCRIPT,
+                        List.of(STOCK_LEASE_HOLDERS_KEY, STOCK_LEASE_HOLDER_USAGES_KEY_PREFIX + holderId,
+                                STOCK_LEASE_LEASED_PERMITS_KEY_PREFIX + usageId,
+                                USER_QUANTITY_USAGE_STOCK_SEMAPHORE_NAME_PREFIX + usageId),
+                        List.of(holderId, usageId, String.valueOf(holderTimeout.toMillis())))
+                .next()
+                .defaultIfEmpty(-1L);
+    }
+
+    /**
+     * 移除心跳超时并且没有租借中用法的存量租约持有者。
+     *
+     * @param redisTemplate {@code ReactiveStringRedisTemplate} 实例
+     * @param holderId      持有者 ID
+     * @param holderTimeout 心跳超时时长
+     * @return 发出 true 如果持有者被移除
+     * @see RedisScriptConst#STOCK_LEASE_HOLDER_REMOVE_LUA_SCRIPT
+     */
+    public static Mono<Boolean> removeStockLeaseHolder(ReactiveStringRedisTemplate redisTemplate,
+                                                       String holderId, Duration holderTimeout) {
+        return redisTemplate.execute(STOCK_LEASE_HOLDER_REMOVE_REDIS_SCRIPT,
+                        List.of(STOCK_LEASE_HOLDERS_KEY, STOCK_LEASE_HOLDER_USAGES_KEY_PREFIX + holderId),
+                        List.of(holderId, String.valueOf(holderTimeout.toMillis())))
+                .next()
+                .map(result -> result == 1L)
+                .defaultIfEmpty(false);
+    }
+
+    /**
+     * 从限流窗口的预算中取出一批令牌。
+     *
+     * @param redisTemplate  {@code ReactiveStringRedisTemplate} 实例
+     * @param budgetKey      限流窗口的预算键
+     * @param limit          窗口内的令牌数量限制
+     * @param count          希望取出的令牌数量
+     * @param windowDuration 窗口时长（预算键在窗口结束后过期）
+     * @return 发出两个元素的数组：实际取出的令牌数量和窗口内已发放的令牌总数
+     * @see RedisScriptConst#RATE_LIMIT_BUDGET_ACQUIRE_LUA_SCRIPT
+     */
+    public static Mono<long[]> acquireRateLimitBudget(ReactiveStringRedisTemplate redisTemplate, String budgetKey,
+                                                     long limit, long count, Duration windowDuration) {
+        return redisTemplate.execute(RATE_LIMIT_BUDGET_ACQUIRE_REDIS_SCRIPT, List.of(budgetKey),
+                        List.of(String.valueOf(limit), String.valueOf(count),
+                                String.valueOf(Math.max(windowDuration.toMillis(), 1L))))
+                .next()
+                .map(result -> new long[]{
+                        ((Number) result.get(0)).longValue(), ((Number) result.get(1)).longValue()
+                })
+                .defaultIfEmpty(new long[]{0L, limit});
+    }
+
 }
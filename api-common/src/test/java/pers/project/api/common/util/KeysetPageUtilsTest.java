@@ -0,0 +1,74 @@
+package pers.project.api.common.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import pers.project.api.common.exception.BusinessException;
+import pers.project.api.common.util.KeysetPageUtils.KeysetCursor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static pers.project.api.common.enumeration.ErrorEnum.PARAM_ERROR;
+
+/**
+ * {@link KeysetPageUtils} 的游标编码测试
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+class KeysetPageUtilsTest {
+
+    @Test
+    void cursorRoundTripsCreateTimeAndId() {
+        LocalDateTime createTime = LocalDateTime.of(2023, 7, 26, 12, 30, 15, 123_000_000);
+        // 超过 2^53 的雪花 ID，转换为浮点数会丢失精度
+        String id = "1684000000000000001";
+
+        KeysetCursor cursor = KeysetPageUtils.decodeCursor(KeysetPageUtils.encodeCursor(createTime, id));
+
+        assertThat(cursor.createTime()).isEqualTo(createTime);
+        assertThat(cursor.id()).isEqualTo(1_684_000_000_000_000_001L);
+    }
+
+    @Test
+    void cursorRoundTripsWholeSecondCreateTime() {
+        LocalDateTime createTime = LocalDateTime.of(2023, 7, 26, 0, 0);
+
+        KeysetCursor cursor = KeysetPageUtils.decodeCursor(KeysetPageUtils.encodeCursor(createTime, "42"));
+
+        assertThat(cursor.createTime()).isEqualTo(createTime);
+        assertThat(cursor.id()).isEqualTo(42L);
+    }
+
+    @Test
+    void cursorIsUrlSafeWithoutPadding() {
+        for (int second = 0; second < 3; second++) {
+            String cursor = KeysetPageUtils.encodeCursor(LocalDateTime.of(2023, 7, 26, 23, 59, second), "1");
+            assertThat(cursor).matches("[A-Za-z0-9_-]+");
+        }
+    }
+
+    @Test
+    void malformedBase64IsRejected() {
+        assertInvalid("!!!");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"no-separator", "not-a-time_1", "2023-07-26T12:00:00_abc", "2023-07-26T12:00:00_"})
+    void invalidCursorContentIsRejected(String plainCursor) {
+        assertInvalid(Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(plainCursor.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static void assertInvalid(String cursor) {
+        assertThatThrownBy(() -> KeysetPageUtils.decodeCursor(cursor))
+                .isInstanceOf(BusinessException.class)
+                .extracting("code")
+                .isEqualTo(PARAM_ERROR.code());
+    }
+
+}
@@ -0,0 +1,16 @@
+package pers.project.api.facade.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import pers.project.api.facade.config.property.ApiRouteTableProperties;
+
+/**
+ * 接口路由表配置
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+@Configuration
+@EnableConfigurationProperties(ApiRouteTableProperties.class)
+public class ApiRouteTableConfig {
+}
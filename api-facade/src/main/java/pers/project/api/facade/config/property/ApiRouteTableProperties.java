@@ -0,0 +1,46 @@
+package pers.project.api.facade.config.property;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 接口路由表属性
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+@Data
+@ConfigurationProperties(prefix = "insight-api.facade.route-table")
+public class ApiRouteTableProperties {
+
+    /**
+     * 是否启用路由表，不启用时每次查询接口信息都查询数据库
+     */
+    private boolean enabled = true;
+
+    /**
+     * 增量刷新间隔
+     * <p>
+     * 按 {@code api_digest.update_time} 查询变化的接口，也是接口变化在路由表中生效的最大延迟。
+     */
+    private Duration refreshInterval = Duration.ofSeconds(1L);
+
+    /**
+     * 增量刷新时向前回溯的时长
+     * <p>
+     * {@code update_time} 只精确到秒，并且是语句执行时间而不是提交时间，回溯可以避免遗漏提交较晚的事务。
+     * 语句执行后超过该时长才提交的变化，增量刷新无法发现，只能由全量加载修正。
+     */
+    private Duration refreshLookBack = Duration.ofSeconds(5L);
+
+    /**
+     * 全量加载间隔
+     * <p>
+     * 物理删除的接口和回溯时长之外提交的变化只能由全量加载修正，
+     * 所以这类变化在路由表中生效、发布接口信息失效消息的最大延迟是该间隔加上刷新间隔。
+     */
+    private Duration fullReloadInterval = Duration.ofMinutes(1L);
+
+}
@@ -0,0 +1,58 @@
+package pers.project.api.facade.config.property;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 接口全文检索属性
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+@Data
+@ConfigurationProperties(prefix = "insight-api.facade.search")
+public class ApiSearchProperties {
+
+    /**
+     * 是否启用全文检索索引，不启用时接口检索使用数据库的模糊查询
+     */
+    private boolean enabled = true;
+
+    /**
+     * 索引目录，每个 Facade 实例使用各自的本地目录
+     */
+    private String indexPath = "data/api-search-index";
+
+    /**
+     * 增量同步间隔
+     * <p>
+     * 按 {@code api_digest} 和 {@code api_format} 的 {@code update_time} 同步变化的接口，
+     * 也是接口变化对检索可见的最大延迟。
+     */
+    private Duration syncInterval = Duration.ofSeconds(5L);
+
+    /**
+     * 增量同步时向前回溯的时长，避免遗漏提交较晚的事务
+     */
+    private Duration syncLookBack = Duration.ofSeconds(5L);
+
+    /**
+     * 重建索引间隔
+     * <p>
+     * 物理删除的接口和回溯时长之外提交的变化只能由重建修正。
+     */
+    private Duration rebuildInterval = Duration.ofHours(24L);
+
+    /**
+     * 重建索引时每次从数据库读取的接口数量
+     */
+    private int rebuildBatchSize = 1000;
+
+    /**
+     * 按页码检索时可以查看的最大结果数量，更深的页面需要使用游标分页
+     */
+    private int maxResults = 10_000;
+
+}
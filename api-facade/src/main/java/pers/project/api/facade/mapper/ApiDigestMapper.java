@@ -1,9 +1,16 @@
 package pers.project.api.facade.mapper;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import pers.project.api.facade.model.po.ApiDigestPO;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 /**
  * 针对表【api_digest (接口摘要) 】的数据库操作 Mapper
  *
@@ -13,6 +20,63 @@ import pers.project.api.facade.model.po.ApiDigestPO;
 @Mapper
 public interface ApiDigestMapper extends BaseMapper<ApiDigestPO> {
 
+    /**
+     * 根据接口地址和请求方法查询 Gateway 授权所需的接口摘要数据。
+     * <p>
+     * 使用 {@code idx_url_method_mask} 索引，只返回主键和 Gateway 使用的字段。
+     *
+     * @param url        接口地址
+     * @param methodMask 请求方法的掩码位
+     * @return 接口摘要 PO，不存在时返回 null
+     */
+    ApiDigestPO selectRouteByUrlAndMethodMask(@Param("url") String url, @Param("methodMask") int methodMask);
+
+    /**
+     * 查询全部未删除接口的路由数据，用于全量加载接口路由表。
+     *
+     * @return 接口摘要 PO 列表，按主键升序
+     */
+    List<ApiDigestPO> selectAllRoutes();
+
+    /**
+     * 查询更新时间不早于指定时间的接口的路由数据，用于增量刷新接口路由表。
+     * <p>
+     * 包括逻辑删除的接口，调用方根据 {@code isDeleted} 从路由表中移除。
+     *
+     * @param updateTime 更新时间下限（包含）
+     * @return 接口摘要 PO 列表，按更新时间升序
+     */
+    List<ApiDigestPO> selectRoutesUpdatedSince(@Param("updateTime") LocalDateTime updateTime);
+
+    /**
+     * 查询数据库的当前时间，作为按更新时间增量同步的同步点。
+     *
+     * @return 数据库的当前时间
+     */
+    LocalDateTime selectNow();
+
+    /**
+     * 查询更新时间不早于指定时间的接口摘要主键，包括逻辑删除的接口。
+     *
+     * @param updateTime 更新时间下限（包含）
+     * @return 接口摘要主键列表
+     */
+    List<String> selectIdsUpdatedSince(@Param("updateTime") LocalDateTime updateTime);
+
+    /**
+     * 分页查询用户使用的接口摘要。
+     * <p>
+     * 用户使用的接口由 {@code user_quantity_usage} 的 {@code idx_account_id_is_deleted_digest_id} 索引确定，
+     * 与接口摘要的查询条件在同一条 SQL 中执行（MySQL 将 IN 子查询优化为半连接），不需要先把接口摘要主键加载到内存。
+     *
+     * @param page         分页参数
+     * @param accountId    账户主键
+     * @param queryWrapper 接口摘要的查询条件（包括排序条件）
+     * @return 接口摘要 PO 分页
+     */
+    Page<ApiDigestPO> selectUserApiDigestPage(Page<ApiDigestPO> page, @Param("accountId") String accountId,
+                                              @Param(Constants.WRAPPER) Wrapper<ApiDigestPO> queryWrapper);
+
 }
 
 
@@ -2,8 +2,12 @@ package pers.project.api.facade.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import pers.project.api.facade.model.po.ApiFormatPO;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 /**
  * 针对表【api_format (接口格式) 】的数据库操作 Mapper
  *
@@ -13,6 +17,14 @@ import pers.project.api.facade.model.po.ApiFormatPO;
 @Mapper
 public interface ApiFormatMapper extends BaseMapper<ApiFormatPO> {
 
+    /**
+     * 查询更新时间不早于指定时间的接口格式所属的接口摘要主键，包括逻辑删除的接口格式。
+     *
+     * @param updateTime 更新时间下限（包含）
+     * @return 接口摘要主键列表（不重复）
+     */
+    List<String> selectDigestIdsUpdatedSince(@Param("updateTime") LocalDateTime updateTime);
+
 }
 
 
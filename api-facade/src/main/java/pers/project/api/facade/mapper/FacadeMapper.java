@@ -5,6 +5,7 @@ import org.apache.ibatis.annotations.Param;
 import pers.project.api.common.model.query.ApiAdminPageQuery;
 import pers.project.api.common.model.vo.ApiAdminVO;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -18,4 +19,14 @@ public interface FacadeMapper {
 
     List<ApiAdminVO> listApiAdminVOs(@Param("pageQuery") ApiAdminPageQuery pageQuery);
 
+    /**
+     * 查询接口的未删除接口格式
+     * <p>
+     * 用于全文检索索引分页后补全当前页的数据，接口摘要主键数量不超过一页。
+     *
+     * @param digestIds 接口摘要主键
+     * @return API 管理 VO 列表，不保证顺序
+     */
+    List<ApiAdminVO> listApiAdminVOsByDigestIds(@Param("digestIds") Collection<String> digestIds);
+
 }
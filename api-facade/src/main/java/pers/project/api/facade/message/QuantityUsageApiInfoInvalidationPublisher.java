@@ -0,0 +1,65 @@
+package pers.project.api.facade.message;
+
+import com.alibaba.fastjson2.JSON;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.stereotype.Component;
+import pers.project.api.common.model.dto.QuantityUsageApiInfoInvalidationDTO;
+
+import static pers.project.api.common.constant.redis.RedissonTopicNameConst.QUANTITY_USAGE_API_INFO_INVALIDATION_TOPIC_NAME;
+
+/**
+ * 计数用法接口信息失效消息的发布者
+ * <p>
+ * 通知各个 Gateway 实例使本地缓存的接口信息失效。
+ *
+ * @author Luo Fei
+ * @date 2023/07/21
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class QuantityUsageApiInfoInvalidationPublisher {
+
+    private final RedissonClient redissonClient;
+
+    /**
+     * 发布用户账户的接口信息失效消息
+     * <p>
+     * 用于用户新建接口计数用法后，使 Gateway 缓存的未找到接口的结果失效。
+     *
+     * @param accountId 用户账户主键
+     */
+    public void publishByAccountId(String accountId) {
+        publish(new QuantityUsageApiInfoInvalidationDTO(accountId, null));
+    }
+
+    /**
+     * 发布接口的信息失效消息
+     * <p>
+     * 用于接口的路由或限流、缓存、合并设置发生变化后，使 Gateway 缓存的该接口的结果失效，
+     * 由 {@code ApiRouteTable} 在刷新时发现变化后调用。
+     *
+     * @param digestId 接口摘要主键
+     */
+    public void publishByDigestId(String digestId) {
+        publish(new QuantityUsageApiInfoInvalidationDTO(null, digestId));
+    }
+
+    /**
+     * 发布失效消息
+     * <p>
+     * 发布失败只记录日志，Gateway 的缓存过期时间会兜底。
+     */
+    private void publish(QuantityUsageApiInfoInvalidationDTO invalidationDTO) {
+        try {
+            redissonClient.getTopic(QUANTITY_USAGE_API_INFO_INVALIDATION_TOPIC_NAME, StringCodec.INSTANCE)
+                    .publish(JSON.toJSONString(invalidationDTO));
+        } catch (Exception e) {
+            log.warn("Failed to publish QuantityUsageApiInfo invalidation: {}", invalidationDTO, e);
+        }
+    }
+
+}
@@ -65,6 +65,31 @@ public class ApiDigestPO {
      */
     private Integer apiStatus;
 
+    /**
+     * 接口每秒请求数限制（0 表示不限制）
+     */
+    private Integer rateLimit;
+
+    /**
+     * 响应缓存时长（单位：秒，0 表示不缓存）
+     */
+    private Integer cacheTtl;
+
+    /**
+     * 响应缓存键包含的请求参数（, 分隔，为空表示全部参数）
+     */
+    private String cacheKeyParams;
+
+    /**
+     * 命中响应缓存是否扣减调用次数（1 表示扣减，0 表示不扣减）
+     */
+    private Integer cacheHitCharged;
+
+    /**
+     * 是否合并相同的并发请求（1 表示合并，0 表示不合并）
+     */
+    private Integer coalescingEnabled;
+
     /**
      * 是否删除（1 表示删除，0 表示未删除）
      */
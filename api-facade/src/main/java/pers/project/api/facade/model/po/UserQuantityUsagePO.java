@@ -60,6 +60,11 @@ public class UserQuantityUsagePO {
      */
     private Integer usageStatus;
 
+    /**
+     * 用户每秒请求数限制（0 表示不限制）
+     */
+    private Integer rateLimit;
+
     /**
      * 是否删除（1 表示删除，0 表示未删除）
      */
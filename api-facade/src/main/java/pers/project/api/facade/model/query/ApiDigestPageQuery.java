@@ -29,12 +29,32 @@ public class ApiDigestPageQuery {
 
     /**
      * 当前页
+     * <p>
+     * 为 null 时使用键集分页，按创建时间和主键降序排列，通过 {@code cursor} 翻页。
      */
-    @NotNull
     @Positive
     private Long current;
+
+    /**
+     * 键集分页的游标，即上一页返回的 {@code nextCursor}，查询第一页时为 null
+     */
+    @NullOrNotBlank
+    private String cursor;
+
+    /**
+     * 键集分页查询第一页时是否统计总数
+     */
+    private Boolean countTotal;
     // endregion
 
+    /**
+     * 关键词（全文检索接口名称、描述、地址和格式）
+     * <p>
+     * 全文检索的结果按相关度排序，同样支持页码分页和键集分页，游标与不带文本条件的查询不通用。
+     */
+    @NullOrNotBlank
+    private String keyword;
+
     // region From ApiDigestPO
     /**
      * 接口名称（模糊查询）
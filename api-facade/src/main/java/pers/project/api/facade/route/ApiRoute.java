@@ -0,0 +1,37 @@
+package pers.project.api.facade.route;
+
+import pers.project.api.facade.model.po.ApiDigestPO;
+
+/**
+ * 接口路由
+ * <p>
+ * 路由表中不可变的接口摘要数据，只包含 Gateway 授权所需的字段。
+ *
+ * @param digestId          接口摘要主键
+ * @param url               接口地址
+ * @param methodMask        请求方法掩码
+ * @param rateLimit         接口每秒请求数限制
+ * @param cacheTtl          响应缓存时长
+ * @param cacheKeyParams    响应缓存键包含的请求参数
+ * @param cacheHitCharged   命中响应缓存是否扣减调用次数
+ * @param coalescingEnabled 是否合并相同的并发请求
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+public record ApiRoute(String digestId, String url, int methodMask, Integer rateLimit, Integer cacheTtl,
+                       String cacheKeyParams, Integer cacheHitCharged, Integer coalescingEnabled) {
+
+    /**
+     * 根据接口摘要 PO 创建路由
+     *
+     * @param methodMask  请求方法掩码
+     * @param apiDigestPO 接口摘要 PO
+     * @return 接口路由
+     */
+    public static ApiRoute of(int methodMask, ApiDigestPO apiDigestPO) {
+        return new ApiRoute(apiDigestPO.getId(), apiDigestPO.getUrl(), methodMask, apiDigestPO.getRateLimit(),
+                apiDigestPO.getCacheTtl(), apiDigestPO.getCacheKeyParams(), apiDigestPO.getCacheHitCharged(),
+                apiDigestPO.getCoalescingEnabled());
+    }
+
+}
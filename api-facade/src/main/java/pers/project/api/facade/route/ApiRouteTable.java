@@ -0,0 +1,219 @@
+package pers.project.api.facade.route;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import pers.project.api.common.enumeration.ApiMethodEnum;
+import pers.project.api.facade.config.property.ApiRouteTableProperties;
+import pers.project.api.facade.mapper.ApiDigestMapper;
+import pers.project.api.facade.message.QuantityUsageApiInfoInvalidationPublisher;
+import pers.project.api.facade.model.po.ApiDigestPO;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 接口路由表
+ * <p>
+ * 在内存中保存全部未删除接口的路由（{@link ApiRouteTableSnapshot}），查询接口信息时按接口地址和请求方法直接解析接口摘要，
+ * 不再查询数据库。后台线程按 {@code update_time} 增量刷新，定期全量加载，每次刷新生成新的快照并整体替换。
+ * <p>
+ * {@code update_time} 由语句执行时的 {@code ON UPDATE NOW()} 写入，不是提交时间。增量刷新只回溯
+ * {@code refresh-look-back}，语句执行后超过该时长才提交的变化要等到下一次全量加载才生效，
+ * 对应的失效消息也同样延迟，最大延迟为 {@code full-reload-interval} 加上 {@code refresh-interval}。
+ * <p>
+ * 快照的接口数量和距离最后一次刷新成功的时长通过 {@code facade.route.table.size}
+ * 和 {@code facade.route.table.age} 指标暴露。
+ * <p>
+ * 刷新时发现已加载的接口的路由变化或被删除，就发布该接口的信息失效消息，Gateway 不必等缓存过期。
+ * 接口数据只在数据库中直接修改，所以由路由表代替写入路径发布；每个 Facade 实例都会发布一次，失效消息是幂等的。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ApiRouteTable {
+
+    private final ApiRouteTableProperties properties;
+
+    private final ApiDigestMapper apiDigestMapper;
+
+    private final MeterRegistry meterRegistry;
+
+    private final QuantityUsageApiInfoInvalidationPublisher apiInfoInvalidationPublisher;
+
+    /**
+     * 当前快照，第一次加载完成前为 null
+     */
+    private volatile ApiRouteTableSnapshot snapshot;
+
+    private long lastFullReloadNanos;
+
+    private ScheduledExecutorService refreshExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Gauge.builder("facade.route.table.size", this, table -> {
+                    ApiRouteTableSnapshot current = table.snapshot;
+                    return (current == null) ? 0 : current.size();
+                })
+                .description("Number of APIs in the route table snapshot")
+                .register(meterRegistry);
+        Gauge.builder("facade.route.table.age", this, table -> {
+                    ApiRouteTableSnapshot current = table.snapshot;
+                    return (current == null) ? Double.NaN
+                            : (System.nanoTime() - current.getRefreshNanos()) / 1_000_000_000.0;
+                })
+                .description("Seconds since the route table snapshot was last refreshed")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        refreshExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "api-route-table-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long refreshIntervalMillis = properties.getRefreshInterval().toMillis();
+        // 第一次全量加载也在后台执行，加载完成前查询数据库，数据库不可用时不影响启动
+        refreshExecutor.scheduleWithFixedDelay(this::refresh, 0L, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 路由表是否可用
+     *
+     * @return false 如果路由表未启用或第一次加载尚未完成
+     */
+    public boolean isAvailable() {
+        return snapshot != null;
+    }
+
+    /**
+     * 根据接口地址和请求方法查找路由
+     *
+     * @param url    接口地址
+     * @param method 请求方法
+     * @return 接口路由，不存在时返回 null
+     */
+    public ApiRoute find(String url, String method) {
+        ApiRouteTableSnapshot current = snapshot;
+        return (current == null) ? null : current.find(url, ApiMethodEnum.getMaskByStoredValue(method));
+    }
+
+    /**
+     * 刷新路由表，异常只记录日志，下一次刷新时重试
+     */
+    private void refresh() {
+        try {
+            ApiRouteTableSnapshot current = snapshot;
+            long fullReloadIntervalNanos = properties.getFullReloadInterval().toNanos();
+            if (current == null || current.getMaxUpdateTime() == null
+                || System.nanoTime() - lastFullReloadNanos >= fullReloadIntervalNanos) {
+                reload();
+            } else {
+                refreshIncrementally(current);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to refresh api route table, exception message: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 全量加载
+     */
+    private void reload() {
+        long startNanos = System.nanoTime();
+        List<ApiDigestPO> apiDigestPOList = apiDigestMapper.selectAllRoutes();
+        List<ApiRoute> routes = new ArrayList<>(apiDigestPOList.size());
+        LocalDateTime maxUpdateTime = null;
+        for (ApiDigestPO apiDigestPO : apiDigestPOList) {
+            routes.add(toRoute(apiDigestPO));
+            maxUpdateTime = max(maxUpdateTime, apiDigestPO.getUpdateTime());
+        }
+        ApiRouteTableSnapshot previous = snapshot;
+        snapshot = ApiRouteTableSnapshot.of(routes, maxUpdateTime);
+        lastFullReloadNanos = startNanos;
+        // 定期全量加载时发布增量刷新发现不了的变化（例如物理删除）
+        if (previous != null) {
+            for (ApiRoute route : previous.routes()) {
+                publishIfChanged(route, snapshot.get(route.digestId()));
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Reloaded api route table, size: {}, elapsed: {} ms",
+                    routes.size(), (System.nanoTime() - startNanos) / 1_000_000L);
+        }
+    }
+
+    /**
+     * 增量刷新，只查询更新时间不早于已加载的最大更新时间减去回溯时长的接口（包括已删除的接口）
+     */
+    private void refreshIncrementally(ApiRouteTableSnapshot current) {
+        LocalDateTime since = current.getMaxUpdateTime().minus(properties.getRefreshLookBack());
+        List<ApiDigestPO> apiDigestPOList = apiDigestMapper.selectRoutesUpdatedSince(since);
+        if (apiDigestPOList.isEmpty()) {
+            snapshot = current.touch();
+            return;
+        }
+        List<ApiRoute> changedRoutes = new ArrayList<>();
+        List<String> removedDigestIds = new ArrayList<>();
+        LocalDateTime maxUpdateTime = current.getMaxUpdateTime();
+        for (ApiDigestPO apiDigestPO : apiDigestPOList) {
+            Integer isDeleted = apiDigestPO.getIsDeleted();
+            if (isDeleted != null && isDeleted == 1) {
+                removedDigestIds.add(apiDigestPO.getId());
+                publishIfChanged(current.get(apiDigestPO.getId()), null);
+            } else {
+                ApiRoute route = toRoute(apiDigestPO);
+                changedRoutes.add(route);
+                publishIfChanged(current.get(route.digestId()), route);
+            }
+            maxUpdateTime = max(maxUpdateTime, apiDigestPO.getUpdateTime());
+        }
+        snapshot = current.apply(changedRoutes, removedDigestIds, maxUpdateTime);
+    }
+
+    /**
+     * 已加载的路由变化或被删除时发布接口信息失效消息
+     * <p>
+     * 新建的接口没有被缓存过，回溯时重复查询到的未变化接口也不发布。
+     *
+     * @param loadedRoute 已加载的路由
+     * @param route       新的路由，接口被删除时为 null
+     */
+    private void publishIfChanged(ApiRoute loadedRoute, ApiRoute route) {
+        if (loadedRoute != null && !loadedRoute.equals(route)) {
+            apiInfoInvalidationPublisher.publishByDigestId(loadedRoute.digestId());
+        }
+    }
+
+    private static ApiRoute toRoute(ApiDigestPO apiDigestPO) {
+        return ApiRoute.of(ApiMethodEnum.getMaskByStoredValues(apiDigestPO.getMethod()), apiDigestPO);
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        if (a == null) {
+            return b;
+        }
+        return (b == null || a.isAfter(b)) ? a : b;
+    }
+
+}
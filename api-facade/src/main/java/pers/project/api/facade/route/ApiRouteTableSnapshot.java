@@ -0,0 +1,191 @@
+package pers.project.api.facade.route;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 接口路由表快照
+ * <p>
+ * 创建后不可修改，可以被任意线程无锁读取；增量刷新时复制一份再应用变化，然后整体替换。
+ * 同一接口地址下每个请求方法对应数组中的一个位置，位置由请求方法的掩码位决定。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+final class ApiRouteTableSnapshot {
+
+    /**
+     * 请求方法的数量，与 {@code ApiMethodEnum} 的常量数量一致
+     */
+    private static final int METHOD_COUNT = 8;
+
+    /**
+     * 接口地址到各请求方法路由的映射
+     */
+    private final Map<String, ApiRoute[]> routesByUrl;
+
+    /**
+     * 接口摘要主键到路由的映射，用于增量刷新时移除旧路由
+     */
+    private final Map<String, ApiRoute> routesByDigestId;
+
+    /**
+     * 已加载的最大更新时间，作为下一次增量刷新的起点
+     */
+    private final LocalDateTime maxUpdateTime;
+
+    /**
+     * 加载或最后一次刷新成功的时间（{@link System#nanoTime()}）
+     */
+    private final long refreshNanos;
+
+    private ApiRouteTableSnapshot(Map<String, ApiRoute[]> routesByUrl, Map<String, ApiRoute> routesByDigestId,
+                                  LocalDateTime maxUpdateTime, long refreshNanos) {
+        this.routesByUrl = routesByUrl;
+        this.routesByDigestId = routesByDigestId;
+        this.maxUpdateTime = maxUpdateTime;
+        this.refreshNanos = refreshNanos;
+    }
+
+    /**
+     * 根据全量数据创建快照
+     * <p>
+     * 同一接口地址和请求方法有多个接口时保留先出现的接口。
+     *
+     * @param routes        按主键升序的全部未删除路由
+     * @param maxUpdateTime 全部数据中的最大更新时间
+     * @return 路由表快照
+     */
+    static ApiRouteTableSnapshot of(Collection<ApiRoute> routes, LocalDateTime maxUpdateTime) {
+        Map<String, ApiRoute[]> routesByUrl = new HashMap<>();
+        Map<String, ApiRoute> routesByDigestId = new HashMap<>();
+        for (ApiRoute route : routes) {
+            routesByDigestId.put(route.digestId(), route);
+            put(routesByUrl, route, false);
+        }
+        return new ApiRouteTableSnapshot(routesByUrl, routesByDigestId, maxUpdateTime, System.nanoTime());
+    }
+
+    /**
+     * 查找路由
+     *
+     * @param url        接口地址
+     * @param methodMask 请求方法的掩码位
+     * @return 接口路由，不存在时返回 null
+     */
+    ApiRoute find(String url, int methodMask) {
+        ApiRoute[] routes = routesByUrl.get(url);
+        if (routes == null || methodMask == 0) {
+            return null;
+        }
+        return routes[Integer.numberOfTrailingZeros(methodMask)];
+    }
+
+    /**
+     * 应用增量变化，返回新的快照
+     *
+     * @param changedRoutes    变化后的路由（新建或更新）
+     * @param removedDigestIds 被删除的接口摘要主键
+     * @param maxUpdateTime    变化数据中的最大更新时间
+     * @return 新的快照，当前快照不变
+     */
+    ApiRouteTableSnapshot apply(Collection<ApiRoute> changedRoutes, Collection<String> removedDigestIds,
+                                LocalDateTime maxUpdateTime) {
+        Map<String, ApiRoute[]> newRoutesByUrl = new HashMap<>(routesByUrl);
+        Map<String, ApiRoute> newRoutesByDigestId = new HashMap<>(routesByDigestId);
+        for (String digestId : removedDigestIds) {
+            remove(newRoutesByUrl, newRoutesByDigestId.remove(digestId));
+        }
+        for (ApiRoute route : changedRoutes) {
+            remove(newRoutesByUrl, newRoutesByDigestId.put(route.digestId(), route));
+            put(newRoutesByUrl, route, true);
+        }
+        LocalDateTime newMaxUpdateTime = (this.maxUpdateTime == null || maxUpdateTime.isAfter(this.maxUpdateTime))
+                ? maxUpdateTime : this.maxUpdateTime;
+        return new ApiRouteTableSnapshot(newRoutesByUrl, newRoutesByDigestId, newMaxUpdateTime, System.nanoTime());
+    }
+
+    /**
+     * 没有变化时返回刷新时间更新后的快照
+     */
+    ApiRouteTableSnapshot touch() {
+        return new ApiRouteTableSnapshot(routesByUrl, routesByDigestId, maxUpdateTime, System.nanoTime());
+    }
+
+    /**
+     * 根据接口摘要主键获取路由
+     *
+     * @param digestId 接口摘要主键
+     * @return 接口路由，不存在时返回 null
+     */
+    ApiRoute get(String digestId) {
+        return routesByDigestId.get(digestId);
+    }
+
+    /**
+     * 全部路由
+     */
+    Collection<ApiRoute> routes() {
+        return Collections.unmodifiableCollection(routesByDigestId.values());
+    }
+
+    /**
+     * 路由数量（接口数量）
+     */
+    int size() {
+        return routesByDigestId.size();
+    }
+
+    LocalDateTime getMaxUpdateTime() {
+        return maxUpdateTime;
+    }
+
+    long getRefreshNanos() {
+        return refreshNanos;
+    }
+
+    /**
+     * 放入路由的各个请求方法，数组按写时复制修改，不影响旧快照
+     */
+    private static void put(Map<String, ApiRoute[]> routesByUrl, ApiRoute route, boolean overwrite) {
+        ApiRoute[] routes = routesByUrl.get(route.url());
+        routes = (routes == null) ? new ApiRoute[METHOD_COUNT] : routes.clone();
+        int methodMask = route.methodMask();
+        for (int i = 0; i < METHOD_COUNT; i++) {
+            if ((methodMask & (1 << i)) != 0 && (overwrite || routes[i] == null)) {
+                routes[i] = route;
+            }
+        }
+        routesByUrl.put(route.url(), routes);
+    }
+
+    /**
+     * 移除路由占用的请求方法，已经被其他接口占用的位置不受影响
+     */
+    private static void remove(Map<String, ApiRoute[]> routesByUrl, ApiRoute route) {
+        if (route == null) {
+            return;
+        }
+        ApiRoute[] routes = routesByUrl.get(route.url());
+        if (routes == null) {
+            return;
+        }
+        routes = routes.clone();
+        boolean empty = true;
+        for (int i = 0; i < METHOD_COUNT; i++) {
+            if (routes[i] != null && routes[i].digestId().equals(route.digestId())) {
+                routes[i] = null;
+            }
+            empty &= (routes[i] == null);
+        }
+        if (empty) {
+            routesByUrl.remove(route.url());
+        } else {
+            routesByUrl.put(route.url(), routes);
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+package pers.project.api.facade.search;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * 接口检索条件
+ * <p>
+ * 文本条件经过分词后，每个词都必须出现在对应的字段中，最后一个词按前缀匹配；
+ * 关键词在接口名称、描述、地址和格式中的任一字段匹配即可，按相关度排序。其他条件只过滤，不影响相关度。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+@Data
+public class ApiSearchCondition {
+
+    /**
+     * 关键词
+     */
+    private String keyword;
+
+    /**
+     * 接口名称
+     */
+    private String apiName;
+
+    /**
+     * 接口描述
+     */
+    private String description;
+
+    /**
+     * 接口地址
+     */
+    private String url;
+
+    /**
+     * 请求参数
+     */
+    private String requestParam;
+
+    /**
+     * 请求头
+     */
+    private String requestHeader;
+
+    /**
+     * 请求体
+     */
+    private String requestBody;
+
+    /**
+     * 响应头
+     */
+    private String responseHeader;
+
+    /**
+     * 响应体
+     */
+    private String responseBody;
+
+    /**
+     * 创建账户主键
+     */
+    private String accountId;
+
+    /**
+     * 请求方法集合（接口必须支持全部请求方法）
+     */
+    private Set<String> methodSet;
+
+    /**
+     * 接口用法类型集合（接口必须支持全部用法类型）
+     */
+    private Set<String> usageTypeSet;
+
+    /**
+     * 接口状态集合
+     */
+    private Set<Integer> apiStatusSet;
+
+    /**
+     * 创建时间范围
+     * <p>
+     * [0] 起始时间
+     * <p>
+     * [1] 终止时间（包括）
+     */
+    private LocalDateTime[] createTimeRange;
+
+    /**
+     * 更新时间范围
+     * <p>
+     * [0] 起始时间
+     * <p>
+     * [1] 终止时间（包括）
+     */
+    private LocalDateTime[] updateTimeRange;
+
+}
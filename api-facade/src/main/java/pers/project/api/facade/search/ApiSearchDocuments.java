@@ -0,0 +1,142 @@
+package pers.project.api.facade.search;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.cn.smart.SmartChineseAnalyzer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.*;
+import pers.project.api.facade.model.po.ApiDigestPO;
+import pers.project.api.facade.model.po.ApiFormatPO;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.util.StringUtils.commaDelimitedListToSet;
+
+/**
+ * 接口检索文档
+ * <p>
+ * 每个未删除的接口摘要对应一个文档，包括其未删除的接口格式。接口名称和描述使用中文分词，
+ * 接口地址和格式（参数名、JSON 等）使用标准分词。只有接口摘要主键是存储字段，检索结果由数据库补全。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+final class ApiSearchDocuments {
+
+    static final String DIGEST_ID = "digest_id";
+
+    static final String ACCOUNT_ID = "account_id";
+
+    static final String API_NAME = "api_name";
+
+    static final String DESCRIPTION = "description";
+
+    static final String URL = "url";
+
+    static final String METHOD = "method";
+
+    static final String USAGE_TYPE = "usage_type";
+
+    static final String API_STATUS = "api_status";
+
+    static final String CREATE_TIME = "create_time";
+
+    static final String UPDATE_TIME = "update_time";
+
+    static final String REQUEST_PARAM = "request_param";
+
+    static final String REQUEST_HEADER = "request_header";
+
+    static final String REQUEST_BODY = "request_body";
+
+    static final String RESPONSE_HEADER = "response_header";
+
+    static final String RESPONSE_BODY = "response_body";
+
+    /**
+     * 关键词检索的字段和权重
+     */
+    static final Map<String, Float> KEYWORD_FIELD_BOOSTS = Map.of(API_NAME, 4.0F, DESCRIPTION, 2.0F, URL, 2.0F,
+            REQUEST_PARAM, 1.0F, REQUEST_HEADER, 1.0F, REQUEST_BODY, 1.0F,
+            RESPONSE_HEADER, 1.0F, RESPONSE_BODY, 1.0F);
+
+    private ApiSearchDocuments() {
+    }
+
+    /**
+     * 创建索引和检索使用的分词器
+     */
+    static Analyzer createAnalyzer() {
+        Analyzer chineseAnalyzer = new SmartChineseAnalyzer();
+        return new PerFieldAnalyzerWrapper(new StandardAnalyzer(),
+                Map.of(API_NAME, chineseAnalyzer, DESCRIPTION, chineseAnalyzer));
+    }
+
+    /**
+     * 创建接口的检索文档
+     *
+     * @param apiDigestPO     接口摘要 PO
+     * @param apiFormatPOList 接口的接口格式 PO 列表，可以为空
+     * @return 检索文档
+     */
+    static Document of(ApiDigestPO apiDigestPO, List<ApiFormatPO> apiFormatPOList) {
+        Document document = new Document();
+        document.add(new StringField(DIGEST_ID, apiDigestPO.getId(), Field.Store.YES));
+        // 相关度和创建时间都相同时按主键降序，使键集分页的顺序稳定
+        document.add(new NumericDocValuesField(DIGEST_ID, Long.parseLong(apiDigestPO.getId())));
+        addString(document, ACCOUNT_ID, apiDigestPO.getAccountId());
+        addText(document, API_NAME, apiDigestPO.getApiName());
+        addText(document, DESCRIPTION, apiDigestPO.getDescription());
+        addText(document, URL, apiDigestPO.getUrl());
+        if (apiDigestPO.getMethod() != null) {
+            commaDelimitedListToSet(apiDigestPO.getMethod()).forEach(method -> addString(document, METHOD, method));
+        }
+        if (apiDigestPO.getUsageType() != null) {
+            commaDelimitedListToSet(apiDigestPO.getUsageType())
+                    .forEach(usageType -> addString(document, USAGE_TYPE, usageType));
+        }
+        if (apiDigestPO.getApiStatus() != null) {
+            document.add(new IntPoint(API_STATUS, apiDigestPO.getApiStatus()));
+        }
+        if (apiDigestPO.getCreateTime() != null) {
+            long createTime = toEpochSecond(apiDigestPO.getCreateTime());
+            document.add(new LongPoint(CREATE_TIME, createTime));
+            // 相关度相同时按创建时间降序
+            document.add(new NumericDocValuesField(CREATE_TIME, createTime));
+        }
+        if (apiDigestPO.getUpdateTime() != null) {
+            document.add(new LongPoint(UPDATE_TIME, toEpochSecond(apiDigestPO.getUpdateTime())));
+        }
+        for (ApiFormatPO apiFormatPO : apiFormatPOList) {
+            addText(document, REQUEST_PARAM, apiFormatPO.getRequestParam());
+            addText(document, REQUEST_HEADER, apiFormatPO.getRequestHeader());
+            addText(document, REQUEST_BODY, apiFormatPO.getRequestBody());
+            addText(document, RESPONSE_HEADER, apiFormatPO.getResponseHeader());
+            addText(document, RESPONSE_BODY, apiFormatPO.getResponseBody());
+        }
+        return document;
+    }
+
+    /**
+     * 转换为索引中使用的时间（UTC 秒），与数据库中的 DATETIME 一样不含时区
+     */
+    static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static void addString(Document document, String name, String value) {
+        if (value != null) {
+            document.add(new StringField(name, value, Field.Store.NO));
+        }
+    }
+
+    private static void addText(Document document, String name, String value) {
+        if (value != null && !value.isEmpty()) {
+            document.add(new TextField(name, value, Field.Store.NO));
+        }
+    }
+
+}
@@ -0,0 +1,490 @@
+package pers.project.api.facade.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+import pers.project.api.common.exception.BusinessException;
+import pers.project.api.facade.config.property.ApiSearchProperties;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.util.StringUtils.hasText;
+import static pers.project.api.common.enumeration.ErrorEnum.PARAM_ERROR;
+import static pers.project.api.facade.search.ApiSearchDocuments.*;
+
+/**
+ * 接口全文检索索引
+ * <p>
+ * 本地磁盘上的 Lucene 索引，代替数据库对接口名称、描述、地址和格式的 {@code LIKE '%...%'} 模糊查询。
+ * 索引由 {@link ApiSearchIndexer} 单线程维护，只在提交后刷新检索器，检索只能看到已提交的完整状态。
+ * <p>
+ * 索引完成第一次完整同步（或重启后打开已同步过的索引）之前不可用，调用方使用数据库查询。
+ * 文档数量、距离最后一次同步成功的时长和检索耗时通过 {@code facade.search.index.size}、
+ * {@code facade.search.index.age} 和 {@code facade.search.query} 指标暴露。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ApiSearchIndex {
+
+    /**
+     * 提交数据中同步点的键，值为已同步到的数据库时间
+     */
+    private static final String SYNCED_UPDATE_TIME_KEY = "synced_update_time";
+
+    /**
+     * 提交数据中索引格式版本的键，版本不同的索引需要重建
+     */
+    private static final String INDEX_VERSION_KEY = "index_version";
+
+    /**
+     * 索引格式版本，文档的字段变化时递增
+     */
+    private static final String INDEX_VERSION = "2";
+
+    /**
+     * 按相关度降序，相关度相同时按创建时间降序，再按主键降序
+     */
+    private static final Sort SORT = new Sort(SortField.FIELD_SCORE,
+            new SortField(CREATE_TIME, SortField.Type.LONG, true),
+            new SortField(DIGEST_ID, SortField.Type.LONG, true));
+
+    private static final char CURSOR_SEPARATOR = '_';
+
+    private static final Set<String> STORED_FIELDS = Set.of(DIGEST_ID);
+
+    /**
+     * 最后一个词完整匹配时相对前缀匹配的权重
+     */
+    private static final float EXACT_TERM_BOOST = 2.0F;
+
+    private final ApiSearchProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private Analyzer analyzer;
+
+    private Directory directory;
+
+    private IndexWriter indexWriter;
+
+    private SearcherManager searcherManager;
+
+    private Timer queryTimer;
+
+    /**
+     * 已同步到的数据库时间，只由索引线程读写
+     */
+    private LocalDateTime syncedUpdateTime;
+
+    private volatile boolean available;
+
+    private volatile long syncNanos;
+
+    private volatile long documentCount;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        analyzer = ApiSearchDocuments.createAnalyzer();
+        directory = FSDirectory.open(Files.createDirectories(Path.of(properties.getIndexPath())));
+        IndexWriterConfig.OpenMode openMode = IndexWriterConfig.OpenMode.CREATE_OR_APPEND;
+        if (DirectoryReader.indexExists(directory)) {
+            try {
+                Map<String, String> userData = SegmentInfos.readLatestCommit(directory).getUserData();
+                String value = userData.get(SYNCED_UPDATE_TIME_KEY);
+                // 格式版本不同的索引视为从未同步过，由第一次同步重建
+                syncedUpdateTime = (value == null || !INDEX_VERSION.equals(userData.get(INDEX_VERSION_KEY)))
+                        ? null : LocalDateTime.parse(value);
+            } catch (IOException e) {
+                // 索引损坏或版本不兼容时丢弃，重新构建
+                log.warn("Failed to read api search index, rebuilding it, exception message: {}", e.getMessage());
+                openMode = IndexWriterConfig.OpenMode.CREATE;
+            }
+        }
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                .setOpenMode(openMode)
+                // 关闭时不提交，重建中途停止时索引保持上一次提交的完整状态
+                .setCommitOnClose(false);
+        indexWriter = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(indexWriter, null);
+        documentCount = indexWriter.getDocStats().numDocs;
+        syncNanos = System.nanoTime();
+        available = (syncedUpdateTime != null);
+        queryTimer = Timer.builder("facade.search.query")
+                .description("Time spent searching the api search index")
+                .register(meterRegistry);
+        Gauge.builder("facade.search.index.size", this, index -> index.documentCount)
+                .description("Number of APIs in the committed api search index")
+                .register(meterRegistry);
+        Gauge.builder("facade.search.index.age", this, index -> index.available
+                        ? (System.nanoTime() - index.syncNanos) / 1_000_000_000.0 : Double.NaN)
+                .description("Seconds since the api search index was last synchronized")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void destroy() throws IOException {
+        if (indexWriter == null) {
+            return;
+        }
+        searcherManager.close();
+        indexWriter.close();
+        directory.close();
+    }
+
+    /**
+     * 索引是否可用
+     *
+     * @return false 如果索引未启用或尚未完成第一次完整同步
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * 按页码检索接口
+     * <p>
+     * 只能查看前 {@code maxResults} 个结果，更深的页面使用 {@link #searchAfter}。
+     *
+     * @param condition 检索条件
+     * @param offset    跳过的结果数量
+     * @param limit     返回的最大结果数量
+     * @return 检索结果
+     * @throws BusinessException 如果页面超出前 {@code maxResults} 个结果
+     */
+    public ApiSearchResult search(ApiSearchCondition condition, long offset, long limit) {
+        int maxResults = properties.getMaxResults();
+        if (offset + limit > maxResults) {
+            throw new BusinessException(PARAM_ERROR,
+                    "检索结果只能按页码查看前 " + maxResults + " 条，请使用游标分页或缩小检索范围");
+        }
+        Query query = buildQuery(condition);
+        return doSearch(searcher -> {
+            long total = searcher.count(query);
+            if (total <= offset) {
+                return new ApiSearchResult(total, List.of(), null);
+            }
+            ScoreDoc[] scoreDocs = searcher.search(query, (int) (offset + limit), SORT).scoreDocs;
+            List<String> digestIds = new ArrayList<>(Math.max(scoreDocs.length - (int) offset, 0));
+            StoredFields storedFields = searcher.storedFields();
+            for (int i = (int) offset; i < scoreDocs.length; i++) {
+                digestIds.add(getDigestId(storedFields, scoreDocs[i]));
+            }
+            return new ApiSearchResult(total, digestIds, null);
+        });
+    }
+
+    /**
+     * 按游标检索接口（键集分页）
+     * <p>
+     * 游标是上一页最后一个结果的相关度、创建时间和主键，翻页深度不受 {@code maxResults} 限制。
+     * 索引在翻页期间变化时相关度可能随之变化，结果可能出现少量重复或遗漏。
+     *
+     * @param condition  检索条件
+     * @param cursor     上一页返回的游标，查询第一页时为 null
+     * @param limit      返回的最大结果数量
+     * @param countTotal 查询第一页时是否统计总数
+     * @return 检索结果
+     * @throws BusinessException 如果游标无效
+     */
+    public ApiSearchResult searchAfter(ApiSearchCondition condition, String cursor,
+                                       long limit, boolean countTotal) {
+        FieldDoc after = (cursor == null) ? null : decodeCursor(cursor);
+        Query query = buildQuery(condition);
+        return doSearch(searcher -> {
+            Long total = (countTotal && cursor == null) ? (long) searcher.count(query) : null;
+            // 多查询一条记录判断是否有下一页
+            ScoreDoc[] scoreDocs = searcher.searchAfter(after, query, (int) limit + 1, SORT, true).scoreDocs;
+            int pageSize = (int) Math.min(scoreDocs.length, limit);
+            List<String> digestIds = new ArrayList<>(pageSize);
+            StoredFields storedFields = searcher.storedFields();
+            for (int i = 0; i < pageSize; i++) {
+                digestIds.add(getDigestId(storedFields, scoreDocs[i]));
+            }
+            String nextCursor = (scoreDocs.length > limit) ? encodeCursor((FieldDoc) scoreDocs[pageSize - 1]) : null;
+            return new ApiSearchResult(total, digestIds, nextCursor);
+        });
+    }
+
+    // region Used by ApiSearchIndexer
+    /**
+     * 获取已同步到的数据库时间
+     *
+     * @return 数据库时间，索引从未完整同步过时返回 null
+     */
+    LocalDateTime getSyncedUpdateTime() {
+        return syncedUpdateTime;
+    }
+
+    /**
+     * 新增或替换接口的文档
+     */
+    void update(String digestId, Document document) throws IOException {
+        indexWriter.updateDocument(new Term(DIGEST_ID, digestId), document);
+    }
+
+    /**
+     * 删除接口的文档
+     */
+    void delete(String digestId) throws IOException {
+        indexWriter.deleteDocuments(new Term(DIGEST_ID, digestId));
+    }
+
+    /**
+     * 删除全部文档，用于重建索引
+     */
+    void deleteAll() throws IOException {
+        indexWriter.deleteAll();
+    }
+
+    /**
+     * 提交修改并刷新检索器
+     *
+     * @param syncedUpdateTime 已同步到的数据库时间
+     */
+    void commit(LocalDateTime syncedUpdateTime) throws IOException {
+        indexWriter.setLiveCommitData(Map.of(SYNCED_UPDATE_TIME_KEY, syncedUpdateTime.toString(),
+                INDEX_VERSION_KEY, INDEX_VERSION).entrySet());
+        indexWriter.commit();
+        searcherManager.maybeRefreshBlocking();
+        documentCount = indexWriter.getDocStats().numDocs;
+        markSynced(syncedUpdateTime);
+        available = true;
+    }
+
+    /**
+     * 记录没有修改的同步
+     *
+     * @param syncedUpdateTime 已同步到的数据库时间
+     */
+    void markSynced(LocalDateTime syncedUpdateTime) {
+        this.syncedUpdateTime = syncedUpdateTime;
+        syncNanos = System.nanoTime();
+    }
+    // endregion
+
+    /**
+     * 获取检索器执行检索，并记录检索耗时
+     */
+    private ApiSearchResult doSearch(SearchFunction searchFunction) {
+        long startNanos = System.nanoTime();
+        IndexSearcher searcher;
+        try {
+            searcher = searcherManager.acquire();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            return searchFunction.search(searcher);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            releaseQuietly(searcher);
+            queryTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String getDigestId(StoredFields storedFields, ScoreDoc scoreDoc) throws IOException {
+        return storedFields.document(scoreDoc.doc, STORED_FIELDS).get(DIGEST_ID);
+    }
+
+    /**
+     * 生成游标，格式为 {@code 相关度_创建时间_主键} 的无填充 Base64URL 编码，相关度使用浮点数的位表示
+     */
+    private static String encodeCursor(FieldDoc fieldDoc) {
+        Object[] fields = fieldDoc.fields;
+        String plainCursor = Integer.toHexString(Float.floatToIntBits((Float) fields[0]))
+                + CURSOR_SEPARATOR + fields[1] + CURSOR_SEPARATOR + fields[2];
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(plainCursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标
+     * <p>
+     * 文档号设为最大值，排序字段都相同的文档（即游标对应的文档本身）不会再次返回。
+     *
+     * @throws BusinessException 如果游标无效
+     */
+    private static FieldDoc decodeCursor(String cursor) {
+        try {
+            String plainCursor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = plainCursor.split(String.valueOf(CURSOR_SEPARATOR), -1);
+            if (parts.length != 3) {
+                throw new BusinessException(PARAM_ERROR, "无效的分页游标");
+            }
+            float score = Float.intBitsToFloat(Integer.parseUnsignedInt(parts[0], 16));
+            Object[] fields = {score, Long.parseLong(parts[1]), Long.parseLong(parts[2])};
+            return new FieldDoc(Integer.MAX_VALUE, score, fields);
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(PARAM_ERROR, "无效的分页游标");
+        }
+    }
+
+    /**
+     * 根据检索条件构建查询
+     */
+    private Query buildQuery(ApiSearchCondition condition) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        // 关键词在任一字段中匹配即可，不同字段的权重不同
+        if (hasText(condition.getKeyword())) {
+            BooleanQuery.Builder keywordBuilder = new BooleanQuery.Builder();
+            KEYWORD_FIELD_BOOSTS.forEach((field, boost) -> {
+                Query fieldQuery = buildTextQuery(field, condition.getKeyword());
+                if (fieldQuery != null) {
+                    keywordBuilder.add(new BoostQuery(fieldQuery, boost), BooleanClause.Occur.SHOULD);
+                }
+            });
+            BooleanQuery keywordQuery = keywordBuilder.build();
+            if (!keywordQuery.clauses().isEmpty()) {
+                builder.add(keywordQuery, BooleanClause.Occur.MUST);
+            }
+        }
+        // 指定字段的文本条件
+        addTextCondition(builder, API_NAME, condition.getApiName());
+        addTextCondition(builder, DESCRIPTION, condition.getDescription());
+        addTextCondition(builder, URL, condition.getUrl());
+        addTextCondition(builder, REQUEST_PARAM, condition.getRequestParam());
+        addTextCondition(builder, REQUEST_HEADER, condition.getRequestHeader());
+        addTextCondition(builder, REQUEST_BODY, condition.getRequestBody());
+        addTextCondition(builder, RESPONSE_HEADER, condition.getResponseHeader());
+        addTextCondition(builder, RESPONSE_BODY, condition.getResponseBody());
+        // 过滤条件
+        if (condition.getAccountId() != null) {
+            builder.add(new TermQuery(new Term(ACCOUNT_ID, condition.getAccountId())), BooleanClause.Occur.FILTER);
+        }
+        addAllOfFilter(builder, METHOD, condition.getMethodSet());
+        addAllOfFilter(builder, USAGE_TYPE, condition.getUsageTypeSet());
+        if (!CollectionUtils.isEmpty(condition.getApiStatusSet())) {
+            builder.add(IntPoint.newSetQuery(API_STATUS, condition.getApiStatusSet()), BooleanClause.Occur.FILTER);
+        }
+        addRangeFilter(builder, CREATE_TIME, condition.getCreateTimeRange());
+        addRangeFilter(builder, UPDATE_TIME, condition.getUpdateTimeRange());
+        BooleanQuery query = builder.build();
+        return query.clauses().isEmpty() ? new MatchAllDocsQuery() : query;
+    }
+
+    private void addTextCondition(BooleanQuery.Builder builder, String field, String text) {
+        if (hasText(text)) {
+            Query textQuery = buildTextQuery(field, text);
+            if (textQuery != null) {
+                builder.add(textQuery, BooleanClause.Occur.MUST);
+            }
+        }
+    }
+
+    /**
+     * 构建单个字段的文本查询：每个词都必须匹配，最后一个词按前缀匹配（文本以空白结尾时除外）
+     *
+     * @return 文本查询，分词结果为空时返回 null
+     */
+    private Query buildTextQuery(String field, String text) {
+        List<String> terms = analyze(field, text);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        int lastIndex = terms.size() - 1;
+        for (int i = 0; i < lastIndex; i++) {
+            builder.add(new TermQuery(new Term(field, terms.get(i))), BooleanClause.Occur.MUST);
+        }
+        Term lastTerm = new Term(field, terms.get(lastIndex));
+        if (Character.isWhitespace(text.charAt(text.length() - 1))) {
+            builder.add(new TermQuery(lastTerm), BooleanClause.Occur.MUST);
+        } else {
+            // 完整匹配的词排在前缀匹配的词之前
+            Query lastTermQuery = new BooleanQuery.Builder()
+                    .add(new BoostQuery(new TermQuery(lastTerm), EXACT_TERM_BOOST), BooleanClause.Occur.SHOULD)
+                    .add(new PrefixQuery(lastTerm), BooleanClause.Occur.SHOULD)
+                    .build();
+            builder.add(lastTermQuery, BooleanClause.Occur.MUST);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 使用字段的分词器分词
+     */
+    private List<String> analyze(String field, String text) {
+        List<String> terms = new ArrayList<>();
+        try (TokenStream tokenStream = analyzer.tokenStream(field, text)) {
+            CharTermAttribute termAttribute = tokenStream.addAttribute(CharTermAttribute.class);
+            tokenStream.reset();
+            while (tokenStream.incrementToken()) {
+                terms.add(termAttribute.toString());
+            }
+            tokenStream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return terms;
+    }
+
+    private static void addAllOfFilter(BooleanQuery.Builder builder, String field, Set<String> values) {
+        if (values != null) {
+            for (String value : values) {
+                builder.add(new TermQuery(new Term(field, value)), BooleanClause.Occur.FILTER);
+            }
+        }
+    }
+
+    private static void addRangeFilter(BooleanQuery.Builder builder, String field, LocalDateTime[] range) {
+        if (range != null && range.length == 2 && range[0] != null && range[1] != null) {
+            builder.add(LongPoint.newRangeQuery(field, toEpochSecond(range[0]), toEpochSecond(range[1])),
+                    BooleanClause.Occur.FILTER);
+        }
+    }
+
+    private void releaseQuietly(IndexSearcher searcher) {
+        try {
+            searcherManager.release(searcher);
+        } catch (IOException e) {
+            log.warn("Failed to release api search index searcher, exception message: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 使用检索器的检索操作
+     */
+    @FunctionalInterface
+    private interface SearchFunction {
+
+        ApiSearchResult search(IndexSearcher searcher) throws IOException;
+
+    }
+
+}
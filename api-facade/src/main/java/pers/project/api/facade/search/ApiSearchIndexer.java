@@ -0,0 +1,199 @@
+package pers.project.api.facade.search;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import pers.project.api.facade.config.property.ApiSearchProperties;
+import pers.project.api.facade.mapper.ApiDigestMapper;
+import pers.project.api.facade.mapper.ApiFormatMapper;
+import pers.project.api.facade.model.po.ApiDigestPO;
+import pers.project.api.facade.model.po.ApiFormatPO;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 接口全文检索索引维护
+ * <p>
+ * 后台线程按 {@code api_digest} 和 {@code api_format} 的 {@code update_time} 增量同步变化的接口，
+ * 每隔 {@code rebuildInterval} 从数据库重建一次索引。同步点取查询之前的数据库时间，
+ * 更新时间早于同步点减去回溯时长、但在同步之后才提交的变化由下一次重建修正。
+ * <p>
+ * 接口的新增和修改不经过 Facade，所以不在写入路径上更新索引。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ApiSearchIndexer {
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30L;
+
+    private final ApiSearchProperties properties;
+
+    private final ApiSearchIndex apiSearchIndex;
+
+    private final ApiDigestMapper apiDigestMapper;
+
+    private final ApiFormatMapper apiFormatMapper;
+
+    private ScheduledExecutorService indexExecutor;
+
+    /**
+     * 是否需要重建索引，重建成功前不进行增量同步，避免提交重建到一半的索引
+     */
+    private boolean rebuildRequired;
+
+    private long lastRebuildNanos;
+
+    private volatile boolean stopping;
+
+    @PostConstruct
+    public void init() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        rebuildRequired = (apiSearchIndex.getSyncedUpdateTime() == null);
+        lastRebuildNanos = System.nanoTime();
+        indexExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "api-search-indexer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long syncIntervalMillis = properties.getSyncInterval().toMillis();
+        indexExecutor.scheduleWithFixedDelay(this::sync, 0L, syncIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        if (indexExecutor == null) {
+            return;
+        }
+        // 中断正在写索引的线程会导致 IndexWriter 关闭，只能等待当前任务结束
+        stopping = true;
+        indexExecutor.shutdown();
+        if (!indexExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            log.warn("Api search indexer did not stop in {} seconds", SHUTDOWN_TIMEOUT_SECONDS);
+        }
+    }
+
+    /**
+     * 同步索引，异常只记录日志，下一次同步时重试
+     */
+    private void sync() {
+        try {
+            long rebuildIntervalNanos = properties.getRebuildInterval().toNanos();
+            if (rebuildRequired || System.nanoTime() - lastRebuildNanos >= rebuildIntervalNanos) {
+                rebuildRequired = true;
+                rebuild();
+            } else {
+                syncIncrementally(apiSearchIndex.getSyncedUpdateTime());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to synchronize api search index, exception message: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 从数据库重建索引
+     */
+    private void rebuild() throws IOException {
+        long startNanos = System.nanoTime();
+        // 重建期间的变化由之后的增量同步补上
+        LocalDateTime syncedUpdateTime = apiDigestMapper.selectNow();
+        apiSearchIndex.deleteAll();
+        int batchSize = properties.getRebuildBatchSize();
+        int count = 0;
+        String lastDigestId = null;
+        while (!stopping) {
+            LambdaQueryWrapper<ApiDigestPO> queryWrapper = new LambdaQueryWrapper<>();
+            if (lastDigestId != null) {
+                // 主键按数值比较
+                queryWrapper.gt(ApiDigestPO::getId, Long.parseLong(lastDigestId));
+            }
+            queryWrapper.orderByAsc(ApiDigestPO::getId);
+            queryWrapper.last("LIMIT " + batchSize);
+            List<ApiDigestPO> apiDigestPOList = apiDigestMapper.selectList(queryWrapper);
+            index(apiDigestPOList);
+            count += apiDigestPOList.size();
+            if (apiDigestPOList.size() < batchSize) {
+                break;
+            }
+            lastDigestId = apiDigestPOList.get(apiDigestPOList.size() - 1).getId();
+        }
+        if (stopping) {
+            return;
+        }
+        apiSearchIndex.commit(syncedUpdateTime);
+        rebuildRequired = false;
+        lastRebuildNanos = startNanos;
+        log.info("Rebuilt api search index, documents: {}, elapsed: {} ms",
+                count, (System.nanoTime() - startNanos) / 1_000_000L);
+    }
+
+    /**
+     * 增量同步接口摘要或接口格式的更新时间不早于同步点减去回溯时长的接口（包括已删除的接口）
+     */
+    private void syncIncrementally(LocalDateTime syncedUpdateTime) throws IOException {
+        LocalDateTime newSyncedUpdateTime = apiDigestMapper.selectNow();
+        LocalDateTime since = syncedUpdateTime.minus(properties.getSyncLookBack());
+        Set<String> changedDigestIds = new LinkedHashSet<>(apiDigestMapper.selectIdsUpdatedSince(since));
+        changedDigestIds.addAll(apiFormatMapper.selectDigestIdsUpdatedSince(since));
+        if (changedDigestIds.isEmpty()) {
+            apiSearchIndex.markSynced(newSyncedUpdateTime);
+            return;
+        }
+        List<String> changedDigestIdList = new ArrayList<>(changedDigestIds);
+        int batchSize = properties.getRebuildBatchSize();
+        for (int from = 0; from < changedDigestIdList.size(); from += batchSize) {
+            List<String> digestIds = changedDigestIdList.subList(from,
+                    Math.min(from + batchSize, changedDigestIdList.size()));
+            // 逻辑删除的接口查询不到，从索引中删除
+            List<ApiDigestPO> apiDigestPOList = apiDigestMapper.selectBatchIds(digestIds);
+            index(apiDigestPOList);
+            Set<String> liveDigestIds = apiDigestPOList.stream()
+                    .map(ApiDigestPO::getId)
+                    .collect(Collectors.toSet());
+            for (String digestId : digestIds) {
+                if (!liveDigestIds.contains(digestId)) {
+                    apiSearchIndex.delete(digestId);
+                }
+            }
+        }
+        apiSearchIndex.commit(newSyncedUpdateTime);
+        if (log.isDebugEnabled()) {
+            log.debug("Synchronized api search index, changed apis: {}", changedDigestIds.size());
+        }
+    }
+
+    /**
+     * 写入接口摘要及其接口格式的文档
+     */
+    private void index(List<ApiDigestPO> apiDigestPOList) throws IOException {
+        if (apiDigestPOList.isEmpty()) {
+            return;
+        }
+        List<String> digestIds = apiDigestPOList.stream()
+                .map(ApiDigestPO::getId)
+                .collect(Collectors.toList());
+        LambdaQueryWrapper<ApiFormatPO> formatQueryWrapper = new LambdaQueryWrapper<>();
+        formatQueryWrapper.in(ApiFormatPO::getDigestId, digestIds);
+        Map<String, List<ApiFormatPO>> apiFormatPOMap = apiFormatMapper.selectList(formatQueryWrapper).stream()
+                .collect(Collectors.groupingBy(ApiFormatPO::getDigestId));
+        for (ApiDigestPO apiDigestPO : apiDigestPOList) {
+            List<ApiFormatPO> apiFormatPOList = apiFormatPOMap.getOrDefault(apiDigestPO.getId(), List.of());
+            apiSearchIndex.update(apiDigestPO.getId(), ApiSearchDocuments.of(apiDigestPO, apiFormatPOList));
+        }
+    }
+
+}
@@ -0,0 +1,15 @@
+package pers.project.api.facade.search;
+
+import java.util.List;
+
+/**
+ * 接口检索结果
+ *
+ * @param total      匹配的接口总数，未统计时为 null
+ * @param digestIds  当前页的接口摘要主键，按相关度降序
+ * @param nextCursor 键集分页下一页的游标，没有下一页或按页码检索时为 null
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+public record ApiSearchResult(Long total, List<String> digestIds, String nextCursor) {
+}
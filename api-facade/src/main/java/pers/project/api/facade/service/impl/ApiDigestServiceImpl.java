@@ -3,20 +3,30 @@ package pers.project.api.facade.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.BeanUtils;
 import org.springframework.stereotype.Service;
+import pers.project.api.common.util.KeysetPageUtils;
+import pers.project.api.common.util.KeysetPageUtils.KeysetPage;
 import pers.project.api.facade.mapper.ApiDigestMapper;
 import pers.project.api.facade.model.po.ApiDigestPO;
 import pers.project.api.facade.model.query.ApiDigestPageQuery;
 import pers.project.api.facade.model.vo.ApiDigestPageVO;
 import pers.project.api.facade.model.vo.ApiDigestVO;
+import pers.project.api.facade.search.ApiSearchCondition;
+import pers.project.api.facade.search.ApiSearchIndex;
+import pers.project.api.facade.search.ApiSearchResult;
 import pers.project.api.facade.service.ApiDigestService;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import static java.lang.Boolean.TRUE;
 import static java.util.Objects.nonNull;
 import static org.springframework.util.StringUtils.collectionToCommaDelimitedString;
 import static org.springframework.util.StringUtils.commaDelimitedListToSet;
@@ -28,16 +38,25 @@ import static org.springframework.util.StringUtils.commaDelimitedListToSet;
  * @date 2023/05/04
  */
 @Service
+@RequiredArgsConstructor
 public class ApiDigestServiceImpl extends ServiceImpl<ApiDigestMapper, ApiDigestPO> implements ApiDigestService {
 
+    private final ApiSearchIndex apiSearchIndex;
+
     @Override
     // Suppress warnings for duplicated code lines
     @SuppressWarnings("all")
     public ApiDigestPageVO getApiDigestPageVO(ApiDigestPageQuery pageQuery) {
-        // TODO: 2023/7/16 优化查询
+        // 有文本条件并且全文检索索引可用时使用索引检索
+        if (apiSearchIndex.isAvailable() && hasTextCondition(pageQuery)) {
+            return searchApiDigestPageVO(pageQuery);
+        }
         // 按 Query 条件组装 QueryWrapper
         LambdaQueryWrapper<ApiDigestPO> queryWrapper = new LambdaQueryWrapper<>();
         // 模糊查询
+        String keyword = pageQuery.getKeyword();
+        queryWrapper.and(nonNull(keyword), wrapper -> wrapper.like(ApiDigestPO::getApiName, keyword)
+                .or().like(ApiDigestPO::getDescription, keyword));
         String apiName = pageQuery.getApiName();
         queryWrapper.like(nonNull(apiName), ApiDigestPO::getApiName, apiName);
         String description = pageQuery.getDescription();
@@ -62,29 +81,78 @@ public class ApiDigestServiceImpl extends ServiceImpl<ApiDigestMapper, ApiDigest
         queryWrapper.and(nonNull(updateTimeRange),
                 wrapper -> wrapper.ge(ApiDigestPO::getUpdateTime, updateTimeRange[0])
                         .le(ApiDigestPO::getUpdateTime, updateTimeRange[1]));
-        // 用 QueryWrapper 分页查询
-        Page<ApiDigestPO> page = page
-                (Page.of(pageQuery.getCurrent(), pageQuery.getSize()), queryWrapper);
-        // 转换查询到的分页数据
+        // 用 QueryWrapper 分页查询，未指定页码时使用键集分页
         ApiDigestPageVO apiDigestPageVO = new ApiDigestPageVO();
-        apiDigestPageVO.setTotal(page.getTotal());
-        List<ApiDigestVO> apiDigestVOList = page.getRecords().stream()
-                .map(apiDigestPO -> {
-                    ApiDigestVO apiDigestVO = new ApiDigestVO();
-                    BeanUtils.copyProperties(apiDigestPO, apiDigestVO);
-                    apiDigestVO.setDigestId(apiDigestPO.getId());
-                    apiDigestVO.setUsageTypeSet
-                            (commaDelimitedListToSet(apiDigestPO.getUsageType()));
-                    apiDigestVO.setMethodSet
-                            (commaDelimitedListToSet(apiDigestPO.getMethod()));
-                    return apiDigestVO;
-                }).collect(Collectors.toList());
+        List<ApiDigestPO> apiDigestPOList;
+        if (pageQuery.getCurrent() != null) {
+            Page<ApiDigestPO> page = page
+                    (Page.of(pageQuery.getCurrent(), pageQuery.getSize()), queryWrapper);
+            apiDigestPageVO.setTotal(page.getTotal());
+            apiDigestPOList = page.getRecords();
+        } else {
+            KeysetPage<ApiDigestPO> keysetPage = KeysetPageUtils.selectPage
+                    (baseMapper, queryWrapper, ApiDigestPO::getCreateTime, ApiDigestPO::getId,
+                            pageQuery.getCursor(), pageQuery.getSize(), TRUE.equals(pageQuery.getCountTotal()));
+            apiDigestPageVO.setTotal(keysetPage.total());
+            apiDigestPageVO.setNextCursor(keysetPage.nextCursor());
+            apiDigestPOList = keysetPage.records();
+        }
+        // 转换查询到的分页数据
+        List<ApiDigestVO> apiDigestVOList = apiDigestPOList.stream()
+                .map(ApiDigestServiceImpl::toApiDigestVO)
+                .collect(Collectors.toList());
         apiDigestPageVO.setDigestVOList(apiDigestVOList);
         return apiDigestPageVO;
     }
 
-}
-
+    /**
+     * 使用全文检索索引查询 API 摘要页面
+     * <p>
+     * 索引只返回当前页的接口摘要主键，接口摘要数据从数据库读取，按相关度排序。
+     * 与数据库查询一样，未指定页码时使用键集分页，游标由索引生成。
+     */
+    private ApiDigestPageVO searchApiDigestPageVO(ApiDigestPageQuery pageQuery) {
+        ApiSearchCondition condition = new ApiSearchCondition();
+        BeanUtils.copyProperties(pageQuery, condition);
+        long size = pageQuery.getSize();
+        ApiSearchResult searchResult = (pageQuery.getCurrent() != null)
+                ? apiSearchIndex.search(condition, (pageQuery.getCurrent() - 1L) * size, size)
+                : apiSearchIndex.searchAfter(condition, pageQuery.getCursor(), size,
+                        TRUE.equals(pageQuery.getCountTotal()));
+        ApiDigestPageVO apiDigestPageVO = new ApiDigestPageVO();
+        apiDigestPageVO.setTotal(searchResult.total());
+        apiDigestPageVO.setNextCursor(searchResult.nextCursor());
+        List<String> digestIds = searchResult.digestIds();
+        if (digestIds.isEmpty()) {
+            apiDigestPageVO.setDigestVOList(List.of());
+            return apiDigestPageVO;
+        }
+        Map<String, ApiDigestPO> apiDigestPOMap = listByIds(digestIds).stream()
+                .collect(Collectors.toMap(ApiDigestPO::getId, Function.identity()));
+        // 索引同步之前删除的接口查询不到，直接跳过
+        List<ApiDigestVO> apiDigestVOList = digestIds.stream()
+                .map(apiDigestPOMap::get)
+                .filter(Objects::nonNull)
+                .map(ApiDigestServiceImpl::toApiDigestVO)
+                .collect(Collectors.toList());
+        apiDigestPageVO.setDigestVOList(apiDigestVOList);
+        return apiDigestPageVO;
+    }
 
+    private static boolean hasTextCondition(ApiDigestPageQuery pageQuery) {
+        return nonNull(pageQuery.getKeyword()) || nonNull(pageQuery.getApiName())
+                || nonNull(pageQuery.getDescription()) || nonNull(pageQuery.getUrl());
+    }
 
+    private static ApiDigestVO toApiDigestVO(ApiDigestPO apiDigestPO) {
+        ApiDigestVO apiDigestVO = new ApiDigestVO();
+        BeanUtils.copyProperties(apiDigestPO, apiDigestVO);
+        apiDigestVO.setDigestId(apiDigestPO.getId());
+        apiDigestVO.setUsageTypeSet
+                (commaDelimitedListToSet(apiDigestPO.getUsageType()));
+        apiDigestVO.setMethodSet
+                (commaDelimitedListToSet(apiDigestPO.getMethod()));
+        return apiDigestVO;
+    }
 
+}
@@ -2,13 +2,15 @@ package pers.project.api.facade.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
-import com.baomidou.mybatisplus.core.toolkit.CollectionUtils;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RMap;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
 import org.springframework.beans.BeanUtils;
 import org.springframework.stereotype.Service;
+import pers.project.api.common.enumeration.ApiMethodEnum;
 import pers.project.api.common.enumeration.UserQuantityUsageStatusEnum;
 import pers.project.api.common.exception.DataInconsistencyException;
 import pers.project.api.common.model.dto.QuantityUsageApiInfoDTO;
@@ -20,21 +22,31 @@ import pers.project.api.common.model.query.QuantityUsageApiInfoQuery;
 import pers.project.api.common.model.query.UserApiDigestPageQuery;
 import pers.project.api.common.model.query.UserApiFormatAndQuantityUsageQuery;
 import pers.project.api.common.model.vo.*;
+import pers.project.api.common.util.KeysetPageUtils;
+import pers.project.api.common.util.KeysetPageUtils.KeysetPage;
+import pers.project.api.common.util.TransactionUtils;
 import pers.project.api.facade.mapper.*;
+import pers.project.api.facade.message.QuantityUsageApiInfoInvalidationPublisher;
 import pers.project.api.facade.model.po.ApiDigestPO;
 import pers.project.api.facade.model.po.ApiFormatPO;
 import pers.project.api.facade.model.po.UserQuantityUsagePO;
+import pers.project.api.facade.route.ApiRoute;
+import pers.project.api.facade.route.ApiRouteTable;
+import pers.project.api.facade.search.ApiSearchCondition;
+import pers.project.api.facade.search.ApiSearchIndex;
+import pers.project.api.facade.search.ApiSearchResult;
 import pers.project.api.facade.service.FacadeService;
 
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
+import static java.lang.Boolean.TRUE;
 import static java.util.Objects.nonNull;
 import static org.springframework.util.StringUtils.collectionToCommaDelimitedString;
 import static org.springframework.util.StringUtils.commaDelimitedListToSet;
+import static pers.project.api.common.constant.redis.RedisKeyPrefixConst.STOCK_LEASE_LEASED_PERMITS_KEY_PREFIX;
 import static pers.project.api.common.constant.redis.RedissonNamePrefixConst.*;
 import static pers.project.api.common.enumeration.QuantityUsageOrderStatusEnum.STOCK_SHORTAGE;
 import static pers.project.api.common.enumeration.QuantityUsageOrderStatusEnum.SUCCESS;
@@ -65,27 +77,19 @@ public class FacadeServiceImpl implements FacadeService {
 
     private final UserQuantityUsageServiceImpl userQuantityUsageService;
 
+    private final QuantityUsageApiInfoInvalidationPublisher apiInfoInvalidationPublisher;
+
+    private final ApiRouteTable apiRouteTable;
+
+    private final ApiSearchIndex apiSearchIndex;
+
     @Override
     // Suppress warnings for duplicated code lines
     @SuppressWarnings("all")
     public UserApiDigestPageVO getUserApiDigestPageDTO(UserApiDigestPageQuery pageQuery) {
-        // 按 Query 条件进行分页查询
-        // TODO: 2023/7/16 优化查询
-        LambdaQueryWrapper<UserQuantityUsagePO> usageQueryWrapper = new LambdaQueryWrapper<>();
-        usageQueryWrapper.select(UserQuantityUsagePO::getDigestId);
-        usageQueryWrapper.eq(UserQuantityUsagePO::getAccountId, pageQuery.getAccountId());
-        List<UserQuantityUsagePO> userQuantityUsagePOList = userQuantityUsageService.list(usageQueryWrapper);
-        if (CollectionUtils.isEmpty(userQuantityUsagePOList)) {
-            return new UserApiDigestPageVO();
-        }
-        List<String> digestIdList = userQuantityUsagePOList.stream()
-                .map(UserQuantityUsagePO::getDigestId)
-                .collect(Collectors.toList());
-        // 按 Query 条件组装 QueryWrapper
+        String accountId = pageQuery.getAccountId();
+        // 按 Query 条件组装 QueryWrapper，用户使用的接口由 selectUserApiDigestPage 在同一条 SQL 中限定
         LambdaQueryWrapper<ApiDigestPO> queryWrapper = new LambdaQueryWrapper<>();
-        // 用户使用接口的 ID 列表
-        // TODO: 2023/7/18 和 ApiDigestServiceImpl.getApiDigestPageVO 唯一不同的地方
-        queryWrapper.in(ApiDigestPO::getId, digestIdList);
         // 模糊查询
         String apiName = pageQuery.getApiName();
         queryWrapper.like(nonNull(apiName), ApiDigestPO::getApiName, apiName);
@@ -111,12 +115,26 @@ public class FacadeServiceImpl implements FacadeService {
         queryWrapper.and(nonNull(updateTimeRange),
                 wrapper -> wrapper.ge(ApiDigestPO::getUpdateTime, updateTimeRange[0])
                         .le(ApiDigestPO::getUpdateTime, updateTimeRange[1]));
-        // 用 QueryWrapper 分页查询
-        Page<ApiDigestPO> page = apiDigestMapper.selectPage
-                (Page.of(pageQuery.getCurrent(), pageQuery.getSize()), queryWrapper);
+        // 用 QueryWrapper 分页查询，未指定页码时使用键集分页
+        UserApiDigestPageVO pageDTO = new UserApiDigestPageVO();
+        List<ApiDigestPO> apiDigestPOList;
+        if (pageQuery.getCurrent() != null) {
+            Page<ApiDigestPO> page = apiDigestMapper.selectUserApiDigestPage
+                    (Page.of(pageQuery.getCurrent(), pageQuery.getSize()), accountId, queryWrapper);
+            pageDTO.setTotal(page.getTotal());
+            apiDigestPOList = page.getRecords();
+        } else {
+            KeysetPage<ApiDigestPO> keysetPage = KeysetPageUtils.selectPage
+                    ((page, wrapper) -> apiDigestMapper.selectUserApiDigestPage(page, accountId, wrapper),
+                            queryWrapper, ApiDigestPO::getCreateTime, ApiDigestPO::getId,
+                            pageQuery.getCursor(), pageQuery.getSize(), TRUE.equals(pageQuery.getCountTotal()));
+            pageDTO.setTotal(keysetPage.total());
+            pageDTO.setNextCursor(keysetPage.nextCursor());
+            apiDigestPOList = keysetPage.records();
+        }
         // 转换查询到的分页数据
         List<UserApiDigestVO> userApiDigestVOList
-                = page.getRecords().stream().map(apiDigestPO -> {
+                = apiDigestPOList.stream().map(apiDigestPO -> {
             UserApiDigestVO userApiDigestVO = new UserApiDigestVO();
             BeanUtils.copyProperties(apiDigestPO, userApiDigestVO);
             userApiDigestVO.setDigestId(apiDigestPO.getId());
@@ -126,8 +144,6 @@ public class FacadeServiceImpl implements FacadeService {
                     (commaDelimitedListToSet(apiDigestPO.getMethod()));
             return userApiDigestVO;
         }).collect(Collectors.toList());
-        UserApiDigestPageVO pageDTO = new UserApiDigestPageVO();
-        pageDTO.setTotal(page.getTotal());
         pageDTO.setDigestVOList(userApiDigestVOList);
         return pageDTO;
     }
@@ -156,10 +172,12 @@ public class FacadeServiceImpl implements FacadeService {
         String userFailureSemaphoreName = USER_QUANTITY_USAGE_FAILURE_SEMAPHORE_NAME_PREFIX + usageId;
         int failure = redissonClient.getSemaphore(userFailureSemaphoreName).availablePermits();
         String userStockSemaphoreName = USER_QUANTITY_USAGE_STOCK_SEMAPHORE_NAME_PREFIX + usageId;
-        int stock = redissonClient.getSemaphore(userStockSemaphoreName).availablePermits();
+        // Gateway 租借出但尚未使用的许可证仍然属于存量
+        long stock = redissonClient.getSemaphore(userStockSemaphoreName).availablePermits()
+                + getLeasedStock(usageId);
         formatAndQuantityUsageVO.setTotal((long) total);
         formatAndQuantityUsageVO.setFailure((long) failure);
-        formatAndQuantityUsageVO.setStock((long) stock);
+        formatAndQuantityUsageVO.setStock(stock);
         // 查询后更新数据库（临时写法）
         // TODO: 2023/7/16 临时写法
         CompletableFuture.runAsync(() -> {
@@ -179,6 +197,10 @@ public class FacadeServiceImpl implements FacadeService {
 
     @Override
     public ApiAdminPageVO getApiAdminPageVO(ApiAdminPageQuery pageQuery) {
+        // 有文本条件并且其他条件都能由索引过滤时，在全文检索索引中分页，代替数据库中的模糊查询
+        if (apiSearchIndex.isAvailable() && isSearchable(pageQuery)) {
+            return searchApiAdminPageVO(pageQuery);
+        }
         Long total = facadeMapper.countApiAdminVOs(pageQuery);
         if (total == 0L) {
             return new ApiAdminPageVO();
@@ -190,6 +212,61 @@ public class FacadeServiceImpl implements FacadeService {
         return apiAdminPageVO;
     }
 
+    /**
+     * 是否可以使用全文检索索引查询 API 管理页面
+     * <p>
+     * 索引只包含未删除的接口，所以只用于查询未删除的接口格式；
+     * 接口格式主键、接口格式时间、请求方法和用法类型等索引中没有或语义不同的条件仍由数据库查询。
+     */
+    private static boolean isSearchable(ApiAdminPageQuery pageQuery) {
+        boolean hasTextCondition = nonNull(pageQuery.getApiName()) || nonNull(pageQuery.getDescription())
+                || nonNull(pageQuery.getUrl()) || nonNull(pageQuery.getRequestParam())
+                || nonNull(pageQuery.getRequestHeader()) || nonNull(pageQuery.getRequestBody())
+                || nonNull(pageQuery.getResponseHeader()) || nonNull(pageQuery.getResponseBody());
+        return hasTextCondition && Integer.valueOf(0).equals(pageQuery.getIsDeleted())
+                && pageQuery.getFormatId() == null && pageQuery.getDigestId() == null
+                && pageQuery.getMethodSet() == null && pageQuery.getUsageTypeSet() == null
+                && pageQuery.getCreateTimeRange() == null && pageQuery.getFormatUpdateTimeRange() == null;
+    }
+
+    /**
+     * 使用全文检索索引查询 API 管理页面
+     * <p>
+     * 索引按相关度分页并统计匹配的接口总数，数据库只读取当前页接口的接口格式。
+     */
+    private ApiAdminPageVO searchApiAdminPageVO(ApiAdminPageQuery pageQuery) {
+        ApiSearchCondition condition = new ApiSearchCondition();
+        condition.setApiName(pageQuery.getApiName());
+        condition.setDescription(pageQuery.getDescription());
+        condition.setUrl(pageQuery.getUrl());
+        condition.setRequestParam(pageQuery.getRequestParam());
+        condition.setRequestHeader(pageQuery.getRequestHeader());
+        condition.setRequestBody(pageQuery.getRequestBody());
+        condition.setResponseHeader(pageQuery.getResponseHeader());
+        condition.setResponseBody(pageQuery.getResponseBody());
+        condition.setAccountId(pageQuery.getAccountId());
+        condition.setApiStatusSet(pageQuery.getApiStatusSet());
+        condition.setUpdateTimeRange(pageQuery.getDigestUpdateTimeRange());
+        long size = pageQuery.getSize();
+        ApiSearchResult searchResult = apiSearchIndex.search(condition, (pageQuery.getCurrent() - 1L) * size, size);
+        ApiAdminPageVO apiAdminPageVO = new ApiAdminPageVO();
+        apiAdminPageVO.setTotal(searchResult.total());
+        List<String> digestIds = searchResult.digestIds();
+        if (digestIds.isEmpty()) {
+            apiAdminPageVO.setApiAdminVOList(List.of());
+            return apiAdminPageVO;
+        }
+        // 按索引返回的相关度顺序排列，索引同步之前删除的接口查询不到
+        Map<String, Integer> digestIdOrderMap = new HashMap<>(digestIds.size() * 2);
+        for (int i = 0; i < digestIds.size(); i++) {
+            digestIdOrderMap.put(digestIds.get(i), i);
+        }
+        List<ApiAdminVO> apiAdminVOList = new ArrayList<>(facadeMapper.listApiAdminVOsByDigestIds(digestIds));
+        apiAdminVOList.sort(Comparator.comparingInt(apiAdminVO -> digestIdOrderMap.get(apiAdminVO.getDigestId())));
+        apiAdminPageVO.setApiAdminVOList(apiAdminVOList);
+        return apiAdminPageVO;
+    }
+
     @Override
     public void updateQuantityUsageDeductedStock(QuantityUsageStockDeductionDTO stockDeductionDTO, QuantityUsageOrderStatusUpdateDTO orderStatusUpdateDTO) {
         // 先尝试扣减存量，扣减失败则说明存量不足，下单失败
@@ -225,6 +302,8 @@ public class FacadeServiceImpl implements FacadeService {
         userQuantityUsageMapper.insert(newUserQuantityUsagePO);
         // 新的用法主键
         orderStatusUpdateDTO.setUsageId(newUserQuantityUsagePO.getId());
+        // 事务提交后通知 Gateway 使该账户缓存的接口信息失效
+        TransactionUtils.afterCommit(() -> apiInfoInvalidationPublisher.publishByAccountId(accountId));
     }
 
     @Override
@@ -244,36 +323,72 @@ public class FacadeServiceImpl implements FacadeService {
 
     @Override
     public QuantityUsageApiInfoDTO getQuantityUsageApiInfoDTO(QuantityUsageApiInfoQuery apiInfoQuery) {
-        // 查询接口摘要数据（可以添加查询状态字段）
-        LambdaQueryWrapper<ApiDigestPO> digestQueryWrapper = new LambdaQueryWrapper<>();
-        digestQueryWrapper.select(ApiDigestPO::getId);
-        digestQueryWrapper.eq(ApiDigestPO::getUrl, apiInfoQuery.getOriginalUrl());
-        // method 存储为 , 分隔的请求方法名字符串，必须用模糊匹配查询，可根据需求修改设计
-        digestQueryWrapper.like(ApiDigestPO::getMethod, apiInfoQuery.getMethod());
-        ApiDigestPO apiDigestPO = apiDigestMapper.selectOne(digestQueryWrapper);
-        if (apiDigestPO == null) {
+        // 优先从内存中的接口路由表解析接口，路由表不可用时查询数据库
+        ApiRoute apiRoute = apiRouteTable.isAvailable()
+                ? apiRouteTable.find(apiInfoQuery.getOriginalUrl(), apiInfoQuery.getMethod())
+                : findApiRoute(apiInfoQuery);
+        if (apiRoute == null) {
             if (log.isDebugEnabled()) {
-                log.debug("Failed to find ApiDigestPO, apiInfoQuery: " + apiInfoQuery);
+                log.debug("Failed to find ApiRoute, apiInfoQuery: " + apiInfoQuery);
             }
             return new QuantityUsageApiInfoDTO();
         }
-        // 查询用户计数用法数据（可以添加查询状态字段）
+        // 查询用户计数用法数据（可以添加查询状态字段），使用 (account_id, digest_id) 唯一索引
         LambdaQueryWrapper<UserQuantityUsagePO> usageQueryWrapper = new LambdaQueryWrapper<>();
-        usageQueryWrapper.select(UserQuantityUsagePO::getId);
-        usageQueryWrapper.eq(UserQuantityUsagePO::getDigestId, apiDigestPO.getId());
+        usageQueryWrapper.select(UserQuantityUsagePO::getId, UserQuantityUsagePO::getRateLimit);
+        usageQueryWrapper.eq(UserQuantityUsagePO::getDigestId, apiRoute.digestId());
         usageQueryWrapper.eq(UserQuantityUsagePO::getAccountId, apiInfoQuery.getAccountId());
         UserQuantityUsagePO userQuantityUsagePO = userQuantityUsageMapper.selectOne(usageQueryWrapper);
         if (userQuantityUsagePO == null) {
             if (log.isDebugEnabled()) {
                 log.debug("Failed to find UserQuantityUsagePO, digestId: {}, accountId: {}",
-                        apiDigestPO.getId(), apiInfoQuery.getAccountId());
+                        apiRoute.digestId(), apiInfoQuery.getAccountId());
             }
             return new QuantityUsageApiInfoDTO();
         }
         QuantityUsageApiInfoDTO quantityUsageApiInfoDTO = new QuantityUsageApiInfoDTO();
-        quantityUsageApiInfoDTO.setDigestId(apiDigestPO.getId());
+        quantityUsageApiInfoDTO.setDigestId(apiRoute.digestId());
         quantityUsageApiInfoDTO.setUsageId(userQuantityUsagePO.getId());
+        quantityUsageApiInfoDTO.setApiRateLimit(apiRoute.rateLimit());
+        quantityUsageApiInfoDTO.setUsageRateLimit(userQuantityUsagePO.getRateLimit());
+        quantityUsageApiInfoDTO.setCacheTtl(apiRoute.cacheTtl());
+        quantityUsageApiInfoDTO.setCacheKeyParams(apiRoute.cacheKeyParams());
+        quantityUsageApiInfoDTO.setCacheHitCharged(apiRoute.cacheHitCharged());
+        quantityUsageApiInfoDTO.setCoalescingEnabled(apiRoute.coalescingEnabled());
         return quantityUsageApiInfoDTO;
     }
 
+    /**
+     * 从数据库查询接口路由
+     * <p>
+     * method 存储为 , 分隔的请求方法名字符串，按其生成列 method_mask 的掩码位匹配，使用 (url, method_mask) 索引。
+     *
+     * @param apiInfoQuery 计数用法接口信息查询
+     * @return 接口路由，不存在时返回 null
+     */
+    private ApiRoute findApiRoute(QuantityUsageApiInfoQuery apiInfoQuery) {
+        // 可以添加查询状态字段
+        int methodMask = ApiMethodEnum.getMaskByStoredValue(apiInfoQuery.getMethod());
+        ApiDigestPO apiDigestPO
+                = apiDigestMapper.selectRouteByUrlAndMethodMask(apiInfoQuery.getOriginalUrl(), methodMask);
+        return (apiDigestPO == null) ? null : ApiRoute.of(methodMask, apiDigestPO);
+    }
+
+    /**
+     * 查询 Gateway 租借出但尚未使用的许可证数量
+     * <p>
+     * 租借许可证哈希由 Gateway 的脚本以字符串形式写入，每个字段是一个持有租约的 Gateway。
+     *
+     * @param usageId 用户接口计数用法主键
+     * @return 租借出的许可证数量
+     */
+    private long getLeasedStock(String usageId) {
+        RMap<String, String> leasedPermitsMap = redissonClient
+                .getMap(STOCK_LEASE_LEASED_PERMITS_KEY_PREFIX + usageId, StringCodec.INSTANCE);
+        return leasedPermitsMap.readAllValues().stream()
+                .mapToLong(Long::parseLong)
+                .filter(leased -> leased > 0L)
+                .sum();
+    }
+
 }
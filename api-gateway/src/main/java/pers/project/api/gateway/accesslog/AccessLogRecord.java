@@ -0,0 +1,61 @@
+package pers.project.api.gateway.accesslog;
+
+import lombok.Data;
+
+/**
+ * 访问日志记录
+ * <p>
+ * 每个采样的请求对应一条记录，由后台线程序列化为一行 JSON。
+ *
+ * @author Luo Fei
+ * @date 2023/07/23
+ */
+@Data
+public class AccessLogRecord {
+
+    /**
+     * 请求开始的时间戳（单位：毫秒）
+     */
+    private long timestamp;
+
+    private String requestId;
+
+    private String routeId;
+
+    private String method;
+
+    private String path;
+
+    private String query;
+
+    private String remoteAddress;
+
+    private String accountId;
+
+    private String digestId;
+
+    private String usageId;
+
+    private Integer status;
+
+    /**
+     * 请求耗时（单位：微秒）
+     */
+    private long durationMicros;
+
+    /**
+     * 截断后的请求体
+     */
+    private String requestBody;
+
+    /**
+     * 截断后的响应体
+     */
+    private String responseBody;
+
+    /**
+     * 请求处理的异常信息
+     */
+    private String error;
+
+}
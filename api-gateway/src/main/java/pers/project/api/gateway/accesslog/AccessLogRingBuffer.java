@@ -0,0 +1,85 @@
+package pers.project.api.gateway.accesslog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 访问日志环形缓冲区
+ * <p>
+ * 有界、无锁的多生产者队列（基于每个槽位的序号），请求线程写入，后台线程读取。
+ * 缓冲区已满时写入失败，调用方直接丢弃记录，不会阻塞。
+ *
+ * @author Luo Fei
+ * @date 2023/07/23
+ */
+final class AccessLogRingBuffer<E> {
+
+    private final int mask;
+
+    private final AtomicReferenceArray<E> elements;
+
+    /**
+     * 每个槽位的序号，用于判断槽位是否可写或可读
+     */
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong producerIndex = new AtomicLong();
+
+    private final AtomicLong consumerIndex = new AtomicLong();
+
+    AccessLogRingBuffer(int capacity) {
+        int actualCapacity = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.mask = actualCapacity - 1;
+        this.elements = new AtomicReferenceArray<>(actualCapacity);
+        this.sequences = new AtomicLongArray(actualCapacity);
+        for (int i = 0; i < actualCapacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 写入元素
+     *
+     * @return false 如果缓冲区已满
+     */
+    boolean offer(E element) {
+        while (true) {
+            long index = producerIndex.get();
+            int slot = (int) (index & mask);
+            long difference = sequences.get(slot) - index;
+            if (difference == 0L) {
+                if (producerIndex.compareAndSet(index, index + 1)) {
+                    elements.set(slot, element);
+                    sequences.set(slot, index + 1);
+                    return true;
+                }
+            } else if (difference < 0L) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 读取元素
+     *
+     * @return 缓冲区为空时返回 null
+     */
+    E poll() {
+        while (true) {
+            long index = consumerIndex.get();
+            int slot = (int) (index & mask);
+            long difference = sequences.get(slot) - (index + 1);
+            if (difference == 0L) {
+                if (consumerIndex.compareAndSet(index, index + 1)) {
+                    E element = elements.getAndSet(slot, null);
+                    sequences.set(slot, index + mask + 1);
+                    return element;
+                }
+            } else if (difference < 0L) {
+                return null;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+package pers.project.api.gateway.accesslog;
+
+import com.alibaba.fastjson2.JSON;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import pers.project.api.gateway.config.property.AccessLogProperties;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 访问日志写入器
+ * <p>
+ * 请求线程只把记录放入 {@link AccessLogRingBuffer}，由一个后台线程取出并以 JSON Lines 格式写入
+ * {@code ACCESS_LOG} 日志记录器，输出位置由日志配置决定。
+ * <p>
+ * 缓冲区为空时后台线程挂起，由下一次提交唤醒。缓冲区已满被丢弃的记录数通过
+ * {@code gateway.access.log.dropped.records} 指标暴露。
+ *
+ * @author Luo Fei
+ * @date 2023/07/23
+ */
+@Component
+@RequiredArgsConstructor
+public class AccessLogWriter {
+
+    /**
+     * 访问日志记录器，每行一个 JSON 对象
+     */
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("ACCESS_LOG");
+
+    /**
+     * 缓冲区为空时后台线程的最长挂起时长，防止错过唤醒时记录长时间滞留
+     */
+    private static final long MAX_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100L);
+
+    private final AccessLogProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 缓冲区已满被丢弃的记录数
+     */
+    private final AtomicLong droppedRecords = new AtomicLong();
+
+    /**
+     * 后台线程是否已挂起等待新记录
+     */
+    private final AtomicBoolean writerParked = new AtomicBoolean();
+
+    private AccessLogRingBuffer<AccessLogRecord> ringBuffer;
+
+    private Thread writerThread;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        FunctionCounter.builder("gateway.access.log.dropped.records", droppedRecords, AtomicLong::get)
+                .description("Access log records dropped because the buffer was full")
+                .register(meterRegistry);
+        ringBuffer = new AccessLogRingBuffer<>(properties.getBufferCapacity());
+        running = true;
+        writerThread = new Thread(this::drainLoop, "access-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writerThread);
+        writerThread.join(TimeUnit.SECONDS.toMillis(5L));
+    }
+
+    /**
+     * 提交访问日志记录
+     * <p>
+     * 只做一次无锁入队，缓冲区已满时丢弃记录。
+     */
+    public void submit(AccessLogRecord record) {
+        if (!ringBuffer.offer(record)) {
+            droppedRecords.incrementAndGet();
+            return;
+        }
+        // 只有后台线程挂起时才唤醒，繁忙时提交不产生额外开销
+        if (writerParked.get() && writerParked.compareAndSet(true, false)) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * 获取缓冲区已满被丢弃的记录数
+     */
+    public long getDroppedRecords() {
+        return droppedRecords.get();
+    }
+
+    private void drainLoop() {
+        while (running) {
+            if (drain()) {
+                continue;
+            }
+            // 先声明挂起再检查一次缓冲区，挂起前提交的记录不会被遗漏
+            writerParked.set(true);
+            if (!drain() && running) {
+                LockSupport.parkNanos(this, MAX_IDLE_PARK_NANOS);
+            }
+            writerParked.set(false);
+        }
+        // 关闭前写入剩余的记录
+        drain();
+    }
+
+    /**
+     * 写入缓冲区中的所有记录
+     *
+     * @return true 如果写入了至少一条记录
+     */
+    private boolean drain() {
+        boolean drained = false;
+        AccessLogRecord record;
+        while ((record = ringBuffer.poll()) != null) {
+            drained = true;
+            try {
+                ACCESS_LOG.info(JSON.toJSONString(record));
+            } catch (Exception e) {
+                ACCESS_LOG.warn("Failed to write access log, requestId: {}", record.getRequestId(), e);
+            }
+        }
+        return drained;
+    }
+
+}
@@ -0,0 +1,100 @@
+package pers.project.api.gateway.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.stereotype.Component;
+import pers.project.api.common.model.dto.ClientUserInfoDTO;
+import pers.project.api.common.model.query.ClientUserInfoQuery;
+import pers.project.api.common.util.ResultUtils;
+import pers.project.api.gateway.client.SecurityReactiveClient;
+import pers.project.api.gateway.config.property.GatewayCacheProperties.ClientUserInfoProperties;
+import pers.project.api.gateway.exeception.InsightApiGatewayException;
+import reactor.core.publisher.Mono;
+
+import static pers.project.api.common.constant.redis.RedissonTopicNameConst.CLIENT_USER_INFO_INVALIDATION_TOPIC_NAME;
+
+/**
+ * 客户端用户信息缓存
+ * <p>
+ * 在 Gateway 本地缓存 secretId 到 {@link ClientUserInfoDTO} 的映射，有容量上限和过期时间。
+ * <p>
+ * Security 修改密钥后会通过 Redis 发布订阅通知各个 Gateway 实例使缓存失效。
+ * 发布订阅消息可能丢失，此时由过期时间兜底。
+ *
+ * @author Luo Fei
+ * @date 2023/07/21
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ClientUserInfoCache {
+
+    private final ClientUserInfoProperties properties;
+
+    private final SecurityReactiveClient securityReactiveClient;
+
+    private final RedissonClient redissonClient;
+
+    /**
+     * 异步加载缓存
+     * <p>
+     * 同一 secretId 的并发加载只会发起一次远程调用，加载失败的条目不会被缓存。
+     */
+    private AsyncLoadingCache<String, ClientUserInfoDTO> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .buildAsync((secretId, executor) -> loadClientUserInfoDTO(secretId).toFuture());
+        // 订阅用户信息失效消息，Redisson 会在重连后自动重新订阅
+        redissonClient.getTopic(CLIENT_USER_INFO_INVALIDATION_TOPIC_NAME, StringCodec.INSTANCE)
+                .addListener(String.class, (channel, secretId) -> invalidate(secretId));
+    }
+
+    /**
+     * 获取 Insight API 客户端的用户信息 DTO
+     *
+     * @param secretId 密钥 ID
+     * @return 用户信息 DTO，查询失败时发出 {@link InsightApiGatewayException}
+     */
+    public Mono<ClientUserInfoDTO> get(String secretId) {
+        return Mono.fromFuture(cache.get(secretId));
+    }
+
+    /**
+     * 使密钥 ID 对应的缓存失效
+     *
+     * @param secretId 密钥 ID
+     */
+    public void invalidate(String secretId) {
+        if (log.isDebugEnabled()) {
+            log.debug("Invalidate cached ClientUserInfoDTO, secretId: {}", secretId);
+        }
+        cache.synchronous().invalidate(secretId);
+    }
+
+    /**
+     * 远程查询 Insight API 客户端的用户信息 DTO
+     * <p>
+     * 暂时只获取 secretKey 和 accountId，可根据需求更改。
+     */
+    private Mono<ClientUserInfoDTO> loadClientUserInfoDTO(String secretId) {
+        ClientUserInfoQuery clientUserInfoQuery = new ClientUserInfoQuery();
+        clientUserInfoQuery.setSecretId(secretId);
+        return securityReactiveClient.getClientUserInfoResult(clientUserInfoQuery)
+                .map(userInfoResult -> {
+                    if (ResultUtils.isFailure(userInfoResult) || userInfoResult.getData() == null) {
+                        throw new InsightApiGatewayException("Failed to get ClientUserInfoDTO, secretId: " + secretId);
+                    }
+                    return userInfoResult.getData();
+                });
+    }
+
+}
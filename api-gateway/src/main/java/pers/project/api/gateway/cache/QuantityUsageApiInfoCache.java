@@ -0,0 +1,159 @@
+package pers.project.api.gateway.cache;
+
+import com.alibaba.fastjson2.JSON;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.stereotype.Component;
+import pers.project.api.common.model.dto.QuantityUsageApiInfoDTO;
+import pers.project.api.common.model.dto.QuantityUsageApiInfoInvalidationDTO;
+import pers.project.api.common.model.query.QuantityUsageApiInfoQuery;
+import pers.project.api.common.util.ResultUtils;
+import pers.project.api.gateway.client.FacadeReactiveClient;
+import pers.project.api.gateway.config.property.GatewayCacheProperties.QuantityUsageApiInfoProperties;
+import pers.project.api.gateway.exeception.InsightApiGatewayException;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.util.StringUtils.hasText;
+import static pers.project.api.common.constant.redis.RedissonTopicNameConst.QUANTITY_USAGE_API_INFO_INVALIDATION_TOPIC_NAME;
+
+/**
+ * 计数用法接口信息缓存
+ * <p>
+ * 在 Gateway 本地缓存 (accountId, method, originalUrl) 到 {@link QuantityUsageApiInfoDTO} 的映射。
+ * <p>
+ * 未找到接口或用户没有该接口用法的结果也会被缓存（负缓存），但过期时间更短，
+ * 避免无效请求反复穿透到 Facade 和数据库。
+ * <p>
+ * Facade 修改用户接口用法或接口状态后会通过 Redis 发布订阅通知各个 Gateway 实例使缓存失效。
+ * 发布订阅消息可能丢失，此时由过期时间兜底。
+ *
+ * @author Luo Fei
+ * @date 2023/07/21
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class QuantityUsageApiInfoCache {
+
+    private final QuantityUsageApiInfoProperties properties;
+
+    private final FacadeReactiveClient facadeReactiveClient;
+
+    private final RedissonClient redissonClient;
+
+    /**
+     * 异步加载缓存
+     * <p>
+     * 同一个键的并发加载只会发起一次远程调用，加载失败的条目不会被缓存。
+     */
+    private AsyncLoadingCache<ApiInfoKey, QuantityUsageApiInfoDTO> cache;
+
+    @PostConstruct
+    public void init() {
+        long positiveExpireNanos = properties.getExpireAfterWrite().toNanos();
+        long negativeExpireNanos = properties.getNegativeExpireAfterWrite().toNanos();
+        cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfter(new Expiry<ApiInfoKey, QuantityUsageApiInfoDTO>() {
+                    @Override
+                    public long expireAfterCreate(ApiInfoKey key, QuantityUsageApiInfoDTO value, long currentTime) {
+                        return isAvailable(value) ? positiveExpireNanos : negativeExpireNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(ApiInfoKey key, QuantityUsageApiInfoDTO value,
+                                                  long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(ApiInfoKey key, QuantityUsageApiInfoDTO value,
+                                                long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .buildAsync((apiInfoKey, executor) -> loadQuantityUsageApiInfoDTO(apiInfoKey).toFuture());
+        // 订阅接口信息失效消息，Redisson 会在重连后自动重新订阅
+        redissonClient.getTopic(QUANTITY_USAGE_API_INFO_INVALIDATION_TOPIC_NAME, StringCodec.INSTANCE)
+                .addListener(String.class, (channel, message) ->
+                        invalidate(JSON.parseObject(message, QuantityUsageApiInfoInvalidationDTO.class)));
+    }
+
+    /**
+     * 获取 Insight API 计数用法接口的信息 DTO
+     *
+     * @param accountId   用户账户主键
+     * @param method      请求方法
+     * @param originalUrl 接口原始 URL
+     * @return 接口信息 DTO，查询失败时发出 {@link InsightApiGatewayException}
+     */
+    public Mono<QuantityUsageApiInfoDTO> get(String accountId, String method, String originalUrl) {
+        return Mono.fromFuture(cache.get(new ApiInfoKey(accountId, method, originalUrl)));
+    }
+
+    /**
+     * 使失效消息对应的缓存失效
+     * <p>
+     * accountId 不为 null 时，使该账户的所有条目失效；
+     * digestId 不为 null 时，使该接口的条目和所有负缓存条目失效（接口上线后原来未找到的请求可能变为可用）。
+     *
+     * @param invalidationDTO 接口信息失效 DTO
+     */
+    public void invalidate(QuantityUsageApiInfoInvalidationDTO invalidationDTO) {
+        if (invalidationDTO == null) {
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Invalidate cached QuantityUsageApiInfoDTO, invalidationDTO: {}", invalidationDTO);
+        }
+        String accountId = invalidationDTO.getAccountId();
+        if (accountId != null) {
+            cache.synchronous().asMap().keySet().removeIf(apiInfoKey -> accountId.equals(apiInfoKey.accountId()));
+        }
+        String digestId = invalidationDTO.getDigestId();
+        if (digestId != null) {
+            cache.synchronous().asMap().values().removeIf(apiInfoDTO ->
+                    !isAvailable(apiInfoDTO) || digestId.equals(apiInfoDTO.getDigestId()));
+        }
+    }
+
+    /**
+     * 远程查询 Insight API 计数用法接口的信息 DTO
+     */
+    private Mono<QuantityUsageApiInfoDTO> loadQuantityUsageApiInfoDTO(ApiInfoKey apiInfoKey) {
+        QuantityUsageApiInfoQuery apiInfoQuery = new QuantityUsageApiInfoQuery();
+        apiInfoQuery.setAccountId(apiInfoKey.accountId());
+        apiInfoQuery.setMethod(apiInfoKey.method());
+        apiInfoQuery.setOriginalUrl(apiInfoKey.originalUrl());
+        return facadeReactiveClient.getQuantityUsageApiInfoResult(apiInfoQuery)
+                .map(apiInfoResult -> {
+                    if (ResultUtils.isFailure(apiInfoResult) || apiInfoResult.getData() == null) {
+                        throw new InsightApiGatewayException
+                                ("Failed to get QuantityUsageApiInfoDTO, apiInfoQuery: " + apiInfoQuery);
+                    }
+                    return apiInfoResult.getData();
+                });
+    }
+
+    /**
+     * 接口信息是否可用（接口存在且用户有该接口的用法）
+     *
+     * @return true 如果可用
+     */
+    public static boolean isAvailable(QuantityUsageApiInfoDTO apiInfoDTO) {
+        return hasText(apiInfoDTO.getUsageId()) && hasText(apiInfoDTO.getDigestId());
+    }
+
+    /**
+     * 缓存键
+     */
+    private record ApiInfoKey(String accountId, String method, String originalUrl) {
+    }
+
+}
@@ -0,0 +1,56 @@
+package pers.project.api.gateway.circuitbreaker;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 接口调用许可
+ * <p>
+ * 每个许可只能释放一次，重复释放会被忽略，所以可以在请求的多个结束路径上安全地释放。
+ *
+ * @author Luo Fei
+ * @date 2023/07/25
+ */
+public final class ApiCallPermit {
+
+    /**
+     * 断路器和舱壁关闭时使用的许可，释放时不做任何操作
+     */
+    static final ApiCallPermit UNRESTRICTED = new ApiCallPermit(null, false);
+
+    private final ApiCircuitBreaker circuitBreaker;
+
+    /**
+     * 是否为半开状态的探测许可
+     */
+    private final boolean probe;
+
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    ApiCallPermit(ApiCircuitBreaker circuitBreaker, boolean probe) {
+        this.circuitBreaker = circuitBreaker;
+        this.probe = probe;
+    }
+
+    /**
+     * 记录调用结果并释放许可
+     *
+     * @param success 调用是否成功
+     */
+    public void complete(boolean success) {
+        if (circuitBreaker != null && released.compareAndSet(false, true)) {
+            circuitBreaker.onComplete(success, probe);
+        }
+    }
+
+    /**
+     * 释放许可，不记录调用结果
+     * <p>
+     * 用于请求没有转发到 Provider（例如调用次数存量不足）或客户端取消的情况。
+     */
+    public void abandon() {
+        if (circuitBreaker != null && released.compareAndSet(false, true)) {
+            circuitBreaker.onAbandon(probe);
+        }
+    }
+
+}
@@ -0,0 +1,219 @@
+package pers.project.api.gateway.circuitbreaker;
+
+import pers.project.api.gateway.config.property.CircuitBreakerProperties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 接口的断路器和舱壁
+ * <p>
+ * 断路器按最近若干次调用的失败率在关闭、打开、半开三种状态之间转换：
+ * <ul>
+ * <li>关闭：正常放行，失败率达到阈值时打开；</li>
+ * <li>打开：快速失败，打开时长结束后进入半开；</li>
+ * <li>半开：只放行少量探测调用，全部成功时关闭，任意一次失败时重新打开。</li>
+ * </ul>
+ * 舱壁限制接口的并发调用数，一个慢接口不会占满 Gateway 的所有连接。
+ * <p>
+ * 获取许可是无锁的，只有记录调用结果和状态转换时加锁。
+ *
+ * @author Luo Fei
+ * @date 2023/07/25
+ */
+final class ApiCircuitBreaker {
+
+    /**
+     * 断路器状态
+     */
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final CircuitBreakerProperties properties;
+
+    /**
+     * 当前并发调用数
+     */
+    private final AtomicInteger concurrentCalls = new AtomicInteger();
+
+    /**
+     * 半开状态已发出的探测许可数
+     */
+    private final AtomicInteger halfOpenCalls = new AtomicInteger();
+
+    /**
+     * 被拒绝的调用数
+     */
+    private final LongAdder rejectedCalls = new LongAdder();
+
+    /**
+     * 最近调用结果的环形缓冲区（true 表示失败），由 this 保护
+     */
+    private final boolean[] outcomes;
+
+    private int outcomeIndex;
+
+    private int bufferedCalls;
+
+    private int failedCalls;
+
+    /**
+     * 半开状态成功的探测调用数，由 this 保护
+     */
+    private int halfOpenSuccesses;
+
+    private volatile State state = State.CLOSED;
+
+    /**
+     * 最近一次打开的时间
+     */
+    private volatile long openedAtNanos;
+
+    ApiCircuitBreaker(CircuitBreakerProperties properties) {
+        this.properties = properties;
+        this.outcomes = new boolean[properties.getSlidingWindowSize()];
+    }
+
+    /**
+     * 尝试获取调用许可
+     *
+     * @return 调用许可，被拒绝时返回 null
+     */
+    ApiCallPermit tryAcquire() {
+        State current = state;
+        if (current == State.OPEN) {
+            if (System.nanoTime() - openedAtNanos < properties.getOpenDuration().toNanos()) {
+                rejectedCalls.increment();
+                return null;
+            }
+            transitionToHalfOpen();
+            current = state;
+        }
+        boolean probe = (current == State.HALF_OPEN);
+        if (probe && !tryAcquireProbe()) {
+            rejectedCalls.increment();
+            return null;
+        }
+        if (concurrentCalls.incrementAndGet() > properties.getMaxConcurrentCalls()) {
+            concurrentCalls.decrementAndGet();
+            if (probe) {
+                halfOpenCalls.decrementAndGet();
+            }
+            rejectedCalls.increment();
+            return null;
+        }
+        return new ApiCallPermit(this, probe);
+    }
+
+    /**
+     * 记录调用结果并释放许可
+     *
+     * @param success 调用是否成功
+     * @param probe   是否为半开状态的探测许可
+     */
+    void onComplete(boolean success, boolean probe) {
+        concurrentCalls.decrementAndGet();
+        synchronized (this) {
+            switch (state) {
+                case CLOSED -> recordClosedOutcome(success);
+                // 打开之前发出的非探测调用在半开状态下完成，结果不能代表接口是否恢复
+                case HALF_OPEN -> {
+                    if (probe) {
+                        recordHalfOpenOutcome(success);
+                    }
+                }
+                // 打开之前发出的调用，结果不再影响状态
+                case OPEN -> {
+                }
+            }
+        }
+    }
+
+    /**
+     * 释放许可，不记录调用结果（请求在转发前被拒绝或客户端取消）
+     *
+     * @param probe 是否为半开状态的探测许可
+     */
+    void onAbandon(boolean probe) {
+        concurrentCalls.decrementAndGet();
+        if (probe && state == State.HALF_OPEN) {
+            halfOpenCalls.decrementAndGet();
+        }
+    }
+
+    private boolean tryAcquireProbe() {
+        int permitted = properties.getHalfOpenPermittedCalls();
+        int issued;
+        do {
+            issued = halfOpenCalls.get();
+            if (issued >= permitted) {
+                return false;
+            }
+        } while (!halfOpenCalls.compareAndSet(issued, issued + 1));
+        return true;
+    }
+
+    private void recordClosedOutcome(boolean success) {
+        int windowSize = outcomes.length;
+        if (bufferedCalls == windowSize) {
+            if (outcomes[outcomeIndex]) {
+                failedCalls--;
+            }
+        } else {
+            bufferedCalls++;
+        }
+        outcomes[outcomeIndex] = !success;
+        if (!success) {
+            failedCalls++;
+        }
+        outcomeIndex = (outcomeIndex + 1) % windowSize;
+        if (bufferedCalls >= properties.getMinimumCalls()
+                && failedCalls * 100D >= properties.getFailureRateThreshold() * bufferedCalls) {
+            transitionToOpen();
+        }
+    }
+
+    private void recordHalfOpenOutcome(boolean success) {
+        if (!success) {
+            transitionToOpen();
+            return;
+        }
+        if (++halfOpenSuccesses >= properties.getHalfOpenPermittedCalls()) {
+            transitionToClosed();
+        }
+    }
+
+    private synchronized void transitionToHalfOpen() {
+        if (state != State.OPEN) {
+            return;
+        }
+        halfOpenCalls.set(0);
+        halfOpenSuccesses = 0;
+        state = State.HALF_OPEN;
+    }
+
+    private void transitionToOpen() {
+        openedAtNanos = System.nanoTime();
+        state = State.OPEN;
+    }
+
+    private void transitionToClosed() {
+        outcomeIndex = 0;
+        bufferedCalls = 0;
+        failedCalls = 0;
+        state = State.CLOSED;
+    }
+
+    /**
+     * 获取断路器的快照
+     *
+     * @param digestId 接口摘要主键
+     */
+    synchronized CircuitBreakerSnapshot snapshot(String digestId) {
+        double failureRate = (bufferedCalls == 0) ? 0D : failedCalls * 100D / bufferedCalls;
+        return new CircuitBreakerSnapshot(digestId, state.name(), failureRate, bufferedCalls,
+                concurrentCalls.get(), rejectedCalls.sum());
+    }
+
+}
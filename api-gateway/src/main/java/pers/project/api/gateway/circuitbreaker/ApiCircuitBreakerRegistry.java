@@ -0,0 +1,74 @@
+package pers.project.api.gateway.circuitbreaker;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import pers.project.api.gateway.config.property.CircuitBreakerProperties;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 接口断路器注册表
+ * <p>
+ * 每个接口摘要主键对应一个断路器和舱壁，接口数量有限，断路器创建后不会移除。
+ *
+ * @author Luo Fei
+ * @date 2023/07/25
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ApiCircuitBreakerRegistry {
+
+    private final CircuitBreakerProperties properties;
+
+    private final Map<String, ApiCircuitBreaker> circuitBreakerMap = new ConcurrentHashMap<>();
+
+    /**
+     * 尝试获取接口调用许可
+     * <p>
+     * 断路器打开、半开状态的探测许可用完或并发调用数达到上限时拒绝。
+     *
+     * @param digestId 接口摘要主键
+     * @return 调用许可，被拒绝时返回 null
+     */
+    public ApiCallPermit tryAcquire(String digestId) {
+        if (!properties.isEnabled()) {
+            return ApiCallPermit.UNRESTRICTED;
+        }
+        ApiCircuitBreaker circuitBreaker = circuitBreakerMap.computeIfAbsent(digestId,
+                key -> new ApiCircuitBreaker(properties));
+        ApiCallPermit permit = circuitBreaker.tryAcquire();
+        if (permit == null && log.isDebugEnabled()) {
+            log.debug("API call rejected by circuit breaker, snapshot: {}", circuitBreaker.snapshot(digestId));
+        }
+        return permit;
+    }
+
+    /**
+     * 获取所有断路器的快照
+     *
+     * @return 按接口摘要主键排序的快照
+     */
+    public List<CircuitBreakerSnapshot> getSnapshots() {
+        return circuitBreakerMap.entrySet().stream()
+                .map(entry -> entry.getValue().snapshot(entry.getKey()))
+                .sorted(Comparator.comparing(CircuitBreakerSnapshot::digestId))
+                .toList();
+    }
+
+    /**
+     * 获取断路器的快照
+     *
+     * @param digestId 接口摘要主键
+     * @return 快照，没有对应的断路器时返回 null
+     */
+    public CircuitBreakerSnapshot getSnapshot(String digestId) {
+        ApiCircuitBreaker circuitBreaker = circuitBreakerMap.get(digestId);
+        return (circuitBreaker == null) ? null : circuitBreaker.snapshot(digestId);
+    }
+
+}
@@ -0,0 +1,37 @@
+package pers.project.api.gateway.circuitbreaker;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 断路器端点
+ * <p>
+ * 通过 {@code /actuator/circuitbreakers} 查看所有接口的断路器状态，
+ * 通过 {@code /actuator/circuitbreakers/{digestId}} 查看单个接口的断路器状态。
+ *
+ * @author Luo Fei
+ * @date 2023/07/25
+ */
+@Component
+@RequiredArgsConstructor
+@Endpoint(id = "circuitbreakers")
+public class CircuitBreakerEndpoint {
+
+    private final ApiCircuitBreakerRegistry circuitBreakerRegistry;
+
+    @ReadOperation
+    public List<CircuitBreakerSnapshot> circuitBreakers() {
+        return circuitBreakerRegistry.getSnapshots();
+    }
+
+    @ReadOperation
+    public CircuitBreakerSnapshot circuitBreaker(@Selector String digestId) {
+        return circuitBreakerRegistry.getSnapshot(digestId);
+    }
+
+}
@@ -0,0 +1,17 @@
+package pers.project.api.gateway.circuitbreaker;
+
+/**
+ * 断路器快照
+ *
+ * @param digestId        接口摘要主键
+ * @param state           断路器状态（CLOSED、OPEN、HALF_OPEN）
+ * @param failureRate     滑动窗口内的失败率（单位：%）
+ * @param bufferedCalls   滑动窗口内的调用数
+ * @param concurrentCalls 当前并发调用数
+ * @param rejectedCalls   被拒绝的调用总数
+ * @author Luo Fei
+ * @date 2023/07/25
+ */
+public record CircuitBreakerSnapshot(String digestId, String state, double failureRate, int bufferedCalls,
+                                     int concurrentCalls, long rejectedCalls) {
+}
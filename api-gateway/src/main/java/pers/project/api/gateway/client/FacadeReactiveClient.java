@@ -0,0 +1,26 @@
+package pers.project.api.gateway.client;
+
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.service.annotation.HttpExchange;
+import org.springframework.web.service.annotation.PostExchange;
+import pers.project.api.common.model.Result;
+import pers.project.api.common.model.dto.QuantityUsageApiInfoDTO;
+import pers.project.api.common.model.query.QuantityUsageApiInfoQuery;
+import reactor.core.publisher.Mono;
+
+/**
+ * Facade 远程服务
+ * <p>
+ * 基于 {@code WebClient} 的非阻塞 HTTP 接口客户端，替代原先只能在其他线程中阻塞调用的 Feign 客户端。
+ *
+ * @author Luo Fei
+ * @date 2023/03/09
+ * @see pers.project.api.gateway.config.ReactiveClientConfig
+ */
+@HttpExchange("/gateway/facade")
+public interface FacadeReactiveClient {
+
+    @PostExchange("/quantity/usage/api/info/result")
+    Mono<Result<QuantityUsageApiInfoDTO>> getQuantityUsageApiInfoResult(@RequestBody QuantityUsageApiInfoQuery apiInfoQuery);
+
+}
@@ -0,0 +1,32 @@
+package pers.project.api.gateway.client;
+
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.service.annotation.HttpExchange;
+import org.springframework.web.service.annotation.PostExchange;
+import pers.project.api.common.model.Result;
+import pers.project.api.common.model.dto.SecretIdPageDTO;
+import pers.project.api.common.model.query.SecretIdPageQuery;
+import reactor.core.publisher.Mono;
+
+import static pers.project.api.common.constant.http.InternalHeaderNameConst.INTERNAL_TOKEN;
+
+/**
+ * Security 内部远程服务
+ * <p>
+ * 只在服务之间调用的接口，通过服务发现直接请求 Security，不经过公开的 {@code security_route}，
+ * 请求携带内部请求令牌。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ * @see pers.project.api.gateway.config.ReactiveClientConfig
+ */
+@HttpExchange
+public interface SecurityInternalReactiveClient {
+
+    @PostExchange("/request/secret/id/page")
+    Mono<Result<SecretIdPageDTO>> getSecretIdPageResult(@RequestHeader(name = INTERNAL_TOKEN, required = false)
+                                                        String internalToken,
+                                                        @RequestBody SecretIdPageQuery pageQuery);
+
+}
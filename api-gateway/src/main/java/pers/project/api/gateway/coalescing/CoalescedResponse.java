@@ -0,0 +1,15 @@
+package pers.project.api.gateway.coalescing;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * 合并调用的 Provider 响应
+ *
+ * @param statusCode 响应状态码
+ * @param headers    响应头（只读副本）
+ * @param body       响应体
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+public record CoalescedResponse(int statusCode, HttpHeaders headers, byte[] body) {
+}
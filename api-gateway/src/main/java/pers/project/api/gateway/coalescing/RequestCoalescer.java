@@ -0,0 +1,210 @@
+package pers.project.api.gateway.coalescing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.server.ServerWebExchange;
+import pers.project.api.common.model.dto.QuantityUsageApiInfoDTO;
+import pers.project.api.gateway.config.property.CoalescingProperties;
+import pers.project.api.gateway.decorator.CapturingResponseDecorator;
+import pers.project.api.gateway.ratelimit.DistributedRateLimiter;
+import pers.project.api.gateway.util.GatewayHttpUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * 请求合并器
+ * <p>
+ * 开启合并的接口中，只合并幂等的读请求（GET 和 HEAD）。请求方法、规范化的 URL、{@code Accept-Encoding}
+ * 和请求体摘要都相同的并发请求只转发一次：
+ * 第一个请求（领导者）转发到 Provider，之后到达的相同请求（等待者）等待领导者的响应并复制一份写出。
+ * <p>
+ * 每个请求在合并之前都已经各自完成授权和调用次数扣减，合并只减少对 Provider 的调用。
+ * 领导者的响应过大、转发异常或被取消时，等待者各自转发请求。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+@Component
+@RequiredArgsConstructor
+public class RequestCoalescer {
+
+    private static final String REQUESTS_METER_NAME = "gateway.coalescing.requests";
+
+    /**
+     * 不复制给等待者的响应头，由等待者自己的响应决定
+     */
+    private static final List<String> EXCLUDED_HEADER_NAMES = List.of(HttpHeaders.TRANSFER_ENCODING,
+            HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONNECTION, DistributedRateLimiter.RATE_LIMIT_LIMIT_HEADER_NAME,
+            DistributedRateLimiter.RATE_LIMIT_REMAINING_HEADER_NAME);
+
+    private final CoalescingProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 合并键到进行中的调用的映射，调用结束后移除
+     */
+    private final Map<String, InFlightCall> inFlightCalls = new ConcurrentHashMap<>();
+
+    private Counter leaderCounter;
+
+    private Counter followerCounter;
+
+    @PostConstruct
+    public void init() {
+        leaderCounter = Counter.builder(REQUESTS_METER_NAME).tag("role", "leader").register(meterRegistry);
+        followerCounter = Counter.builder(REQUESTS_METER_NAME).tag("role", "follower").register(meterRegistry);
+    }
+
+    /**
+     * 获取请求的合并键
+     *
+     * @param exchange   HTTP 请求-响应交互的协定
+     * @param apiInfoDTO 计数用法接口的信息
+     * @return 合并键，接口未开启合并或请求不可合并（非 GET 和 HEAD 请求、multipart 请求）时返回 null
+     */
+    public String getCoalescingKey(ServerWebExchange exchange, QuantityUsageApiInfoDTO apiInfoDTO) {
+        Integer coalescingEnabled = apiInfoDTO.getCoalescingEnabled();
+        if (!properties.isEnabled() || coalescingEnabled == null || coalescingEnabled != 1) {
+            return null;
+        }
+        ServerHttpRequest request = exchange.getRequest();
+        HttpMethod method = request.getMethod();
+        if (!HttpMethod.GET.equals(method) && !HttpMethod.HEAD.equals(method)) {
+            return null;
+        }
+        MediaType contentType = request.getHeaders().getContentType();
+        if (contentType != null && MediaType.MULTIPART_FORM_DATA.isCompatibleWith(contentType)) {
+            return null;
+        }
+        StringBuilder keyBuilder = new StringBuilder(128)
+                .append(method.name()).append(' ')
+                .append(request.getURI().getRawPath()).append('?');
+        // 使用未解码的参数并按参数名排序，值中编码的 & 和 = 不会与分隔符混淆，参数顺序不同的请求也能合并
+        MultiValueMap<String, String> queryParams = GatewayHttpUtils.getRawQueryParams(request);
+        GatewayHttpUtils.appendRawQueryParams(keyBuilder, queryParams, new TreeSet<>(queryParams.keySet()));
+        // 领导者的响应可能按 Accept-Encoding 编码，只与接受相同编码的请求合并；请求头加上长度前缀，不会与请求体摘要混淆
+        String acceptEncoding = request.getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING);
+        acceptEncoding = (acceptEncoding == null) ? "" : acceptEncoding.replace(" ", "");
+        keyBuilder.append('#').append(acceptEncoding.length()).append(':').append(acceptEncoding);
+        byte[] requestBodyDigest = GatewayHttpUtils.getRequestBodyDigest(exchange);
+        if (requestBodyDigest != null) {
+            keyBuilder.append('#').append(HexFormat.of().formatHex(requestBodyDigest));
+        }
+        return keyBuilder.toString();
+    }
+
+    /**
+     * 转发请求，相同的进行中的请求共享一次转发
+     *
+     * @param exchange        HTTP 请求-响应交互的协定
+     * @param coalescingKey   合并键
+     * @param forwardFunction 转发请求的函数
+     * @return 响应写出完成时结束的 {@code Mono}
+     */
+    public Mono<Void> forward(ServerWebExchange exchange, String coalescingKey,
+                              Function<ServerWebExchange, Mono<Void>> forwardFunction) {
+        InFlightCall call = new InFlightCall();
+        InFlightCall existingCall = inFlightCalls.putIfAbsent(coalescingKey, call);
+        if (existingCall == null) {
+            leaderCounter.increment();
+            return forwardAsLeader(exchange, coalescingKey, call, forwardFunction);
+        }
+        followerCounter.increment();
+        return existingCall.sink.asMono()
+                .flatMap(coalescedResponse -> writeCoalescedResponse(exchange, coalescedResponse).thenReturn(true))
+                // 领导者没有可分发的响应时各自转发
+                .switchIfEmpty(Mono.defer(() -> forwardFunction.apply(exchange).thenReturn(false)))
+                .then();
+    }
+
+    /**
+     * 作为领导者转发请求，并在响应完整写出后分发给等待者
+     */
+    private Mono<Void> forwardAsLeader(ServerWebExchange exchange, String coalescingKey, InFlightCall call,
+                                       Function<ServerWebExchange, Mono<Void>> forwardFunction) {
+        ServerHttpResponse response = exchange.getResponse();
+        CapturingResponseDecorator decorator = new CapturingResponseDecorator(response,
+                properties.getMaxResponseSize().toBytes(), body -> {
+            HttpStatusCode statusCode = response.getStatusCode();
+            int status = (statusCode == null) ? 200 : statusCode.value();
+            HttpHeaders headers = new HttpHeaders();
+            headers.putAll(response.getHeaders());
+            HttpHeaders readOnlyHeaders = HttpHeaders.readOnlyHttpHeaders(headers);
+            finish(coalescingKey, call, new CoalescedResponse(status, readOnlyHeaders, body));
+        }, () -> finish(coalescingKey, call, null));
+        return forwardFunction.apply(exchange.mutate().response(decorator).build())
+                // 没有写出响应就结束时也要唤醒等待者
+                .doFinally(signalType -> finish(coalescingKey, call, null));
+    }
+
+    /**
+     * 结束进行中的调用，只有第一次调用生效
+     *
+     * @param coalescedResponse 分发给等待者的响应，为 null 时等待者各自转发
+     */
+    private void finish(String coalescingKey, InFlightCall call, CoalescedResponse coalescedResponse) {
+        inFlightCalls.remove(coalescingKey, call);
+        // 保证只有一个线程发出信号
+        if (!call.finished.compareAndSet(false, true)) {
+            return;
+        }
+        if (coalescedResponse != null) {
+            call.sink.tryEmitValue(coalescedResponse);
+        } else {
+            call.sink.tryEmitEmpty();
+        }
+    }
+
+    /**
+     * 写出领导者响应的副本
+     * <p>
+     * 等待者自己已经设置的响应头（例如限流响应头）不会被覆盖。
+     */
+    private static Mono<Void> writeCoalescedResponse(ServerWebExchange exchange, CoalescedResponse coalescedResponse) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatusCode.valueOf(coalescedResponse.statusCode()));
+        HttpHeaders responseHeaders = response.getHeaders();
+        coalescedResponse.headers().forEach((name, values) -> {
+            boolean excluded = EXCLUDED_HEADER_NAMES.stream().anyMatch(name::equalsIgnoreCase);
+            if (!excluded && !responseHeaders.containsKey(name)) {
+                responseHeaders.addAll(name, values);
+            }
+        });
+        responseHeaders.setContentLength(coalescedResponse.body().length);
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(coalescedResponse.body())));
+    }
+
+    /**
+     * 进行中的调用
+     */
+    private static final class InFlightCall {
+
+        /**
+         * 领导者的响应，没有可分发的响应时为空
+         */
+        private final Sinks.One<CoalescedResponse> sink = Sinks.one();
+
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+    }
+
+}
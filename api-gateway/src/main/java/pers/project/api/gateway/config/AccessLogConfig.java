@@ -0,0 +1,16 @@
+package pers.project.api.gateway.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import pers.project.api.gateway.config.property.AccessLogProperties;
+
+/**
+ * 访问日志配置
+ *
+ * @author Luo Fei
+ * @date 2023/07/23
+ */
+@Configuration
+@EnableConfigurationProperties(AccessLogProperties.class)
+public class AccessLogConfig {
+}
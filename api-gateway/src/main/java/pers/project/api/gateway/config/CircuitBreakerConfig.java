@@ -0,0 +1,16 @@
+package pers.project.api.gateway.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import pers.project.api.gateway.config.property.CircuitBreakerProperties;
+
+/**
+ * 接口断路器和舱壁配置
+ *
+ * @author Luo Fei
+ * @date 2023/07/25
+ */
+@Configuration
+@EnableConfigurationProperties(CircuitBreakerProperties.class)
+public class CircuitBreakerConfig {
+}
@@ -0,0 +1,20 @@
+package pers.project.api.gateway.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import pers.project.api.gateway.config.property.BodyCacheProperties;
+import pers.project.api.gateway.config.property.GatewayCacheProperties;
+
+/**
+ * Gateway 本地缓存配置
+ *
+ * @author Luo Fei
+ * @date 2023/07/21
+ */
+@Configuration
+@EnableConfigurationProperties({GatewayCacheProperties.class, BodyCacheProperties.class,
+        GatewayCacheProperties.ClientUserInfoProperties.class,
+        GatewayCacheProperties.QuantityUsageApiInfoProperties.class,
+        GatewayCacheProperties.ResponseProperties.class})
+public class GatewayCacheConfig {
+}
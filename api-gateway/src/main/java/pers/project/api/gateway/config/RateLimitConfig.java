@@ -0,0 +1,16 @@
+package pers.project.api.gateway.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import pers.project.api.gateway.config.property.RateLimitProperties;
+
+/**
+ * 限流配置
+ *
+ * @author Luo Fei
+ * @date 2023/07/24
+ */
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitConfig {
+}
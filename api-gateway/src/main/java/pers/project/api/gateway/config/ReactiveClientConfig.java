@@ -0,0 +1,72 @@
+package pers.project.api.gateway.config;
+
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.support.WebClientAdapter;
+import org.springframework.web.service.invoker.HttpServiceProxyFactory;
+import pers.project.api.gateway.client.FacadeReactiveClient;
+import pers.project.api.gateway.client.SecurityInternalReactiveClient;
+import pers.project.api.gateway.client.SecurityReactiveClient;
+
+/**
+ * 非阻塞远程服务客户端配置类
+ * <p>
+ * Gateway 运行在 Netty 事件循环上，远程调用不能阻塞请求线程，
+ * 所以使用 {@code WebClient} 支持的 HTTP 接口客户端代替 OpenFeign。
+ * <p>
+ * 与原先的 Feign 客户端一样，请求经由 Nacos 中注册的 gateway 服务转发；
+ * 只在服务之间调用的内部接口直接请求 Nacos 中注册的 security 服务，不经过公开的路由。
+ *
+ * @author Luo Fei
+ * @date 2023/07/20
+ */
+@Configuration
+public class ReactiveClientConfig {
+
+    /**
+     * 负载均衡的服务地址
+     */
+    private static final String GATEWAY_SERVICE_URL = "http://gateway";
+
+    /**
+     * 负载均衡的 Security 服务地址
+     */
+    private static final String SECURITY_SERVICE_URL = "http://security";
+
+    /**
+     * 注意：不要将负载均衡的 {@code WebClient.Builder} 注册为 Bean，以免影响其他使用者。
+     */
+    @Bean
+    public HttpServiceProxyFactory httpServiceProxyFactory(WebClient.Builder webClientBuilder,
+                                                           ReactorLoadBalancerExchangeFilterFunction loadBalancerFunction) {
+        WebClient webClient = webClientBuilder
+                .baseUrl(GATEWAY_SERVICE_URL)
+                .filter(loadBalancerFunction)
+                .build();
+        return HttpServiceProxyFactory.builder(WebClientAdapter.forClient(webClient)).build();
+    }
+
+    @Bean
+    public SecurityReactiveClient securityReactiveClient(HttpServiceProxyFactory httpServiceProxyFactory) {
+        return httpServiceProxyFactory.createClient(SecurityReactiveClient.class);
+    }
+
+    @Bean
+    public SecurityInternalReactiveClient securityInternalReactiveClient(WebClient.Builder webClientBuilder,
+                                                                         ReactorLoadBalancerExchangeFilterFunction loadBalancerFunction) {
+        WebClient webClient = webClientBuilder
+                .baseUrl(SECURITY_SERVICE_URL)
+                .filter(loadBalancerFunction)
+                .build();
+        return HttpServiceProxyFactory.builder(WebClientAdapter.forClient(webClient)).build()
+                .createClient(SecurityInternalReactiveClient.class);
+    }
+
+    @Bean
+    public FacadeReactiveClient facadeReactiveClient(HttpServiceProxyFactory httpServiceProxyFactory) {
+        return httpServiceProxyFactory.createClient(FacadeReactiveClient.class);
+    }
+
+}
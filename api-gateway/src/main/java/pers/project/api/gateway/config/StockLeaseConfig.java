@@ -0,0 +1,16 @@
+package pers.project.api.gateway.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import pers.project.api.gateway.config.property.StockLeaseProperties;
+
+/**
+ * 调用次数存量租约配置
+ *
+ * @author Luo Fei
+ * @date 2023/07/22
+ */
+@Configuration
+@EnableConfigurationProperties(StockLeaseProperties.class)
+public class StockLeaseConfig {
+}
@@ -0,0 +1,16 @@
+package pers.project.api.gateway.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import pers.project.api.gateway.config.property.UsageStatisticsProperties;
+
+/**
+ * 接口调用统计配置
+ *
+ * @author Luo Fei
+ * @date 2023/07/22
+ */
+@Configuration
+@EnableConfigurationProperties(UsageStatisticsProperties.class)
+public class UsageStatisticsConfig {
+}
@@ -0,0 +1,56 @@
+package pers.project.api.gateway.config.property;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 访问日志属性
+ *
+ * @author Luo Fei
+ * @date 2023/07/23
+ */
+@Data
+@ConfigurationProperties(prefix = "insight-api.gateway.access-log")
+public class AccessLogProperties {
+
+    /**
+     * 是否启用访问日志
+     */
+    private boolean enabled = true;
+
+    /**
+     * 环形缓冲区容量（会向上取整为 2 的幂）
+     * <p>
+     * 缓冲区已满时丢弃新的记录，不会阻塞请求。
+     */
+    private int bufferCapacity = 8192;
+
+    /**
+     * 默认采样率（0 ~ 1）
+     */
+    private double sampleRate = 1D;
+
+    /**
+     * 路由 ID 到采样率的映射，未配置的路由使用默认采样率
+     */
+    private Map<String, Double> routeSampleRates = new HashMap<>();
+
+    /**
+     * 记录的请求体和响应体的最大字节数，0 表示不记录
+     */
+    private int maxBodyBytes = 1024;
+
+    /**
+     * 允许记录正文的内容类型
+     * <p>
+     * 使用 {@code MediaType#includes} 匹配，支持通配符。
+     */
+    private List<String> bodyContentTypes = new ArrayList<>(List.of(
+            "application/json", "application/*+json", "text/*", "application/x-www-form-urlencoded"));
+
+}
@@ -0,0 +1,40 @@
+package pers.project.api.gateway.config.property;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * 请求体缓存属性
+ * <p>
+ * 只作用于配置了 {@code SpillableCacheRequestBody} 过滤器的路由。
+ *
+ * @author Luo Fei
+ * @date 2023/07/23
+ */
+@Data
+@ConfigurationProperties(prefix = "insight-api.gateway.body-cache")
+public class BodyCacheProperties {
+
+    /**
+     * 内存缓存的最大请求体大小
+     * <p>
+     * 超过该大小的请求体会写入临时文件，不再占用堆内存。
+     */
+    private DataSize inMemoryThreshold = DataSize.ofKilobytes(256L);
+
+    /**
+     * 允许的最大请求体大小
+     * <p>
+     * 超过该大小的请求直接返回 413。
+     */
+    private DataSize maxSize = DataSize.ofMegabytes(10L);
+
+    /**
+     * 临时文件目录
+     * <p>
+     * 为空时使用 {@code java.io.tmpdir}。
+     */
+    private String tempDirectory;
+
+}
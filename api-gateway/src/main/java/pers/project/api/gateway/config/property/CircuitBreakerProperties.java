@@ -0,0 +1,55 @@
+package pers.project.api.gateway.config.property;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 接口断路器和舱壁属性
+ * <p>
+ * 每个接口摘要主键使用一组独立的断路器和舱壁，一个接口的故障不影响其他接口。
+ *
+ * @author Luo Fei
+ * @date 2023/07/25
+ */
+@Data
+@ConfigurationProperties(prefix = "insight-api.gateway.circuit-breaker")
+public class CircuitBreakerProperties {
+
+    /**
+     * 是否启用断路器和舱壁
+     */
+    private boolean enabled = true;
+
+    /**
+     * 计算失败率的滑动窗口大小（最近的调用次数）
+     */
+    private int slidingWindowSize = 50;
+
+    /**
+     * 计算失败率所需的最少调用次数
+     */
+    private int minimumCalls = 20;
+
+    /**
+     * 打开断路器的失败率阈值（单位：%）
+     */
+    private double failureRateThreshold = 50D;
+
+    /**
+     * 打开时长，结束后进入半开状态
+     */
+    private Duration openDuration = Duration.ofSeconds(10L);
+
+    /**
+     * 半开状态允许的探测调用数
+     */
+    private int halfOpenPermittedCalls = 5;
+
+    /**
+     * 每个接口的最大并发调用数
+     */
+    private int maxConcurrentCalls = 100;
+
+}
@@ -0,0 +1,31 @@
+package pers.project.api.gateway.config.property;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * 请求合并属性
+ * <p>
+ * 接口是否合并相同的并发请求由 {@code api_digest.coalescing_enabled} 决定，这里只配置全局开关和限制。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+@Data
+@ConfigurationProperties(prefix = "insight-api.gateway.coalescing")
+public class CoalescingProperties {
+
+    /**
+     * 是否启用请求合并
+     */
+    private boolean enabled = true;
+
+    /**
+     * 可以分发给等待者的最大响应大小
+     * <p>
+     * 超过该大小时等待者各自转发请求。
+     */
+    private DataSize maxResponseSize = DataSize.ofMegabytes(1L);
+
+}
@@ -0,0 +1,103 @@
+package pers.project.api.gateway.config.property;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Gateway 本地缓存属性
+ *
+ * @author Luo Fei
+ * @date 2023/07/21
+ */
+@Data
+@ConfigurationProperties(prefix = "insight-api.gateway.cache")
+public class GatewayCacheProperties {
+
+    /**
+     * 客户端用户信息缓存属性
+     * <p>
+     * 缓存 secretId 到 {@code ClientUserInfoDTO} 的映射。
+     */
+    @Data
+    @ConfigurationProperties(prefix = "insight-api.gateway.cache.client-user-info")
+    public static class ClientUserInfoProperties {
+
+        /**
+         * 最大缓存条目数
+         */
+        private long maximumSize = 10_000L;
+
+        /**
+         * 写入后的过期时间
+         * <p>
+         * 密钥变化时会通过 Redis 发布订阅使缓存失效，过期时间只是兜底。
+         */
+        private Duration expireAfterWrite = Duration.ofMinutes(10L);
+
+    }
+
+    /**
+     * 计数用法接口信息缓存属性
+     * <p>
+     * 缓存 (accountId, method, originalUrl) 到 {@code QuantityUsageApiInfoDTO} 的映射。
+     */
+    @Data
+    @ConfigurationProperties(prefix = "insight-api.gateway.cache.quantity-usage-api-info")
+    public static class QuantityUsageApiInfoProperties {
+
+        /**
+         * 最大缓存条目数
+         */
+        private long maximumSize = 100_000L;
+
+        /**
+         * 找到可用接口的条目写入后的过期时间
+         */
+        private Duration expireAfterWrite = Duration.ofMinutes(10L);
+
+        /**
+         * 未找到可用接口的条目写入后的过期时间
+         * <p>
+         * 应当较短，使新购买的接口用法在失效消息丢失时也能较快生效。
+         */
+        private Duration negativeExpireAfterWrite = Duration.ofSeconds(30L);
+
+    }
+
+    /**
+     * Provider 响应缓存属性
+     * <p>
+     * 接口是否缓存、缓存时长和缓存键包含的参数由 {@code api_digest} 中的字段决定，这里只配置缓存的容量。
+     */
+    @Data
+    @ConfigurationProperties(prefix = "insight-api.gateway.cache.response")
+    public static class ResponseProperties {
+
+        /**
+         * 是否启用响应缓存
+         */
+        private boolean enabled = true;
+
+        /**
+         * 本地缓存的最大总大小（按响应体大小计算）
+         */
+        private DataSize maximumSize = DataSize.ofMegabytes(64L);
+
+        /**
+         * 单个响应的最大大小，超过该大小的响应不缓存
+         */
+        private DataSize maxEntrySize = DataSize.ofKilobytes(256L);
+
+        /**
+         * 是否启用 Redis 缓存
+         * <p>
+         * 启用后本地未命中时会查询 Redis，多个 Gateway 实例共享缓存的响应。
+         */
+        private boolean redisEnabled = false;
+
+    }
+
+}
@@ -0,0 +1,68 @@
+package pers.project.api.gateway.config.property;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 预校验属性
+ * <p>
+ * 只作用于配置了 {@code PreValidation} 过滤器的路由，请求体大小限制使用 {@link BodyCacheProperties#getMaxSize()}。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+@Data
+@ConfigurationProperties(prefix = "insight-api.gateway.pre-validation")
+public class PreValidationProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * 允许请求时间戳超前于 Gateway 时间的最大时长
+     * <p>
+     * 过期的时间戳按 Provider 网关过滤器的时间戳超时时长拒绝。
+     */
+    private Duration maxClockSkew = Duration.ofSeconds(60L);
+
+    /**
+     * 是否只放行已知的密钥 ID
+     */
+    private boolean secretIdFilterEnabled = true;
+
+    /**
+     * 已知密钥 ID 的全量同步间隔
+     * <p>
+     * 新的密钥 ID 通过 Redis 发布订阅实时加入，全量同步用于移除作废的密钥 ID 和补偿丢失的消息。
+     */
+    private Duration secretIdSyncInterval = Duration.ofMinutes(10L);
+
+    /**
+     * 全量同步失败或尚未完成时的重试间隔，第一次同步完成前不检查密钥 ID
+     */
+    private Duration secretIdRetryInterval = Duration.ofSeconds(10L);
+
+    /**
+     * 全量同步时使用的内部请求令牌，与 Security 的 {@code insight-api.internal-request.token} 相同
+     */
+    private String secretIdSyncToken;
+
+    /**
+     * 全量同步时每页的密钥 ID 数量
+     */
+    private int secretIdPageSize = 1000;
+
+    /**
+     * 布隆过滤器的预期密钥 ID 数量
+     * <p>
+     * 同步后实际数量超过一半时，下一次同步按实际数量的两倍构建。
+     */
+    private int secretIdExpectedInsertions = 100_000;
+
+    /**
+     * 布隆过滤器的误判率
+     */
+    private double secretIdFalsePositiveProbability = 0.001;
+
+}
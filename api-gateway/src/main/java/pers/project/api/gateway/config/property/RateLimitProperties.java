@@ -0,0 +1,52 @@
+package pers.project.api.gateway.config.property;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 限流属性
+ * <p>
+ * 接口和用户接口用法的限制保存在数据库中（{@code api_digest.rate_limit} 和 {@code user_quantity_usage.rate_limit}），
+ * 密钥 ID 的限制对所有用户相同，由此处配置。
+ *
+ * @author Luo Fei
+ * @date 2023/07/24
+ */
+@Data
+@ConfigurationProperties(prefix = "insight-api.gateway.rate-limit")
+public class RateLimitProperties {
+
+    /**
+     * 是否启用限流
+     */
+    private boolean enabled = true;
+
+    /**
+     * 每个密钥 ID 的每秒请求数限制，0 表示不限制
+     */
+    private long secretIdLimit = 0L;
+
+    /**
+     * 每次从 Redis 预算中取出的令牌数量占限制的比例
+     * <p>
+     * 比例越大访问 Redis 的次数越少，但各个 Gateway 之间的令牌分配越不均匀。
+     */
+    private double budgetChunkRatio = 0.1D;
+
+    /**
+     * 同步间隔
+     * <p>
+     * 最近有请求的令牌桶在本地令牌不足时，按此间隔从 Redis 预算中补充令牌。
+     */
+    private Duration syncInterval = Duration.ofMillis(100L);
+
+    /**
+     * 空闲超时时长
+     * <p>
+     * 超过该时长没有请求的令牌桶会被移除。
+     */
+    private Duration idleTimeout = Duration.ofSeconds(30L);
+
+}
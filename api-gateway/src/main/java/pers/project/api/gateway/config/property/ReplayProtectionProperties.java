@@ -0,0 +1,35 @@
+package pers.project.api.gateway.config.property;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 重放保护属性
+ *
+ * @author Luo Fei
+ * @date 2023/07/22
+ */
+@Data
+@ConfigurationProperties(prefix = "insight-api.gateway.replay-protection")
+public class ReplayProtectionProperties {
+
+    /**
+     * 本地布隆过滤器覆盖的秒数
+     * <p>
+     * 应当不小于时间戳超时时长，更旧的请求时间戳由时间戳检查拒绝。
+     */
+    private int bucketCount = 64;
+
+    /**
+     * 每个桶的位数
+     * <p>
+     * 默认 2^18 位（32 KB），每秒 2 万个请求、4 个哈希函数时误判率约 0.5%。
+     */
+    private int bucketBits = 1 << 18;
+
+    /**
+     * 哈希函数的数量
+     */
+    private int hashFunctions = 4;
+
+}
@@ -0,0 +1,72 @@
+package pers.project.api.gateway.config.property;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 调用次数存量租约属性
+ * <p>
+ * 调用频率高的用户接口用法会从 Redis 中成批租借存量，在 Gateway 本地扣减，减少热点键的访问。
+ *
+ * @author Luo Fei
+ * @date 2023/07/22
+ */
+@Data
+@ConfigurationProperties(prefix = "insight-api.gateway.stock-lease")
+public class StockLeaseProperties {
+
+    /**
+     * 是否启用租约模式
+     * <p>
+     * 关闭时每次调用都直接扣减 Redis 中的存量。
+     */
+    private boolean enabled = false;
+
+    /**
+     * 启用租约的调用频率阈值（单位：次/秒）
+     * <p>
+     * 低于该频率的用法保持每次调用精确扣减的方式。
+     */
+    private double hotRateThreshold = 20D;
+
+    /**
+     * 一次租借期望覆盖的时长
+     * <p>
+     * 租借数量 = 调用频率 × 该时长，并限制在最小和最大租借数量之间。
+     */
+    private Duration leaseCoverage = Duration.ofSeconds(5L);
+
+    /**
+     * 最小租借数量
+     */
+    private long minBlockSize = 10L;
+
+    /**
+     * 最大租借数量
+     */
+    private long maxBlockSize = 1000L;
+
+    /**
+     * 空闲超时时长
+     * <p>
+     * 超过该时长没有调用的用法会归还未使用的租约。
+     */
+    private Duration idleTimeout = Duration.ofSeconds(30L);
+
+    /**
+     * 空闲检查间隔
+     * <p>
+     * 同时也是租约持有者的心跳间隔。
+     */
+    private Duration idleCheckInterval = Duration.ofSeconds(10L);
+
+    /**
+     * 租约持有者的心跳超时时长
+     * <p>
+     * 超过该时长没有心跳的 Gateway 被视为已退出，其持有的租约由其他 Gateway 归还给存量，必须大于空闲检查间隔。
+     */
+    private Duration holderTimeout = Duration.ofSeconds(30L);
+
+}
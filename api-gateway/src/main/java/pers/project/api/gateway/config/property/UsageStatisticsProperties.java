@@ -0,0 +1,30 @@
+package pers.project.api.gateway.config.property;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 接口调用统计属性
+ *
+ * @author Luo Fei
+ * @date 2023/07/22
+ */
+@Data
+@ConfigurationProperties(prefix = "insight-api.gateway.usage-statistics")
+public class UsageStatisticsProperties {
+
+    /**
+     * 统计量刷新到 Redis 的间隔
+     * <p>
+     * 也是 Gateway 异常退出时统计量最多丢失的时长。
+     */
+    private Duration flushInterval = Duration.ofMillis(300L);
+
+    /**
+     * 统计量空闲多少次刷新后移除本地计数器
+     */
+    private int idleFlushesBeforeEviction = 200;
+
+}
@@ -25,6 +25,39 @@ public final class ExchangeAttributeNameConst {
      */
     public static final String API_DIGEST_ID = "apiDigestId";
 
+    /**
+     * 请求体的 SHA-256 摘要（byte[]）
+     * <p>
+     * 每个请求只计算一次，由 {@code GatewayHttpUtils#getRequestBodyDigest} 保存。
+     */
+    public static final String REQUEST_BODY_DIGEST = "requestBodyDigest";
+
+    /**
+     * 接口调用许可（ApiCallPermit）
+     * <p>
+     * 请求被授权后保存，在请求结束时根据响应结果释放。
+     */
+    public static final String API_CALL_PERMIT = "apiCallPermit";
+
+    /**
+     * 可缓存请求的响应缓存键（ResponseCacheKey）
+     * <p>
+     * 响应缓存未命中时保存，转发时由 {@code ResponseCache#record} 缓存 Provider 的响应。
+     */
+    public static final String RESPONSE_CACHE_KEY = "responseCacheKey";
+
+    /**
+     * 命中的缓存响应（CachedResponse）
+     */
+    public static final String RESPONSE_CACHE_HIT = "responseCacheHit";
+
+    /**
+     * 请求合并键（String）
+     * <p>
+     * 开启合并的接口的请求被授权后保存，由 {@code RequestCoalescer} 合并相同的进行中的请求。
+     */
+    public static final String REQUEST_COALESCING_KEY = "requestCoalescingKey";
+
     private ExchangeAttributeNameConst() {
     }
 
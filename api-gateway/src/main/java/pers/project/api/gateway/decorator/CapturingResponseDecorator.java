@@ -0,0 +1,131 @@
+package pers.project.api.gateway.decorator;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 捕获完整响应体的响应装饰器
+ * <p>
+ * 写出响应的同时持有响应体的缓冲区，响应完整写出后聚合一次并交给回调；
+ * 超过最大大小、写出异常或被取消时释放缓冲区并通知放弃。两个回调只会有一个被调用，且只调用一次。
+ * <p>
+ * 用于响应缓存和请求合并，回调中可以通过原始响应读取状态码和响应头。
+ *
+ * @author Luo Fei
+ * @date 2023/07/25
+ */
+public class CapturingResponseDecorator extends ServerHttpResponseDecorator {
+
+    private final long maxBytes;
+
+    private final Consumer<byte[]> onCaptured;
+
+    private final Runnable onDiscarded;
+
+    /**
+     * 持有的缓冲区及其可读区间，放弃或聚合后清空
+     */
+    private final List<CapturedSlice> capturedSlices = new ArrayList<>();
+
+    private long capturedBytes;
+
+    private boolean finished;
+
+    /**
+     * @param delegate    被装饰的响应
+     * @param maxBytes    最大捕获大小（单位：字节）
+     * @param onCaptured  响应体完整捕获后的回调
+     * @param onDiscarded 放弃捕获后的回调
+     */
+    public CapturingResponseDecorator(ServerHttpResponse delegate, long maxBytes,
+                                      Consumer<byte[]> onCaptured, Runnable onDiscarded) {
+        super(delegate);
+        this.maxBytes = maxBytes;
+        this.onCaptured = onCaptured;
+        this.onDiscarded = onDiscarded;
+    }
+
+    @Override
+    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+        Flux<? extends DataBuffer> bodyFlux = Flux.from(body)
+                .doOnNext(this::capture)
+                .doOnComplete(this::complete)
+                .doOnError(e -> discard())
+                .doOnCancel(this::discard);
+        return super.writeWith(bodyFlux);
+    }
+
+    @Override
+    public Mono<Void> setComplete() {
+        // 没有响应体的响应
+        return super.setComplete().doOnSuccess(unused -> complete());
+    }
+
+    private synchronized void capture(DataBuffer dataBuffer) {
+        if (finished) {
+            return;
+        }
+        int length = dataBuffer.readableByteCount();
+        capturedBytes += length;
+        if (capturedBytes > maxBytes) {
+            discard();
+            return;
+        }
+        capturedSlices.add(new CapturedSlice(DataBufferUtils.retain(dataBuffer), dataBuffer.readPosition(), length));
+    }
+
+    /**
+     * 聚合响应体并交给回调
+     */
+    private void complete() {
+        byte[] bytes;
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            bytes = new byte[(int) capturedBytes];
+            int offset = 0;
+            for (CapturedSlice capturedSlice : capturedSlices) {
+                DataBuffer dataBuffer = capturedSlice.dataBuffer();
+                dataBuffer.toByteBuffer(capturedSlice.index(), ByteBuffer.wrap(bytes), offset, capturedSlice.length());
+                offset += capturedSlice.length();
+                DataBufferUtils.release(dataBuffer);
+            }
+            capturedSlices.clear();
+        }
+        onCaptured.accept(bytes);
+    }
+
+    /**
+     * 放弃捕获并释放持有的缓冲区
+     */
+    private void discard() {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            capturedSlices.forEach(capturedSlice -> DataBufferUtils.release(capturedSlice.dataBuffer()));
+            capturedSlices.clear();
+        }
+        onDiscarded.run();
+    }
+
+    /**
+     * 持有的缓冲区和可读区间
+     */
+    private record CapturedSlice(DataBuffer dataBuffer, int index, int length) {
+    }
+
+}
@@ -0,0 +1,58 @@
+package pers.project.api.gateway.enumaration;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * 预校验拒绝原因
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+public enum PreValidationRejectionEnum {
+
+    /**
+     * 请求体超过最大请求体大小（按 Content-Length 判断）
+     */
+    PAYLOAD_TOO_LARGE("payload_too_large", HttpStatus.PAYLOAD_TOO_LARGE),
+
+    /**
+     * 签名请求头缺少、重复或格式错误
+     */
+    MALFORMED_HEADERS("malformed_headers", HttpStatus.BAD_REQUEST),
+
+    /**
+     * 请求时间戳已经超时
+     */
+    EXPIRED_TIMESTAMP("expired_timestamp", HttpStatus.FORBIDDEN),
+
+    /**
+     * 请求时间戳超前于 Gateway 时间太多
+     */
+    FUTURE_TIMESTAMP("future_timestamp", HttpStatus.FORBIDDEN),
+
+    /**
+     * 密钥 ID 一定不存在
+     */
+    UNKNOWN_SECRET_ID("unknown_secret_id", HttpStatus.FORBIDDEN);
+
+    /**
+     * 指标的 reason 标签值
+     */
+    private final String tagValue;
+
+    private final HttpStatus httpStatus;
+
+    PreValidationRejectionEnum(String tagValue, HttpStatus httpStatus) {
+        this.tagValue = tagValue;
+        this.httpStatus = httpStatus;
+    }
+
+    public String getTagValue() {
+        return tagValue;
+    }
+
+    public HttpStatus getHttpStatus() {
+        return httpStatus;
+    }
+
+}
@@ -0,0 +1,69 @@
+package pers.project.api.gateway.enumaration;
+
+/**
+ * Provider 授权阶段
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+public enum ProviderAuthorizationPhaseEnum {
+
+    /**
+     * 随机数记录的提前检查（本地重放过滤器认为可能重复时查询 Redis）
+     */
+    REPLAY_CHECK("replay_check"),
+
+    /**
+     * 客户端用户信息查询（本地缓存未命中时调用 Security 服务）
+     */
+    CLIENT_USER("client_user"),
+
+    /**
+     * 请求签名计算和验证
+     */
+    SIGNATURE("signature"),
+
+    /**
+     * 接口信息查询（本地缓存未命中时调用 Facade 服务）
+     */
+    API_INFO("api_info"),
+
+    /**
+     * 限流
+     */
+    RATE_LIMIT("rate_limit"),
+
+    /**
+     * 响应缓存查询
+     */
+    RESPONSE_CACHE("response_cache"),
+
+    /**
+     * 断路器和舱壁检查
+     */
+    CIRCUIT_BREAKER("circuit_breaker"),
+
+    /**
+     * 随机数写入和调用次数存量扣减
+     */
+    QUANTITY_USAGE("quantity_usage"),
+
+    /**
+     * Provider 响应后的调用统计量记录
+     */
+    USAGE_STATISTICS("usage_statistics");
+
+    /**
+     * 指标的 phase 标签值
+     */
+    private final String tagValue;
+
+    ProviderAuthorizationPhaseEnum(String tagValue) {
+        this.tagValue = tagValue;
+    }
+
+    public String getTagValue() {
+        return tagValue;
+    }
+
+}
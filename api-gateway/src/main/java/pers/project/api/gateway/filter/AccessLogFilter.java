@@ -0,0 +1,258 @@
+package pers.project.api.gateway.filter;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import pers.project.api.gateway.accesslog.AccessLogRecord;
+import pers.project.api.gateway.accesslog.AccessLogWriter;
+import pers.project.api.gateway.config.property.AccessLogProperties;
+import pers.project.api.gateway.util.GatewayHttpUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+import static pers.project.api.gateway.constant.ExchangeAttributeNameConst.*;
+
+/**
+ * 访问日志过滤器
+ * <p>
+ * 按路由采样，每个采样的请求生成一条紧凑的 {@link AccessLogRecord}，
+ * 请求完成后放入 {@link AccessLogWriter} 的环形缓冲区，由后台线程序列化和写入，
+ * 事件循环上只有少量字段读取和一次无锁入队。
+ * <p>
+ * 请求体和响应体只在内容类型允许时记录，并截断为最大字节数。
+ *
+ * @author Luo Fei
+ * @date 2023/07/23
+ */
+@Component
+@RequiredArgsConstructor
+public class AccessLogFilter implements GlobalFilter, Ordered {
+
+    /**
+     * 过滤器顺序
+     * <p>
+     * 紧跟在 {@link CacheRequestBodyFilter} 之后，未授权被拒绝的请求也会被记录；
+     * 授权时添加的属性在请求完成时读取。响应装饰器必须在 {@link NettyWriteResponseFilter} 写入响应结果之前生效。
+     */
+    public static final int ACCESS_LOG_FILTER_ORDER = CacheRequestBodyFilter.CACHE_REQUEST_BODY_FILTER_ORDER + 1;
+
+    private final AccessLogProperties properties;
+
+    private final AccessLogWriter accessLogWriter;
+
+    /**
+     * 允许记录正文的内容类型
+     */
+    private List<MediaType> bodyContentTypes;
+
+    @PostConstruct
+    public void init() {
+        bodyContentTypes = MediaType.parseMediaTypes(properties.getBodyContentTypes());
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!properties.isEnabled() || !isSampled(exchange)) {
+            return chain.filter(exchange);
+        }
+        long startNanos = System.nanoTime();
+        AccessLogRecord record = createRecord(exchange);
+        ResponseBodyCaptureDecorator responseDecorator = new ResponseBodyCaptureDecorator(exchange.getResponse());
+        return chain.filter(exchange.mutate().response(responseDecorator).build())
+                .doOnError(e -> record.setError(e.getClass().getSimpleName() + ": " + e.getMessage()))
+                .doFinally(signalType -> {
+                    completeRecord(exchange, record, startNanos);
+                    record.setResponseBody(responseDecorator.getCapturedBody());
+                    accessLogWriter.submit(record);
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        return ACCESS_LOG_FILTER_ORDER;
+    }
+
+    /**
+     * 按路由的采样率决定是否记录
+     */
+    private boolean isSampled(ServerWebExchange exchange) {
+        double sampleRate = properties.getSampleRate();
+        if (exchange.getAttribute(GATEWAY_ROUTE_ATTR) instanceof Route route) {
+            sampleRate = properties.getRouteSampleRates().getOrDefault(route.getId(), sampleRate);
+        }
+        return sampleRate >= 1D || (sampleRate > 0D && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    /**
+     * 请求开始时填充请求相关的字段
+     */
+    private AccessLogRecord createRecord(ServerWebExchange exchange) {
+        ServerHttpRequest request = exchange.getRequest();
+        AccessLogRecord record = new AccessLogRecord();
+        record.setTimestamp(System.currentTimeMillis());
+        record.setRequestId(request.getId());
+        if (exchange.getAttribute(GATEWAY_ROUTE_ATTR) instanceof Route route) {
+            record.setRouteId(route.getId());
+        }
+        record.setMethod(request.getMethod().name());
+        record.setPath(request.getPath().value());
+        record.setQuery(request.getURI().getRawQuery());
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        if (remoteAddress != null) {
+            record.setRemoteAddress(remoteAddress.getHostString());
+        }
+        if (isBodyLoggable(request.getHeaders().getContentType())) {
+            DataBuffer dataBuffer = GatewayHttpUtils.getCachedRequestBodyBuffer(exchange);
+            if (dataBuffer != null) {
+                record.setRequestBody(decodeTruncated(dataBuffer, properties.getMaxBodyBytes()));
+            }
+        }
+        return record;
+    }
+
+    /**
+     * 请求完成时填充授权结果、状态码和耗时
+     */
+    private static void completeRecord(ServerWebExchange exchange, AccessLogRecord record, long startNanos) {
+        record.setAccountId(exchange.getAttribute(CLIENT_ACCOUNT_ID));
+        record.setDigestId(exchange.getAttribute(API_DIGEST_ID));
+        record.setUsageId(exchange.getAttribute(USER_QUANTITY_USAGE_ID));
+        HttpStatusCode statusCode = exchange.getResponse().getStatusCode();
+        record.setStatus(statusCode == null ? null : statusCode.value());
+        record.setDurationMicros(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+    }
+
+    private boolean isBodyLoggable(MediaType contentType) {
+        if (properties.getMaxBodyBytes() <= 0 || contentType == null) {
+            return false;
+        }
+        for (MediaType bodyContentType : bodyContentTypes) {
+            if (bodyContentType.includes(contentType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解码缓冲区可读字节的前 maxBytes 个字节，不改变读取位置
+     */
+    private static String decodeTruncated(DataBuffer dataBuffer, int maxBytes) {
+        int length = Math.min(dataBuffer.readableByteCount(), maxBytes);
+        return dataBuffer.toString(dataBuffer.readPosition(), length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 响应体捕获装饰器
+     * <p>
+     * 响应体原样转发，不复制。捕获时只持有（retain）缓冲区并记录不超过最大字节数的前缀位置，
+     * 响应结束时一次性聚合解码为字符串并释放所有持有的缓冲区，多字节字符不会在块边界被截断。
+     * 达到最大字节数后的缓冲区直接通过。
+     */
+    private class ResponseBodyCaptureDecorator extends ServerHttpResponseDecorator {
+
+        /**
+         * 持有的缓冲区及其需要捕获的区间，聚合后清空
+         */
+        private final List<CapturedSlice> capturedSlices = new ArrayList<>();
+
+        private int capturedBytes;
+
+        private boolean loggable;
+
+        private boolean aggregated;
+
+        private String capturedBody;
+
+        private ResponseBodyCaptureDecorator(ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            // 在响应结果返回 Gateway 后执行
+            loggable = isBodyLoggable(getHeaders().getContentType());
+            if (!loggable) {
+                return super.writeWith(body);
+            }
+            // 在信号传递给下游之前聚合，请求完成时响应体已经可用
+            Flux<? extends DataBuffer> bodyFlux = Flux.from(body)
+                    .doOnNext(this::capture)
+                    .doOnComplete(this::aggregate)
+                    .doOnError(e -> aggregate())
+                    .doOnCancel(this::aggregate);
+            return super.writeWith(bodyFlux);
+        }
+
+        private synchronized void capture(DataBuffer dataBuffer) {
+            int remainingBytes = properties.getMaxBodyBytes() - capturedBytes;
+            if (remainingBytes <= 0 || aggregated) {
+                return;
+            }
+            int length = Math.min(dataBuffer.readableByteCount(), remainingBytes);
+            // 记录绝对位置，写出响应后读取位置的变化不影响捕获的内容
+            capturedSlices.add(new CapturedSlice(DataBufferUtils.retain(dataBuffer), dataBuffer.readPosition(), length));
+            capturedBytes += length;
+        }
+
+        /**
+         * 聚合解码捕获的前缀并释放持有的缓冲区，只执行一次
+         */
+        private synchronized void aggregate() {
+            if (aggregated) {
+                return;
+            }
+            aggregated = true;
+            byte[] bytes = new byte[capturedBytes];
+            int offset = 0;
+            for (CapturedSlice capturedSlice : capturedSlices) {
+                DataBuffer dataBuffer = capturedSlice.dataBuffer();
+                dataBuffer.toByteBuffer(capturedSlice.index(), ByteBuffer.wrap(bytes), offset, capturedSlice.length());
+                offset += capturedSlice.length();
+                DataBufferUtils.release(dataBuffer);
+            }
+            capturedSlices.clear();
+            capturedBody = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private String getCapturedBody() {
+            if (!loggable) {
+                return null;
+            }
+            // 兜底：写出过程没有终止信号时也要释放缓冲区
+            aggregate();
+            return capturedBody;
+        }
+
+    }
+
+    /**
+     * 持有的缓冲区和需要捕获的区间
+     */
+    private record CapturedSlice(DataBuffer dataBuffer, int index, int length) {
+    }
+
+}
@@ -1,36 +1,281 @@
 package pers.project.api.gateway.filter;
 
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
-import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 import org.springframework.web.server.ServerWebExchange;
+import pers.project.api.gateway.config.property.BodyCacheProperties;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.http.HttpStatus.PAYLOAD_TOO_LARGE;
+import static pers.project.api.gateway.constant.ExchangeAttributeNameConst.REQUEST_BODY_DIGEST;
 
 /**
  * 缓存请求体过滤器
+ * <p>
+ * 只作用于配置了 {@code SpillableCacheRequestBody} 过滤器的路由（需要验签的路由），其他路由的请求体直接转发。
+ * <p>
+ * 不超过内存阈值的请求体缓存在内存中（{@link ServerWebExchangeUtils#CACHED_REQUEST_BODY_ATTR}）；
+ * 超过内存阈值的请求体边接收边写入临时文件，转发时从文件读取，响应完成后删除文件。
+ * <p>
+ * 请求体的 SHA-256 摘要在接收时同步计算，保存在 {@code REQUEST_BODY_DIGEST} 属性中（multipart 请求除外）。
  *
  * @author Luo Fei
  * @date 2023/07/16
  */
+@Slf4j
 @Component
-public class CacheRequestBodyFilter implements Ordered, GatewayFilter, GlobalFilter {
+@RequiredArgsConstructor
+public class CacheRequestBodyFilter implements Ordered, GatewayFilter {
+
+    /**
+     * 过滤器顺序
+     * <p>
+     * 紧跟在 {@link PreValidationFilter} 之后，被预校验拒绝的请求不会接收请求体。
+     */
+    public static final int CACHE_REQUEST_BODY_FILTER_ORDER = PreValidationFilter.PRE_VALIDATION_FILTER_ORDER + 1;
+
+    /**
+     * 从临时文件读取请求体时的缓冲区大小
+     */
+    private static final int FILE_READ_BUFFER_SIZE = 8192;
+
+    private static final String TEMP_FILE_PREFIX = "gateway-request-body-";
+
+    private final BodyCacheProperties properties;
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
-        return ServerWebExchangeUtils
-                .cacheRequestBody(
-                        exchange,
-                        (serverHttpRequest) -> chain.filter(
-                                exchange.mutate().request(serverHttpRequest).build()));
+        ServerHttpRequest request = exchange.getRequest();
+        long contentLength = request.getHeaders().getContentLength();
+        if (contentLength == 0L) {
+            return chain.filter(exchange);
+        }
+        if (contentLength > properties.getMaxSize().toBytes()) {
+            return rejectPayloadTooLarge(exchange);
+        }
+        BodyAccumulator accumulator = new BodyAccumulator(properties);
+        return request.getBody()
+                .concatMap(accumulator::append)
+                .then(Mono.just(true))
+                // 只处理接收请求体时超出限制的异常，下游（包括响应）抛出的同类异常不是请求体过大
+                .onErrorResume(DataBufferLimitException.class, e -> Mono.just(false))
+                .flatMap(withinLimit -> {
+                    if (!withinLimit) {
+                        return rejectPayloadTooLarge(exchange);
+                    }
+                    // 与框架一致，空请求体不缓存，也没有摘要
+                    if (accumulator.hasBody() && !isMultipart(request)) {
+                        exchange.getAttributes().put(REQUEST_BODY_DIGEST, accumulator.digest());
+                    }
+                    return accumulator.isSpilled()
+                            ? filterSpilledBody(exchange, chain, accumulator)
+                            : filterInMemoryBody(exchange, chain, accumulator);
+                })
+                // 响应完成或出错后释放未转交的缓冲区并删除临时文件
+                .doFinally(signalType -> accumulator.discard());
     }
 
     @Override
     public int getOrder() {
-        return Ordered.HIGHEST_PRECEDENCE;
+        return CACHE_REQUEST_BODY_FILTER_ORDER;
     }
 
-}
+    /**
+     * 内存中的请求体交给框架缓存，由框架在请求完成后释放
+     */
+    private Mono<Void> filterInMemoryBody(ServerWebExchange exchange, GatewayFilterChain chain,
+                                          BodyAccumulator accumulator) {
+        DataBufferFactory bufferFactory = exchange.getResponse().bufferFactory();
+        DataBuffer joinedBuffer = accumulator.joinInMemory(bufferFactory);
+        ServerHttpRequest joinedRequest = new ServerHttpRequestDecorator(exchange.getRequest()) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return Flux.just(joinedBuffer);
+            }
+        };
+        return ServerWebExchangeUtils.cacheRequestBody(exchange.mutate().request(joinedRequest).build(),
+                serverHttpRequest -> chain.filter(exchange.mutate().request(serverHttpRequest).build()));
+    }
+
+    /**
+     * 临时文件中的请求体在转发时按块读取
+     */
+    private Mono<Void> filterSpilledBody(ServerWebExchange exchange, GatewayFilterChain chain,
+                                         BodyAccumulator accumulator) {
+        Path tempFile = accumulator.closeTempFile();
+        DataBufferFactory bufferFactory = exchange.getResponse().bufferFactory();
+        ServerHttpRequest spilledRequest = new ServerHttpRequestDecorator(exchange.getRequest()) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return DataBufferUtils.read(tempFile, bufferFactory, FILE_READ_BUFFER_SIZE);
+            }
+        };
+        return chain.filter(exchange.mutate().request(spilledRequest).build());
+    }
+
+    private static boolean isMultipart(ServerHttpRequest request) {
+        MediaType contentType = request.getHeaders().getContentType();
+        return contentType != null && MediaType.MULTIPART_FORM_DATA.isCompatibleWith(contentType);
+    }
+
+    private static Mono<Void> rejectPayloadTooLarge(ServerWebExchange exchange) {
+        exchange.getResponse().setStatusCode(PAYLOAD_TOO_LARGE);
+        return exchange.getResponse().setComplete();
+    }
+
+    /**
+     * 请求体累加器
+     * <p>
+     * 由 {@code concatMap} 串行调用，不需要同步。
+     */
+    private static final class BodyAccumulator {
+
+        private final long inMemoryThreshold;
+
+        private final long maxSize;
+
+        private final String tempDirectory;
+
+        private final MessageDigest messageDigest = DigestUtils.getSha256Digest();
 
+        /**
+         * 内存中的缓冲区，写入临时文件后清空
+         */
+        private final List<DataBuffer> dataBuffers = new ArrayList<>();
+
+        private long size;
+
+        private long filePosition;
+
+        private Path tempFile;
+
+        private AsynchronousFileChannel fileChannel;
+
+        private BodyAccumulator(BodyCacheProperties properties) {
+            this.inMemoryThreshold = properties.getInMemoryThreshold().toBytes();
+            this.maxSize = properties.getMaxSize().toBytes();
+            this.tempDirectory = properties.getTempDirectory();
+        }
+
+        private Mono<Void> append(DataBuffer dataBuffer) {
+            size += dataBuffer.readableByteCount();
+            if (size > maxSize) {
+                DataBufferUtils.release(dataBuffer);
+                return Mono.error(new DataBufferLimitException("Request body exceeds the limit: " + maxSize));
+            }
+            try (DataBuffer.ByteBufferIterator iterator = dataBuffer.readableByteBuffers()) {
+                while (iterator.hasNext()) {
+                    messageDigest.update(iterator.next());
+                }
+            }
+            dataBuffers.add(dataBuffer);
+            if (fileChannel == null && size <= inMemoryThreshold) {
+                return Mono.empty();
+            }
+            // 超过内存阈值，把内存中的缓冲区写入临时文件
+            List<DataBuffer> pendingBuffers = new ArrayList<>(dataBuffers);
+            dataBuffers.clear();
+            long position = filePosition;
+            for (DataBuffer pendingBuffer : pendingBuffers) {
+                filePosition += pendingBuffer.readableByteCount();
+            }
+            Mono<Void> openMono = (fileChannel == null)
+                    ? Mono.fromRunnable(this::openTempFile).subscribeOn(Schedulers.boundedElastic()).then()
+                    : Mono.empty();
+            return openMono
+                    .thenMany(Flux.defer(() -> DataBufferUtils.write(Flux.fromIterable(pendingBuffers),
+                            fileChannel, position)))
+                    .then()
+                    .doFinally(signalType -> pendingBuffers.forEach(DataBufferUtils::release));
+        }
+
+        private void openTempFile() {
+            try {
+                Path directory = StringUtils.hasText(tempDirectory)
+                        ? Path.of(tempDirectory) : Path.of(System.getProperty("java.io.tmpdir"));
+                tempFile = Files.createTempFile(directory, TEMP_FILE_PREFIX, ".tmp");
+                fileChannel = AsynchronousFileChannel.open(tempFile, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to create request body temp file", e);
+            }
+        }
+
+        private boolean hasBody() {
+            return size > 0L;
+        }
+
+        private boolean isSpilled() {
+            return fileChannel != null;
+        }
+
+        private byte[] digest() {
+            return messageDigest.digest();
+        }
+
+        /**
+         * 合并内存中的缓冲区，合并后的缓冲区由调用方负责释放
+         */
+        private DataBuffer joinInMemory(DataBufferFactory bufferFactory) {
+            DataBuffer joinedBuffer = dataBuffers.isEmpty()
+                    ? bufferFactory.allocateBuffer(0) : bufferFactory.join(dataBuffers);
+            dataBuffers.clear();
+            return joinedBuffer;
+        }
+
+        private Path closeTempFile() {
+            closeFileChannel();
+            return tempFile;
+        }
+
+        private void closeFileChannel() {
+            if (fileChannel == null) {
+                return;
+            }
+            try {
+                fileChannel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close request body temp file: {}", tempFile, e);
+            }
+        }
+
+        private void discard() {
+            dataBuffers.forEach(DataBufferUtils::release);
+            dataBuffers.clear();
+            closeFileChannel();
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException e) {
+                    log.warn("Failed to delete request body temp file: {}", tempFile, e);
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,194 @@
+package pers.project.api.gateway.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import pers.project.api.gateway.config.property.BodyCacheProperties;
+import pers.project.api.gateway.config.property.PreValidationProperties;
+import pers.project.api.gateway.enumaration.PreValidationRejectionEnum;
+import pers.project.api.gateway.enumaration.SignatureRequestHeaderEnum;
+import pers.project.api.gateway.prevalidation.KnownSecretIdFilter;
+import pers.project.api.gateway.util.SignatureHeaderUtils;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static pers.project.api.gateway.enumaration.PreValidationRejectionEnum.*;
+import static pers.project.api.gateway.enumaration.SignatureRequestHeaderEnum.*;
+
+/**
+ * 预校验过滤器
+ * <p>
+ * 只作用于配置了 {@code PreValidation} 过滤器的路由，在缓存请求体和任何 Redis 操作、远程调用之前，
+ * 只使用本地状态拒绝明显无效的请求：请求体过大、签名请求头缺少、重复或格式错误、时间戳超出窗口、密钥 ID 一定不存在。
+ * <p>
+ * 通过预校验的请求仍然由 {@link ProviderGatewayFilter} 完整授权。被拒绝的请求不会被访问日志记录，
+ * 按原因计入 {@code gateway.prevalidation.rejections} 计数器。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PreValidationFilter implements GatewayFilter, Ordered {
+
+    /**
+     * 过滤器顺序
+     * <p>
+     * 在 {@link CacheRequestBodyFilter} 之前，被拒绝的请求不会接收请求体。
+     */
+    public static final int PRE_VALIDATION_FILTER_ORDER = Ordered.HIGHEST_PRECEDENCE;
+
+    private static final String REJECTIONS_METER_NAME = "gateway.prevalidation.rejections";
+
+    /**
+     * 密钥 ID 的长度（16 字节的无填充 Base64 编码）
+     * <p>
+     * 与 Security 生成密钥 ID 的方式保持一致。
+     */
+    private static final int SECRET_ID_LENGTH = 22;
+
+    /**
+     * 签名的长度（HmacSHA256 的 32 字节摘要的 Base64 编码）
+     */
+    private static final int SIGN_LENGTH = 44;
+
+    /**
+     * 毫秒时间戳的最大位数，更长的值在解析时可能溢出
+     */
+    private static final int MAX_TIMESTAMP_LENGTH = 18;
+
+    /**
+     * 随机数的最大长度，随机数会作为 Redis 键的一部分
+     */
+    private static final int MAX_NONCE_LENGTH = 64;
+
+    private final PreValidationProperties properties;
+
+    private final BodyCacheProperties bodyCacheProperties;
+
+    private final KnownSecretIdFilter knownSecretIdFilter;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<PreValidationRejectionEnum, Counter> rejectionCounters =
+            new EnumMap<>(PreValidationRejectionEnum.class);
+
+    @PostConstruct
+    public void init() {
+        // 初始化后只读
+        for (PreValidationRejectionEnum rejection : PreValidationRejectionEnum.values()) {
+            rejectionCounters.put(rejection, Counter.builder(REJECTIONS_METER_NAME)
+                    .tag("reason", rejection.getTagValue())
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        ServerHttpRequest request = exchange.getRequest();
+        PreValidationRejectionEnum rejection = validate(request.getHeaders());
+        if (rejection == null) {
+            return chain.filter(exchange);
+        }
+        rejectionCounters.get(rejection).increment();
+        if (log.isDebugEnabled()) {
+            log.debug("Request rejected by pre-validation, request ID: {}, reason: {}",
+                    request.getId(), rejection.getTagValue());
+        }
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(rejection.getHttpStatus());
+        return response.setComplete();
+    }
+
+    @Override
+    public int getOrder() {
+        return PRE_VALIDATION_FILTER_ORDER;
+    }
+
+    /**
+     * 校验请求头
+     *
+     * @param headers 请求头
+     * @return 拒绝原因，通过时返回 null
+     */
+    private PreValidationRejectionEnum validate(HttpHeaders headers) {
+        // 没有 Content-Length 的请求体由 CacheRequestBodyFilter 在接收时限制大小
+        if (headers.getContentLength() > bodyCacheProperties.getMaxSize().toBytes()) {
+            return PAYLOAD_TOO_LARGE;
+        }
+        for (SignatureRequestHeaderEnum headerEnum : SignatureRequestHeaderEnum.values()) {
+            List<String> values = headers.get(headerEnum.getHeaderName());
+            if (values == null || values.size() != 1 || values.get(0).isEmpty()) {
+                return MALFORMED_HEADERS;
+            }
+        }
+        String secretId = headers.getFirst(SECRET_ID.getHeaderName());
+        String timestamp = headers.getFirst(TIMESTAMP.getHeaderName());
+        String nonce = headers.getFirst(NONCE.getHeaderName());
+        String sign = headers.getFirst(SIGN.getHeaderName());
+        if (secretId.length() != SECRET_ID_LENGTH || !isBase64(secretId)
+                || sign.length() != SIGN_LENGTH || !isBase64(sign)
+                || nonce.length() > MAX_NONCE_LENGTH
+                || timestamp.length() > MAX_TIMESTAMP_LENGTH || !isDigits(timestamp)) {
+            return MALFORMED_HEADERS;
+        }
+        long timestampDelta = SignatureHeaderUtils.getTimestamp() - Long.parseLong(timestamp);
+        if (timestampDelta > ProviderGatewayFilter.TIMESTAMP_TIMEOUT) {
+            return EXPIRED_TIMESTAMP;
+        }
+        if (-timestampDelta > properties.getMaxClockSkew().toMillis()) {
+            return FUTURE_TIMESTAMP;
+        }
+        if (properties.isSecretIdFilterEnabled() && !knownSecretIdFilter.mightBeKnown(secretId)) {
+            return UNKNOWN_SECRET_ID;
+        }
+        return null;
+    }
+
+    /**
+     * 是否只包含 Base64 字符，填充字符只能出现在末尾
+     */
+    private static boolean isBase64(String value) {
+        int length = value.length();
+        while (length > 0 && value.charAt(length - 1) == '=') {
+            length--;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            boolean base64Char = (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')
+                    || (c >= '0' && c <= '9') || c == '+' || c == '/';
+            if (!base64Char) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigits(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
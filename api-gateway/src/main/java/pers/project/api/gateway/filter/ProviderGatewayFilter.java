@@ -1,55 +1,62 @@
 package pers.project.api.gateway.filter;
 
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.RSemaphore;
-import org.redisson.api.RTransaction;
-import org.redisson.api.RedissonClient;
-import org.redisson.api.TransactionOptions;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.core.Ordered;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.server.ServerWebExchange;
-import pers.project.api.common.model.Result;
+import pers.project.api.common.enumeration.NonceStockAcquireResultEnum;
 import pers.project.api.common.model.dto.ClientUserInfoDTO;
 import pers.project.api.common.model.dto.QuantityUsageApiInfoDTO;
-import pers.project.api.common.model.query.ClientUserInfoQuery;
-import pers.project.api.common.model.query.QuantityUsageApiInfoQuery;
-import pers.project.api.common.util.ResultUtils;
+import pers.project.api.gateway.cache.ClientUserInfoCache;
+import pers.project.api.gateway.cache.QuantityUsageApiInfoCache;
+import pers.project.api.gateway.circuitbreaker.ApiCallPermit;
+import pers.project.api.gateway.circuitbreaker.ApiCircuitBreakerRegistry;
+import pers.project.api.gateway.coalescing.RequestCoalescer;
 import pers.project.api.gateway.enumaration.SignatureRequestHeaderEnum;
-import pers.project.api.gateway.exeception.InsightApiGatewayException;
-import pers.project.api.gateway.feign.FacadeFeignClient;
-import pers.project.api.gateway.feign.SecurityFeignClient;
 import pers.project.api.gateway.filter.factory.ProviderGatewayFilterFactory;
+import pers.project.api.gateway.lease.QuantityUsageStockLeaseManager;
+import pers.project.api.gateway.metrics.ProviderGatewayMetrics;
+import pers.project.api.gateway.ratelimit.DistributedRateLimiter;
+import pers.project.api.gateway.ratelimit.RateLimitDecision;
+import pers.project.api.gateway.replay.ReplayProtectionStore;
+import pers.project.api.gateway.responsecache.CachedResponse;
+import pers.project.api.gateway.responsecache.ResponseCache;
+import pers.project.api.gateway.responsecache.ResponseCacheKey;
+import pers.project.api.gateway.statistics.UsageStatisticsAggregator;
 import pers.project.api.gateway.util.SignatureHeaderUtils;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
-import static java.lang.Boolean.FALSE;
 import static org.springframework.http.HttpStatus.*;
-import static org.springframework.util.StringUtils.hasText;
-import static pers.project.api.common.constant.redis.RedisKeyPrefixConst.SIGNATURE_HEADER_NONCE_KEY_PREFIX;
-import static pers.project.api.common.constant.redis.RedissonNamePrefixConst.*;
+import static pers.project.api.common.enumeration.NonceStockAcquireResultEnum.DUPLICATE_NONCE;
+import static pers.project.api.common.enumeration.NonceStockAcquireResultEnum.STOCK_SHORTAGE;
 import static pers.project.api.gateway.constant.ExchangeAttributeNameConst.*;
+import static pers.project.api.gateway.enumaration.ProviderAuthorizationPhaseEnum.*;
 import static pers.project.api.gateway.enumaration.SignatureRequestHeaderEnum.*;
-import static pers.project.api.gateway.filter.HttpLogFilter.HTTP_LOG_FILTER_ORDER;
+import static org.springframework.cloud.gateway.filter.NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER;
 
 /**
  * Provider 网关过滤器
+ * <p>
+ * 授权过程是一条完整的 {@link Mono} 管道，远程调用和 Redis 操作都是非阻塞的，不会阻塞 Netty 事件循环。
+ * 授权总耗时和各阶段耗时由 {@link ProviderGatewayMetrics} 记录。
  *
  * @author Luo Fei
  * @date 2023/03/13
@@ -61,14 +68,14 @@ public class ProviderGatewayFilter implements GatewayFilter, Ordered {
     /**
      * 过滤器顺序
      * <p>
-     * 必须在 {@link HttpLogFilter} 打印请求日志之前。
+     * 必须在 {@link AccessLogFilter} 之后，未授权被拒绝的请求也会被访问日志记录。
      */
-    public static final int PROVIDER_GATEWAY_FILTER_ORDER = HTTP_LOG_FILTER_ORDER - 1;
+    public static final int PROVIDER_GATEWAY_FILTER_ORDER = WRITE_RESPONSE_FILTER_ORDER - 2;
 
     /**
      * 时间戳超时时长（单位：毫秒）
      */
-    private static final long TIMESTAMP_TIMEOUT = 60_000L;
+    public static final long TIMESTAMP_TIMEOUT = 60_000L;
 
     /**
      * 配置属性
@@ -84,89 +91,162 @@ public class ProviderGatewayFilter implements GatewayFilter, Ordered {
      * <p>
      * 1. @Lazy 和 @Resource 解决循环依赖问题。
      * <p>
-     * 2. Feign 服务只能异步调用。
+     * 2. 只能使用非阻塞的客户端，不能在过滤器中阻塞等待结果。
      */
     @Lazy
     @Resource
-    private SecurityFeignClient securityFeignClient;
+    private ClientUserInfoCache clientUserInfoCache;
     @Lazy
     @Resource
-    private FacadeFeignClient facadeFeignClient;
+    private QuantityUsageApiInfoCache quantityUsageApiInfoCache;
     @Lazy
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
+    private ReplayProtectionStore replayProtectionStore;
     @Lazy
     @Resource
-    private RedissonClient redissonClient;
+    private QuantityUsageStockLeaseManager stockLeaseManager;
+    @Lazy
+    @Resource
+    private UsageStatisticsAggregator usageStatisticsAggregator;
+    @Lazy
+    @Resource
+    private DistributedRateLimiter rateLimiter;
+    @Lazy
+    @Resource
+    private ApiCircuitBreakerRegistry circuitBreakerRegistry;
+    @Lazy
+    @Resource
+    private ResponseCache responseCache;
+    @Lazy
+    @Resource
+    private RequestCoalescer requestCoalescer;
+    @Lazy
+    @Resource
+    private ProviderGatewayMetrics metrics;
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
-        // 此过滤器在 HttpLogFilter 之后执行，可使用 Ordered 接口改变顺序
-        // Pre 确定请求是否被授权
-        boolean authorized;
-        try {
-            authorized = authorizeRequest(exchange);
-        } catch (Exception e) {
-            String requestId = exchange.getRequest().getId();
-            log.warn("""
-                    授权请求 Provider 异常
-                    请求 ID: {}
-                    异常信息: {}
-                    """, requestId, e.getMessage());
-            authorized = false;
+        // 此过滤器在 AccessLogFilter 之后执行，可使用 Ordered 接口改变顺序
+        // Pre 确定请求是否被授权（defer 使同步抛出的异常也进入 onErrorResume），授权耗时按结果记录
+        return metrics.timeAuthorization(exchange, Mono.defer(() -> authorizeRequest(exchange)))
+                .onErrorResume(e -> {
+                    String requestId = exchange.getRequest().getId();
+                    log.warn("""
+                            授权请求 Provider 异常
+                            请求 ID: {}
+                            异常信息: {}
+                            """, requestId, e.getMessage());
+                    return Mono.just(false);
+                })
+                .defaultIfEmpty(false)
+                .flatMap(authorized -> {
+                    // 未授权请求不再进入其他过滤器
+                    if (!authorized) {
+                        return exchange.getResponse().setComplete();
+                    }
+                    // 命中响应缓存时直接写出缓存的响应
+                    if (exchange.getAttributes().get(RESPONSE_CACHE_HIT) instanceof CachedResponse cachedResponse) {
+                        return writeCachedResponse(exchange, cachedResponse)
+                                .then(Mono.fromRunnable(() -> recordUsageStatistics(exchange)));
+                    }
+                    // Post 根据响应状态确定执行逻辑
+                    return forwardToProvider(exchange, chain)
+                            .then(Mono.fromRunnable(() -> recordUsageStatistics(exchange)));
+                })
+                .doFinally(signalType -> releaseApiCallPermit(exchange, signalType));
+    }
+
+    /**
+     * 写出缓存的响应
+     *
+     * @param exchange       HTTP 请求-响应交互的协定
+     * @param cachedResponse 缓存的响应
+     * @return 写出完成时结束的 {@code Mono}
+     */
+    private static Mono<Void> writeCachedResponse(ServerWebExchange exchange, CachedResponse cachedResponse) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatusCode.valueOf(cachedResponse.statusCode()));
+        HttpHeaders responseHeaders = response.getHeaders();
+        if (cachedResponse.contentType() != null) {
+            responseHeaders.set(HttpHeaders.CONTENT_TYPE, cachedResponse.contentType());
         }
-        // 未授权请求不再进入其他过滤器
-        if (!authorized) {
-            return exchange.getResponse().setComplete();
+        responseHeaders.setContentLength(cachedResponse.body().length);
+        responseHeaders.set(ResponseCache.CACHE_STATUS_HEADER_NAME, "HIT");
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(cachedResponse.body())));
+    }
+
+    /**
+     * 转发请求到 Provider
+     * <p>
+     * 开启合并的接口中，相同的进行中的请求共享一次转发。
+     *
+     * @param exchange HTTP 请求-响应交互的协定
+     * @param chain    网关过滤器链
+     * @return 响应写出完成时结束的 {@code Mono}
+     */
+    private Mono<Void> forwardToProvider(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Function<ServerWebExchange, Mono<Void>> forwardFunction =
+                forwardExchange -> chain.filter(decorateResponseCacheRecorder(forwardExchange));
+        if (exchange.getAttributes().get(REQUEST_COALESCING_KEY) instanceof String coalescingKey) {
+            return requestCoalescer.forward(exchange, coalescingKey, forwardFunction);
         }
-        return chain.filter(exchange).then(Mono.fromRunnable(() -> {
-            // Post 根据响应状态确定执行逻辑
-            Map<String, Object> attributes = exchange.getAttributes();
-            // instanceof 可以同时判空，理论上一定会进入 if
-            if ((attributes.get(USER_QUANTITY_USAGE_ID) instanceof String usageId)
-                    && (attributes.get(API_DIGEST_ID) instanceof String digestId)) {
-                RTransaction transaction = redissonClient.createTransaction(TransactionOptions.defaults());
-                try {
-                    addStatisticalSemaphorePermit(exchange, usageId, digestId);
-                    // 提交事务
-                    transaction.commit();
-                } catch (Exception e) {
-                    // 回滚事务
-                    transaction.rollback();
-                    log.error("""
-                            Failed to add statistical semaphore permit, usageId: {}, digestId: {}, \
-                            exception message: {}
-                            """, usageId, digestId, e.getMessage());
-                }
-            }
-        }));
+        return forwardFunction.apply(exchange);
+    }
+
+    /**
+     * 可缓存的请求在写出 Provider 响应时记录响应
+     *
+     * @param exchange HTTP 请求-响应交互的协定
+     * @return 用于转发的 HTTP 请求-响应交互的协定
+     */
+    private ServerWebExchange decorateResponseCacheRecorder(ServerWebExchange exchange) {
+        if (!(exchange.getAttributes().get(RESPONSE_CACHE_KEY) instanceof ResponseCacheKey cacheKey)) {
+            return exchange;
+        }
+        return exchange.mutate().response(responseCache.record(exchange.getResponse(), cacheKey)).build();
     }
 
     /**
-     * 添加统计信号量许可证
+     * 释放接口调用许可
      * <p>
-     * 在 Provider 响应返回后调用。也可以使用 Redis 的 String 结构实现。
+     * Provider 返回 5xx 或转发异常（包括响应超时）时记录为失败，客户端取消时不记录调用结果。
+     *
+     * @param exchange   HTTP 请求-响应交互的协定
+     * @param signalType 请求结束的信号类型
+     */
+    private static void releaseApiCallPermit(ServerWebExchange exchange, SignalType signalType) {
+        if (!(exchange.getAttributes().remove(API_CALL_PERMIT) instanceof ApiCallPermit permit)) {
+            return;
+        }
+        if (signalType == SignalType.CANCEL) {
+            permit.abandon();
+            return;
+        }
+        HttpStatusCode statusCode = exchange.getResponse().getStatusCode();
+        boolean success = (signalType == SignalType.ON_COMPLETE)
+                && (statusCode == null || !statusCode.is5xxServerError());
+        permit.complete(success);
+    }
+
+    /**
+     * 记录接口调用统计量
      * <p>
-     * 这个方法的操作应该是原子的，也就是说，它应该运行在事务中。
+     * 在 Provider 响应返回后调用，只在本地累加，由 {@link UsageStatisticsAggregator} 定时批量写入 Redis。
      *
      * @param exchange HTTP 请求-响应交互的协定
-     * @param usageId  用户接口计数用法主键
-     * @param digestId 接口摘要主键
      */
-    private void addStatisticalSemaphorePermit(ServerWebExchange exchange, String usageId, String digestId) {
-        // 增加接口调用次数统计量和用户接口调用次数统计量
-        String apiTotalSemaphoreName = API_QUANTITY_USAGE_TOTAL_SEMAPHORE_NAME_PREFIX + digestId;
-        redissonClient.getSemaphore(apiTotalSemaphoreName).addPermits(1);
-        String userTotalSemaphoreName = USER_QUANTITY_USAGE_TOTAL_SEMAPHORE_NAME_PREFIX + usageId;
-        redissonClient.getSemaphore(userTotalSemaphoreName).addPermits(1);
-        HttpStatusCode statusCode = exchange.getResponse().getStatusCode();
-        if (statusCode == null || !OK.isSameCodeAs(statusCode)) {
-            // 增加接口失败调用次数统计量和用户接口失败调用次数统计量
-            String apiFailureSemaphoreName = API_QUANTITY_USAGE_FAILURE_SEMAPHORE_NAME_PREFIX + digestId;
-            redissonClient.getSemaphore(apiFailureSemaphoreName).addPermits(1);
-            String userFailureSemaphoreName = USER_QUANTITY_USAGE_FAILURE_SEMAPHORE_NAME_PREFIX + usageId;
-            redissonClient.getSemaphore(userFailureSemaphoreName).addPermits(1);
+    private void recordUsageStatistics(ServerWebExchange exchange) {
+        Map<String, Object> attributes = exchange.getAttributes();
+        // instanceof 可以同时判空，理论上一定不会进入 if
+        if (!(attributes.get(USER_QUANTITY_USAGE_ID) instanceof String usageId)
+                || !(attributes.get(API_DIGEST_ID) instanceof String digestId)) {
+            return;
         }
+        Timer.Sample sample = metrics.startSample();
+        HttpStatusCode statusCode = exchange.getResponse().getStatusCode();
+        boolean success = (statusCode != null) && OK.isSameCodeAs(statusCode);
+        usageStatisticsAggregator.record(digestId, usageId, success);
+        metrics.recordPhase(sample, USAGE_STATISTICS, statusCode);
     }
 
     @Override
@@ -176,105 +256,272 @@ public class ProviderGatewayFilter implements GatewayFilter, Ordered {
 
     /**
      * 授权请求
+     * <p>
+     * 依次执行：请求头检查、时间戳检查、用户信息查询和验签、接口信息查询、限流、响应缓存查询、
+     * 断路器和舱壁检查、随机数检查和调用次数存量扣减。
+     * <p>
+     * 随机数检查和存量扣减由一个 Redis 脚本在一次往返中完成，所以放在最后执行；
+     * 验签失败的请求不会占用随机数。本地重放过滤器认为可能重复的请求会在时间戳检查后提前查询随机数记录。
      *
-     * @return true 如果请求被授权
+     * @return 发出 true 如果请求被授权
      */
     // Suppress warnings for null
     @SuppressWarnings("all")
-    private boolean authorizeRequest(ServerWebExchange exchange) throws ExecutionException, InterruptedException {
+    private Mono<Boolean> authorizeRequest(ServerWebExchange exchange) {
         // 检查请求头是否缺少或重复
         ServerHttpRequest request = exchange.getRequest();
         HttpHeaders headers = request.getHeaders();
         if (hasAbsentOrDuplicateHeaders(headers)) {
-            handleUnauthorizedRequest(exchange, BAD_REQUEST, "Missing or duplicate headers");
-            return false;
+            return handleUnauthorizedRequest(exchange, BAD_REQUEST, "Missing or duplicate headers");
         }
         // 请求时间不能超过 1 分钟
         long timestamp = Long.parseLong(headers.getFirst(TIMESTAMP.getHeaderName()));
         long currentTimestamp = SignatureHeaderUtils.getTimestamp();
         long leftTimeout = TIMESTAMP_TIMEOUT + timestamp - currentTimestamp;
         if (leftTimeout < 0) {
-            handleUnauthorizedRequest(exchange, FORBIDDEN, "Request timeout");
-            return false;
-        }
-        // 请求第一次到 Gateway 会添加一条 时间戳 + 随机数 的 Redis 记录，如果已经有这条记录，则请求失败
-        String nonce = headers.getFirst(NONCE.getHeaderName());
-        String signatureHeaderNonceKey = SIGNATURE_HEADER_NONCE_KEY_PREFIX + timestamp;
-        // 这条记录过期时间为 leftTimestampTimeout 毫秒（此后时间戳检查无法通过，不需要随机数检查）
-        Boolean isAbsent = redisTemplate.opsForValue().setIfAbsent(signatureHeaderNonceKey, nonce,
-                leftTimeout, TimeUnit.MILLISECONDS);
-        if (FALSE.equals(isAbsent)) {
-            handleUnauthorizedRequest(exchange, FORBIDDEN, "Duplicate request");
-            return false;
+            return handleUnauthorizedRequest(exchange, FORBIDDEN, "Request timeout");
         }
-        // 以下简化 CompletableFuture 和 OpenFeign 的超时时间设置，以及 CompletableFuture 的异常处理
-        // 获取请求的用户数据（暂时只获取 secretKey 和 accountId，可根据需求更改）
+        // 本地重放过滤器认为可能重复时，提前检查随机数记录
         String secretId = headers.getFirst(SECRET_ID.getHeaderName());
-        ClientUserInfoQuery clientUserInfoQuery = new ClientUserInfoQuery();
-        clientUserInfoQuery.setSecretId(secretId);
-        CompletableFuture<ClientUserInfoDTO> userInfoFuture = CompletableFuture.supplyAsync(() -> {
-            Result<ClientUserInfoDTO> userInfoResult = securityFeignClient.getClientUserInfoResult(clientUserInfoQuery);
-            if (ResultUtils.isFailure(userInfoResult)) {
-                throw new InsightApiGatewayException("Failed to get ClientUserInfoDTO, secretId: " + secretId);
+        String nonce = headers.getFirst(NONCE.getHeaderName());
+        return metrics.timePhase(REPLAY_CHECK, replayProtectionStore.isReplayed(secretId, nonce, timestamp),
+                isReplayed -> isReplayed ? FORBIDDEN : OK).flatMap(isReplayed -> {
+            if (isReplayed) {
+                return handleUnauthorizedRequest(exchange, FORBIDDEN, "Duplicate request");
+            }
+            return authorizeClientUser(exchange, secretId, Duration.ofMillis(leftTimeout));
+        });
+    }
+
+    /**
+     * 授权客户端用户
+     * <p>
+     * 获取请求的用户数据（优先使用本地缓存）并验证请求签名。
+     *
+     * @param exchange     HTTP 请求-响应交互的协定
+     * @param secretId     密钥 ID
+     * @param nonceTimeout 随机数记录的过期时间
+     * @return 发出 true 如果请求被授权
+     */
+    private Mono<Boolean> authorizeClientUser(ServerWebExchange exchange, String secretId, Duration nonceTimeout) {
+        Mono<ClientUserInfoDTO> clientUserInfoMono = clientUserInfoCache.get(secretId);
+        return metrics.timePhase(CLIENT_USER, clientUserInfoMono, userInfo -> OK).flatMap(clientUserInfoDTO -> {
+            // 验证请求签名是否正确（纯计算，先于接口信息查询执行，避免无效的远程调用）
+            Timer.Sample signatureSample = metrics.startSample();
+            String severCalculatedSign = SignatureHeaderUtils.getSign(clientUserInfoDTO.getSecretKey(), exchange);
+            String clientCalculatedSign = exchange.getRequest().getHeaders().getFirst(SIGN.getHeaderName());
+            boolean signatureMatched = severCalculatedSign.equals(clientCalculatedSign);
+            metrics.recordPhase(signatureSample, SIGNATURE, signatureMatched ? OK : FORBIDDEN);
+            if (!signatureMatched) {
+                if (log.isInfoEnabled()) {
+                    log.info("""
+                             SeverCalculatedSign not equals clientCalculatedSign, sever sign: {}, client sign: {}
+                             """,
+                            severCalculatedSign, clientCalculatedSign);
+                }
+                return handleUnauthorizedRequest(exchange, FORBIDDEN, "Invalid request signature");
             }
-            return userInfoResult.getData();
+            return authorizeApiUsage(exchange, clientUserInfoDTO, nonceTimeout);
         });
-        ClientUserInfoDTO clientUserInfoDTO = userInfoFuture.get();
+    }
+
+    /**
+     * 授权接口用法
+     * <p>
+     * 检查请求的接口是否存在（优先使用本地缓存）和请求频率是否超过限制，
+     * 然后在一次 Redis 往返中检查随机数并扣减用户接口调用次数存量。
+     * <p>
+     * 被限流或被断路器拒绝的请求不占用随机数，也不扣减调用次数存量。
+     *
+     * @param exchange          HTTP 请求-响应交互的协定
+     * @param clientUserInfoDTO Insight API 客户端的用户信息 DTO
+     * @param nonceTimeout      随机数记录的过期时间
+     * @return 发出 true 如果请求被授权
+     */
+    // Suppress warnings for null
+    @SuppressWarnings("all")
+    private Mono<Boolean> authorizeApiUsage(ServerWebExchange exchange, ClientUserInfoDTO clientUserInfoDTO,
+                                            Duration nonceTimeout) {
         // 入参有 accountId 和请求中需要用于验证的参数
-        QuantityUsageApiInfoQuery apiInfoQuery = new QuantityUsageApiInfoQuery();
-        apiInfoQuery.setAccountId(clientUserInfoDTO.getAccountId());
-        apiInfoQuery.setMethod(request.getMethod().name());
+        ServerHttpRequest request = exchange.getRequest();
+        HttpHeaders headers = request.getHeaders();
         String originalUrl = headers.getFirst(ORIGINAL_URL.getHeaderName());
         Assert.notNull(originalUrl, () ->
                 "The originalUrl must be not null, HttpHeaders: " + headers
         );
-        apiInfoQuery.setOriginalUrl(originalUrl);
-        // 请求的接口是否存在（需要返回 usageId 来进行信号量操作）
-        CompletableFuture<QuantityUsageApiInfoDTO> apiInfoFuture = CompletableFuture.supplyAsync(() -> {
-            Result<QuantityUsageApiInfoDTO> apiInfoResult
-                    = facadeFeignClient.getQuantityUsageApiInfoResult(apiInfoQuery);
-            if (ResultUtils.isFailure(apiInfoResult)) {
-                throw new InsightApiGatewayException
-                        ("Failed to get QuantityUsageApiInfoDTO, apiInfoQuery: " + apiInfoQuery);
+        // 请求的接口是否存在（需要返回 usageId 来进行信号量操作，优先使用本地缓存，未找到的结果也会短暂缓存）
+        String accountId = clientUserInfoDTO.getAccountId();
+        String method = request.getMethod().name();
+        Mono<QuantityUsageApiInfoDTO> apiInfoMono = quantityUsageApiInfoCache.get(accountId, method, originalUrl);
+        return metrics.timePhase(API_INFO, apiInfoMono,
+                apiInfo -> QuantityUsageApiInfoCache.isAvailable(apiInfo) ? OK : NOT_FOUND).flatMap(apiInfoDTO -> {
+            if (!QuantityUsageApiInfoCache.isAvailable(apiInfoDTO)) {
+                return handleUnauthorizedRequest(exchange, NOT_FOUND,
+                        "API not found or user quantity usage not available");
             }
-            return apiInfoResult.getData();
+            // 检查请求频率（大部分请求在本地令牌桶中决策），限制和剩余数量通过响应头返回
+            String secretId = headers.getFirst(SECRET_ID.getHeaderName());
+            return metrics.timePhase(RATE_LIMIT, rateLimiter.acquire(secretId, apiInfoDTO),
+                    decision -> decision.allowed() ? OK : TOO_MANY_REQUESTS).flatMap(decision -> {
+                setRateLimitHeaders(exchange, decision);
+                if (!decision.allowed()) {
+                    return handleUnauthorizedRequest(exchange, TOO_MANY_REQUESTS, "Rate limit exceeded");
+                }
+                // 可缓存的请求先查询响应缓存，命中时不访问 Provider，也不经过断路器
+                ResponseCacheKey cacheKey = responseCache.getCacheKey(exchange, apiInfoDTO);
+                if (cacheKey == null) {
+                    return authorizeProviderCall(exchange, accountId, secretId, apiInfoDTO, nonceTimeout);
+                }
+                return metrics.timePhase(RESPONSE_CACHE, responseCache.get(cacheKey), cachedResponse -> OK)
+                        .flatMap(cachedResponse -> authorizeCachedResponse(exchange, accountId, secretId,
+                                apiInfoDTO, nonceTimeout, cachedResponse))
+                        .switchIfEmpty(Mono.defer(() -> {
+                            exchange.getAttributes().put(RESPONSE_CACHE_KEY, cacheKey);
+                            return authorizeProviderCall(exchange, accountId, secretId, apiInfoDTO, nonceTimeout);
+                        }));
+            });
         });
-        // 验证请求签名是否正确
-        String severCalculatedSign = SignatureHeaderUtils.getSign(clientUserInfoDTO.getSecretKey(), exchange);
-        String clientCalculatedSign = headers.getFirst(SIGN.getHeaderName());
-        if (!severCalculatedSign.equals(clientCalculatedSign)) {
-            if (log.isInfoEnabled()) {
-                log.info("""
-                         SeverCalculatedSign not equals clientCalculatedSign, sever sign: {}, client sign: {}
-                         """,
-                        severCalculatedSign, clientCalculatedSign);
-            }
-            handleUnauthorizedRequest(exchange, FORBIDDEN, "Invalid request signature");
-            return false;
+    }
+
+    /**
+     * 授权转发到 Provider 的调用
+     * <p>
+     * 断路器打开或并发调用数达到上限时快速失败，不扣减调用次数存量。
+     *
+     * @param exchange     HTTP 请求-响应交互的协定
+     * @param accountId    账户主键
+     * @param secretId     密钥 ID
+     * @param apiInfoDTO   计数用法接口的信息
+     * @param nonceTimeout 随机数记录的过期时间
+     * @return 发出 true 如果请求被授权
+     */
+    private Mono<Boolean> authorizeProviderCall(ServerWebExchange exchange, String accountId, String secretId,
+                                                QuantityUsageApiInfoDTO apiInfoDTO, Duration nonceTimeout) {
+        Timer.Sample circuitBreakerSample = metrics.startSample();
+        ApiCallPermit permit = circuitBreakerRegistry.tryAcquire(apiInfoDTO.getDigestId());
+        metrics.recordPhase(circuitBreakerSample, CIRCUIT_BREAKER, (permit == null) ? SERVICE_UNAVAILABLE : OK);
+        if (permit == null) {
+            return handleUnauthorizedRequest(exchange, SERVICE_UNAVAILABLE,
+                    "API circuit open or concurrency limit reached");
         }
-        QuantityUsageApiInfoDTO apiInfoDTO = apiInfoFuture.get();
-        if (!hasText(apiInfoDTO.getUsageId())
-                || !hasText(apiInfoDTO.getDigestId())) {
-            handleUnauthorizedRequest(exchange, NOT_FOUND,
-                    "API not found or user quantity usage not available");
-            return false;
+        return acquireQuantityUsage(exchange, accountId, secretId, apiInfoDTO, nonceTimeout)
+                .doOnNext(authorized -> {
+                    if (!authorized) {
+                        return;
+                    }
+                    Map<String, Object> attributes = exchange.getAttributes();
+                    attributes.put(API_CALL_PERMIT, permit);
+                    // 每个请求都已经各自授权和扣减调用次数，相同的请求才可以共享一次转发
+                    String coalescingKey = requestCoalescer.getCoalescingKey(exchange, apiInfoDTO);
+                    if (coalescingKey != null) {
+                        attributes.put(REQUEST_COALESCING_KEY, coalescingKey);
+                    }
+                })
+                // 未授权、异常或取消时许可不会进入属性，直接放弃
+                .doFinally(signalType -> {
+                    if (exchange.getAttributes().get(API_CALL_PERMIT) != permit) {
+                        permit.abandon();
+                    }
+                });
+    }
+
+    /**
+     * 授权使用缓存的响应
+     * <p>
+     * 接口策略为命中扣减时与转发的请求一样扣减调用次数存量，否则只写入随机数记录。
+     *
+     * @param exchange       HTTP 请求-响应交互的协定
+     * @param accountId      账户主键
+     * @param secretId       密钥 ID
+     * @param apiInfoDTO     计数用法接口的信息
+     * @param nonceTimeout   随机数记录的过期时间
+     * @param cachedResponse 缓存的响应
+     * @return 发出 true 如果请求被授权
+     */
+    // Suppress warnings for null
+    @SuppressWarnings("all")
+    private Mono<Boolean> authorizeCachedResponse(ServerWebExchange exchange, String accountId, String secretId,
+                                                  QuantityUsageApiInfoDTO apiInfoDTO, Duration nonceTimeout,
+                                                  CachedResponse cachedResponse) {
+        Mono<Boolean> authorizedMono;
+        Integer cacheHitCharged = apiInfoDTO.getCacheHitCharged();
+        if (cacheHitCharged == null || cacheHitCharged != 0) {
+            authorizedMono = acquireQuantityUsage(exchange, accountId, secretId, apiInfoDTO, nonceTimeout);
+        } else {
+            HttpHeaders headers = exchange.getRequest().getHeaders();
+            String nonce = headers.getFirst(NONCE.getHeaderName());
+            long timestamp = Long.parseLong(headers.getFirst(TIMESTAMP.getHeaderName()));
+            Mono<Boolean> claimMono = replayProtectionStore.claim(secretId, nonce, timestamp, nonceTimeout);
+            authorizedMono = metrics.timePhase(QUANTITY_USAGE, claimMono, claimed -> claimed ? OK : FORBIDDEN)
+                    .flatMap(claimed -> claimed ? Mono.just(true)
+                            : handleUnauthorizedRequest(exchange, FORBIDDEN, "Duplicate request"));
         }
-        String usageId = apiInfoDTO.getUsageId();
-        // 检查是否还有调用次数存量，并执行调用次数
-        String userQuantityUsageStockSemaphoreName = USER_QUANTITY_USAGE_STOCK_SEMAPHORE_NAME_PREFIX + usageId;
-        RSemaphore stockSemaphore = redissonClient.getSemaphore(userQuantityUsageStockSemaphoreName);
-        boolean isAvailable = stockSemaphore.tryAcquire();
-        if (!isAvailable) {
-            handleUnauthorizedRequest(exchange, FORBIDDEN,
-                    "API not found or user quantity usage not available");
-            return false;
+        return authorizedMono.doOnNext(authorized -> {
+            if (authorized) {
+                exchange.getAttributes().put(RESPONSE_CACHE_HIT, cachedResponse);
+            }
+        });
+    }
+
+    /**
+     * 获取调用次数
+     * <p>
+     * 在一次 Redis 往返中检查随机数并扣减用户接口调用次数存量（高频用法优先使用本地租约）。
+     *
+     * @param exchange     HTTP 请求-响应交互的协定
+     * @param accountId    账户主键
+     * @param secretId     密钥 ID
+     * @param apiInfoDTO   计数用法接口的信息
+     * @param nonceTimeout 随机数记录的过期时间
+     * @return 发出 true 如果请求被授权
+     */
+    // Suppress warnings for null
+    @SuppressWarnings("all")
+    private Mono<Boolean> acquireQuantityUsage(ServerWebExchange exchange, String accountId, String secretId,
+                                               QuantityUsageApiInfoDTO apiInfoDTO, Duration nonceTimeout) {
+        HttpHeaders headers = exchange.getRequest().getHeaders();
+        // 请求第一次到 Gateway 会添加一条 密钥 ID + 随机数 的 Redis 记录，如果已经有这条记录，则请求失败
+        // 这条记录过期时间为 nonceTimeout（此后时间戳检查无法通过，不需要随机数检查）
+        String nonce = headers.getFirst(NONCE.getHeaderName());
+        long timestamp = Long.parseLong(headers.getFirst(TIMESTAMP.getHeaderName()));
+        String signatureHeaderNonceKey = ReplayProtectionStore.getNonceKey(secretId, nonce);
+        // 同时检查是否还有调用次数存量，并执行调用次数（高频用法优先使用本地租约）
+        Mono<NonceStockAcquireResultEnum> acquireMono = stockLeaseManager.acquire(signatureHeaderNonceKey, nonce,
+                nonceTimeout, apiInfoDTO.getUsageId());
+        return metrics.timePhase(QUANTITY_USAGE, acquireMono,
+                acquireResult -> (acquireResult == DUPLICATE_NONCE || acquireResult == STOCK_SHORTAGE)
+                        ? FORBIDDEN : OK).flatMap(acquireResult -> {
+            // 随机数记录已经存在于 Redis 中，在本地重放过滤器中记录
+            replayProtectionStore.record(secretId, nonce, timestamp);
+            if (acquireResult == DUPLICATE_NONCE) {
+                return handleUnauthorizedRequest(exchange, FORBIDDEN, "Duplicate request");
+            }
+            if (acquireResult == STOCK_SHORTAGE) {
+                return handleUnauthorizedRequest(exchange, FORBIDDEN,
+                        "API not found or user quantity usage not available");
+            }
+            // 通过 Map<String, Object> attributes = exchange.getAttributes(); 添加属性以供下游使用
+            Map<String, Object> attributes = exchange.getAttributes();
+            attributes.put(CLIENT_ACCOUNT_ID, accountId);
+            attributes.put(USER_QUANTITY_USAGE_ID, apiInfoDTO.getUsageId());
+            attributes.put(API_DIGEST_ID, apiInfoDTO.getDigestId());
+            return Mono.just(true);
+        });
+    }
+
+    /**
+     * 设置限流响应头
+     * <p>
+     * 没有限流规则的请求不设置。
+     */
+    private static void setRateLimitHeaders(ServerWebExchange exchange, RateLimitDecision decision) {
+        if (!decision.isLimited()) {
+            return;
         }
-        // 通过 Map<String, Object> attributes = exchange.getAttributes(); 添加属性以供下游使用
-        Map<String, Object> attributes = exchange.getAttributes();
-        attributes.put(CLIENT_ACCOUNT_ID, clientUserInfoDTO.getAccountId());
-        attributes.put(USER_QUANTITY_USAGE_ID, apiInfoDTO.getUsageId());
-        attributes.put(API_DIGEST_ID, apiInfoDTO.getDigestId());
-        return true;
+        HttpHeaders responseHeaders = exchange.getResponse().getHeaders();
+        responseHeaders.set(DistributedRateLimiter.RATE_LIMIT_LIMIT_HEADER_NAME, String.valueOf(decision.limit()));
+        responseHeaders.set(DistributedRateLimiter.RATE_LIMIT_REMAINING_HEADER_NAME,
+                String.valueOf(decision.remaining()));
     }
 
     /**
@@ -298,14 +545,16 @@ public class ProviderGatewayFilter implements GatewayFilter, Ordered {
      * @param exchange     HTTP 请求-响应交互的协定
      * @param httpStatus   响应状态码
      * @param errorMessage 错误信息
+     * @return 发出 false 的 {@code Mono}
      */
     @SuppressWarnings("all")
-    private static void handleUnauthorizedRequest(ServerWebExchange exchange, HttpStatus httpStatus, String errorMessage) {
+    private static Mono<Boolean> handleUnauthorizedRequest(ServerWebExchange exchange, HttpStatus httpStatus, String errorMessage) {
         if (log.isInfoEnabled()) {
             log.info("UnauthorizedRequestID: {}, errorMessage: {}", exchange.getRequest().getId(), errorMessage);
         }
         // TODO: 2023/7/18 根据错误信息返回响应体
         exchange.getResponse().setStatusCode(httpStatus);
+        return Mono.just(false);
     }
 
 }
@@ -0,0 +1,62 @@
+package pers.project.api.gateway.filter.factory;
+
+import jakarta.annotation.Resource;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.stereotype.Component;
+import pers.project.api.gateway.filter.PreValidationFilter;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 预校验过滤器工厂
+ * <p>
+ * 只给需要验签的路由配置，配置名为 {@code PreValidation}，应当配置在 {@code SpillableCacheRequestBody} 之前。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ * @see PreValidationFilter
+ */
+@Component
+public class PreValidationGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<PreValidationGatewayFilterFactory.Config> {
+
+    /**
+     * 配置类
+     * <p>
+     * Config 类的字段是过滤器在配置文件中的属性，时间窗口等属性在 {@code insight-api.gateway.pre-validation} 中统一配置。
+     * <p>
+     * 注意：如果有多个字段，请按字段名的字典顺序排列。
+     */
+    @Getter
+    @Setter
+    public static class Config {
+    }
+
+    @Resource
+    private PreValidationFilter preValidationFilter;
+
+    public PreValidationGatewayFilterFactory() {
+        super(Config.class);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Arrays.stream(Config.class.getDeclaredFields())
+                .map(Field::getName)
+                .sorted(Comparator.naturalOrder())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return preValidationFilter;
+    }
+
+}
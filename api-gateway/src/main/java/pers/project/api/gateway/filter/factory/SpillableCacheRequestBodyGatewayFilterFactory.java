@@ -0,0 +1,63 @@
+package pers.project.api.gateway.filter.factory;
+
+import jakarta.annotation.Resource;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.stereotype.Component;
+import pers.project.api.gateway.filter.CacheRequestBodyFilter;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 可溢出到临时文件的请求体缓存过滤器工厂
+ * <p>
+ * 只给需要验签的路由配置，配置名为 {@code SpillableCacheRequestBody}。
+ * 与框架自带的 {@code CacheRequestBody} 不同，大请求体不会占用堆内存。
+ *
+ * @author Luo Fei
+ * @date 2023/07/23
+ * @see CacheRequestBodyFilter
+ */
+@Component
+public class SpillableCacheRequestBodyGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<SpillableCacheRequestBodyGatewayFilterFactory.Config> {
+
+    /**
+     * 配置类
+     * <p>
+     * Config 类的字段是过滤器在配置文件中的属性，阈值等属性在 {@code insight-api.gateway.body-cache} 中统一配置。
+     * <p>
+     * 注意：如果有多个字段，请按字段名的字典顺序排列。
+     */
+    @Getter
+    @Setter
+    public static class Config {
+    }
+
+    @Resource
+    private CacheRequestBodyFilter cacheRequestBodyFilter;
+
+    public SpillableCacheRequestBodyGatewayFilterFactory() {
+        super(Config.class);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Arrays.stream(Config.class.getDeclaredFields())
+                .map(Field::getName)
+                .sorted(Comparator.naturalOrder())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return cacheRequestBodyFilter;
+    }
+
+}
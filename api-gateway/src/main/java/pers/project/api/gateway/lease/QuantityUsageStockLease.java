@@ -0,0 +1,159 @@
+package pers.project.api.gateway.lease;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 用户接口计数用法的存量租约
+ * <p>
+ * 保存从 Redis 租借到本地的许可证数量和调用频率，所有操作都是无锁的。
+ * <p>
+ * 租约关闭后不能再存入许可证，存入方会自己把许可证取出并归还，以免许可证丢失。
+ * <p>
+ * 本地许可证数量只用于判断是否需要访问 Redis，实际可用的数量以 Redis 中记录的租借许可证数量为准。
+ *
+ * @author Luo Fei
+ * @date 2023/07/22
+ */
+final class QuantityUsageStockLease {
+
+    /**
+     * 调用频率的统计窗口（单位：纳秒）
+     */
+    private static final long RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1L);
+
+    /**
+     * 本地剩余的许可证数量
+     */
+    private final AtomicLong permits = new AtomicLong();
+
+    /**
+     * 是否正在从 Redis 租借许可证
+     */
+    private final AtomicBoolean refilling = new AtomicBoolean();
+
+    /**
+     * 当前窗口内的调用次数
+     */
+    private final AtomicLong windowCalls = new AtomicLong();
+
+    /**
+     * 当前窗口的开始时间
+     */
+    private final AtomicLong windowStartNanos = new AtomicLong(System.nanoTime());
+
+    /**
+     * 上一个窗口的调用频率（单位：次/秒）
+     */
+    private volatile double callRate;
+
+    /**
+     * 最后一次调用的时间
+     */
+    private volatile long lastAccessNanos = System.nanoTime();
+
+    /**
+     * 是否已关闭
+     */
+    private volatile boolean closed;
+
+    /**
+     * 记录一次调用，并在窗口结束时更新调用频率
+     */
+    void recordCall() {
+        long now = System.nanoTime();
+        lastAccessNanos = now;
+        long calls = windowCalls.incrementAndGet();
+        long windowStart = windowStartNanos.get();
+        long elapsed = now - windowStart;
+        // 只有一个线程能滚动窗口
+        if (elapsed >= RATE_WINDOW_NANOS && windowStartNanos.compareAndSet(windowStart, now)) {
+            callRate = (double) calls * RATE_WINDOW_NANOS / elapsed;
+            windowCalls.addAndGet(-calls);
+        }
+    }
+
+    /**
+     * 尝试获取一个本地许可证
+     *
+     * @return true 如果获取成功
+     */
+    boolean tryAcquire() {
+        long current;
+        do {
+            current = permits.get();
+            if (current <= 0) {
+                return false;
+            }
+        } while (!permits.compareAndSet(current, current - 1));
+        return true;
+    }
+
+    /**
+     * 存入许可证
+     *
+     * @param count 许可证数量
+     * @return 租约已关闭时需要归还给 Redis 的许可证数量，否则为 0
+     */
+    long deposit(long count) {
+        permits.addAndGet(count);
+        // 关闭后存入的许可证不会再被使用，由存入方取出归还
+        return closed ? drain() : 0L;
+    }
+
+    /**
+     * 关闭租约并丢弃本地许可证
+     * <p>
+     * 调用方负责把 Redis 中记录的全部租借许可证归还给存量。
+     */
+    void close() {
+        closed = true;
+        drain();
+    }
+
+    /**
+     * 丢弃所有剩余的许可证
+     * <p>
+     * Redis 中的租借许可证已被归还或回收时调用，本地许可证不再有效。
+     */
+    void discard() {
+        drain();
+    }
+
+    /**
+     * 取出所有剩余的许可证
+     */
+    private long drain() {
+        return permits.getAndSet(0L);
+    }
+
+    /**
+     * 开始租借
+     *
+     * @return true 如果没有其他正在进行的租借
+     */
+    boolean startRefill() {
+        return refilling.compareAndSet(false, true);
+    }
+
+    /**
+     * 结束租借
+     */
+    void finishRefill() {
+        refilling.set(false);
+    }
+
+    long getPermits() {
+        return permits.get();
+    }
+
+    double getCallRate() {
+        return callRate;
+    }
+
+    long getLastAccessNanos() {
+        return lastAccessNanos;
+    }
+
+}
@@ -0,0 +1,261 @@
+package pers.project.api.gateway.lease;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import pers.project.api.common.enumeration.NonceStockAcquireResultEnum;
+import pers.project.api.common.util.RedisUtils;
+import pers.project.api.gateway.config.property.StockLeaseProperties;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static pers.project.api.common.constant.redis.RedisKeyPrefixConst.STOCK_LEASE_HOLDERS_KEY;
+import static pers.project.api.common.constant.redis.RedisKeyPrefixConst.STOCK_LEASE_HOLDER_USAGES_KEY_PREFIX;
+import static pers.project.api.common.constant.redis.RedissonNamePrefixConst.USER_QUANTITY_USAGE_STOCK_SEMAPHORE_NAME_PREFIX;
+import static pers.project.api.common.enumeration.NonceStockAcquireResultEnum.DUPLICATE_NONCE;
+import static pers.project.api.common.enumeration.NonceStockAcquireResultEnum.LEASE_LOST;
+
+/**
+ * 用户接口计数用法的存量租约管理器
+ * <p>
+ * 调用频率达到阈值的用法会从 Redis 的存量信号量中成批租借许可证，之后的调用在本地无锁扣减，
+ * 只需要在 Redis 中检查随机数，避免所有调用都访问同一个存量键。
+ * 租借数量根据调用频率调整，本地许可证不足四分之一时提前异步租借下一批。
+ * <p>
+ * 低频用法和本地许可证耗尽时的调用使用精确的单次扣减方式。
+ * <p>
+ * 空闲超时的租约和 Gateway 关闭时剩余的租约会归还给 Redis。
+ * <p>
+ * 租借出的许可证记录在 Redis 的租借许可证哈希中，本地使用许可证时同时扣减该记录，
+ * Facade 统计存量时会加上这部分许可证。每个 Gateway 定期记录心跳，并回收心跳超时的 Gateway 持有的租约，
+ * 因此 Gateway 异常退出时租借出的许可证不会丢失，最多在心跳超时时长加一个空闲检查间隔后回到存量中；
+ * 在此之前这些许可证（每个用法最多 {@code max-block-size} 个）暂时不能被其他 Gateway 使用。
+ *
+ * @author Luo Fei
+ * @date 2023/07/22
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class QuantityUsageStockLeaseManager {
+
+    /**
+     * 关闭时归还租约的最长等待时长
+     */
+    private static final Duration SHUTDOWN_RETURN_TIMEOUT = Duration.ofSeconds(10L);
+
+    /**
+     * 归还全部租借许可证时的数量参数
+     */
+    private static final long RETURN_ALL = -1L;
+
+    private final StockLeaseProperties properties;
+
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+
+    /**
+     * 当前 Gateway 实例作为租约持有者的 ID
+     */
+    private final String holderId = UUID.randomUUID().toString();
+
+    /**
+     * usageId 到租约的映射，空闲超时后移除
+     */
+    private final Map<String, QuantityUsageStockLease> leaseMap = new ConcurrentHashMap<>();
+
+    /**
+     * 空闲检查任务
+     */
+    private Disposable idleCheckDisposable;
+
+    @PostConstruct
+    public void init() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        // 空闲检查的同时记录心跳并回收其他 Gateway 遗留的租约
+        idleCheckDisposable = Flux.interval(Duration.ZERO, properties.getIdleCheckInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> {
+                    returnIdleLeases();
+                    return RedisUtils.heartbeatStockLeaseHolder(reactiveStringRedisTemplate, holderId)
+                            .then(reclaimExpiredHolderLeases())
+                            .onErrorResume(e -> {
+                                log.warn("Failed to maintain stock lease holders, exception message: {}",
+                                        e.getMessage());
+                                return Mono.empty();
+                            });
+                })
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (idleCheckDisposable != null) {
+            idleCheckDisposable.dispose();
+        }
+        // 归还所有剩余的租约
+        Flux.fromIterable(leaseMap.keySet())
+                .flatMap(usageId -> {
+                    QuantityUsageStockLease lease = leaseMap.remove(usageId);
+                    if (lease == null) {
+                        return Mono.empty();
+                    }
+                    lease.close();
+                    return returnPermits(usageId, RETURN_ALL);
+                })
+                .then()
+                .block(SHUTDOWN_RETURN_TIMEOUT);
+    }
+
+    /**
+     * 检查随机数并获取一个调用次数许可证
+     * <p>
+     * 优先使用本地租约，本地没有许可证时在 Redis 中精确扣减。
+     *
+     * @param nonceKey     随机数键
+     * @param nonce        随机数
+     * @param nonceTimeout 随机数键的过期时间
+     * @param usageId      用户接口计数用法主键
+     * @return 发出随机数检查和存量获取的结果
+     */
+    public Mono<NonceStockAcquireResultEnum> acquire(String nonceKey, String nonce,
+                                                     Duration nonceTimeout, String usageId) {
+        String stockSemaphoreName = USER_QUANTITY_USAGE_STOCK_SEMAPHORE_NAME_PREFIX + usageId;
+        if (!properties.isEnabled()) {
+            return RedisUtils.checkNonceAndAcquireStock(reactiveStringRedisTemplate,
+                    nonceKey, nonce, nonceTimeout, stockSemaphoreName);
+        }
+        QuantityUsageStockLease lease = leaseMap.computeIfAbsent(usageId, key -> new QuantityUsageStockLease());
+        lease.recordCall();
+        boolean acquiredLocally = lease.tryAcquire();
+        refillIfNecessary(usageId, lease);
+        if (!acquiredLocally) {
+            return RedisUtils.checkNonceAndAcquireStock(reactiveStringRedisTemplate,
+                    nonceKey, nonce, nonceTimeout, stockSemaphoreName);
+        }
+        return RedisUtils.checkNonceAndConsumeLeasedStock(reactiveStringRedisTemplate,
+                        nonceKey, nonce, nonceTimeout, usageId, holderId)
+                .flatMap(acquireResult -> {
+                    if (acquireResult == DUPLICATE_NONCE) {
+                        // 重复请求不消耗调用次数，放回本地许可证
+                        returnPermitsAsync(usageId, lease.deposit(1L));
+                    } else if (acquireResult == LEASE_LOST) {
+                        // Redis 中的租借许可证已被回收，本地许可证不再有效，改用精确扣减
+                        lease.discard();
+                        return RedisUtils.checkNonceAndAcquireStock(reactiveStringRedisTemplate,
+                                nonceKey, nonce, nonceTimeout, stockSemaphoreName);
+                    }
+                    return Mono.just(acquireResult);
+                });
+    }
+
+    /**
+     * 调用频率达到阈值且本地许可证不足时，异步租借下一批许可证
+     */
+    private void refillIfNecessary(String usageId, QuantityUsageStockLease lease) {
+        double callRate = lease.getCallRate();
+        if (callRate < properties.getHotRateThreshold()) {
+            return;
+        }
+        long blockSize = getBlockSize(callRate);
+        if (lease.getPermits() > blockSize / 4 || !lease.startRefill()) {
+            return;
+        }
+        RedisUtils.leaseStock(reactiveStringRedisTemplate, usageId, holderId, blockSize)
+                .doFinally(signalType -> lease.finishRefill())
+                .subscribe(leased -> {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Leased stock permits, usageId: {}, blockSize: {}, leased: {}",
+                                usageId, blockSize, leased);
+                    }
+                    returnPermitsAsync(usageId, lease.deposit(leased));
+                }, e -> log.warn("Failed to lease stock permits, usageId: {}, exception message: {}",
+                        usageId, e.getMessage()));
+    }
+
+    /**
+     * 根据调用频率计算租借数量
+     */
+    private long getBlockSize(double callRate) {
+        long coverageMillis = properties.getLeaseCoverage().toMillis();
+        long blockSize = (long) (callRate * coverageMillis / 1000D);
+        return Math.min(Math.max(blockSize, properties.getMinBlockSize()), properties.getMaxBlockSize());
+    }
+
+    /**
+     * 归还空闲超时的租约
+     */
+    private void returnIdleLeases() {
+        long idleTimeoutNanos = properties.getIdleTimeout().toNanos();
+        long now = System.nanoTime();
+        leaseMap.forEach((usageId, lease) -> {
+            if (now - lease.getLastAccessNanos() > idleTimeoutNanos && leaseMap.remove(usageId, lease)) {
+                lease.close();
+                returnPermitsAsync(usageId, RETURN_ALL);
+            }
+        });
+    }
+
+    /**
+     * 回收心跳超时的 Gateway 持有的租约
+     * <p>
+     * 多个 Gateway 可能同时回收同一个持有者，回收脚本保证每个许可证只归还一次。
+     */
+    private Mono<Void> reclaimExpiredHolderLeases() {
+        Duration holderTimeout = properties.getHolderTimeout();
+        // 心跳使用 Redis 的时间，这里只粗略筛选，由回收脚本按 Redis 的时间再次判断
+        double deadline = System.currentTimeMillis() - holderTimeout.toMillis();
+        return reactiveStringRedisTemplate.opsForZSet()
+                .rangeByScore(STOCK_LEASE_HOLDERS_KEY, Range.closed(0D, deadline))
+                .filter(expiredHolderId -> !holderId.equals(expiredHolderId))
+                .concatMap(expiredHolderId -> reactiveStringRedisTemplate.opsForSet()
+                        .members(STOCK_LEASE_HOLDER_USAGES_KEY_PREFIX + expiredHolderId)
+                        .concatMap(usageId -> RedisUtils.reclaimLeasedStock(reactiveStringRedisTemplate,
+                                        usageId, expiredHolderId, holderTimeout)
+                                .doOnNext(reclaimed -> {
+                                    if (reclaimed > 0L) {
+                                        log.info("Reclaimed stock permits, usageId: {}, holderId: {}, count: {}",
+                                                usageId, expiredHolderId, reclaimed);
+                                    }
+                                }))
+                        .then(RedisUtils.removeStockLeaseHolder(reactiveStringRedisTemplate,
+                                expiredHolderId, holderTimeout)))
+                .then();
+    }
+
+    private void returnPermitsAsync(String usageId, long count) {
+        if (count != 0L) {
+            returnPermits(usageId, count).subscribe();
+        }
+    }
+
+    /**
+     * 把租借许可证归还给 Redis 的存量信号量
+     *
+     * @param count 归还的许可证数量，为 {@link #RETURN_ALL} 时归还 Redis 中记录的全部租借许可证
+     */
+    private Mono<Void> returnPermits(String usageId, long count) {
+        if (count == 0L) {
+            return Mono.empty();
+        }
+        return RedisUtils.returnLeasedStock(reactiveStringRedisTemplate, usageId, holderId, count)
+                .onErrorResume(e -> {
+                    log.error("Failed to return stock permits, usageId: {}, count: {}, exception message: {}",
+                            usageId, count, e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+}
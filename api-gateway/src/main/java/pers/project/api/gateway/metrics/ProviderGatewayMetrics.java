@@ -0,0 +1,154 @@
+package pers.project.api.gateway.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import pers.project.api.gateway.enumaration.ProviderAuthorizationPhaseEnum;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Provider 网关过滤器指标
+ * <p>
+ * 授权总耗时通过 {@code gateway.provider.authorization} 计时器暴露（标签 outcome），
+ * 各阶段耗时通过 {@code gateway.provider.authorization.phase} 计时器暴露（标签 phase 和 outcome）。
+ * outcome 为阶段决定的响应状态名称（通过时为 OK），阶段异常时为 ERROR；计时器的计数即为各结果的次数。
+ * <p>
+ * 直方图桶通过 {@code management.metrics.distribution} 配置。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+@Component
+@RequiredArgsConstructor
+public class ProviderGatewayMetrics {
+
+    public static final String AUTHORIZATION_METER_NAME = "gateway.provider.authorization";
+
+    public static final String PHASE_METER_NAME = "gateway.provider.authorization.phase";
+
+    /**
+     * 阶段或授权异常时的 outcome 标签值
+     */
+    public static final String ERROR_OUTCOME = "ERROR";
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * outcome 到授权计时器的映射
+     */
+    private final Map<String, Timer> authorizationTimers = new ConcurrentHashMap<>();
+
+    /**
+     * 阶段到 outcome 到阶段计时器的映射
+     */
+    private final Map<ProviderAuthorizationPhaseEnum, Map<String, Timer>> phaseTimers =
+            new EnumMap<>(ProviderAuthorizationPhaseEnum.class);
+
+    @PostConstruct
+    public void init() {
+        // 初始化后只读，内层映射按需注册计时器
+        for (ProviderAuthorizationPhaseEnum phase : ProviderAuthorizationPhaseEnum.values()) {
+            phaseTimers.put(phase, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * 开始计时
+     *
+     * @return 计时样本
+     */
+    public Timer.Sample startSample() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * 记录授权耗时
+     * <p>
+     * 被授权时 outcome 为 OK，未授权时为响应状态名称，异常时为 ERROR。
+     *
+     * @param exchange      HTTP 请求-响应交互的协定
+     * @param authorization 发出 true 如果请求被授权的 {@code Mono}
+     * @return 发出相同结果的 {@code Mono}
+     */
+    public Mono<Boolean> timeAuthorization(ServerWebExchange exchange, Mono<Boolean> authorization) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = startSample();
+            return authorization
+                    .doOnSuccess(authorized -> {
+                        String outcome = Boolean.TRUE.equals(authorized)
+                                ? HttpStatus.OK.name() : getOutcome(exchange.getResponse().getStatusCode());
+                        sample.stop(getAuthorizationTimer(outcome));
+                    })
+                    .doOnError(e -> sample.stop(getAuthorizationTimer(ERROR_OUTCOME)));
+        });
+    }
+
+    /**
+     * 记录异步阶段的耗时
+     * <p>
+     * 阶段没有发出结果时 outcome 为 OK。
+     *
+     * @param phase           授权阶段
+     * @param source          执行阶段的 {@code Mono}
+     * @param outcomeFunction 根据阶段结果确定 outcome 的函数
+     * @return 发出相同结果的 {@code Mono}
+     */
+    public <T> Mono<T> timePhase(ProviderAuthorizationPhaseEnum phase, Mono<T> source,
+                                 Function<? super T, HttpStatus> outcomeFunction) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = startSample();
+            return source
+                    .doOnSuccess(value -> recordPhase(sample, phase,
+                            (value == null) ? HttpStatus.OK : outcomeFunction.apply(value)))
+                    .doOnError(e -> sample.stop(getPhaseTimer(phase, ERROR_OUTCOME)));
+        });
+    }
+
+    /**
+     * 记录同步阶段的耗时
+     *
+     * @param sample  开始阶段时的计时样本
+     * @param phase   授权阶段
+     * @param outcome 阶段决定的响应状态，通过时为 OK
+     */
+    public void recordPhase(Timer.Sample sample, ProviderAuthorizationPhaseEnum phase, HttpStatusCode outcome) {
+        sample.stop(getPhaseTimer(phase, getOutcome(outcome)));
+    }
+
+    private Timer getAuthorizationTimer(String outcome) {
+        return authorizationTimers.computeIfAbsent(outcome, key -> Timer.builder(AUTHORIZATION_METER_NAME)
+                .tag("outcome", key)
+                .register(meterRegistry));
+    }
+
+    private Timer getPhaseTimer(ProviderAuthorizationPhaseEnum phase, String outcome) {
+        return phaseTimers.get(phase).computeIfAbsent(outcome, key -> Timer.builder(PHASE_METER_NAME)
+                .tag("phase", phase.getTagValue())
+                .tag("outcome", key)
+                .register(meterRegistry));
+    }
+
+    /**
+     * 获取响应状态对应的 outcome 标签值
+     * <p>
+     * 非标准状态码使用数字，取值范围有限，不会产生过多的时间序列。
+     */
+    private static String getOutcome(HttpStatusCode statusCode) {
+        if (statusCode == null) {
+            return HttpStatus.OK.name();
+        }
+        HttpStatus httpStatus = HttpStatus.resolve(statusCode.value());
+        return (httpStatus == null) ? String.valueOf(statusCode.value()) : httpStatus.name();
+    }
+
+}
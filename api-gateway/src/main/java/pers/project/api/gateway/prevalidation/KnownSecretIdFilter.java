@@ -0,0 +1,185 @@
+package pers.project.api.gateway.prevalidation;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.stereotype.Component;
+import pers.project.api.common.model.dto.SecretIdPageDTO;
+import pers.project.api.common.model.query.SecretIdPageQuery;
+import pers.project.api.common.util.ResultUtils;
+import pers.project.api.gateway.client.SecurityInternalReactiveClient;
+import pers.project.api.gateway.config.property.PreValidationProperties;
+import pers.project.api.gateway.exeception.InsightApiGatewayException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static pers.project.api.common.constant.redis.RedissonTopicNameConst.SECRET_ID_CREATION_TOPIC_NAME;
+
+/**
+ * 已知密钥 ID 过滤器
+ * <p>
+ * 本地布隆过滤器记录 Security 中所有的密钥 ID，预校验时不需要任何远程调用就能拒绝未知的密钥 ID。
+ * <p>
+ * 定时从 Security 分页全量同步，构建新的过滤器后整体替换；新生成的密钥 ID 通过 Redis 发布订阅实时加入，
+ * 同步期间收到的密钥 ID 同时加入正在构建的过滤器。第一次同步完成前所有密钥 ID 都视为已知，
+ * 布隆过滤器的误判由后续的用户信息查询兜底。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class KnownSecretIdFilter {
+
+    private final PreValidationProperties properties;
+
+    private final SecurityInternalReactiveClient securityInternalReactiveClient;
+
+    private final RedissonClient redissonClient;
+
+    /**
+     * 生效的过滤器，第一次同步完成前为 null
+     */
+    private volatile SecretIdBloomFilter currentFilter;
+
+    /**
+     * 正在构建的过滤器，不在同步时为 null
+     */
+    private volatile SecretIdBloomFilter buildingFilter;
+
+    /**
+     * 下一次同步构建过滤器时的预期密钥 ID 数量
+     */
+    private volatile long expectedInsertions;
+
+    private volatile long lastSyncNanos;
+
+    private final AtomicBoolean syncing = new AtomicBoolean();
+
+    /**
+     * 同步任务
+     */
+    private Disposable syncDisposable;
+
+    @PostConstruct
+    public void init() {
+        if (!properties.isEnabled() || !properties.isSecretIdFilterEnabled()) {
+            return;
+        }
+        expectedInsertions = properties.getSecretIdExpectedInsertions();
+        // 先订阅再同步，同步期间生成的密钥 ID 不会遗漏
+        redissonClient.getTopic(SECRET_ID_CREATION_TOPIC_NAME, StringCodec.INSTANCE)
+                .addListener(String.class, (channel, secretId) -> add(secretId));
+        Duration retryInterval = properties.getSecretIdRetryInterval();
+        syncDisposable = Flux.interval(Duration.ZERO, retryInterval)
+                .subscribe(tick -> syncIfNecessary());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (syncDisposable != null) {
+            syncDisposable.dispose();
+        }
+    }
+
+    /**
+     * 密钥 ID 是否可能已知
+     *
+     * @param secretId 密钥 ID
+     * @return false 如果密钥 ID 一定不存在
+     */
+    public boolean mightBeKnown(String secretId) {
+        SecretIdBloomFilter filter = currentFilter;
+        return filter == null || filter.mightContain(secretId);
+    }
+
+    /**
+     * 加入新生成的密钥 ID
+     *
+     * @param secretId 密钥 ID
+     */
+    public void add(String secretId) {
+        // 同步完成时先替换生效的过滤器再清空构建中的过滤器，所以要按相反的顺序读取：
+        // 读到构建中的过滤器为 null 时，随后读到的生效的过滤器一定不早于它
+        SecretIdBloomFilter building = buildingFilter;
+        if (building != null) {
+            building.put(secretId);
+        }
+        SecretIdBloomFilter filter = currentFilter;
+        if (filter != null && filter != building) {
+            filter.put(secretId);
+        }
+    }
+
+    /**
+     * 尚未同步或距离上一次同步超过同步间隔时开始同步
+     */
+    private void syncIfNecessary() {
+        boolean synced = currentFilter != null
+                && System.nanoTime() - lastSyncNanos < properties.getSecretIdSyncInterval().toNanos();
+        if (synced || !syncing.compareAndSet(false, true)) {
+            return;
+        }
+        SecretIdBloomFilter filter = SecretIdBloomFilter.create(expectedInsertions,
+                properties.getSecretIdFalsePositiveProbability());
+        buildingFilter = filter;
+        AtomicLong count = new AtomicLong();
+        getSecretIdPage(null)
+                .expand(pageDTO -> (pageDTO.getLastAccountId() == null)
+                        ? Mono.empty() : getSecretIdPage(pageDTO.getLastAccountId()))
+                .doOnNext(pageDTO -> {
+                    List<String> secretIds = pageDTO.getSecretIds();
+                    secretIds.forEach(filter::put);
+                    count.addAndGet(secretIds.size());
+                })
+                .then()
+                // 替换生效的过滤器之后才停止向构建中的过滤器加入
+                .doFinally(signalType -> {
+                    buildingFilter = null;
+                    syncing.set(false);
+                })
+                .subscribe(null, e -> log.warn("Failed to sync known secret ids, exception message: {}",
+                        e.getMessage()), () -> {
+                    currentFilter = filter;
+                    lastSyncNanos = System.nanoTime();
+                    long secretIdCount = count.get();
+                    if (secretIdCount > expectedInsertions / 2) {
+                        expectedInsertions = secretIdCount * 2;
+                    }
+                    if (log.isDebugEnabled()) {
+                        log.debug("Synced known secret ids, count: {}", secretIdCount);
+                    }
+                });
+    }
+
+    /**
+     * 获取一页密钥 ID
+     *
+     * @param lastAccountId 上一页最后一个用户帐户主键，第一页为 null
+     * @return 发出密钥 ID 分页 DTO，查询失败时发出 {@link InsightApiGatewayException}
+     */
+    private Mono<SecretIdPageDTO> getSecretIdPage(String lastAccountId) {
+        SecretIdPageQuery pageQuery = new SecretIdPageQuery();
+        pageQuery.setLastAccountId(lastAccountId);
+        pageQuery.setSize(properties.getSecretIdPageSize());
+        return securityInternalReactiveClient.getSecretIdPageResult(properties.getSecretIdSyncToken(), pageQuery)
+                .map(pageResult -> {
+                    if (ResultUtils.isFailure(pageResult) || pageResult.getData() == null) {
+                        throw new InsightApiGatewayException("Failed to get SecretIdPageDTO, lastAccountId: "
+                                + lastAccountId);
+                    }
+                    return pageResult.getData();
+                });
+    }
+
+}
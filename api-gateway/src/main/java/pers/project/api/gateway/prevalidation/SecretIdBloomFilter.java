@@ -0,0 +1,114 @@
+package pers.project.api.gateway.prevalidation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 密钥 ID 布隆过滤器
+ * <p>
+ * 容量在创建时确定，所有操作都是无锁的，可以在同步时并发写入和查询。
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+final class SecretIdBloomFilter {
+
+    private final AtomicLongArray words;
+
+    private final long bits;
+
+    private final int hashFunctions;
+
+    private SecretIdBloomFilter(long bits, int hashFunctions) {
+        this.words = new AtomicLongArray(Math.toIntExact(bits >>> 6));
+        this.bits = bits;
+        this.hashFunctions = hashFunctions;
+    }
+
+    /**
+     * 按预期元素数量和误判率创建过滤器
+     *
+     * @param expectedInsertions       预期元素数量
+     * @param falsePositiveProbability 误判率
+     * @return 布隆过滤器
+     */
+    static SecretIdBloomFilter create(long expectedInsertions, double falsePositiveProbability) {
+        long insertions = Math.max(expectedInsertions, 1L);
+        double ln2 = Math.log(2.0);
+        long bits = (long) Math.ceil(-insertions * Math.log(falsePositiveProbability) / (ln2 * ln2));
+        bits = Math.max(((bits + 63L) >>> 6) << 6, 64L);
+        int hashFunctions = Math.max((int) Math.round((double) bits / insertions * ln2), 1);
+        return new SecretIdBloomFilter(bits, hashFunctions);
+    }
+
+    /**
+     * 密钥 ID 是否可能已经加入
+     *
+     * @param secretId 密钥 ID
+     * @return false 如果一定没有加入过该密钥 ID
+     */
+    boolean mightContain(String secretId) {
+        long hash1 = hash(secretId);
+        long hash2 = mix(hash1);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bitIndex = bitIndex(hash1, hash2, i);
+            if ((words.get((int) (bitIndex >>> 6)) & (1L << bitIndex)) == 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 加入密钥 ID
+     *
+     * @param secretId 密钥 ID
+     */
+    void put(String secretId) {
+        long hash1 = hash(secretId);
+        long hash2 = mix(hash1);
+        for (int i = 0; i < hashFunctions; i++) {
+            set(bitIndex(hash1, hash2, i));
+        }
+    }
+
+    private void set(long bitIndex) {
+        long mask = 1L << bitIndex;
+        int wordIndex = (int) (bitIndex >>> 6);
+        long word;
+        do {
+            word = words.get(wordIndex);
+            if ((word & mask) != 0L) {
+                return;
+            }
+        } while (!words.compareAndSet(wordIndex, word, word | mask));
+    }
+
+    private long bitIndex(long hash1, long hash2, int i) {
+        return Math.floorMod(hash1 + i * hash2, bits);
+    }
+
+    /**
+     * FNV-1a 64 位哈希
+     * <p>
+     * 密钥 ID 是 Base64 字符串，直接按字符计算，不需要编码为字节数组。
+     */
+    private static long hash(String secretId) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < secretId.length(); i++) {
+            hash ^= secretId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * SplitMix64 混合，作为双重哈希的第二个哈希值
+     */
+    private static long mix(long hash) {
+        long z = hash + 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return (z ^ (z >>> 31)) | 1L;
+    }
+
+}
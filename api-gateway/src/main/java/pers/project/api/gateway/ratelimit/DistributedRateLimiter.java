@@ -0,0 +1,293 @@
+package pers.project.api.gateway.ratelimit;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import pers.project.api.common.model.dto.QuantityUsageApiInfoDTO;
+import pers.project.api.common.util.RedisUtils;
+import pers.project.api.gateway.config.property.RateLimitProperties;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static pers.project.api.common.constant.redis.RedisKeyPrefixConst.RATE_LIMIT_BUDGET_KEY_PREFIX;
+
+/**
+ * 分布式限流器
+ * <p>
+ * 限流规则有三种，可以同时生效：
+ * <ul>
+ * <li>密钥 ID：限制一个用户对所有接口的请求频率，由配置属性指定；</li>
+ * <li>接口摘要 ID：限制所有用户对一个接口的请求频率，保存在 {@code api_digest.rate_limit}；</li>
+ * <li>密钥 ID + 接口摘要 ID：限制一个用户对一个接口的请求频率，保存在 {@code user_quantity_usage.rate_limit}。</li>
+ * </ul>
+ * 每条规则的每秒预算保存在 Redis 中，各个 Gateway 成批取出令牌放入本地令牌桶，大部分请求在本地决策，不需要访问 Redis。
+ * 最近有请求的令牌桶由定时任务在本地令牌不足时补充，本地令牌用完时才同步访问 Redis。
+ * 同一个令牌桶同时只有一个请求访问 Redis，其他请求等待它的结果；Redis 预算用完后，本窗口内的请求在本地直接拒绝，
+ * 过载时每个窗口每条规则只访问 Redis 有限次。
+ * <p>
+ * 所有 Gateway 在一个窗口内发放的令牌总数不会超过限制，但一个 Gateway 取出后未用完的令牌在窗口结束时作废，
+ * 所以实际通过的请求数可能略少于限制。Redis 不可用时放行请求，调用次数存量仍然由 Redis 保证。
+ *
+ * @author Luo Fei
+ * @date 2023/07/24
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DistributedRateLimiter {
+
+    /**
+     * 限制的请求数
+     */
+    public static final String RATE_LIMIT_LIMIT_HEADER_NAME = "X-RateLimit-Limit";
+
+    /**
+     * 当前窗口的剩余请求数
+     */
+    public static final String RATE_LIMIT_REMAINING_HEADER_NAME = "X-RateLimit-Remaining";
+
+    /**
+     * 预算键的过期时间，多保留一个窗口以容忍 Gateway 之间的时钟偏差
+     */
+    private static final Duration BUDGET_KEY_TIMEOUT = Duration.ofSeconds(2L);
+
+    private final RateLimitProperties properties;
+
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+
+    /**
+     * 限流键到令牌桶的映射，空闲超时后移除
+     */
+    private final Map<String, RateLimitBucket> bucketMap = new ConcurrentHashMap<>();
+
+    /**
+     * 同步任务
+     */
+    private Disposable syncDisposable;
+
+    @PostConstruct
+    public void init() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Duration syncInterval = properties.getSyncInterval();
+        syncDisposable = Flux.interval(syncInterval, syncInterval)
+                .subscribe(tick -> syncBuckets());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (syncDisposable != null) {
+            syncDisposable.dispose();
+        }
+    }
+
+    /**
+     * 获取一个请求许可
+     * <p>
+     * 依次检查所有生效的限流规则，任意一条规则拒绝时放回已经取得的本地令牌。
+     *
+     * @param secretId   密钥 ID
+     * @param apiInfoDTO 计数用法接口的信息
+     * @return 发出限流决策
+     */
+    public Mono<RateLimitDecision> acquire(String secretId, QuantityUsageApiInfoDTO apiInfoDTO) {
+        if (!properties.isEnabled()) {
+            return Mono.just(RateLimitDecision.UNLIMITED);
+        }
+        List<Rule> rules = getRules(secretId, apiInfoDTO);
+        if (rules.isEmpty()) {
+            return Mono.just(RateLimitDecision.UNLIMITED);
+        }
+        long window = currentWindow();
+        return acquireAll(rules, 0, window).map(allowed -> decide(rules, window, allowed));
+    }
+
+    /**
+     * 获取请求生效的限流规则
+     */
+    private List<Rule> getRules(String secretId, QuantityUsageApiInfoDTO apiInfoDTO) {
+        List<Rule> rules = new ArrayList<>(3);
+        long secretIdLimit = properties.getSecretIdLimit();
+        if (secretIdLimit > 0L) {
+            rules.add(getRule("secret_id:" + secretId, secretIdLimit));
+        }
+        Integer apiRateLimit = apiInfoDTO.getApiRateLimit();
+        if (apiRateLimit != null && apiRateLimit > 0) {
+            rules.add(getRule("digest_id:" + apiInfoDTO.getDigestId(), apiRateLimit));
+        }
+        Integer usageRateLimit = apiInfoDTO.getUsageRateLimit();
+        if (usageRateLimit != null && usageRateLimit > 0) {
+            rules.add(getRule("secret_id_digest_id:" + secretId + ":" + apiInfoDTO.getDigestId(), usageRateLimit));
+        }
+        return rules;
+    }
+
+    private Rule getRule(String key, long limit) {
+        RateLimitBucket bucket = bucketMap.computeIfAbsent(key, k -> new RateLimitBucket(limit));
+        if (bucket.getLimit() != limit) {
+            bucket.setLimit(limit);
+        }
+        return new Rule(key, bucket);
+    }
+
+    /**
+     * 依次在每条规则中获取一个令牌
+     *
+     * @return 发出 true 如果所有规则都允许请求
+     */
+    private Mono<Boolean> acquireAll(List<Rule> rules, int index, long window) {
+        if (index == rules.size()) {
+            return Mono.just(true);
+        }
+        Rule rule = rules.get(index);
+        RateLimitBucket bucket = rule.bucket();
+        if (bucket.tryAcquire(window)) {
+            // 本地令牌不足时提前异步补充
+            if (bucket.getTokens(window) <= getChunkSize(bucket) / 2 && !bucket.isExhausted(window)) {
+                syncBudget(rule, window);
+            }
+            return acquireAll(rules, index + 1, window);
+        }
+        // 本窗口的预算已经用完，不再访问 Redis
+        if (bucket.isExhausted(window)) {
+            return reject(rules, index, window);
+        }
+        // 本地令牌用完时同步访问 Redis，或者等待正在进行的同步
+        return syncBudget(rule, window).flatMap(available -> {
+            if (!available || bucket.tryAcquire(window)) {
+                return acquireAll(rules, index + 1, window);
+            }
+            return reject(rules, index, window);
+        });
+    }
+
+    /**
+     * 拒绝请求，放回前面的规则中已经取得的本地令牌
+     */
+    private static Mono<Boolean> reject(List<Rule> rules, int index, long window) {
+        for (int i = 0; i < index; i++) {
+            rules.get(i).bucket().release(window);
+        }
+        return Mono.just(false);
+    }
+
+    /**
+     * 为令牌桶从 Redis 预算中取出一批令牌，已有正在进行的同步时共享它的结果
+     * <p>
+     * 同步独立于调用方订阅执行，发起同步的请求被取消时，等待的请求仍然能得到结果。
+     *
+     * @return 发出 false 如果 Redis 不可用
+     */
+    private Mono<Boolean> syncBudget(Rule rule, long window) {
+        RateLimitBucket bucket = rule.bucket();
+        Sinks.One<Boolean> sink = Sinks.one();
+        Mono<Boolean> sync = sink.asMono();
+        Mono<Boolean> inFlightSync = bucket.startSync(sync);
+        if (inFlightSync != null) {
+            return inFlightSync;
+        }
+        acquireBudget(rule, window).subscribe(available -> {
+            // 先结束同步再发出结果，之后的请求不会再等待已经结束的同步
+            bucket.finishSync(sync);
+            sink.tryEmitValue(available);
+        });
+        return sync;
+    }
+
+    /**
+     * 从 Redis 预算中取出一批令牌存入本地令牌桶
+     *
+     * @return 发出 false 如果 Redis 不可用
+     */
+    private Mono<Boolean> acquireBudget(Rule rule, long window) {
+        RateLimitBucket bucket = rule.bucket();
+        String budgetKey = RATE_LIMIT_BUDGET_KEY_PREFIX + rule.key() + ":" + window;
+        return RedisUtils.acquireRateLimitBudget(reactiveStringRedisTemplate, budgetKey,
+                        bucket.getLimit(), getChunkSize(bucket), BUDGET_KEY_TIMEOUT)
+                .map(result -> {
+                    bucket.deposit(window, result[0], result[1]);
+                    return true;
+                })
+                .onErrorResume(e -> {
+                    log.warn("Failed to acquire rate limit budget, key: {}, exception message: {}",
+                            rule.key(), e.getMessage());
+                    return Mono.just(false);
+                });
+    }
+
+    /**
+     * 根据所有规则的剩余数量生成决策
+     */
+    private RateLimitDecision decide(List<Rule> rules, long window, boolean allowed) {
+        RateLimitBucket tightest = null;
+        long minRemaining = Long.MAX_VALUE;
+        for (Rule rule : rules) {
+            long remaining = rule.bucket().getRemaining(window);
+            if (remaining < minRemaining) {
+                minRemaining = remaining;
+                tightest = rule.bucket();
+            }
+        }
+        return new RateLimitDecision(allowed, tightest.getLimit(), allowed ? minRemaining : 0L);
+    }
+
+    /**
+     * 补充最近有请求的令牌桶，移除空闲超时的令牌桶
+     */
+    private void syncBuckets() {
+        long now = System.nanoTime();
+        long activeNanos = properties.getSyncInterval().toNanos();
+        long idleTimeoutNanos = properties.getIdleTimeout().toNanos();
+        long window = currentWindow();
+        bucketMap.forEach((key, bucket) -> {
+            long idleNanos = now - bucket.getLastAccessNanos();
+            if (idleNanos > idleTimeoutNanos) {
+                bucketMap.remove(key, bucket);
+                return;
+            }
+            if (idleNanos > activeNanos || bucket.getTokens(window) > getChunkSize(bucket) / 2
+                    || bucket.isExhausted(window)) {
+                return;
+            }
+            syncBudget(new Rule(key, bucket), window);
+        });
+    }
+
+    /**
+     * 一次从 Redis 预算中取出的令牌数量
+     */
+    private long getChunkSize(RateLimitBucket bucket) {
+        long limit = bucket.getLimit();
+        long chunkSize = (long) Math.ceil(limit * properties.getBudgetChunkRatio());
+        return Math.min(Math.max(chunkSize, 1L), limit);
+    }
+
+    /**
+     * 当前窗口（纪元秒）
+     */
+    private static long currentWindow() {
+        return System.currentTimeMillis() / 1000L;
+    }
+
+    /**
+     * 限流规则
+     *
+     * @param key    限流键
+     * @param bucket 本地令牌桶
+     */
+    private record Rule(String key, RateLimitBucket bucket) {
+    }
+
+}
@@ -0,0 +1,203 @@
+package pers.project.api.gateway.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 本地令牌桶
+ * <p>
+ * 保存当前窗口从 Redis 预算中取到本地的令牌，所有操作都是无锁的。
+ * <p>
+ * 窗口编号和令牌数量打包在一个 {@code long} 中（高 32 位为窗口，低 32 位为令牌数量），
+ * 窗口切换时上一个窗口剩余的令牌自动作废，不需要归还。
+ * <p>
+ * Redis 预算用完后记录已耗尽的窗口，该窗口内的请求在本地直接拒绝，直到窗口切换。
+ *
+ * @author Luo Fei
+ * @date 2023/07/24
+ */
+final class RateLimitBucket {
+
+    private static final long TOKENS_MASK = 0xFFFF_FFFFL;
+
+    /**
+     * 窗口编号和本地令牌数量
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * 窗口编号和最近一次同步时窗口内已发放的令牌总数
+     */
+    private final AtomicLong syncedState = new AtomicLong();
+
+    /**
+     * 正在进行的从 Redis 获取预算的任务，没有时为 null
+     */
+    private final AtomicReference<Mono<Boolean>> inFlightSync = new AtomicReference<>();
+
+    /**
+     * Redis 预算已经用完的最新窗口
+     */
+    private volatile long exhaustedWindow = -1L;
+
+    /**
+     * 窗口内的令牌数量限制
+     */
+    private volatile long limit;
+
+    /**
+     * 最后一次调用的时间
+     */
+    private volatile long lastAccessNanos = System.nanoTime();
+
+    RateLimitBucket(long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * 尝试获取一个本地令牌
+     *
+     * @param window 当前窗口
+     * @return true 如果获取成功
+     */
+    boolean tryAcquire(long window) {
+        lastAccessNanos = System.nanoTime();
+        long current;
+        do {
+            current = state.get();
+            if (unpackWindow(current) != window || unpackTokens(current) <= 0L) {
+                return false;
+            }
+        } while (!state.compareAndSet(current, current - 1L));
+        return true;
+    }
+
+    /**
+     * 放回一个本地令牌（请求被其他限流规则拒绝时使用）
+     *
+     * @param window 令牌所属的窗口
+     */
+    void release(long window) {
+        long current;
+        do {
+            current = state.get();
+            if (unpackWindow(current) != window) {
+                return;
+            }
+        } while (!state.compareAndSet(current, current + 1L));
+    }
+
+    /**
+     * 存入从 Redis 预算中取到的令牌
+     *
+     * @param window 令牌所属的窗口
+     * @param count  令牌数量
+     * @param used   窗口内已发放的令牌总数
+     */
+    void deposit(long window, long count, long used) {
+        if (count <= 0L && window > exhaustedWindow) {
+            exhaustedWindow = window;
+        }
+        long current;
+        long next;
+        do {
+            current = state.get();
+            long currentWindow = unpackWindow(current);
+            if (currentWindow == window) {
+                next = current + count;
+            } else if (currentWindow < window) {
+                next = pack(window, count);
+            } else {
+                // 已经过期的窗口的令牌直接作废
+                return;
+            }
+        } while (!state.compareAndSet(current, next));
+        long synced;
+        do {
+            synced = syncedState.get();
+            if (unpackWindow(synced) > window || (unpackWindow(synced) == window && unpackTokens(synced) >= used)) {
+                return;
+            }
+        } while (!syncedState.compareAndSet(synced, pack(window, used)));
+    }
+
+    /**
+     * 当前窗口的 Redis 预算是否已经用完
+     *
+     * @param window 当前窗口
+     * @return true 如果本窗口不能再获取到令牌
+     */
+    boolean isExhausted(long window) {
+        return exhaustedWindow == window;
+    }
+
+    /**
+     * 获取当前窗口的本地令牌数量
+     */
+    long getTokens(long window) {
+        long current = state.get();
+        return (unpackWindow(current) == window) ? unpackTokens(current) : 0L;
+    }
+
+    /**
+     * 估算当前窗口在所有 Gateway 中的剩余令牌数量
+     * <p>
+     * 即本地未使用的令牌加上最近一次同步时 Redis 中尚未发放的预算。
+     */
+    long getRemaining(long window) {
+        long synced = syncedState.get();
+        long used = (unpackWindow(synced) == window) ? unpackTokens(synced) : 0L;
+        return getTokens(window) + Math.max(limit - used, 0L);
+    }
+
+    /**
+     * 开始同步
+     *
+     * @param sync 发出同步结果的 {@code Mono}，可以被多次订阅
+     * @return 其他正在进行的同步，没有时返回 null，由调用方执行 {@code sync} 对应的同步
+     */
+    Mono<Boolean> startSync(Mono<Boolean> sync) {
+        return inFlightSync.compareAndExchange(null, sync);
+    }
+
+    /**
+     * 结束同步
+     *
+     * @param sync 开始同步时传入的 {@code Mono}
+     */
+    void finishSync(Mono<Boolean> sync) {
+        inFlightSync.compareAndSet(sync, null);
+    }
+
+    long getLimit() {
+        return limit;
+    }
+
+    /**
+     * 更新限制（接口信息缓存刷新后限制可能变化）
+     */
+    void setLimit(long limit) {
+        this.limit = limit;
+        // 限制调大后当前窗口可能还有预算
+        exhaustedWindow = -1L;
+    }
+
+    long getLastAccessNanos() {
+        return lastAccessNanos;
+    }
+
+    private static long pack(long window, long tokens) {
+        return (window << 32) | (tokens & TOKENS_MASK);
+    }
+
+    private static long unpackWindow(long packed) {
+        return packed >>> 32;
+    }
+
+    private static long unpackTokens(long packed) {
+        return packed & TOKENS_MASK;
+    }
+
+}
@@ -0,0 +1,30 @@
+package pers.project.api.gateway.ratelimit;
+
+/**
+ * 限流决策
+ * <p>
+ * 一个请求同时受多条限流规则约束时，限制和剩余数量取剩余数量最少的规则。
+ *
+ * @param allowed   是否允许请求
+ * @param limit     每秒请求数限制，0 表示没有限流规则
+ * @param remaining 当前窗口的剩余请求数（估算值）
+ * @author Luo Fei
+ * @date 2023/07/24
+ */
+public record RateLimitDecision(boolean allowed, long limit, long remaining) {
+
+    /**
+     * 没有任何限流规则的决策
+     */
+    public static final RateLimitDecision UNLIMITED = new RateLimitDecision(true, 0L, 0L);
+
+    /**
+     * 是否有限流规则
+     *
+     * @return true 如果请求受限流规则约束
+     */
+    public boolean isLimited() {
+        return limit > 0L;
+    }
+
+}
@@ -0,0 +1,108 @@
+package pers.project.api.gateway.replay;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import pers.project.api.gateway.config.property.ReplayProtectionProperties;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static java.lang.Boolean.TRUE;
+import static pers.project.api.common.constant.redis.RedisKeyPrefixConst.SIGNATURE_HEADER_NONCE_KEY_PREFIX;
+
+/**
+ * 重放保护存储
+ * <p>
+ * 以 secretId + nonce 作为随机数记录的键，不同客户端在同一毫秒签名的请求不会互相冲突。
+ * <p>
+ * Redis 中的随机数记录是多个 Gateway 实例之间的权威记录，由授权最后一步的脚本原子地写入。
+ * 本地的按秒分桶布隆过滤器位于 Redis 之前：只有本地过滤器认为可能重复的请求才会提前查询 Redis，
+ * 重放的请求在查询用户信息、验签和查询接口信息之前就会被拒绝；本地一定没见过的请求跳过提前查询，
+ * 由最后的原子写入保证跨实例的正确性。
+ *
+ * @author Luo Fei
+ * @date 2023/07/22
+ */
+@Component
+@RequiredArgsConstructor
+public class ReplayProtectionStore {
+
+    private final ReplayProtectionProperties properties;
+
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+
+    private TimeBucketedBloomFilter bloomFilter;
+
+    @PostConstruct
+    public void init() {
+        bloomFilter = new TimeBucketedBloomFilter(properties.getBucketCount(),
+                properties.getBucketBits(), properties.getHashFunctions());
+    }
+
+    /**
+     * 获取随机数记录的 Redis 键
+     *
+     * @param secretId 密钥 ID
+     * @param nonce    随机数
+     * @return 随机数记录的 Redis 键
+     */
+    public static String getNonceKey(String secretId, String nonce) {
+        return SIGNATURE_HEADER_NONCE_KEY_PREFIX + secretId + ":" + nonce;
+    }
+
+    /**
+     * 请求是否是重放的请求
+     * <p>
+     * 本地过滤器认为可能重复时才查询 Redis，否则直接发出 false。
+     *
+     * @param secretId  密钥 ID
+     * @param nonce     随机数
+     * @param timestamp 请求的时间戳（单位：毫秒）
+     * @return 发出 true 如果 Redis 中已有该随机数记录
+     */
+    public Mono<Boolean> isReplayed(String secretId, String nonce, long timestamp) {
+        String nonceKey = getNonceKey(secretId, nonce);
+        if (!bloomFilter.mightContain(toEpochSecond(timestamp), nonceKey)) {
+            return Mono.just(false);
+        }
+        return reactiveStringRedisTemplate.hasKey(nonceKey);
+    }
+
+    /**
+     * 在本地过滤器中记录已经写入 Redis 的随机数
+     *
+     * @param secretId  密钥 ID
+     * @param nonce     随机数
+     * @param timestamp 请求的时间戳（单位：毫秒）
+     */
+    public void record(String secretId, String nonce, long timestamp) {
+        bloomFilter.put(toEpochSecond(timestamp), getNonceKey(secretId, nonce));
+    }
+
+    /**
+     * 只写入随机数记录，不扣减调用次数存量
+     * <p>
+     * 用于不需要扣减调用次数的请求（例如命中响应缓存且接口策略为命中不扣减）。
+     *
+     * @param secretId     密钥 ID
+     * @param nonce        随机数
+     * @param timestamp    请求的时间戳（单位：毫秒）
+     * @param nonceTimeout 随机数记录的过期时间
+     * @return 发出 true 如果写入成功，false 如果随机数记录已经存在
+     */
+    public Mono<Boolean> claim(String secretId, String nonce, long timestamp, Duration nonceTimeout) {
+        // PX 要求过期时间为正数
+        Duration timeout = nonceTimeout.isZero() ? Duration.ofMillis(1L) : nonceTimeout;
+        return reactiveStringRedisTemplate.opsForValue()
+                .setIfAbsent(getNonceKey(secretId, nonce), nonce, timeout)
+                .map(TRUE::equals)
+                .doOnNext(claimed -> record(secretId, nonce, timestamp));
+    }
+
+    private static long toEpochSecond(long timestamp) {
+        return Math.floorDiv(timestamp, 1000L);
+    }
+
+}
@@ -0,0 +1,158 @@
+package pers.project.api.gateway.replay;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 按秒分桶的轮转布隆过滤器
+ * <p>
+ * 每一秒（按请求时间戳）对应一个布隆过滤器，多个桶组成环形数组，新的秒会替换环中最旧的桶。
+ * 同一请求的重放携带相同的时间戳，因此只需要检查时间戳所在的一个桶。
+ * <p>
+ * 所有操作都是无锁的。桶被替换或时间戳超出环的范围时，过滤器视为未见过该键，
+ * 调用方需要由 Redis 兜底保证正确性。
+ *
+ * @author Luo Fei
+ * @date 2023/07/22
+ */
+final class TimeBucketedBloomFilter {
+
+    private final AtomicReferenceArray<Bucket> ring;
+
+    private final int bucketBits;
+
+    private final int hashFunctions;
+
+    /**
+     * @param bucketCount   桶的数量（覆盖的秒数）
+     * @param bucketBits    每个桶的位数，会向上取整为 64 的倍数
+     * @param hashFunctions 哈希函数的数量
+     */
+    TimeBucketedBloomFilter(int bucketCount, int bucketBits, int hashFunctions) {
+        this.ring = new AtomicReferenceArray<>(bucketCount);
+        this.bucketBits = ((bucketBits + 63) >>> 6) << 6;
+        this.hashFunctions = hashFunctions;
+    }
+
+    /**
+     * 键是否可能已经存在
+     *
+     * @param epochSecond 请求时间戳所在的秒
+     * @param key         键
+     * @return false 如果本实例一定没有记录过该键
+     */
+    boolean mightContain(long epochSecond, String key) {
+        Bucket bucket = ring.get(indexOf(epochSecond));
+        if (bucket == null || bucket.epochSecond != epochSecond) {
+            return false;
+        }
+        long hash1 = hash(key);
+        long hash2 = mix(hash1);
+        for (int i = 0; i < hashFunctions; i++) {
+            if (!bucket.get(bitIndex(hash1, hash2, i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 记录键
+     *
+     * @param epochSecond 请求时间戳所在的秒
+     * @param key         键
+     */
+    void put(long epochSecond, String key) {
+        Bucket bucket = getOrRotate(epochSecond);
+        if (bucket == null) {
+            // 时间戳比环中的桶更旧，不再记录
+            return;
+        }
+        long hash1 = hash(key);
+        long hash2 = mix(hash1);
+        for (int i = 0; i < hashFunctions; i++) {
+            bucket.set(bitIndex(hash1, hash2, i));
+        }
+    }
+
+    /**
+     * 获取秒对应的桶，桶属于更旧的秒时替换为新桶
+     */
+    private Bucket getOrRotate(long epochSecond) {
+        int index = indexOf(epochSecond);
+        while (true) {
+            Bucket bucket = ring.get(index);
+            if (bucket != null && bucket.epochSecond >= epochSecond) {
+                return (bucket.epochSecond == epochSecond) ? bucket : null;
+            }
+            Bucket newBucket = new Bucket(epochSecond, bucketBits);
+            if (ring.compareAndSet(index, bucket, newBucket)) {
+                return newBucket;
+            }
+        }
+    }
+
+    private int indexOf(long epochSecond) {
+        return (int) Math.floorMod(epochSecond, (long) ring.length());
+    }
+
+    private int bitIndex(long hash1, long hash2, int i) {
+        return (int) Math.floorMod(hash1 + i * hash2, (long) bucketBits);
+    }
+
+    /**
+     * FNV-1a 64 位哈希
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * SplitMix64 混合，作为双重哈希的第二个哈希值
+     */
+    private static long mix(long hash) {
+        long z = hash + 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return (z ^ (z >>> 31)) | 1L;
+    }
+
+    /**
+     * 一秒对应的布隆过滤器
+     */
+    private static final class Bucket {
+
+        private final long epochSecond;
+
+        private final AtomicLongArray words;
+
+        private Bucket(long epochSecond, int bits) {
+            this.epochSecond = epochSecond;
+            this.words = new AtomicLongArray(bits >>> 6);
+        }
+
+        private boolean get(int bitIndex) {
+            return (words.get(bitIndex >>> 6) & (1L << bitIndex)) != 0L;
+        }
+
+        private void set(int bitIndex) {
+            long mask = 1L << bitIndex;
+            int wordIndex = bitIndex >>> 6;
+            long word;
+            do {
+                word = words.get(wordIndex);
+                if ((word & mask) != 0L) {
+                    return;
+                }
+            } while (!words.compareAndSet(wordIndex, word, word | mask));
+        }
+
+    }
+
+}
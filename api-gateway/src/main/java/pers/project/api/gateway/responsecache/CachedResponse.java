@@ -0,0 +1,63 @@
+package pers.project.api.gateway.responsecache;
+
+import java.util.Base64;
+
+/**
+ * 缓存的 Provider 响应
+ *
+ * @param statusCode     响应状态码
+ * @param contentType    响应内容类型，可以为 null
+ * @param body           响应体
+ * @param expireAtMillis 过期时间（纪元毫秒）
+ * @author Luo Fei
+ * @date 2023/07/25
+ */
+public record CachedResponse(int statusCode, String contentType, byte[] body, long expireAtMillis) {
+
+    /**
+     * Redis 值的字段分隔符
+     */
+    private static final char SEPARATOR = '\n';
+
+    /**
+     * 剩余的有效时长（单位：毫秒）
+     */
+    public long getRemainingMillis() {
+        return expireAtMillis - System.currentTimeMillis();
+    }
+
+    /**
+     * 转换为 Redis 中保存的字符串
+     * <p>
+     * 格式为：状态码、过期时间、内容类型、Base64 编码的响应体，以换行符分隔。
+     */
+    String toRedisValue() {
+        return String.valueOf(statusCode) + SEPARATOR + expireAtMillis + SEPARATOR
+               + (contentType == null ? "" : contentType) + SEPARATOR
+               + Base64.getEncoder().encodeToString(body);
+    }
+
+    /**
+     * 从 Redis 中保存的字符串解析
+     *
+     * @return 缓存的响应，格式不正确时返回 null
+     */
+    static CachedResponse fromRedisValue(String value) {
+        int first = value.indexOf(SEPARATOR);
+        int second = (first < 0) ? -1 : value.indexOf(SEPARATOR, first + 1);
+        int third = (second < 0) ? -1 : value.indexOf(SEPARATOR, second + 1);
+        if (third < 0) {
+            return null;
+        }
+        try {
+            int statusCode = Integer.parseInt(value, 0, first, 10);
+            long expireAtMillis = Long.parseLong(value, first + 1, second, 10);
+            String contentType = (third == second + 1) ? null : value.substring(second + 1, third);
+            byte[] body = Base64.getDecoder().decode(value.substring(third + 1));
+            return new CachedResponse(statusCode, contentType, body, expireAtMillis);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,233 @@
+package pers.project.api.gateway.responsecache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import pers.project.api.common.model.dto.QuantityUsageApiInfoDTO;
+import pers.project.api.gateway.config.property.GatewayCacheProperties.ResponseProperties;
+import pers.project.api.gateway.decorator.CapturingResponseDecorator;
+import pers.project.api.gateway.util.GatewayHttpUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import static pers.project.api.common.constant.redis.RedisKeyPrefixConst.RESPONSE_CACHE_KEY_PREFIX;
+
+/**
+ * Provider 响应缓存
+ * <p>
+ * 只缓存 {@code api_digest.cache_ttl} 大于 0 的接口的 GET 请求的 200 响应，
+ * 缓存键由接口摘要主键、请求方法、请求路径和 {@code api_digest.cache_key_params} 指定的请求参数组成，
+ * 请求路径和请求参数使用未解码的原始形式。
+ * <p>
+ * 缓存只保存响应的内容类型，所以带有 {@code Content-Encoding} 或按 {@code Accept-Encoding} 以外的请求头变化
+ * （{@code Vary}）的响应不缓存。
+ * <p>
+ * 本地缓存按响应体大小限制总容量；启用 Redis 缓存时，本地未命中会查询 Redis，命中后写入本地缓存，剩余有效时长不变。
+ * <p>
+ * 命中和未命中次数通过 {@code gateway.response.cache.requests} 指标暴露（标签 result 和 tier）。
+ *
+ * @author Luo Fei
+ * @date 2023/07/25
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ResponseCache {
+
+    /**
+     * 标识响应是否来自缓存的响应头
+     */
+    public static final String CACHE_STATUS_HEADER_NAME = "X-Cache";
+
+    private static final String REQUESTS_METER_NAME = "gateway.response.cache.requests";
+
+    private final ResponseProperties properties;
+
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+
+    private final MeterRegistry meterRegistry;
+
+    private Cache<String, CachedResponse> cache;
+
+    private Counter localHitCounter;
+
+    private Counter redisHitCounter;
+
+    private Counter missCounter;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaximumSize().toBytes())
+                .weigher((String key, CachedResponse value) -> key.length() + value.body().length)
+                .expireAfter(new Expiry<String, CachedResponse>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedResponse value, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(value.getRemainingMillis(), 0L));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedResponse value,
+                                                  long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedResponse value,
+                                                long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        localHitCounter = Counter.builder(REQUESTS_METER_NAME)
+                .tag("result", "hit").tag("tier", "local").register(meterRegistry);
+        redisHitCounter = Counter.builder(REQUESTS_METER_NAME)
+                .tag("result", "hit").tag("tier", "redis").register(meterRegistry);
+        missCounter = Counter.builder(REQUESTS_METER_NAME)
+                .tag("result", "miss").tag("tier", "none").register(meterRegistry);
+        Gauge.builder("gateway.response.cache.size", cache, Cache::estimatedSize)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 获取请求的响应缓存键
+     *
+     * @param exchange   HTTP 请求-响应交互的协定
+     * @param apiInfoDTO 计数用法接口的信息
+     * @return 响应缓存键，接口未开启缓存或请求不可缓存时返回 null
+     */
+    public ResponseCacheKey getCacheKey(ServerWebExchange exchange, QuantityUsageApiInfoDTO apiInfoDTO) {
+        Integer cacheTtl = apiInfoDTO.getCacheTtl();
+        ServerHttpRequest request = exchange.getRequest();
+        if (!properties.isEnabled() || cacheTtl == null || cacheTtl <= 0
+            || !HttpMethod.GET.equals(request.getMethod())) {
+            return null;
+        }
+        // 使用未解码的参数，值中编码的 & 和 = 不会与分隔符混淆
+        MultiValueMap<String, String> queryParams = GatewayHttpUtils.getRawQueryParams(request);
+        String cacheKeyParams = apiInfoDTO.getCacheKeyParams();
+        // 按参数名排序，参数顺序不同的请求使用同一个缓存键
+        Set<String> paramNames = StringUtils.hasText(cacheKeyParams)
+                ? new TreeSet<>(StringUtils.commaDelimitedListToSet(cacheKeyParams.replace(" ", "")))
+                : new TreeSet<>(queryParams.keySet());
+        StringBuilder keyBuilder = new StringBuilder(128)
+                .append(apiInfoDTO.getDigestId()).append(':')
+                .append(request.getMethod().name()).append(':')
+                .append(request.getURI().getRawPath()).append('?');
+        GatewayHttpUtils.appendRawQueryParams(keyBuilder, queryParams, paramNames);
+        return new ResponseCacheKey(keyBuilder.toString(), Duration.ofSeconds(cacheTtl));
+    }
+
+    /**
+     * 获取缓存的响应
+     *
+     * @param cacheKey 响应缓存键
+     * @return 发出缓存的响应，未命中时为空
+     */
+    public Mono<CachedResponse> get(ResponseCacheKey cacheKey) {
+        CachedResponse cachedResponse = cache.getIfPresent(cacheKey.value());
+        if (cachedResponse != null) {
+            localHitCounter.increment();
+            return Mono.just(cachedResponse);
+        }
+        if (!properties.isRedisEnabled()) {
+            missCounter.increment();
+            return Mono.empty();
+        }
+        return reactiveStringRedisTemplate.opsForValue()
+                .get(RESPONSE_CACHE_KEY_PREFIX + cacheKey.value())
+                .mapNotNull(CachedResponse::fromRedisValue)
+                .filter(response -> response.getRemainingMillis() > 0L)
+                .doOnNext(response -> {
+                    redisHitCounter.increment();
+                    cache.put(cacheKey.value(), response);
+                })
+                .onErrorResume(e -> {
+                    log.warn("Failed to get cached response from Redis, key: {}, exception message: {}",
+                            cacheKey.value(), e.getMessage());
+                    return Mono.empty();
+                })
+                .switchIfEmpty(Mono.fromRunnable(missCounter::increment));
+    }
+
+    /**
+     * 缓存响应
+     *
+     * @param cacheKey       响应缓存键
+     * @param cachedResponse 响应
+     */
+    public void put(ResponseCacheKey cacheKey, CachedResponse cachedResponse) {
+        cache.put(cacheKey.value(), cachedResponse);
+        if (!properties.isRedisEnabled()) {
+            return;
+        }
+        reactiveStringRedisTemplate.opsForValue()
+                .set(RESPONSE_CACHE_KEY_PREFIX + cacheKey.value(), cachedResponse.toRedisValue(), cacheKey.ttl())
+                .subscribe(null, e -> log.warn("Failed to put cached response to Redis, key: {}, exception message: {}",
+                        cacheKey.value(), e.getMessage()));
+    }
+
+    /**
+     * 装饰响应，Provider 的 200 响应完整写出后放入缓存
+     * <p>
+     * 超过单个响应最大大小的响应、缓存无法还原的响应（见 {@link #isStorable}）以及写出异常或被取消的响应不缓存。
+     *
+     * @param response 原始响应
+     * @param cacheKey 响应缓存键
+     * @return 装饰后的响应
+     */
+    public ServerHttpResponse record(ServerHttpResponse response, ResponseCacheKey cacheKey) {
+        response.getHeaders().set(CACHE_STATUS_HEADER_NAME, "MISS");
+        return new CapturingResponseDecorator(response, properties.getMaxEntrySize().toBytes(), body -> {
+            HttpStatusCode statusCode = response.getStatusCode();
+            if (statusCode == null || statusCode.value() != 200 || !isStorable(response.getHeaders())) {
+                return;
+            }
+            MediaType contentType = response.getHeaders().getContentType();
+            long expireAtMillis = System.currentTimeMillis() + cacheKey.ttl().toMillis();
+            put(cacheKey, new CachedResponse(200, (contentType == null) ? null : contentType.toString(),
+                    body, expireAtMillis));
+        }, () -> {
+        });
+    }
+
+    /**
+     * 响应是否可以只用内容类型和响应体还原
+     * <p>
+     * 编码过的响应体没有 {@code Content-Encoding} 就无法解码；按其他请求头变化的响应不能发给缓存键相同的其他请求。
+     */
+    private static boolean isStorable(HttpHeaders headers) {
+        String contentEncoding = headers.getFirst(HttpHeaders.CONTENT_ENCODING);
+        if (StringUtils.hasText(contentEncoding) && !"identity".equalsIgnoreCase(contentEncoding.trim())) {
+            return false;
+        }
+        for (String vary : headers.getVary()) {
+            if (!HttpHeaders.ACCEPT_ENCODING.equalsIgnoreCase(vary)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
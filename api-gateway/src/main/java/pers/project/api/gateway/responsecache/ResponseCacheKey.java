@@ -0,0 +1,14 @@
+package pers.project.api.gateway.responsecache;
+
+import java.time.Duration;
+
+/**
+ * 响应缓存键
+ *
+ * @param value 键：接口摘要主键、请求方法、请求路径和缓存键包含的请求参数
+ * @param ttl   接口的响应缓存时长
+ * @author Luo Fei
+ * @date 2023/07/25
+ */
+public record ResponseCacheKey(String value, Duration ttl) {
+}
@@ -0,0 +1,252 @@
+package pers.project.api.gateway.statistics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBatchReactive;
+import org.redisson.api.RedissonReactiveClient;
+import org.springframework.stereotype.Component;
+import pers.project.api.gateway.config.property.UsageStatisticsProperties;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static pers.project.api.common.constant.redis.RedissonNamePrefixConst.*;
+
+/**
+ * 接口调用统计聚合器
+ * <p>
+ * 每次响应只在本地 {@link LongAdder} 上累加，定时把所有非零的统计量合并为一个 Redisson 批处理，
+ * 在一次管道往返中写入对应的统计信号量，Redis 写操作从每次响应 2 ~ 4 次降为每个刷新间隔 1 次批处理。
+ * <p>
+ * 丢失窗口：Gateway 异常退出时最多丢失一个刷新间隔内的统计量，正常关闭时会刷新剩余的统计量。
+ * 批处理失败时统计量会放回本地计数器，在下次刷新时重试（批处理部分成功时可能重复计数）。
+ * 未刷新的统计量和上次刷新耗时通过 {@code gateway.statistics.pending.increments}
+ * 和 {@code gateway.statistics.last.flush.duration} 指标暴露。
+ *
+ * @author Luo Fei
+ * @date 2023/07/22
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UsageStatisticsAggregator {
+
+    /**
+     * 关闭时刷新的最长等待时长
+     */
+    private static final Duration SHUTDOWN_FLUSH_TIMEOUT = Duration.ofSeconds(10L);
+
+    private final UsageStatisticsProperties properties;
+
+    private final RedissonReactiveClient redissonReactiveClient;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 统计信号量名称到本地计数器的映射
+     */
+    private final Map<String, StatisticalCounter> counterMap = new ConcurrentHashMap<>();
+
+    /**
+     * 上次刷新耗时（单位：纳秒）
+     */
+    private final AtomicLong lastFlushNanos = new AtomicLong();
+
+    /**
+     * 刷新任务
+     */
+    private Disposable flushDisposable;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("gateway.statistics.pending.increments", this, UsageStatisticsAggregator::getPendingIncrements)
+                .description("Usage statistics increments not yet flushed to Redis")
+                .register(meterRegistry);
+        Gauge.builder("gateway.statistics.last.flush.duration", this,
+                        aggregator -> aggregator.lastFlushNanos.get() / 1_000_000_000.0)
+                .description("Duration of the last usage statistics flush")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Duration flushInterval = properties.getFlushInterval();
+        // 上一次刷新未完成时丢弃本次触发，刷新不会并发执行
+        flushDisposable = Flux.interval(flushInterval, flushInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> flush(), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (flushDisposable != null) {
+            flushDisposable.dispose();
+        }
+        flush().block(SHUTDOWN_FLUSH_TIMEOUT);
+    }
+
+    /**
+     * 记录一次接口调用
+     *
+     * @param digestId 接口摘要主键
+     * @param usageId  用户接口计数用法主键
+     * @param success  调用是否成功
+     */
+    public void record(String digestId, String usageId, boolean success) {
+        // 增加接口调用次数统计量和用户接口调用次数统计量
+        increment(API_QUANTITY_USAGE_TOTAL_SEMAPHORE_NAME_PREFIX + digestId);
+        increment(USER_QUANTITY_USAGE_TOTAL_SEMAPHORE_NAME_PREFIX + usageId);
+        if (!success) {
+            // 增加接口失败调用次数统计量和用户接口失败调用次数统计量
+            increment(API_QUANTITY_USAGE_FAILURE_SEMAPHORE_NAME_PREFIX + digestId);
+            increment(USER_QUANTITY_USAGE_FAILURE_SEMAPHORE_NAME_PREFIX + usageId);
+        }
+    }
+
+    /**
+     * 获取尚未刷新到 Redis 的统计量总数
+     */
+    public long getPendingIncrements() {
+        long pendingIncrements = 0L;
+        for (StatisticalCounter counter : counterMap.values()) {
+            pendingIncrements += counter.adder.sum();
+        }
+        return pendingIncrements;
+    }
+
+    private void increment(String semaphoreName) {
+        add(semaphoreName, 1L);
+    }
+
+    /**
+     * 累加统计量，计数器已被移除时重新获取计数器
+     */
+    private void add(String semaphoreName, long count) {
+        StatisticalCounter counter;
+        do {
+            counter = counterMap.computeIfAbsent(semaphoreName, key -> new StatisticalCounter());
+        } while (!counter.tryAdd(count));
+    }
+
+    /**
+     * 把所有非零的统计量在一个批处理中写入 Redis
+     */
+    private Mono<Void> flush() {
+        Map<String, Long> snapshot = new HashMap<>();
+        counterMap.forEach((semaphoreName, counter) -> {
+            // 取出当前值后减去相同的值，而不是重置，刷新期间的并发累加不会丢失
+            long count = counter.adder.sum();
+            if (count > 0L) {
+                counter.adder.add(-count);
+                counter.idleFlushes = 0;
+                snapshot.put(semaphoreName, count);
+            } else if (++counter.idleFlushes >= properties.getIdleFlushesBeforeEviction()) {
+                long lateCount = evict(semaphoreName, counter);
+                if (lateCount > 0L) {
+                    snapshot.merge(semaphoreName, lateCount, Long::sum);
+                }
+            }
+        });
+        if (snapshot.isEmpty()) {
+            return Mono.empty();
+        }
+        long startNanos = System.nanoTime();
+        RBatchReactive batch = redissonReactiveClient.createBatch();
+        snapshot.forEach((semaphoreName, count) ->
+                batch.getSemaphore(semaphoreName).addPermits(Math.toIntExact(count)));
+        return batch.execute()
+                .doOnSuccess(batchResult -> {
+                    long flushNanos = System.nanoTime() - startNanos;
+                    lastFlushNanos.set(flushNanos);
+                    if (flushNanos > properties.getFlushInterval().toNanos()) {
+                        log.warn("Usage statistics flush took longer than flush interval, duration: {}ms, size: {}",
+                                flushNanos / 1_000_000L, snapshot.size());
+                    }
+                })
+                .then()
+                .onErrorResume(e -> {
+                    log.error("Failed to flush usage statistics, size: {}, exception message: {}",
+                            snapshot.size(), e.getMessage());
+                    // 放回本地计数器，下次刷新时重试
+                    snapshot.forEach(this::add);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * 移除长时间空闲的计数器
+     * <p>
+     * 先从映射中移除再关闭计数器，关闭会等待已经取得该计数器的累加完成，之后的累加会换用新的计数器。
+     *
+     * @return 移除前并发累加到该计数器的统计量，由本次刷新写入
+     */
+    private long evict(String semaphoreName, StatisticalCounter counter) {
+        return counterMap.remove(semaphoreName, counter) ? counter.close() : 0L;
+    }
+
+    /**
+     * 本地统计计数器
+     * <p>
+     * 累加方先登记再检查是否已关闭，关闭方先标记关闭再等待登记的累加方全部退出，
+     * 所以每次累加要么在关闭之前完成并被关闭方读到，要么发现已关闭并换用新的计数器，不会丢失。
+     */
+    private static final class StatisticalCounter {
+
+        private final LongAdder adder = new LongAdder();
+
+        /**
+         * 正在累加的线程数量
+         */
+        private final LongAdder writers = new LongAdder();
+
+        private volatile boolean closed;
+
+        /**
+         * 连续没有新增统计量的刷新次数，只由刷新线程访问
+         */
+        private int idleFlushes;
+
+        /**
+         * 累加统计量
+         *
+         * @return false 如果计数器已关闭
+         */
+        boolean tryAdd(long count) {
+            writers.increment();
+            try {
+                if (closed) {
+                    return false;
+                }
+                adder.add(count);
+                return true;
+            } finally {
+                writers.decrement();
+            }
+        }
+
+        /**
+         * 关闭计数器
+         *
+         * @return 关闭时的统计量
+         */
+        long close() {
+            closed = true;
+            // 累加方只在 tryAdd 中短暂停留
+            while (writers.sum() != 0L) {
+                Thread.onSpinWait();
+            }
+            return adder.sum();
+        }
+
+    }
+
+}
@@ -1,13 +1,21 @@
 package pers.project.api.gateway.util;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.List;
+
+import static pers.project.api.gateway.constant.ExchangeAttributeNameConst.REQUEST_BODY_DIGEST;
 
 /**
  * 网关 HTTP 工具类
@@ -17,7 +25,92 @@ import java.nio.charset.StandardCharsets;
  */
 public abstract class GatewayHttpUtils {
 
+    /**
+     * 获取缓存的请求体
+     * <p>
+     * 请求体直接从缓存的 {@link DataBuffer} 解码，不会复制到中间的 {@link ByteBuffer}。
+     *
+     * @return 缓存的请求体，没有缓存或是 multipart 请求时为 null
+     */
     public static String getCachedRequestBody(ServerWebExchange exchange) {
+        DataBuffer dataBuffer = getCachedRequestBodyBuffer(exchange);
+        if (dataBuffer == null) {
+            return null;
+        }
+        return dataBuffer.toString(dataBuffer.readPosition(), dataBuffer.readableByteCount(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 获取请求的原始查询参数
+     * <p>
+     * 参数名和参数值保持请求中的百分号编码，值中编码的 {@code &} 和 {@code =} 不会被还原成分隔符。
+     *
+     * @return 原始查询参数，没有值的参数（例如 {@code ?flag}）的值为 null
+     */
+    public static MultiValueMap<String, String> getRawQueryParams(ServerHttpRequest request) {
+        return UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams();
+    }
+
+    /**
+     * 把原始查询参数追加到缓存键或合并键中
+     * <p>
+     * 原始参数名不包含 {@code &} 和 {@code =}，原始参数值不包含 {@code &}，
+     * 所以不同的查询参数不会拼接出相同的键。
+     *
+     * @param keyBuilder     键
+     * @param rawQueryParams {@link #getRawQueryParams} 获取的原始查询参数
+     * @param paramNames     按顺序追加的参数名
+     */
+    public static void appendRawQueryParams(StringBuilder keyBuilder, MultiValueMap<String, String> rawQueryParams,
+                                            Collection<String> paramNames) {
+        for (String paramName : paramNames) {
+            List<String> values = rawQueryParams.get(paramName);
+            if (values == null) {
+                continue;
+            }
+            for (String value : values) {
+                keyBuilder.append(paramName);
+                if (value != null) {
+                    keyBuilder.append('=').append(value);
+                }
+                keyBuilder.append('&');
+            }
+        }
+    }
+
+    /**
+     * 获取缓存的请求体的 SHA-256 摘要
+     * <p>
+     * 直接对缓存的 {@link DataBuffer} 的可读字节计算摘要，不复制请求体，也不改变读取位置。
+     * 每个请求只计算一次，结果保存在 {@code REQUEST_BODY_DIGEST} 属性中供所有过滤器使用。
+     *
+     * @return 请求体的 SHA-256 摘要，没有缓存或是 multipart 请求时为 null
+     */
+    public static byte[] getRequestBodyDigest(ServerWebExchange exchange) {
+        if (exchange.getAttribute(REQUEST_BODY_DIGEST) instanceof byte[] requestBodyDigest) {
+            return requestBodyDigest;
+        }
+        DataBuffer dataBuffer = getCachedRequestBodyBuffer(exchange);
+        if (dataBuffer == null) {
+            return null;
+        }
+        MessageDigest messageDigest = DigestUtils.getSha256Digest();
+        try (DataBuffer.ByteBufferIterator iterator = dataBuffer.readableByteBuffers()) {
+            while (iterator.hasNext()) {
+                messageDigest.update(iterator.next());
+            }
+        }
+        byte[] requestBodyDigest = messageDigest.digest();
+        exchange.getAttributes().put(REQUEST_BODY_DIGEST, requestBodyDigest);
+        return requestBodyDigest;
+    }
+
+    /**
+     * 获取缓存的请求体的 {@link DataBuffer}
+     *
+     * @return 缓存的请求体，没有缓存或是 multipart 请求时为 null
+     */
+    public static DataBuffer getCachedRequestBodyBuffer(ServerWebExchange exchange) {
         Object attribute = exchange.getAttribute(ServerWebExchangeUtils.CACHED_REQUEST_BODY_ATTR);
         if (!(attribute instanceof DataBuffer dataBuffer)) {
             return null;
@@ -26,16 +119,7 @@ public abstract class GatewayHttpUtils {
         if (contentType != null && contentType.includes(MediaType.MULTIPART_FORM_DATA)) {
             return null;
         }
-        return readDataBufferToString(dataBuffer);
-    }
-
-    public static String readDataBufferToString(DataBuffer dataBuffer) {
-        // 安全起见，使用堆内存而不是直接内存
-        ByteBuffer byteBuffer = ByteBuffer.allocate(dataBuffer.readableByteCount());
-        dataBuffer.toByteBuffer(byteBuffer);
-        // 使用 asReadOnlyBuffer()，否则可能丢失数据
-        CharBuffer charBuffer = StandardCharsets.UTF_8.decode(byteBuffer);
-        return charBuffer.toString();
+        return dataBuffer;
     }
 
 }
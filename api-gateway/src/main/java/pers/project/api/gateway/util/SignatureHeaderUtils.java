@@ -1,20 +1,12 @@
 package pers.project.api.gateway.util;
 
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.server.reactive.ServerHttpRequest;
-import org.springframework.util.Assert;
 import org.springframework.web.server.ServerWebExchange;
-import pers.project.api.gateway.exeception.InsightApiGatewayException;
+import pers.project.api.client.util.SignatureEngine;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
-import java.nio.charset.StandardCharsets;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
-import java.util.Base64;
-import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static pers.project.api.gateway.enumaration.SignatureRequestHeaderEnum.ORIGINAL_URL;
 import static pers.project.api.gateway.enumaration.SignatureRequestHeaderEnum.USAGE_TYPE;
@@ -23,7 +15,7 @@ import static pers.project.api.gateway.enumaration.SignatureRequestHeaderEnum.US
 /**
  * Insight API 签名请求头工具类
  * <p>
- * 与  {@code pers.project.api.client.util.SignatureHeaderUtils} 保持相对一致。
+ * 签名的拼接规则由 {@link SignatureEngine} 提供，与客户端共用。
  *
  * @author Luo Fei
  * @date 2023/07/13
@@ -31,19 +23,18 @@ import static pers.project.api.gateway.enumaration.SignatureRequestHeaderEnum.US
 @Slf4j
 public abstract class SignatureHeaderUtils {
 
-    private static final String HMAC_SHA_256 = "HmacSHA256";
-
     private static final String HTTPS_SCHEMA = "https:";
 
-    private static final Mac MAC;
+    private static final String HTTP_SCHEMA = "http:";
 
-    static {
-        try {
-            MAC = Mac.getInstance(HMAC_SHA_256);
-        } catch (NoSuchAlgorithmException e) {
-            throw new InsightApiGatewayException();
-        }
-    }
+    private static final String LOCALHOST_SCHEME_SPECIFIC_PART = "//localhost/";
+
+    private static final String LOCALHOST_80_SCHEME_SPECIFIC_PART = "//localhost:80";
+
+    /**
+     * 调试日志的采样间隔，平均每该数量次签名输出一次规范请求
+     */
+    private static final int DEBUG_LOG_SAMPLE_INTERVAL = 100;
 
     /**
      * 获取时间戳
@@ -58,63 +49,41 @@ public abstract class SignatureHeaderUtils {
 
     /**
      * 获取签名
+     * <p>
+     * 签名请求头在授权开始时已经检查过不缺少也不重复。
+     * 规范请求只在调试日志开启时按 {@link #DEBUG_LOG_SAMPLE_INTERVAL} 采样输出。
      *
      * @param secretKey 密钥
      * @param exchange  HTTP 请求-响应交互的协定
      * @return 签名字符串
+     * @see SignatureEngine
      */
     public static String getSign(String secretKey, ServerWebExchange exchange) {
-        // 拼接 method 和 url（带带路径变量和请求参数的 URL）
+        // method 和 url（带带路径变量和请求参数的 URL）
         ServerHttpRequest request = exchange.getRequest();
-        StringBuilder inputStringBuilder = new StringBuilder();
         // https -> nginx -> http -> gateway  raw -> encoded (maybe) -> decoded
         // https + //insightapi.cn/gateway/provider/ip/searcher
-        String urlWithVariablesAndParams = HTTPS_SCHEMA +
-                // getSchemeSpecificPart()'s result is never null, and it's decoded
-                exchange.getRequest().getURI().getSchemeSpecificPart();
-        // 这部分仅在测试环境有用
-        if (log.isDebugEnabled()) {
-            // localhost:80 会被改写为 localhost
-            log.debug("Original urlWithVariablesAndParams: {}", urlWithVariablesAndParams);
-            urlWithVariablesAndParams = urlWithVariablesAndParams
-                    .replaceFirst("https://localhost", "http://localhost:80");
-            log.debug("Replaced urlWithVariablesAndParams: {}", urlWithVariablesAndParams);
+        // getSchemeSpecificPart()'s result is never null, and it's decoded
+        String urlPrefix = HTTPS_SCHEMA;
+        String url = request.getURI().getSchemeSpecificPart();
+        boolean debugEnabled = log.isDebugEnabled();
+        // 这部分仅在测试环境有用，localhost:80 会被改写为 localhost
+        if (debugEnabled && url.startsWith(LOCALHOST_SCHEME_SPECIFIC_PART)) {
+            urlPrefix = HTTP_SCHEMA;
+            url = LOCALHOST_80_SCHEME_SPECIFIC_PART + url.substring(LOCALHOST_SCHEME_SPECIFIC_PART.length() - 1);
         }
-        inputStringBuilder.append(request.getMethod())
-                .append(urlWithVariablesAndParams);
-        // 拼接 requestHeader
+        // requestHeader
         HttpHeaders headers = request.getHeaders();
-        appendHeader(inputStringBuilder, headers,
-                USAGE_TYPE.getHeaderName(), ORIGINAL_URL.getHeaderName());
-        // 拼接 requestBody 的 sha256Hex 摘要
-        String cachedRequestBody = GatewayHttpUtils.getCachedRequestBody(exchange);
-        if (cachedRequestBody != null) {
-            // 请求体有三种类型 InputStream，byte[] 和 String，但数据都被缓存为 String
-            inputStringBuilder.append(DigestUtils.sha256Hex(cachedRequestBody));
-        }
-        // 获取 SIGN 值
-        SecretKeySpec secretKeySpec = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), HMAC_SHA_256);
-        try {
-            MAC.init(secretKeySpec);
-        } catch (InvalidKeyException e) {
-            throw new InsightApiGatewayException(e);
-        }
-        String inputString = inputStringBuilder.toString();
-        if (log.isInfoEnabled()) {
-            log.info("Calculate sever sign, inputString: {}", inputString);
-        }
-        byte[] hmacBytes = MAC.doFinal(inputString.getBytes(StandardCharsets.UTF_8));
-        return Base64.getEncoder().encodeToString(hmacBytes);
-    }
-
-    private static void appendHeader(StringBuilder inputStringBuilder, HttpHeaders headers, String... headerNames) {
-        for (String headerName : headerNames) {
-            List<String> headerValueList = headers.get(headerName);
-            Assert.isTrue(headerValueList != null && headerValueList.size() == 1,
-                    "The headerValueList must be not null and have one element");
-            inputStringBuilder.append(headerName)
-                    .append(headerValueList.get(0));
+        String usageType = headers.getFirst(USAGE_TYPE.getHeaderName());
+        String originalUrl = headers.getFirst(ORIGINAL_URL.getHeaderName());
+        // requestBody 的 sha256 摘要（直接对缓存的请求体字节计算，每个请求只计算一次）
+        byte[] requestBodyDigest = GatewayHttpUtils.getRequestBodyDigest(exchange);
+        String method = request.getMethod().name();
+        if (debugEnabled && ThreadLocalRandom.current().nextInt(DEBUG_LOG_SAMPLE_INTERVAL) == 0) {
+            log.debug("Calculate sever sign, canonical request: {}", SignatureEngine.getCanonicalRequest(
+                    method, urlPrefix, url, usageType, originalUrl, requestBodyDigest));
         }
+        return SignatureEngine.sign(secretKey, method, urlPrefix, url, usageType, originalUrl, requestBodyDigest);
     }
 
 }
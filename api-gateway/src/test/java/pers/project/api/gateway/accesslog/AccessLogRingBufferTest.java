@@ -0,0 +1,111 @@
+package pers.project.api.gateway.accesslog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link AccessLogRingBuffer} 的测试
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+class AccessLogRingBufferTest {
+
+    @Test
+    void capacityIsRoundedUpToPowerOfTwo() {
+        AccessLogRingBuffer<Integer> buffer = new AccessLogRingBuffer<>(3);
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+        }
+        assertThat(buffer.offer(4)).isFalse();
+    }
+
+    @Test
+    void pollReturnsNullWhenEmpty() {
+        AccessLogRingBuffer<Integer> buffer = new AccessLogRingBuffer<>(4);
+        assertThat(buffer.poll()).isNull();
+
+        buffer.offer(1);
+        assertThat(buffer.poll()).isEqualTo(1);
+        assertThat(buffer.poll()).isNull();
+    }
+
+    @Test
+    void keepsOrderAcrossWrapAround() {
+        AccessLogRingBuffer<Integer> buffer = new AccessLogRingBuffer<>(4);
+        int next = 0;
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertThat(buffer.offer(next + i)).isTrue();
+            }
+            for (int i = 0; i < 3; i++) {
+                assertThat(buffer.poll()).isEqualTo(next + i);
+            }
+            next += 3;
+        }
+    }
+
+    @Test
+    void slotIsWritableAgainAfterPoll() {
+        AccessLogRingBuffer<Integer> buffer = new AccessLogRingBuffer<>(2);
+        assertThat(buffer.offer(1)).isTrue();
+        assertThat(buffer.offer(2)).isTrue();
+        assertThat(buffer.offer(3)).isFalse();
+
+        assertThat(buffer.poll()).isEqualTo(1);
+        assertThat(buffer.offer(3)).isTrue();
+        assertThat(buffer.poll()).isEqualTo(2);
+        assertThat(buffer.poll()).isEqualTo(3);
+    }
+
+    @Test
+    @Timeout(10)
+    void concurrentProducersLoseNothing() throws InterruptedException {
+        int producerCount = 4;
+        int perProducer = 10_000;
+        AccessLogRingBuffer<long[]> buffer = new AccessLogRingBuffer<>(64);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < producerCount; p++) {
+            long producer = p;
+            Thread thread = new Thread(() -> {
+                for (long i = 0; i < perProducer; i++) {
+                    long[] element = {producer, i};
+                    while (!buffer.offer(element)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            producers.add(thread);
+            thread.start();
+        }
+
+        long[] lastSeen = new long[producerCount];
+        Arrays.fill(lastSeen, -1L);
+        int received = 0;
+        while (received < producerCount * perProducer) {
+            long[] element = buffer.poll();
+            if (element == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            int producer = (int) element[0];
+            // 同一生产者的元素按写入顺序读出
+            assertThat(element[1]).isEqualTo(lastSeen[producer] + 1);
+            lastSeen[producer] = element[1];
+            received++;
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertThat(buffer.poll()).isNull();
+        assertThat(lastSeen).containsOnly(perProducer - 1L);
+    }
+
+}
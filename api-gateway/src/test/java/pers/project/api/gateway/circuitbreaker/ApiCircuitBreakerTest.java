@@ -0,0 +1,163 @@
+package pers.project.api.gateway.circuitbreaker;
+
+import org.junit.jupiter.api.Test;
+import pers.project.api.gateway.config.property.CircuitBreakerProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link ApiCircuitBreaker} 的测试
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+class ApiCircuitBreakerTest {
+
+    private static final String DIGEST_ID = "1";
+
+    private static final int WINDOW_SIZE = 4;
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        ApiCircuitBreaker circuitBreaker = new ApiCircuitBreaker(properties(Duration.ofHours(1L), 1));
+        complete(circuitBreaker, true, true);
+        complete(circuitBreaker, false);
+        assertThat(state(circuitBreaker)).isEqualTo("CLOSED");
+
+        complete(circuitBreaker, false);
+
+        assertThat(state(circuitBreaker)).isEqualTo("OPEN");
+        assertThat(circuitBreaker.tryAcquire()).isNull();
+        assertThat(circuitBreaker.snapshot(DIGEST_ID).rejectedCalls()).isEqualTo(1L);
+    }
+
+    @Test
+    void slidingWindowEvictsOldestOutcome() {
+        ApiCircuitBreaker circuitBreaker = new ApiCircuitBreaker(properties(Duration.ofHours(1L), 1));
+        complete(circuitBreaker, false, true, true, true);
+        assertThat(circuitBreaker.snapshot(DIGEST_ID).failureRate()).isEqualTo(25D);
+
+        complete(circuitBreaker, true);
+
+        CircuitBreakerSnapshot snapshot = circuitBreaker.snapshot(DIGEST_ID);
+        assertThat(snapshot.bufferedCalls()).isEqualTo(WINDOW_SIZE);
+        assertThat(snapshot.failureRate()).isZero();
+    }
+
+    @Test
+    void halfOpenClosesAfterAllProbesSucceed() {
+        ApiCircuitBreaker circuitBreaker = new ApiCircuitBreaker(properties(Duration.ZERO, 2));
+        trip(circuitBreaker);
+
+        ApiCallPermit first = circuitBreaker.tryAcquire();
+        ApiCallPermit second = circuitBreaker.tryAcquire();
+        assertThat(state(circuitBreaker)).isEqualTo("HALF_OPEN");
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+        assertThat(circuitBreaker.tryAcquire()).isNull();
+
+        first.complete(true);
+        assertThat(state(circuitBreaker)).isEqualTo("HALF_OPEN");
+        second.complete(true);
+        assertThat(state(circuitBreaker)).isEqualTo("CLOSED");
+        assertThat(circuitBreaker.snapshot(DIGEST_ID).bufferedCalls()).isZero();
+    }
+
+    @Test
+    void halfOpenReopensOnProbeFailure() {
+        ApiCircuitBreaker circuitBreaker = new ApiCircuitBreaker(properties(Duration.ZERO, 2));
+        trip(circuitBreaker);
+
+        ApiCallPermit probe = circuitBreaker.tryAcquire();
+        probe.complete(false);
+
+        assertThat(state(circuitBreaker)).isEqualTo("OPEN");
+    }
+
+    @Test
+    void nonProbeOutcomeIsIgnoredWhileHalfOpen() {
+        ApiCircuitBreaker circuitBreaker = new ApiCircuitBreaker(properties(Duration.ZERO, 1));
+        // 打开之前发出、半开时才完成的调用
+        ApiCallPermit straggler = circuitBreaker.tryAcquire();
+        trip(circuitBreaker);
+        ApiCallPermit probe = circuitBreaker.tryAcquire();
+        assertThat(state(circuitBreaker)).isEqualTo("HALF_OPEN");
+
+        straggler.complete(false);
+        assertThat(state(circuitBreaker)).isEqualTo("HALF_OPEN");
+
+        probe.complete(true);
+        assertThat(state(circuitBreaker)).isEqualTo("CLOSED");
+    }
+
+    @Test
+    void abandonedProbeFreesItsSlot() {
+        ApiCircuitBreaker circuitBreaker = new ApiCircuitBreaker(properties(Duration.ZERO, 1));
+        trip(circuitBreaker);
+
+        ApiCallPermit probe = circuitBreaker.tryAcquire();
+        assertThat(circuitBreaker.tryAcquire()).isNull();
+        probe.abandon();
+
+        assertThat(circuitBreaker.tryAcquire()).isNotNull();
+        assertThat(state(circuitBreaker)).isEqualTo("HALF_OPEN");
+    }
+
+    @Test
+    void bulkheadLimitsConcurrentCalls() {
+        CircuitBreakerProperties properties = properties(Duration.ofHours(1L), 1);
+        properties.setMaxConcurrentCalls(1);
+        ApiCircuitBreaker circuitBreaker = new ApiCircuitBreaker(properties);
+
+        ApiCallPermit permit = circuitBreaker.tryAcquire();
+        assertThat(permit).isNotNull();
+        assertThat(circuitBreaker.tryAcquire()).isNull();
+
+        permit.complete(true);
+        // 重复释放被忽略
+        permit.complete(true);
+        assertThat(circuitBreaker.snapshot(DIGEST_ID).concurrentCalls()).isZero();
+        assertThat(circuitBreaker.tryAcquire()).isNotNull();
+    }
+
+    private static CircuitBreakerProperties properties(Duration openDuration, int halfOpenPermittedCalls) {
+        CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setSlidingWindowSize(WINDOW_SIZE);
+        properties.setMinimumCalls(WINDOW_SIZE);
+        properties.setFailureRateThreshold(50D);
+        properties.setOpenDuration(openDuration);
+        properties.setHalfOpenPermittedCalls(halfOpenPermittedCalls);
+        properties.setMaxConcurrentCalls(100);
+        return properties;
+    }
+
+    /**
+     * 依次获取许可并记录调用结果
+     */
+    private static void complete(ApiCircuitBreaker circuitBreaker, boolean... successes) {
+        for (boolean success : successes) {
+            circuitBreaker.tryAcquire().complete(success);
+        }
+    }
+
+    /**
+     * 同时发出一个窗口的调用并全部失败，使断路器打开
+     */
+    private static void trip(ApiCircuitBreaker circuitBreaker) {
+        List<ApiCallPermit> permits = new ArrayList<>();
+        for (int i = 0; i < WINDOW_SIZE; i++) {
+            permits.add(circuitBreaker.tryAcquire());
+        }
+        permits.forEach(permit -> permit.complete(false));
+        assertThat(state(circuitBreaker)).isEqualTo("OPEN");
+    }
+
+    private static String state(ApiCircuitBreaker circuitBreaker) {
+        return circuitBreaker.snapshot(DIGEST_ID).state();
+    }
+
+}
@@ -0,0 +1,108 @@
+package pers.project.api.gateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link RateLimitBucket} 的测试
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+class RateLimitBucketTest {
+
+    private static final long LIMIT = 10L;
+
+    @Test
+    void tokensExpireWhenWindowRollsOver() {
+        RateLimitBucket bucket = new RateLimitBucket(LIMIT);
+        bucket.deposit(1L, 3L, 3L);
+
+        assertThat(bucket.tryAcquire(1L)).isTrue();
+        assertThat(bucket.tryAcquire(2L)).isFalse();
+        assertThat(bucket.getTokens(2L)).isZero();
+
+        bucket.deposit(2L, 2L, 2L);
+        assertThat(bucket.getTokens(1L)).isZero();
+        assertThat(bucket.getTokens(2L)).isEqualTo(2L);
+        assertThat(bucket.tryAcquire(1L)).isFalse();
+        assertThat(bucket.tryAcquire(2L)).isTrue();
+        assertThat(bucket.tryAcquire(2L)).isTrue();
+        assertThat(bucket.tryAcquire(2L)).isFalse();
+    }
+
+    @Test
+    void depositToSameWindowAccumulates() {
+        RateLimitBucket bucket = new RateLimitBucket(LIMIT);
+        bucket.deposit(1L, 2L, 2L);
+        bucket.deposit(1L, 3L, 5L);
+
+        assertThat(bucket.getTokens(1L)).isEqualTo(5L);
+        assertThat(bucket.getRemaining(1L)).isEqualTo(5L + LIMIT - 5L);
+    }
+
+    @Test
+    void depositToStaleWindowIsDiscarded() {
+        RateLimitBucket bucket = new RateLimitBucket(LIMIT);
+        bucket.deposit(2L, 2L, 4L);
+        bucket.deposit(1L, 5L, 5L);
+
+        assertThat(bucket.getTokens(1L)).isZero();
+        assertThat(bucket.getTokens(2L)).isEqualTo(2L);
+        // 过期窗口的同步结果也不覆盖当前窗口已发放的令牌总数
+        assertThat(bucket.getRemaining(2L)).isEqualTo(2L + LIMIT - 4L);
+    }
+
+    @Test
+    void releaseAfterRejectionReturnsToken() {
+        RateLimitBucket bucket = new RateLimitBucket(LIMIT);
+        bucket.deposit(1L, 1L, 1L);
+
+        assertThat(bucket.tryAcquire(1L)).isTrue();
+        assertThat(bucket.tryAcquire(1L)).isFalse();
+        bucket.release(1L);
+        assertThat(bucket.getTokens(1L)).isEqualTo(1L);
+        assertThat(bucket.tryAcquire(1L)).isTrue();
+    }
+
+    @Test
+    void releaseAfterWindowRolloverIsIgnored() {
+        RateLimitBucket bucket = new RateLimitBucket(LIMIT);
+        bucket.deposit(1L, 1L, 1L);
+        assertThat(bucket.tryAcquire(1L)).isTrue();
+
+        bucket.deposit(2L, 1L, 1L);
+        bucket.release(1L);
+
+        assertThat(bucket.getTokens(1L)).isZero();
+        assertThat(bucket.getTokens(2L)).isEqualTo(1L);
+    }
+
+    @Test
+    void exhaustedWindowIsScopedToItsWindow() {
+        RateLimitBucket bucket = new RateLimitBucket(LIMIT);
+        bucket.deposit(2L, 0L, LIMIT);
+        assertThat(bucket.isExhausted(2L)).isTrue();
+        assertThat(bucket.isExhausted(3L)).isFalse();
+
+        // 过期窗口耗尽不覆盖更新的窗口
+        bucket.deposit(1L, 0L, LIMIT);
+        assertThat(bucket.isExhausted(2L)).isTrue();
+    }
+
+    @Test
+    void setLimitResetsExhaustedWindow() {
+        RateLimitBucket bucket = new RateLimitBucket(LIMIT);
+        bucket.deposit(1L, 0L, LIMIT);
+        assertThat(bucket.isExhausted(1L)).isTrue();
+        assertThat(bucket.getRemaining(1L)).isZero();
+
+        bucket.setLimit(LIMIT * 2);
+
+        assertThat(bucket.getLimit()).isEqualTo(LIMIT * 2);
+        assertThat(bucket.isExhausted(1L)).isFalse();
+        assertThat(bucket.getRemaining(1L)).isEqualTo(LIMIT);
+    }
+
+}
@@ -0,0 +1,16 @@
+package pers.project.api.security.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import pers.project.api.security.config.property.InternalRequestProperties;
+
+/**
+ * 内部请求配置类
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+@Configuration
+@EnableConfigurationProperties(InternalRequestProperties.class)
+public class InternalRequestConfig {
+}
@@ -244,6 +244,8 @@ public class SpringSecurityConfig {
                     antMatcher("/test"),
                     // 查询用户请求信息的接口，用于网关确认信息
                     antMatcher( "/request/user/info/result"),
+                    // 查询全部密钥 ID 的接口，由 Gateway 直接调用，在 Service 中校验内部请求令牌
+                    antMatcher(POST, "/request/secret/id/page"),
             };
             // 配置请求授权
             http.authorizeHttpRequests(registry -> {
@@ -258,7 +260,8 @@ public class SpringSecurityConfig {
                         .csrfTokenRequestHandler(csrfTokenRequestHandler)
                         .ignoringRequestMatchers(
                                 // 查询用户请求信息的接口，用于网关确认信息
-                                antMatcher( "/request/user/info/result"));
+                                antMatcher( "/request/user/info/result"),
+                                antMatcher(POST, "/request/secret/id/page"));
             });
             // 配置会话管理
             http.sessionManagement(configurer -> {
@@ -0,0 +1,23 @@
+package pers.project.api.security.config.property;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 内部请求属性
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+@Data
+@ConfigurationProperties(prefix = "insight-api.internal-request")
+public class InternalRequestProperties {
+
+    /**
+     * 内部请求令牌，与 Gateway 的 {@code insight-api.gateway.pre-validation.secret-id-sync-token} 相同
+     * <p>
+     * 未配置时拒绝所有内部请求。
+     */
+    private String token;
+
+}
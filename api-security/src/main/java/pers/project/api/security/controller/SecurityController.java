@@ -8,6 +8,7 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import pers.project.api.common.model.Result;
 import pers.project.api.common.model.dto.ClientUserInfoDTO;
+import pers.project.api.common.model.dto.SecretIdPageDTO;
 import pers.project.api.common.model.query.*;
 import pers.project.api.common.model.vo.ApiAdminPageVO;
 import pers.project.api.common.model.vo.UserAdminPageVO;
@@ -21,6 +22,8 @@ import pers.project.api.security.model.vo.ApiCreatorVO;
 import pers.project.api.security.model.vo.UserApiTestVO;
 import pers.project.api.security.service.SecurityService;
 
+import static pers.project.api.common.constant.http.InternalHeaderNameConst.INTERNAL_TOKEN;
+
 /**
  * Security 项目控制器
  *
@@ -41,6 +44,14 @@ public class SecurityController {
         ClientUserInfoDTO clientUserInfoDTO = securityService.getClientUserInfoDTO(userInfoQuery);
         return ResultUtils.success(clientUserInfoDTO);
     }
+
+    @PostMapping("/request/secret/id/page")
+    public Result<SecretIdPageDTO> getSecretIdPageResult(@Valid @RequestBody SecretIdPageQuery pageQuery,
+                                                         @RequestHeader(name = INTERNAL_TOKEN, required = false)
+                                                         String internalToken) {
+        SecretIdPageDTO secretIdPageDTO = securityService.getSecretIdPageDTO(pageQuery, internalToken);
+        return ResultUtils.success(secretIdPageDTO);
+    }
     // endregion
 
     @GetMapping("/csrf/token")
@@ -15,9 +15,16 @@ public class QuantityUsageOrderPageVO {
 
     /**
      * 订单的总数
+     * <p>
+     * 键集分页只在查询第一页并且 {@code countTotal} 为 true 时统计，其他时候为 null。
      */
     private Long total;
 
+    /**
+     * 键集分页下一页的游标，没有下一页或使用页码分页时为 null
+     */
+    private String nextCursor;
+
     /**
      * 当前页面的接口计数用法订单信息列表
      */
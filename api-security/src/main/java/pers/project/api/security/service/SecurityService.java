@@ -4,6 +4,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.security.web.csrf.XorCsrfTokenRequestAttributeHandler;
 import pers.project.api.common.exception.BusinessException;
 import pers.project.api.common.model.dto.ClientUserInfoDTO;
+import pers.project.api.common.model.dto.SecretIdPageDTO;
 import pers.project.api.common.model.query.*;
 import pers.project.api.common.model.vo.ApiAdminPageVO;
 import pers.project.api.common.model.vo.UserAdminPageVO;
@@ -134,4 +135,14 @@ public interface SecurityService {
      */
     ClientUserInfoDTO getClientUserInfoDTO(ClientUserInfoQuery userInfoQuery);
 
+    /**
+     * 根据提供的 {@code SecretIdPageQuery} 对象，返回一个 {@code SecretIdPageDTO} 对象，
+     * 该对象包含了按用户帐户主键升序的一页密钥 ID，用于 Gateway 同步已知的密钥 ID。
+     *
+     * @param pageQuery     密钥 ID 分页 Query
+     * @param internalToken 内部请求令牌
+     * @return 密钥 ID 分页 DTO
+     */
+    SecretIdPageDTO getSecretIdPageDTO(SecretIdPageQuery pageQuery, String internalToken);
+
 }
@@ -25,6 +25,8 @@ import pers.project.api.common.model.dto.QuantityUsageOrderStatusUpdateDTO;
 import pers.project.api.common.model.dto.QuantityUsageStockConfirmationDTO;
 import pers.project.api.common.model.dto.QuantityUsageStockDeductionDTO;
 import pers.project.api.common.model.dto.QuantityUsageStockReleaseDTO;
+import pers.project.api.common.util.KeysetPageUtils;
+import pers.project.api.common.util.KeysetPageUtils.KeysetPage;
 import pers.project.api.common.util.TransactionUtils;
 import pers.project.api.security.mapper.QuantityUsageOrderMapper;
 import pers.project.api.security.model.dto.*;
@@ -42,6 +44,7 @@ import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static com.baomidou.mybatisplus.core.toolkit.StringPool.COLON;
+import static java.lang.Boolean.TRUE;
 import static java.util.Objects.nonNull;
 import static org.apache.rocketmq.client.producer.LocalTransactionState.COMMIT_MESSAGE;
 import static org.apache.rocketmq.spring.core.RocketMQLocalTransactionState.COMMIT;
@@ -132,19 +135,30 @@ public class QuantityUsageOrderServiceImpl extends ServiceImpl<QuantityUsageOrde
         queryWrapper.and(ArrayUtils.isNotEmpty(updateTime),
                 wrapper -> wrapper.ge(QuantityUsageOrderPO::getUpdateTime, updateTime[0])
                         .le(QuantityUsageOrderPO::getUpdateTime, updateTime[1]));
-        // 分页查询
-        Page<QuantityUsageOrderPO> page = page
-                (Page.of(pageQuery.getCurrent(), pageQuery.getSize()), queryWrapper);
+        // 分页查询，未指定页码时使用键集分页
+        QuantityUsageOrderPageVO pageVO = new QuantityUsageOrderPageVO();
+        List<QuantityUsageOrderPO> quantityUsageOrderPOList;
+        if (pageQuery.getCurrent() != null) {
+            Page<QuantityUsageOrderPO> page = page
+                    (Page.of(pageQuery.getCurrent(), pageQuery.getSize()), queryWrapper);
+            pageVO.setTotal(page.getTotal());
+            quantityUsageOrderPOList = page.getRecords();
+        } else {
+            KeysetPage<QuantityUsageOrderPO> keysetPage = KeysetPageUtils.selectPage
+                    (baseMapper, queryWrapper, QuantityUsageOrderPO::getCreateTime, QuantityUsageOrderPO::getId,
+                            pageQuery.getCursor(), pageQuery.getSize(), TRUE.equals(pageQuery.getCountTotal()));
+            pageVO.setTotal(keysetPage.total());
+            pageVO.setNextCursor(keysetPage.nextCursor());
+            quantityUsageOrderPOList = keysetPage.records();
+        }
         // 转换查询到的分页数据
         List<QuantityUsageOrderVO> quantityUsageOrderVOList
-                = page.getRecords().stream().map(quantityUsageOrderPO -> {
+                = quantityUsageOrderPOList.stream().map(quantityUsageOrderPO -> {
             QuantityUsageOrderVO quantityUsageOrderVO = new QuantityUsageOrderVO();
             BeanUtils.copyProperties(quantityUsageOrderPO, quantityUsageOrderVO);
             quantityUsageOrderVO.setOrderId(quantityUsageOrderPO.getId());
             return quantityUsageOrderVO;
         }).collect(Collectors.toList());
-        QuantityUsageOrderPageVO pageVO = new QuantityUsageOrderPageVO();
-        pageVO.setTotal(page.getTotal());
         pageVO.setQuantityUsageOrderVOList(quantityUsageOrderVOList);
         return pageVO;
     }
@@ -18,9 +18,11 @@ import pers.project.api.client.InsightApiResponse;
 import pers.project.api.common.exception.BusinessException;
 import pers.project.api.common.model.Result;
 import pers.project.api.common.model.dto.ClientUserInfoDTO;
+import pers.project.api.common.model.dto.SecretIdPageDTO;
 import pers.project.api.common.model.query.*;
 import pers.project.api.common.model.vo.*;
 import pers.project.api.common.util.ResultUtils;
+import pers.project.api.security.config.property.InternalRequestProperties;
 import pers.project.api.security.enumeration.VerificationStrategyEnum;
 import pers.project.api.security.execption.VerificationContextException;
 import pers.project.api.security.feign.FacadeFeignClient;
@@ -37,12 +39,15 @@ import pers.project.api.security.model.vo.UserApiTestVO;
 import pers.project.api.security.service.SecurityService;
 import pers.project.api.security.verification.VerificationContext;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Supplier;
 
 import static org.springframework.util.StringUtils.commaDelimitedListToSet;
+import static pers.project.api.common.enumeration.ErrorEnum.ACCESS_ERROR;
 import static pers.project.api.common.enumeration.ErrorEnum.SERVER_ERROR;
 import static pers.project.api.common.enumeration.ErrorEnum.VERIFICATION_CODE_ERROR;
 import static pers.project.api.security.enumeration.VerificationStrategyEnum.EMAIL;
@@ -71,6 +76,8 @@ public class SecurityServiceImpl implements SecurityService {
 
     private final UserProfileMapper userProfileMapper;
 
+    private final InternalRequestProperties internalRequestProperties;
+
     @Override
     public void loadDeferredCsrfToken(HttpServletRequest request) {
         Object attribute = request.getAttribute(DEFAULT_CSRF_PARAMETER_NAME);
@@ -252,6 +259,36 @@ public class SecurityServiceImpl implements SecurityService {
         return clientUserInfoDTO;
     }
 
+    @Override
+    public SecretIdPageDTO getSecretIdPageDTO(SecretIdPageQuery pageQuery, String internalToken) {
+        // 全部密钥 ID 只提供给持有内部请求令牌的 Gateway，未配置令牌时拒绝
+        String expectedToken = internalRequestProperties.getToken();
+        if (expectedToken == null || expectedToken.isBlank() || internalToken == null
+            || !MessageDigest.isEqual(expectedToken.getBytes(StandardCharsets.UTF_8),
+                internalToken.getBytes(StandardCharsets.UTF_8))) {
+            throw new BusinessException(ACCESS_ERROR, "无权限访问");
+        }
+        // 按主键的键集分页，深分页也只扫描一页的数据
+        Integer size = pageQuery.getSize();
+        LambdaQueryWrapper<UserAccountPO> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.select(UserAccountPO::getId, UserAccountPO::getSecretId);
+        String lastAccountId = pageQuery.getLastAccountId();
+        if (lastAccountId != null) {
+            // 主键按数值比较，与字符串比较时 MySQL 会转换为浮点数而丢失精度，导致跳过部分帐户
+            queryWrapper.gt(UserAccountPO::getId, Long.parseLong(lastAccountId));
+        }
+        queryWrapper.isNotNull(UserAccountPO::getSecretId);
+        queryWrapper.orderByAsc(UserAccountPO::getId);
+        queryWrapper.last("LIMIT " + size);
+        List<UserAccountPO> userAccountPOList = userAccountMapper.selectList(queryWrapper);
+        SecretIdPageDTO secretIdPageDTO = new SecretIdPageDTO();
+        secretIdPageDTO.setSecretIds(userAccountPOList.stream().map(UserAccountPO::getSecretId).toList());
+        if (userAccountPOList.size() == size) {
+            secretIdPageDTO.setLastAccountId(userAccountPOList.get(size - 1).getId());
+        }
+        return secretIdPageDTO;
+    }
+
     /**
      * 将 JSON 字符串转换为字符串 Map
      *
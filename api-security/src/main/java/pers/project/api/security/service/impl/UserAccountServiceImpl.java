@@ -6,6 +6,8 @@ import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
 import org.springframework.security.core.session.SessionInformation;
 import org.springframework.security.core.session.SessionRegistry;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -32,6 +34,8 @@ import java.util.Base64;
 import java.util.List;
 import java.util.Set;
 
+import static pers.project.api.common.constant.redis.RedissonTopicNameConst.CLIENT_USER_INFO_INVALIDATION_TOPIC_NAME;
+import static pers.project.api.common.constant.redis.RedissonTopicNameConst.SECRET_ID_CREATION_TOPIC_NAME;
 import static pers.project.api.common.enumeration.ErrorEnum.*;
 import static pers.project.api.security.enumeration.VerificationStrategyEnum.PHONE;
 
@@ -65,6 +69,8 @@ public class UserAccountServiceImpl extends ServiceImpl<UserAccountMapper, UserA
 
     private final TransactionTemplate transactionTemplate;
 
+    private final RedissonClient redissonClient;
+
     @Override
     public void createUserAccount(UserAccountRegistryDTO userAccountRegistryDTO) {
         // 校验注册数据
@@ -115,6 +121,8 @@ public class UserAccountServiceImpl extends ServiceImpl<UserAccountMapper, UserA
         // 使用 Base64 编码为可读的字符串
         String secretId = BASE64_ENCODER.encodeToString(secretIdBytes);
         String secretKey = BASE64_ENCODER.encodeToString(secretKeyBytes);
+        // 查询原来的密钥 ID，更新后需要使 Gateway 缓存的用户信息失效
+        String originalSecretId = getSecretIdByAccountId(accountCodeCheckDTO.getAccountId());
         // 保存唯一密钥对
         LambdaUpdateWrapper<UserAccountPO> updateWrapper = new LambdaUpdateWrapper<>();
         updateWrapper.set(UserAccountPO::getSecretId, secretId);
@@ -130,6 +138,8 @@ public class UserAccountServiceImpl extends ServiceImpl<UserAccountMapper, UserA
             log.error(message, e);
             throw new BusinessException(DATABASE_ERROR, "创建密钥失败，请稍后再试");
         }
+        publishClientUserInfoInvalidation(originalSecretId);
+        publishSecretIdCreation(secretId);
         // 更新 Spring Security 上下文中的用户资料
         CustomUserDetails userDetails = userDetailsService.getLoginUserDetails();
         userDetails.setSecretId(secretId);
@@ -172,6 +182,7 @@ public class UserAccountServiceImpl extends ServiceImpl<UserAccountMapper, UserA
         updateWrapper.set(UserAccountPO::getAccountStatus, targetStatusCode);
         updateWrapper.eq(UserAccountPO::getId, modificationDTO.getAccountId());
         update(updateWrapper);
+        publishClientUserInfoInvalidation(getSecretIdByAccountId(modificationDTO.getAccountId()));
         // 更新 Session 中的账户状态
         CustomUserDetails userDetails = userDetailsService.getLoginUserDetails();
         userDetails.setAccountStatus(targetStatusCode);
@@ -392,8 +403,55 @@ public class UserAccountServiceImpl extends ServiceImpl<UserAccountMapper, UserA
         }
     }
 
-}
-
+    /**
+     * 根据账户主键查询密钥 ID。
+     *
+     * @param accountId 账户主键
+     * @return 密钥 ID，如果账户还没有密钥则返回 null
+     */
+    private String getSecretIdByAccountId(String accountId) {
+        LambdaQueryWrapper<UserAccountPO> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.select(UserAccountPO::getSecretId);
+        queryWrapper.eq(UserAccountPO::getId, accountId);
+        UserAccountPO userAccountPO = getOne(queryWrapper);
+        return userAccountPO == null ? null : userAccountPO.getSecretId();
+    }
 
+    /**
+     * 发布客户端用户信息失效消息。
+     * <p>
+     * Gateway 收到消息后使本地缓存的用户信息失效。发布失败只记录日志，
+     * Gateway 缓存的过期时间是兜底的失效方式。
+     *
+     * @param secretId 失效的密钥 ID，为 null 时不发布
+     */
+    private void publishClientUserInfoInvalidation(String secretId) {
+        if (secretId == null) {
+            return;
+        }
+        try {
+            redissonClient.getTopic(CLIENT_USER_INFO_INVALIDATION_TOPIC_NAME, StringCodec.INSTANCE)
+                    .publish(secretId);
+        } catch (Exception e) {
+            log.warn("Failed to publish client user info invalidation, secretId: {}, exception message: {}",
+                    secretId, e.getMessage());
+        }
+    }
 
+    /**
+     * 发布密钥 ID 创建消息
+     * <p>
+     * Gateway 的预校验只放行已知的密钥 ID，发布失败时新的密钥 ID 要等到 Gateway 下一次全量同步后才能使用。
+     *
+     * @param secretId 新的密钥 ID
+     */
+    private void publishSecretIdCreation(String secretId) {
+        try {
+            redissonClient.getTopic(SECRET_ID_CREATION_TOPIC_NAME, StringCodec.INSTANCE).publish(secretId);
+        } catch (Exception e) {
+            log.warn("Failed to publish secret id creation, secretId: {}, exception message: {}",
+                    secretId, e.getMessage());
+        }
+    }
 
+}
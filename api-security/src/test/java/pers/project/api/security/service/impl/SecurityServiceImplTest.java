@@ -0,0 +1,100 @@
+package pers.project.api.security.service.impl;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import pers.project.api.common.model.dto.SecretIdPageDTO;
+import pers.project.api.common.model.query.SecretIdPageQuery;
+import pers.project.api.security.config.property.InternalRequestProperties;
+import pers.project.api.security.mapper.UserAccountMapper;
+import pers.project.api.security.model.po.UserAccountPO;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link SecurityServiceImpl} 的密钥 ID 分页测试
+ *
+ * @author Luo Fei
+ * @date 2023/07/26
+ */
+class SecurityServiceImplTest {
+
+    private static final String INTERNAL_TOKEN = "internal-token";
+
+    /**
+     * 2^15 的倍数，附近相邻的雪花 ID 转换为浮点数后都等于该值
+     */
+    private static final long DOUBLE_ALIGNED_ID = 1_684_000_000_000_000_000L;
+
+    @BeforeAll
+    static void initTableInfo() {
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""),
+                UserAccountPO.class);
+    }
+
+    @Test
+    void pagesAcrossIdsSharingOneDoubleValue() {
+        List<UserAccountPO> accounts = new ArrayList<>();
+        for (long i = 1; i <= 5; i++) {
+            accounts.add(UserAccountPO.builder()
+                    .id(String.valueOf(DOUBLE_ALIGNED_ID + i))
+                    .secretId("secret-id-" + i)
+                    .build());
+        }
+        assertThat(accounts).allMatch(account -> Double.parseDouble(account.getId()) == DOUBLE_ALIGNED_ID);
+
+        int size = 2;
+        UserAccountMapper userAccountMapper = mock(UserAccountMapper.class);
+        when(userAccountMapper.selectList(any())).thenAnswer(invocation -> {
+            LambdaQueryWrapper<UserAccountPO> queryWrapper = invocation.getArgument(0);
+            return accounts.stream()
+                    .filter(afterCursor(queryWrapper))
+                    .sorted(Comparator.comparing(account -> Long.parseLong(account.getId())))
+                    .limit(size)
+                    .toList();
+        });
+        InternalRequestProperties internalRequestProperties = new InternalRequestProperties();
+        internalRequestProperties.setToken(INTERNAL_TOKEN);
+        SecurityServiceImpl securityService = new SecurityServiceImpl(null, null, null,
+                userAccountMapper, null, internalRequestProperties);
+
+        List<String> secretIds = new ArrayList<>();
+        SecretIdPageQuery pageQuery = new SecretIdPageQuery();
+        pageQuery.setSize(size);
+        do {
+            SecretIdPageDTO secretIdPageDTO = securityService.getSecretIdPageDTO(pageQuery, INTERNAL_TOKEN);
+            secretIds.addAll(secretIdPageDTO.getSecretIds());
+            pageQuery.setLastAccountId(secretIdPageDTO.getLastAccountId());
+        } while (pageQuery.getLastAccountId() != null);
+
+        assertThat(secretIds).containsExactlyElementsOf(
+                accounts.stream().map(UserAccountPO::getSecretId).toList());
+    }
+
+    /**
+     * 按 MySQL 的规则模拟 {@code id > ?}：BIGINT 与字符串比较时两者都转换为浮点数，与整数比较时按整数比较
+     */
+    private static Predicate<UserAccountPO> afterCursor(LambdaQueryWrapper<UserAccountPO> queryWrapper) {
+        Object cursor = queryWrapper.getParamNameValuePairs().values().stream().findFirst().orElse(null);
+        if (cursor == null) {
+            return account -> true;
+        }
+        if (cursor instanceof Number number) {
+            return account -> Long.parseLong(account.getId()) > number.longValue();
+        }
+        double doubleCursor = Double.parseDouble(cursor.toString());
+        return account -> Double.parseDouble(account.getId()) > doubleCursor;
+    }
+
+}
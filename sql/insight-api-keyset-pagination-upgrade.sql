@@ -0,0 +1,14 @@
+###########################################################################################
+# 已有数据库的升级脚本：键集分页索引
+# 新建的数据库直接使用 insight-api.sql，不需要执行本脚本。
+# 二级索引隐含主键，(create_time) 和 (account_id, create_time) 即可支持按 (create_time, id) 降序的键集分页。
+###########################################################################################
+USE `api-facade`;
+
+ALTER TABLE `api-facade`.`api_digest`
+    ADD INDEX `idx_create_time` (`create_time`);
+
+USE `api-security`;
+
+ALTER TABLE `api-security`.`quantity_usage_order`
+    ADD INDEX `idx_account_id_create_time` (`account_id`, `create_time`);
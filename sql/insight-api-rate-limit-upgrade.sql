@@ -0,0 +1,11 @@
+###########################################################################################
+# 已有数据库的升级脚本：接口限流
+# 新建的数据库直接使用 insight-api.sql，不需要执行本脚本。
+###########################################################################################
+USE `api-facade`;
+
+ALTER TABLE `api-facade`.`api_digest`
+    ADD COLUMN `rate_limit` INT UNSIGNED DEFAULT 0 NOT NULL COMMENT '接口每秒请求数限制（0 表示不限制）' AFTER `api_status`;
+
+ALTER TABLE `api-facade`.`user_quantity_usage`
+    ADD COLUMN `rate_limit` INT UNSIGNED DEFAULT 0 NOT NULL COMMENT '用户每秒请求数限制（0 表示不限制）' AFTER `usage_status`;
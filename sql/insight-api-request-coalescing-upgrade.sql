@@ -0,0 +1,8 @@
+###########################################################################################
+# 已有数据库的升级脚本：请求合并
+# 新建的数据库直接使用 insight-api.sql，不需要执行本脚本。
+###########################################################################################
+USE `api-facade`;
+
+ALTER TABLE `api-facade`.`api_digest`
+    ADD COLUMN `coalescing_enabled` TINYINT DEFAULT 0 NOT NULL COMMENT '是否合并相同的并发请求（1 表示合并，0 表示不合并）' AFTER `cache_hit_charged`;
@@ -0,0 +1,10 @@
+###########################################################################################
+# 已有数据库的升级脚本：响应缓存
+# 新建的数据库直接使用 insight-api.sql，不需要执行本脚本。
+###########################################################################################
+USE `api-facade`;
+
+ALTER TABLE `api-facade`.`api_digest`
+    ADD COLUMN `cache_ttl`         INT UNSIGNED DEFAULT 0 NOT NULL COMMENT '响应缓存时长（单位：秒，0 表示不缓存）' AFTER `rate_limit`,
+    ADD COLUMN `cache_key_params`  VARCHAR(512)           NULL COMMENT '响应缓存键包含的请求参数（, 分隔，为空表示全部参数）' AFTER `cache_ttl`,
+    ADD COLUMN `cache_hit_charged` TINYINT      DEFAULT 1 NOT NULL COMMENT '命中响应缓存是否扣减调用次数（1 表示扣减，0 表示不扣减）' AFTER `cache_key_params`;
@@ -0,0 +1,22 @@
+###########################################################################################
+# 已有数据库的升级脚本：接口路由索引
+# 新建的数据库直接使用 insight-api.sql，不需要执行本脚本。
+# 添加唯一索引前需要先处理同一账户、同一接口的重复用户接口计数用法。
+###########################################################################################
+USE `api-facade`;
+
+ALTER TABLE `api-facade`.`api_digest`
+    ADD COLUMN `method_mask` SMALLINT UNSIGNED AS (
+            (FIND_IN_SET('GET', `method`) > 0)
+            | ((FIND_IN_SET('HEAD', `method`) > 0) << 1)
+            | ((FIND_IN_SET('POST', `method`) > 0) << 2)
+            | ((FIND_IN_SET('PUT', `method`) > 0) << 3)
+            | ((FIND_IN_SET('DELETE', `method`) > 0) << 4)
+            | ((FIND_IN_SET('OPTIONS', `method`) > 0) << 5)
+            | ((FIND_IN_SET('TRACE', `method`) > 0) << 6)
+            | ((FIND_IN_SET('PATCH', `method`) > 0) << 7)
+        ) STORED NOT NULL COMMENT '请求方法位掩码' AFTER `url`,
+    ADD INDEX `idx_url_method_mask` (`url`, `method_mask`, `is_deleted`);
+
+ALTER TABLE `api-facade`.`user_quantity_usage`
+    ADD UNIQUE INDEX `uk_account_id_digest_id` (`account_id`, `digest_id`);
@@ -0,0 +1,9 @@
+###########################################################################################
+# 已有数据库的升级脚本：接口路由表增量刷新索引
+# 新建的数据库直接使用 insight-api.sql，不需要执行本脚本。
+# Facade 的接口路由表每秒按 update_time 增量刷新，没有该索引时每次刷新都会全表扫描。
+###########################################################################################
+USE `api-facade`;
+
+ALTER TABLE `api-facade`.`api_digest`
+    ADD INDEX `idx_update_time` (`update_time`);
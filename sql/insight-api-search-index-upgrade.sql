@@ -0,0 +1,11 @@
+###########################################################################################
+# 已有数据库的升级脚本：接口全文检索同步索引
+# 新建的数据库直接使用 insight-api.sql，不需要执行本脚本。
+# Facade 的全文检索索引按 update_time 增量同步接口摘要和接口格式，按 digest_id 读取接口格式。
+# 需要先执行 insight-api-route-table-upgrade.sql，接口摘要的 update_time 索引在其中添加。
+###########################################################################################
+USE `api-facade`;
+
+ALTER TABLE `api-facade`.`api_format`
+    ADD INDEX `idx_digest_id` (`digest_id`),
+    ADD INDEX `idx_update_time` (`update_time`);
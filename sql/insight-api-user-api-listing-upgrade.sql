@@ -0,0 +1,9 @@
+###########################################################################################
+# 已有数据库的升级脚本：用户接口列表索引
+# 新建的数据库直接使用 insight-api.sql，不需要执行本脚本。
+# 分页查询用户使用的接口时，子查询只读取该覆盖索引，不需要回表判断 is_deleted。
+###########################################################################################
+USE `api-facade`;
+
+ALTER TABLE `api-facade`.`user_quantity_usage`
+    ADD INDEX `idx_account_id_is_deleted_digest_id` (`account_id`, `is_deleted`, `digest_id`);
@@ -4,17 +4,36 @@ USE `api-facade`;
 
 CREATE TABLE IF NOT EXISTS `api-facade`.`api_digest`
 (
-    `id`          BIGINT UNSIGNED                 NOT NULL COMMENT '主键' PRIMARY KEY,
-    `account_id`  BIGINT UNSIGNED                 NOT NULL COMMENT '创建账户主键',
-    `api_name`    VARCHAR(256)                    NOT NULL COMMENT '接口名称',
-    `description` VARCHAR(1024)                   NULL COMMENT '接口描述',
-    `method`      VARCHAR(256)                    NOT NULL COMMENT '请求方法',
-    `url`         VARCHAR(512)                    NOT NULL COMMENT '接口地址',
-    `usage_type`  VARCHAR(256) DEFAULT 'QUANTITY' NOT NULL COMMENT '接口用法类型',
-    `api_status`  TINYINT      DEFAULT 0          NOT NULL COMMENT '接口状态',
-    `is_deleted`  TINYINT      DEFAULT 0          NOT NULL COMMENT '是否删除（1 表示删除，0 表示未删除）',
-    `create_time` DATETIME     DEFAULT NOW()      NOT NULL COMMENT '创建时间',
-    `update_time` DATETIME     DEFAULT NOW()      NOT NULL ON UPDATE NOW() COMMENT '更新时间'
+    `id`                 BIGINT UNSIGNED                    NOT NULL COMMENT '主键' PRIMARY KEY,
+    `account_id`         BIGINT UNSIGNED                    NOT NULL COMMENT '创建账户主键',
+    `api_name`           VARCHAR(256)                       NOT NULL COMMENT '接口名称',
+    `description`        VARCHAR(1024)                      NULL COMMENT '接口描述',
+    `method`             VARCHAR(256)                       NOT NULL COMMENT '请求方法',
+    `url`                VARCHAR(512)                       NOT NULL COMMENT '接口地址',
+    # 由 method 生成，位的顺序与 ApiMethodEnum 一致，查询接口时按位与匹配请求方法，不需要模糊查询
+    `method_mask`        SMALLINT UNSIGNED AS (
+            (FIND_IN_SET('GET', `method`) > 0)
+            | ((FIND_IN_SET('HEAD', `method`) > 0) << 1)
+            | ((FIND_IN_SET('POST', `method`) > 0) << 2)
+            | ((FIND_IN_SET('PUT', `method`) > 0) << 3)
+            | ((FIND_IN_SET('DELETE', `method`) > 0) << 4)
+            | ((FIND_IN_SET('OPTIONS', `method`) > 0) << 5)
+            | ((FIND_IN_SET('TRACE', `method`) > 0) << 6)
+            | ((FIND_IN_SET('PATCH', `method`) > 0) << 7)
+        ) STORED                                            NOT NULL COMMENT '请求方法位掩码',
+    `usage_type`         VARCHAR(256)    DEFAULT 'QUANTITY' NOT NULL COMMENT '接口用法类型',
+    `api_status`         TINYINT         DEFAULT 0          NOT NULL COMMENT '接口状态',
+    `rate_limit`         INT UNSIGNED    DEFAULT 0          NOT NULL COMMENT '接口每秒请求数限制（0 表示不限制）',
+    `cache_ttl`          INT UNSIGNED    DEFAULT 0          NOT NULL COMMENT '响应缓存时长（单位：秒，0 表示不缓存）',
+    `cache_key_params`   VARCHAR(512)                       NULL COMMENT '响应缓存键包含的请求参数（, 分隔，为空表示全部参数）',
+    `cache_hit_charged`  TINYINT         DEFAULT 1          NOT NULL COMMENT '命中响应缓存是否扣减调用次数（1 表示扣减，0 表示不扣减）',
+    `coalescing_enabled` TINYINT         DEFAULT 0          NOT NULL COMMENT '是否合并相同的并发请求（1 表示合并，0 表示不合并）',
+    `is_deleted`         TINYINT         DEFAULT 0          NOT NULL COMMENT '是否删除（1 表示删除，0 表示未删除）',
+    `create_time`        DATETIME        DEFAULT NOW()      NOT NULL COMMENT '创建时间',
+    `update_time`        DATETIME        DEFAULT NOW()      NOT NULL ON UPDATE NOW() COMMENT '更新时间',
+    INDEX `idx_url_method_mask` (`url`, `method_mask`, `is_deleted`),
+    INDEX `idx_create_time` (`create_time`),
+    INDEX `idx_update_time` (`update_time`)
 ) COMMENT '接口摘要';
 
 CREATE TABLE IF NOT EXISTS `api-facade`.`api_format`
@@ -28,7 +47,9 @@ CREATE TABLE IF NOT EXISTS `api-facade`.`api_format`
     `response_body`   TEXT                   NULL COMMENT '响应体',
     `is_deleted`      TINYINT  DEFAULT 0     NOT NULL COMMENT '是否删除（1 表示删除，0 表示未删除）',
     `create_time`     DATETIME DEFAULT NOW() NOT NULL COMMENT '创建时间',
-    `update_time`     DATETIME DEFAULT NOW() NOT NULL ON UPDATE NOW() COMMENT '更新时间'
+    `update_time`     DATETIME DEFAULT NOW() NOT NULL ON UPDATE NOW() COMMENT '更新时间',
+    INDEX `idx_digest_id` (`digest_id`),
+    INDEX `idx_update_time` (`update_time`)
 ) COMMENT '接口格式';
 
 # 接口文档，可单独用一个表存
@@ -65,9 +86,12 @@ CREATE TABLE IF NOT EXISTS `api-facade`.`user_quantity_usage`
     `failure`      BIGINT UNSIGNED DEFAULT 0     NOT NULL COMMENT '失败调用次数',
     `stock`        BIGINT UNSIGNED DEFAULT 0     NOT NULL COMMENT '调用次数存量',
     `usage_status` TINYINT         DEFAULT 0     NOT NULL COMMENT '用法状态',
+    `rate_limit`   INT UNSIGNED    DEFAULT 0     NOT NULL COMMENT '用户每秒请求数限制（0 表示不限制）',
     `is_deleted`   TINYINT         DEFAULT 0     NOT NULL COMMENT '是否删除（1 表示删除，0 表示未删除）',
     `create_time`  DATETIME        DEFAULT NOW() NOT NULL COMMENT '创建时间',
-    `update_time`  DATETIME        DEFAULT NOW() NOT NULL ON UPDATE NOW() COMMENT '更新时间'
+    `update_time`  DATETIME        DEFAULT NOW() NOT NULL ON UPDATE NOW() COMMENT '更新时间',
+    UNIQUE INDEX `uk_account_id_digest_id` (`account_id`, `digest_id`),
+    INDEX `idx_account_id_is_deleted_digest_id` (`account_id`, `is_deleted`, `digest_id`)
 ) COMMENT '用户接口计数用法';
 
 ###########################################################################################
@@ -121,7 +145,8 @@ CREATE TABLE IF NOT EXISTS `api-security`.`quantity_usage_order`
     `order_status` TINYINT         DEFAULT 0     NOT NULL COMMENT '订单状态',
     `is_deleted`   TINYINT         DEFAULT 0     NOT NULL COMMENT '是否删除（1 表示删除，0 表示未删除）',
     `create_time`  DATETIME        DEFAULT NOW() NOT NULL COMMENT '创建时间',
-    `update_time`  DATETIME        DEFAULT NOW() NOT NULL ON UPDATE NOW() COMMENT '更新时间'
+    `update_time`  DATETIME        DEFAULT NOW() NOT NULL ON UPDATE NOW() COMMENT '更新时间',
+    INDEX `idx_account_id_create_time` (`account_id`, `create_time`)
 ) COMMENT '接口计数用法订单';
 
 ###########################################################################################